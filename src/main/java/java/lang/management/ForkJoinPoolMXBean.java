@@ -0,0 +1,137 @@
+package java.lang.management;
+
+/**
+ * The management interface for a {@link
+ * java.util.concurrent.ForkJoinPool ForkJoinPool}, reporting live
+ * estimates of its thread counts, queue depths and steal counts.
+ * Pools are monitored only if they have been published by {@link
+ * java.util.concurrent.ForkJoinPool#enableManagement
+ * ForkJoinPool.enableManagement}; the common pool is always
+ * published.
+ *
+ * <p> A class implementing this interface is an
+ * {@link javax.management.MXBean}. A Java
+ * virtual machine has one or more implementations of this interface, one
+ * for each published pool. The {@link
+ * java.lang.management.ManagementFactory#getPlatformMXBeans getPlatformMXBeans}
+ * method can be used to obtain the list of {@code ForkJoinPoolMXBean}
+ * objects for the pools published at the time of the call as follows:
+ * <pre>
+ *     List&lt;ForkJoinPoolMXBean&gt; pools = ManagementFactory.getPlatformMXBeans(ForkJoinPoolMXBean.class);
+ * </pre>
+ *
+ * <p> Once {@link ManagementFactory#getPlatformMBeanServer
+ * getPlatformMBeanServer} has been called, the management interface of a
+ * pool is registered with the platform {@link
+ * javax.management.MBeanServer MBeanServer} when the pool is published,
+ * and unregistered when it terminates or is found unreachable. The {@link
+ * javax.management.ObjectName ObjectName} that uniquely identifies the
+ * management interface within the {@code MBeanServer} takes the form:
+ * <pre>
+ *     java.util.concurrent:type=ForkJoinPool,name=<i>quoted name</i>
+ * </pre>
+ * where <em>quoted name</em> is the {@link #getName name} of the pool,
+ * quoted as by {@link javax.management.ObjectName#quote ObjectName.quote}.
+ *
+ * <p> An MXBean does not keep its pool reachable; once the pool has
+ * been garbage collected, its counts are reported as zero.
+ *
+ * @since   1.8
+ */
+public interface ForkJoinPoolMXBean extends PlatformManagedObject {
+
+    /**
+     * Returns the name of the pool.
+     *
+     * @return  The name of the pool.
+     * @see java.util.concurrent.ForkJoinPool#getName
+     */
+    String getName();
+
+    /**
+     * Returns the targeted parallelism level of the pool.
+     *
+     * @return  The parallelism level.
+     */
+    int getParallelism();
+
+    /**
+     * Returns the number of worker threads that have started but not
+     * yet terminated.
+     *
+     * @return  The number of worker threads.
+     */
+    int getPoolSize();
+
+    /**
+     * Returns an estimate of the number of threads that are currently
+     * stealing or executing tasks.
+     *
+     * @return  The number of active threads.
+     */
+    int getActiveThreadCount();
+
+    /**
+     * Returns an estimate of the number of worker threads that are
+     * not blocked waiting to join tasks or for other managed
+     * synchronization.
+     *
+     * @return  The number of running threads.
+     */
+    int getRunningThreadCount();
+
+    /**
+     * Returns an estimate of the number of tasks held in the queues
+     * of worker threads.
+     *
+     * @return  The number of queued tasks.
+     */
+    long getQueuedTaskCount();
+
+    /**
+     * Returns an estimate of the number of submitted tasks, including
+     * priority submissions, that have not yet begun executing.
+     *
+     * @return  The number of queued submissions.
+     */
+    int getQueuedSubmissionCount();
+
+    /**
+     * Returns an estimate of the number of priority submissions that
+     * have not yet begun executing.
+     *
+     * @return  The number of queued priority submissions.
+     */
+    int getQueuedPrioritySubmissionCount();
+
+    /**
+     * Returns an estimate of the total number of tasks stolen from one
+     * thread's work queue by another.
+     *
+     * @return  The number of steals.
+     */
+    long getStealCount();
+
+    /**
+     * Returns the maximum number of tasks held in each submission
+     * queue, or {@code Integer.MAX_VALUE} if they are not bounded.
+     *
+     * @return  The submission queue capacity.
+     */
+    int getSubmissionQueueCapacity();
+
+    /**
+     * Returns the number of submissions rejected because the
+     * submission queues were full.
+     *
+     * @return  The number of rejected submissions.
+     */
+    long getRejectedSubmissionCount();
+
+    /**
+     * Returns {@code true} if the pool has been shut down.
+     *
+     * @return  {@code true} if the pool has been shut down.
+     */
+    boolean isShutdown();
+}
@@ -0,0 +1,90 @@
+package java.lang.management;
+
+/**
+ * The management interface for the contention statistics of a named
+ * group of locks, as recorded in a {@link
+ * java.util.concurrent.locks.LockStatistics LockStatistics}.  Statistics
+ * are kept only for locks on which they have been enabled, for example
+ * by {@link java.util.concurrent.locks.ReentrantLock#enableStatistics
+ * ReentrantLock.enableStatistics}, {@link
+ * java.util.concurrent.locks.StampedLock#enableStatistics
+ * StampedLock.enableStatistics} or {@link
+ * java.util.concurrent.Semaphore#enableStatistics
+ * Semaphore.enableStatistics}, and all locks enabled under one name
+ * share one set of statistics.
+ *
+ * <p> A class implementing this interface is an
+ * {@link javax.management.MXBean}. A Java
+ * virtual machine has zero or more implementations of this interface, one
+ * for each name under which statistics are registered. The {@link
+ * java.lang.management.ManagementFactory#getPlatformMXBeans getPlatformMXBeans}
+ * method can be used to obtain the list of {@code LockContentionMXBean}
+ * objects for the statistics registered at the time of the call as follows:
+ * <pre>
+ *     List&lt;LockContentionMXBean&gt; locks = ManagementFactory.getPlatformMXBeans(LockContentionMXBean.class);
+ * </pre>
+ *
+ * <p> Once {@link ManagementFactory#getPlatformMBeanServer
+ * getPlatformMBeanServer} has been called, the management interface of
+ * statistics is registered with the platform {@link
+ * javax.management.MBeanServer MBeanServer} when the statistics are
+ * registered, and unregistered when they are found unreachable. The {@link
+ * javax.management.ObjectName ObjectName} that uniquely identifies the
+ * management interface within the {@code MBeanServer} takes the form:
+ * <pre>
+ *     java.util.concurrent.locks:type=LockContention,name=<i>quoted name</i>
+ * </pre>
+ * where <em>quoted name</em> is the {@link #getName name} of the statistics,
+ * quoted as by {@link javax.management.ObjectName#quote ObjectName.quote}.
+ *
+ * @since   1.8
+ */
+public interface LockContentionMXBean extends PlatformManagedObject {
+
+    /**
+     * Returns the name under which the statistics are registered.
+     *
+     * @return  The name of the statistics.
+     */
+    String getName();
+
+    /**
+     * Returns an estimate of the number of acquisitions of the locks,
+     * including contended ones.
+     *
+     * @return  An estimate of the number of acquisitions
+     */
+    long getAcquisitionCount();
+
+    /**
+     * Returns an estimate of the number of acquisitions for which the
+     * acquiring thread had to wait for the lock to be released.
+     *
+     * @return  An estimate of the number of contended acquisitions
+     */
+    long getContendedAcquisitionCount();
+
+    /**
+     * Returns an estimate of the total time threads have spent blocked
+     * waiting to acquire the locks.
+     *
+     * @return  An estimate of the total blocked time in nanoseconds
+     */
+    long getParkTime();
+
+    /**
+     * Returns an estimate of the number of threads now waiting to
+     * acquire the locks.
+     *
+     * @return  An estimate of the number of waiting threads
+     */
+    int getQueueLength();
+
+    /**
+     * Returns the largest number of threads seen waiting to acquire
+     * the locks at the same time.
+     *
+     * @return  The maximum number of waiting threads
+     */
+    int getMaxQueueLength();
+}
@@ -219,6 +219,14 @@ import sun.management.ManagementFactoryHelper;
  * <td> {@link BufferPoolMXBean} </td>
  * <td> {@code java.nio:type=BufferPool,name=}<i>pool name</i></td>
  * </tr>
+ * <tr>
+ * <td> {@link LockContentionMXBean} </td>
+ * <td> {@code java.util.concurrent.locks:type=LockContention,name=}<i>quoted name</i></td>
+ * </tr>
+ * <tr>
+ * <td> {@link ForkJoinPoolMXBean} </td>
+ * <td> {@code java.util.concurrent:type=ForkJoinPool,name=}<i>quoted name</i></td>
+ * </tr>
  * </table>
  * </blockquote>
  *
@@ -446,6 +454,14 @@ public class ManagementFactory {
      * and discovery.
      * Name conflicts with the platform MXBeans should be avoided.
      *
+     * <p>
+     * After the first call, the {@link LockContentionMXBean} of lock
+     * statistics is registered into the platform {@code MBeanServer}
+     * when the statistics are registered, and unregistered when they
+     * are found unreachable.  Likewise the {@link ForkJoinPoolMXBean}
+     * of a pool is registered when the pool is published, and
+     * unregistered when it terminates or is found unreachable.
+     *
      * @return the platform {@code MBeanServer}; the platform
      *         MXBeans are registered into the platform {@code MBeanServer}
      *         at the first time this method is called.
@@ -489,6 +505,11 @@ public class ManagementFactory {
             for (Map.Entry<ObjectName, DynamicMBean> e : dynmbeans.entrySet()) {
                 addDynamicMBean(platformMBeanServer, e.getValue(), e.getKey());
             }
+            // Lock statistics, published pools and off-heap maps come and
+            // go at any time
+            PlatformComponent.trackLockContentionMXBeans(platformMBeanServer);
+            PlatformComponent.trackForkJoinPoolMXBeans(platformMBeanServer);
+            PlatformComponent.trackOffHeapBufferPools(platformMBeanServer);
         }
         return platformMBeanServer;
     }
@@ -817,7 +838,7 @@ public class ManagementFactory {
     /**
      * Registers an MXBean.
      */
-    private static void addMXBean(final MBeanServer mbs, final PlatformManagedObject pmo) {
+    static void addMXBean(final MBeanServer mbs, final PlatformManagedObject pmo) {
         // Make DynamicMBean out of MXBean by wrapping it with a StandardMBean
         try {
             AccessController.doPrivileged(new PrivilegedExceptionAction<Void>() {
@@ -25,6 +25,11 @@
 
 package java.lang.management;
 
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -32,6 +37,13 @@ import java.util.HashSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentOffHeapMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockStatistics;
+import java.util.function.BiConsumer;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
 import javax.management.MBeanServerConnection;
 import javax.management.ObjectName;
 
@@ -216,6 +228,32 @@ enum PlatformComponent {
             }
         }),
 
+    /**
+     * Contention statistics of named locks.
+     */
+    LOCK_CONTENTION(
+        "java.lang.management.LockContentionMXBean",
+        "java.util.concurrent.locks", "LockContention", keyProperties("name"),
+        false, // zero or more instances
+        new MXBeanFetcher<LockContentionMXBean>() {
+            public List<LockContentionMXBean> getMXBeans() {
+                return getLockContentionMXBeans();
+            }
+        }),
+
+    /**
+     * Fork/join pools published for monitoring.
+     */
+    FORK_JOIN_POOL(
+        "java.lang.management.ForkJoinPoolMXBean",
+        "java.util.concurrent", "ForkJoinPool", keyProperties("name"),
+        false, // zero or more instances
+        new MXBeanFetcher<ForkJoinPoolMXBean>() {
+            public List<ForkJoinPoolMXBean> getMXBeans() {
+                return getForkJoinPoolMXBeans();
+            }
+        }),
+
 
     // Sun Platform Extension
 
@@ -296,6 +334,304 @@ enum PlatformComponent {
         return result;
     }
 
+    /*
+     * Returns an MXBean for each registered LockStatistics.
+     */
+    private static List<LockContentionMXBean> getLockContentionMXBeans() {
+        List<LockStatistics> list = LockStatistics.getAll();
+        List<LockContentionMXBean> result = new ArrayList<>(list.size());
+        for (LockStatistics s : list) {
+            result.add(new LockContentionImpl(s));
+        }
+        return result;
+    }
+
+    private static ObjectName lockContentionName(String name) {
+        return Util.newObjectName(
+            "java.util.concurrent.locks:type=LockContention,name=" +
+            ObjectName.quote(name));
+    }
+
+    /**
+     * Implementation of LockContentionMXBean, reading a LockStatistics
+     * that it does not keep reachable.
+     */
+    private static class LockContentionImpl implements LockContentionMXBean {
+        private final WeakReference<LockStatistics> stats;
+        private final String name;
+        private final ObjectName objname;
+
+        LockContentionImpl(LockStatistics stats) {
+            this.stats = new WeakReference<>(stats);
+            this.name = stats.getName();
+            this.objname = lockContentionName(name);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getAcquisitionCount() {
+            LockStatistics s = stats.get();
+            return (s == null) ? 0L : s.getAcquisitionCount();
+        }
+
+        public long getContendedAcquisitionCount() {
+            LockStatistics s = stats.get();
+            return (s == null) ? 0L : s.getContendedAcquisitionCount();
+        }
+
+        public long getParkTime() {
+            LockStatistics s = stats.get();
+            return (s == null) ? 0L : s.getParkTime();
+        }
+
+        public int getQueueLength() {
+            LockStatistics s = stats.get();
+            return (s == null) ? 0 : s.getQueueLength();
+        }
+
+        public int getMaxQueueLength() {
+            LockStatistics s = stats.get();
+            return (s == null) ? 0 : s.getMaxQueueLength();
+        }
+
+        public ObjectName getObjectName() {
+            return objname;
+        }
+    }
+
+    /*
+     * Makes the MXBeans of lock statistics follow the statistics into
+     * and out of the given server from now on, and registers those of
+     * statistics already registered.
+     */
+    static void trackLockContentionMXBeans(final MBeanServer mbs) {
+        installHook(LockStatistics.class, "registrationHook",
+            new BiConsumer<String, LockStatistics>() {
+                public void accept(String name, LockStatistics stats) {
+                    if (stats != null)
+                        registerQuietly(mbs, new LockContentionImpl(stats));
+                    else
+                        unregisterQuietly(mbs, lockContentionName(name));
+                }
+            });
+        for (LockStatistics s : LockStatistics.getAll())
+            registerQuietly(mbs, new LockContentionImpl(s));
+    }
+
+    /*
+     * Makes the MXBeans of published pools follow the pools into and
+     * out of the given server from now on, and registers those of
+     * pools already published.
+     */
+    static void trackForkJoinPoolMXBeans(final MBeanServer mbs) {
+        installHook(ForkJoinPool.class, "managementHook",
+            new BiConsumer<String, ForkJoinPool>() {
+                public void accept(String name, ForkJoinPool pool) {
+                    if (pool != null)
+                        registerQuietly(mbs, new ForkJoinPoolImpl(pool));
+                    else
+                        unregisterQuietly(mbs, forkJoinPoolName(name));
+                }
+            });
+        for (ForkJoinPool p : ForkJoinPool.getManagedPools())
+            registerQuietly(mbs, new ForkJoinPoolImpl(p));
+    }
+
+    /*
+     * Makes the buffer pool MXBeans of off-heap maps follow the maps
+     * into and out of the given server from now on, and registers
+     * those of maps already live.
+     */
+    static void trackOffHeapBufferPools(final MBeanServer mbs) {
+        installHook(ConcurrentOffHeapMap.class, "poolHook",
+            new BiConsumer<String, BufferPoolMXBean>() {
+                public void accept(String name, BufferPoolMXBean pool) {
+                    if (pool != null)
+                        registerQuietly(mbs, pool);
+                    else
+                        unregisterQuietly(mbs, bufferPoolName(name));
+                }
+            });
+        @SuppressWarnings("unchecked")
+        List<BufferPoolMXBean> pools = (List<BufferPoolMXBean>)
+            invokeHidden(ConcurrentOffHeapMap.class, "getPublishedPools");
+        for (BufferPoolMXBean p : pools)
+            registerQuietly(mbs, p);
+    }
+
+    /*
+     * Sets a private static hook field of a class in another package.
+     */
+    private static void installHook(final Class<?> c, final String field,
+                                    final Object hook) {
+        AccessController.doPrivileged(new PrivilegedAction<Void>() {
+            public Void run() {
+                try {
+                    Field f = c.getDeclaredField(field);
+                    f.setAccessible(true);
+                    f.set(null, hook);
+                } catch (ReflectiveOperationException e) {
+                    throw new InternalError(e);
+                }
+                return null;
+            }
+        });
+    }
+
+    /*
+     * Invokes a private static method of a class in another package.
+     */
+    private static Object invokeHidden(final Class<?> c, final String method) {
+        return AccessController.doPrivileged(new PrivilegedAction<Object>() {
+            public Object run() {
+                try {
+                    Method m = c.getDeclaredMethod(method);
+                    m.setAccessible(true);
+                    return m.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    throw new InternalError(e);
+                }
+            }
+        });
+    }
+
+    /*
+     * Registers an MXBean that may come and go, unless an MXBean of
+     * that name is already registered.  Failures are not reported to
+     * the thread that happens to trigger the registration.
+     */
+    private static void registerQuietly(MBeanServer mbs,
+                                        PlatformManagedObject o) {
+        try {
+            if (!mbs.isRegistered(o.getObjectName()))
+                ManagementFactory.addMXBean(mbs, o);
+        } catch (RuntimeException e) {
+            // registered concurrently
+        }
+    }
+
+    /*
+     * Unregisters the MXBean of the given name, if any.
+     */
+    private static void unregisterQuietly(final MBeanServer mbs,
+                                          final ObjectName objname) {
+        AccessController.doPrivileged(new PrivilegedAction<Void>() {
+            public Void run() {
+                try {
+                    mbs.unregisterMBean(objname);
+                } catch (InstanceNotFoundException |
+                         MBeanRegistrationException e) {
+                    // unregistered concurrently
+                }
+                return null;
+            }
+        });
+    }
+
+    /*
+     * Returns an MXBean for each pool published for monitoring.
+     */
+    private static List<ForkJoinPoolMXBean> getForkJoinPoolMXBeans() {
+        List<ForkJoinPool> list = ForkJoinPool.getManagedPools();
+        List<ForkJoinPoolMXBean> result = new ArrayList<>(list.size());
+        for (ForkJoinPool p : list) {
+            result.add(new ForkJoinPoolImpl(p));
+        }
+        return result;
+    }
+
+    private static ObjectName bufferPoolName(String name) {
+        return Util.newObjectName(
+            "java.nio:type=BufferPool,name=" + ObjectName.quote(name));
+    }
+
+    private static ObjectName forkJoinPoolName(String name) {
+        return Util.newObjectName(
+            "java.util.concurrent:type=ForkJoinPool,name=" +
+            ObjectName.quote(name));
+    }
+
+    /**
+     * Implementation of ForkJoinPoolMXBean, reading a ForkJoinPool
+     * that it does not keep reachable.
+     */
+    private static class ForkJoinPoolImpl implements ForkJoinPoolMXBean {
+        private final WeakReference<ForkJoinPool> pool;
+        private final String name;
+        private final ObjectName objname;
+
+        ForkJoinPoolImpl(ForkJoinPool pool) {
+            this.pool = new WeakReference<>(pool);
+            this.name = pool.getName();
+            this.objname = forkJoinPoolName(name);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getParallelism() {
+            ForkJoinPool p = pool.get();
+            return (p == null) ? 0 : p.getParallelism();
+        }
+
+        public int getPoolSize() {
+            ForkJoinPool p = pool.get();
+            return (p == null) ? 0 : p.getPoolSize();
+        }
+
+        public int getActiveThreadCount() {
+            ForkJoinPool p = pool.get();
+            return (p == null) ? 0 : p.getActiveThreadCount();
+        }
+
+        public int getRunningThreadCount() {
+            ForkJoinPool p = pool.get();
+            return (p == null) ? 0 : p.getRunningThreadCount();
+        }
+
+        public long getQueuedTaskCount() {
+            ForkJoinPool p = pool.get();
+            return (p == null) ? 0L : p.getQueuedTaskCount();
+        }
+
+        public int getQueuedSubmissionCount() {
+            ForkJoinPool p = pool.get();
+            return (p == null) ? 0 : p.getQueuedSubmissionCount();
+        }
+
+        public int getQueuedPrioritySubmissionCount() {
+            ForkJoinPool p = pool.get();
+            return (p == null) ? 0 : p.getQueuedPrioritySubmissionCount();
+        }
+
+        public long getStealCount() {
+            ForkJoinPool p = pool.get();
+            return (p == null) ? 0L : p.getStealCount();
+        }
+
+        public int getSubmissionQueueCapacity() {
+            ForkJoinPool p = pool.get();
+            return (p == null) ? 0 : p.getSubmissionQueueCapacity();
+        }
+
+        public long getRejectedSubmissionCount() {
+            ForkJoinPool p = pool.get();
+            return (p == null) ? 0L : p.getRejectedSubmissionCount();
+        }
+
+        public boolean isShutdown() {
+            ForkJoinPool p = pool.get();
+            return p == null || p.isShutdown();
+        }
+
+        public ObjectName getObjectName() {
+            return objname;
+        }
+    }
+
     /*
      * Returns the OS mxbean instance of the given type.
      */
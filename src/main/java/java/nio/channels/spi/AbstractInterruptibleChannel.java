@@ -34,6 +34,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.nio.channels.*;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.concurrent.ManagedBlockingExecutor;
 import sun.nio.ch.Interruptible;
 
 
@@ -171,6 +172,7 @@ public abstract class AbstractInterruptibleChannel
         Thread me = Thread.currentThread();
         if (me.isInterrupted())
             interruptor.interrupt(me);
+        ManagedBlockingExecutor.beginBlocking();
     }
 
     /**
@@ -195,6 +197,7 @@ public abstract class AbstractInterruptibleChannel
     protected final void end(boolean completed)
         throws AsynchronousCloseException
     {
+        ManagedBlockingExecutor.endBlocking();
         blockedOn(null);
         Thread interrupted = this.interrupted;
         if (interrupted != null && interrupted == Thread.currentThread()) {
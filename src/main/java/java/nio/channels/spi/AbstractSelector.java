@@ -31,6 +31,7 @@ import java.nio.channels.Selector;
 import java.util.HashSet;
 import java.util.Set;
 import sun.nio.ch.Interruptible;
+import java.util.concurrent.ManagedBlockingExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 
@@ -217,6 +218,7 @@ public abstract class AbstractSelector
         Thread me = Thread.currentThread();
         if (me.isInterrupted())
             interruptor.interrupt(me);
+        ManagedBlockingExecutor.beginBlocking();
     }
 
     /**
@@ -228,6 +230,7 @@ public abstract class AbstractSelector
      * this selector.  </p>
      */
     protected final void end() {
+        ManagedBlockingExecutor.endBlocking();
         AbstractInterruptibleChannel.blockedOn(null);
     }
 
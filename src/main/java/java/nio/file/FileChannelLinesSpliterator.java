@@ -0,0 +1,307 @@
+package java.nio.file;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A file-based lines spliterator, traversing the lines of a range of bytes
+ * of a file, and splitting that range at line terminators.
+ *
+ * <p>The file is memory-mapped, on the first split, in segments shared by
+ * all the spliterators split from the same root.  Splitting looks for the
+ * line terminator nearest the middle of the range, on either side; the
+ * terminator stays with the left part, and a {@code "\r\n"} pair is never
+ * separated, so the lines of the parts are exactly the lines of the whole.
+ * Each part is traversed through its own {@link BufferedReader} over its
+ * own {@code CharsetDecoder}, reading from the mapping, or, if the
+ * spliterator was never split, from the file channel.  Decoding a part
+ * independently of the bytes before it requires a charset in which the
+ * bytes of {@code '\n'} and {@code '\r'} never occur within the encoding of
+ * other characters, so only the {@link #SUPPORTED_CHARSET_NAMES supported
+ * charsets} are used.
+ *
+ * <p>Once traversal has started the spliterator no longer splits.  The
+ * estimated size is the number of bytes remaining in the range: an upper
+ * bound on the number of lines, proportional to the work remaining, so
+ * that parts of equal estimates take equal time to traverse.
+ *
+ * <p>The range is fixed when the root spliterator is created, so lines
+ * appended to the file afterwards are not traversed.  Changes to the
+ * contents of the range during traversal, and truncation of the file, have
+ * unspecified effects.
+ *
+ * @since 1.8
+ */
+final class FileChannelLinesSpliterator implements Spliterator<String> {
+
+    /** The names of the charsets in which lines can be decoded by part */
+    static final Set<String> SUPPORTED_CHARSET_NAMES;
+    static {
+        SUPPORTED_CHARSET_NAMES = new HashSet<>();
+        SUPPORTED_CHARSET_NAMES.add(StandardCharsets.UTF_8.name());
+        SUPPORTED_CHARSET_NAMES.add(StandardCharsets.ISO_8859_1.name());
+        SUPPORTED_CHARSET_NAMES.add(StandardCharsets.US_ASCII.name());
+    }
+
+    /** Shift giving the size of a mapped segment */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final FileChannel fc;
+    private final Charset cs;
+    private long index;
+    private final long fence;
+
+    // Null before the first split; shared with the spliterators split
+    // from this one
+    private Mapping mapping;
+
+    // Non-null when traversing
+    private BufferedReader reader;
+
+    FileChannelLinesSpliterator(FileChannel fc, Charset cs, long index, long fence) {
+        this.fc = fc;
+        this.cs = cs;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    private FileChannelLinesSpliterator(FileChannel fc, Charset cs, long index, long fence,
+                                        Mapping mapping) {
+        this(fc, cs, index, fence);
+        this.mapping = mapping;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+        String line = readLine();
+        if (line != null) {
+            action.accept(line);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super String> action) {
+        String line;
+        while ((line = readLine()) != null) {
+            action.accept(line);
+        }
+    }
+
+    private String readLine() {
+        if (reader == null) {
+            ReadableByteChannel ch = (mapping != null)
+                                     ? new MappedRangeChannel(mapping, index, fence)
+                                     : new FileRangeChannel(fc, index, fence);
+            reader = new BufferedReader(Channels.newReader(ch, cs.newDecoder(), -1));
+            index = fence;
+        }
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        // Cannot split after partial traverse
+        if (reader != null)
+            return null;
+
+        Mapping m = mapping;
+        if (m == null)
+            m = mapping = new Mapping(fc, fence);
+
+        long lo = index, hi = fence;
+        long mid = (lo + hi) >>> 1;
+        // Scan alternately right and left of the mid point for the start
+        // of a line
+        long split = -1;
+        for (long l = mid - 1, r = mid; l > lo || r < hi; l--, r++) {
+            if (r < hi) {
+                byte c = m.get(r);
+                if (c == '\n' || c == '\r') {
+                    split = r + 1;
+                    if (c == '\r' && split < hi && m.get(split) == '\n')
+                        split++;
+                    break;
+                }
+            }
+            if (l > lo) {
+                // A '\r' followed by '\n' cannot be found here, since the
+                // bytes to the right of l have already been checked
+                byte c = m.get(l);
+                if (c == '\n' || c == '\r') {
+                    split = l + 1;
+                    break;
+                }
+            }
+        }
+
+        // The left spliterator will have the line terminator at the end
+        return (split > lo && split < hi)
+               ? new FileChannelLinesSpliterator(fc, cs, lo, index = split, m)
+               : null;
+    }
+
+    @Override
+    public long estimateSize() {
+        // The number of remaining bytes, an upper bound on the number of
+        // remaining lines
+        return fence - index;
+    }
+
+    @Override
+    public long getExactSizeIfKnown() {
+        return -1;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.NONNULL;
+    }
+
+    /**
+     * Read-only mapping of the first bytes of a file, made of segments
+     * mapped on first access.
+     */
+    private static final class Mapping {
+        private final FileChannel fc;
+        private final long size;
+        private final MappedByteBuffer[] segments;
+
+        Mapping(FileChannel fc, long size) {
+            this.fc = fc;
+            this.size = size;
+            this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+        }
+
+        /**
+         * Returns the segment containing the given position.
+         */
+        synchronized MappedByteBuffer segment(long pos) {
+            int i = (int) (pos >>> SEGMENT_SHIFT);
+            MappedByteBuffer b = segments[i];
+            if (b == null) {
+                long start = (long) i << SEGMENT_SHIFT;
+                try {
+                    b = segments[i] = fc.map(FileChannel.MapMode.READ_ONLY, start,
+                                             Math.min(size - start, SEGMENT_MASK + 1));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return b;
+        }
+
+        byte get(long pos) {
+            return segment(pos).get((int) (pos & SEGMENT_MASK));
+        }
+    }
+
+    /**
+     * Channel reading a range of bytes from a mapping.
+     */
+    private static final class MappedRangeChannel implements ReadableByteChannel {
+        private final Mapping mapping;
+        private long pos;
+        private final long end;
+        private ByteBuffer src;
+
+        MappedRangeChannel(Mapping mapping, long pos, long end) {
+            this.mapping = mapping;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (pos >= end)
+                return -1;
+            if (src == null || !src.hasRemaining()) {
+                // Traverse a duplicate, so the position of the shared
+                // segment is unaffected
+                ByteBuffer b = mapping.segment(pos).duplicate();
+                int from = (int) (pos & SEGMENT_MASK);
+                b.position(from);
+                b.limit((int) Math.min(b.limit(), from + (end - pos)));
+                src = b;
+            }
+            int n = Math.min(src.remaining(), dst.remaining());
+            ByteBuffer s = src.duplicate();
+            s.limit(s.position() + n);
+            dst.put(s);
+            src.position(src.position() + n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() { }
+    }
+
+    /**
+     * Channel reading a range of bytes from a file channel, by positional
+     * reads which leave the position of the file channel unchanged.
+     */
+    private static final class FileRangeChannel implements ReadableByteChannel {
+        private final FileChannel fc;
+        private long pos;
+        private final long end;
+
+        FileRangeChannel(FileChannel fc, long pos, long end) {
+            this.fc = fc;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (pos >= end)
+                return -1;
+            int limit = dst.limit();
+            long remaining = end - pos;
+            if (dst.remaining() > remaining)
+                dst.limit(dst.position() + (int) remaining);
+            try {
+                int n = fc.read(dst, pos);
+                if (n > 0)
+                    pos += n;
+                else if (n < 0)
+                    pos = end;
+                return n;
+            } finally {
+                dst.limit(limit);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return fc.isOpen();
+        }
+
+        @Override
+        public void close() { }
+    }
+}
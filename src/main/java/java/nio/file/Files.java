@@ -3720,6 +3720,17 @@ public final class Files {
      * {@link Stream#close close} method is invoked after the stream operations
      * are completed.
      *
+     * @implNote
+     * For non-empty files of the default file system, decoded with the
+     * {@link StandardCharsets#UTF_8 UTF-8}, {@link StandardCharsets#US_ASCII
+     * US-ASCII} or {@link StandardCharsets#ISO_8859_1 ISO-8859-1} charsets,
+     * the stream reads from a {@link FileChannel} rather than a {@code Reader}.
+     * Its spliterator splits the bytes of the file, as its size was when this
+     * method was invoked, at line terminators near their middle, through a
+     * read-only memory mapping of the file, and each part is decoded
+     * independently, so that the lines of a large file can be read and
+     * processed efficiently in parallel.  The spliterator estimates the number
+     * of lines by the number of bytes.
      *
      * @param   path
      *          the path to the file
@@ -3741,7 +3752,46 @@ public final class Files {
      * @since   1.8
      */
     public static Stream<String> lines(Path path, Charset cs) throws IOException {
-        BufferedReader br = Files.newBufferedReader(path, cs);
+        // Use the spliterator splitting at line terminators if the path is
+        // associated with the default file system and lines can be decoded
+        // independently of each other in the charset
+        if (path.getFileSystem() == FileSystems.getDefault() &&
+            FileChannelLinesSpliterator.SUPPORTED_CHARSET_NAMES.contains(cs.name())) {
+            FileChannel fc = FileChannel.open(path, StandardOpenOption.READ);
+            Stream<String> lines = createFileChannelLinesStream(fc, cs);
+            if (lines != null)
+                return lines;
+            fc.close();
+        }
+
+        return createBufferedReaderLinesStream(Files.newBufferedReader(path, cs));
+    }
+
+    private static Stream<String> createFileChannelLinesStream(FileChannel fc, Charset cs)
+            throws IOException {
+        try {
+            // Regular files only, since the size of other files, such as
+            // pipes and devices, does not bound the bytes that can be read
+            long length = fc.size();
+            if (length > 0) {
+                Spliterator<String> s = new FileChannelLinesSpliterator(fc, cs, 0, length);
+                return StreamSupport.stream(s, false)
+                        .onClose(asUncheckedRunnable(fc));
+            }
+        } catch (Error|RuntimeException|IOException e) {
+            try {
+                fc.close();
+            } catch (IOException ex) {
+                try {
+                    e.addSuppressed(ex);
+                } catch (Throwable ignore) {}
+            }
+            throw e;
+        }
+        return null;
+    }
+
+    private static Stream<String> createBufferedReaderLinesStream(BufferedReader br) {
         try {
             return br.lines().onClose(asUncheckedRunnable(br));
         } catch (Error|RuntimeException e) {
@@ -8,7 +8,14 @@ import java.lang.reflect.Type;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
 import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToLongBiFunction;
+import java.util.function.ToLongFunction;
 
 /**
  *
@@ -1093,6 +1100,298 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /* ------------------------------------------------------------ */
+    // 并行批量操作
+
+    /*
+     * 与 ConcurrentHashMap 的批量操作相同的 API：parallelismThreshold 是并行执行所需的（估算）元素数量，
+     * 元素数少于该值时顺序执行；Long.MAX_VALUE 表示完全顺序执行，1 表示最大并行度（使用 ForkJoinPool 公共池）。
+     * 任务由 MapBulkTasks 中的 CountedCompleter 实现，按哈希表的 table 分片（见 HashMapSpliterator）拆分。
+     * 与 ConcurrentHashMap 不同，此类不是线程安全的：操作期间不得修改 map 的结构，
+     * 否则抛出 ConcurrentModificationException；传入的函数会被多个线程同时调用，必须无副作用或自行同步。
+     * 不保证处理顺序，reducer 必须满足结合律和交换律。
+     */
+
+    /**
+     * 对每个 (key, value) 执行给定的操作。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param action 操作
+     * @throws NullPointerException 如果 action 为 null
+     * @since 1.8
+     */
+    public void forEach(long parallelismThreshold,
+                        BiConsumer<? super K,? super V> action) {
+        if (action == null) throw new NullPointerException();
+        MapBulkTasks.forEach(size, parallelismThreshold, new EntrySpliterator<>(this, 0, -1, 0, 0),
+                             e -> action.accept(e.getKey(), e.getValue()));
+    }
+
+    /**
+     * 对每个 (key, value) 的非 null 转换结果执行给定的操作。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数，返回 null 表示不处理该元素
+     * @param action 操作
+     * @param <U> 转换结果的类型
+     * @throws NullPointerException 如果 transformer 或 action 为 null
+     * @since 1.8
+     */
+    public <U> void forEach(long parallelismThreshold,
+                            BiFunction<? super K, ? super V, ? extends U> transformer,
+                            Consumer<? super U> action) {
+        if (transformer == null || action == null)
+            throw new NullPointerException();
+        MapBulkTasks.forEach(size, parallelismThreshold, new EntrySpliterator<>(this, 0, -1, 0, 0), e -> {
+            U u;
+            if ((u = transformer.apply(e.getKey(), e.getValue())) != null)
+                action.accept(u);
+        });
+    }
+
+    /**
+     * 对每个 (key, value) 应用搜索函数，返回任意一个非 null 结果，没有则返回 null。
+     * 找到结果后，其余的并行计算会被抑制。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param searchFunction 搜索函数，没有找到时返回 null
+     * @param <U> 搜索结果的类型
+     * @return 任意一个非 null 结果，没有则返回 null
+     * @throws NullPointerException 如果 searchFunction 为 null
+     * @since 1.8
+     */
+    public <U> U search(long parallelismThreshold,
+                        BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        if (searchFunction == null) throw new NullPointerException();
+        return MapBulkTasks.search(size, parallelismThreshold, new EntrySpliterator<>(this, 0, -1, 0, 0),
+                                   e -> searchFunction.apply(e.getKey(), e.getValue()));
+    }
+
+    /**
+     * 使用 reducer 归并所有 (key, value) 的非 null 转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数，返回 null 表示不参与归并
+     * @param reducer 满足结合律的归并函数
+     * @param <U> 转换结果的类型
+     * @return 归并结果，没有结果则返回 null
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public <U> U reduce(long parallelismThreshold,
+                        BiFunction<? super K, ? super V, ? extends U> transformer,
+                        BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return MapBulkTasks.reduce(size, parallelismThreshold, new EntrySpliterator<>(this, 0, -1, 0, 0),
+                                   e -> transformer.apply(e.getKey(), e.getValue()),
+                                   reducer);
+    }
+
+    /**
+     * 使用 reducer 从 basis 开始归并所有 (key, value) 的转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数
+     * @param basis 归并的初始值，必须是 reducer 的单位元
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public double reduceToDouble(long parallelismThreshold,
+                                 ToDoubleBiFunction<? super K, ? super V> transformer,
+                                 double basis,
+                                 DoubleBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return MapBulkTasks.reduceToDouble(size, parallelismThreshold, new EntrySpliterator<>(this, 0, -1, 0, 0),
+                                           e -> transformer.applyAsDouble(e.getKey(), e.getValue()),
+                                           basis, reducer);
+    }
+
+    /**
+     * 使用 reducer 从 basis 开始归并所有 (key, value) 的转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数
+     * @param basis 归并的初始值，必须是 reducer 的单位元
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public long reduceToLong(long parallelismThreshold,
+                             ToLongBiFunction<? super K, ? super V> transformer,
+                             long basis,
+                             LongBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return MapBulkTasks.reduceToLong(size, parallelismThreshold, new EntrySpliterator<>(this, 0, -1, 0, 0),
+                                         e -> transformer.applyAsLong(e.getKey(), e.getValue()),
+                                         basis, reducer);
+    }
+
+    /**
+     * 使用 reducer 从 basis 开始归并所有 (key, value) 的转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数
+     * @param basis 归并的初始值，必须是 reducer 的单位元
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public int reduceToInt(long parallelismThreshold,
+                           ToIntBiFunction<? super K, ? super V> transformer,
+                           int basis,
+                           IntBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return MapBulkTasks.reduceToInt(size, parallelismThreshold, new EntrySpliterator<>(this, 0, -1, 0, 0),
+                                        e -> transformer.applyAsInt(e.getKey(), e.getValue()),
+                                        basis, reducer);
+    }
+
+    /**
+     * 对每个 key 执行给定的操作。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param action 操作
+     * @throws NullPointerException 如果 action 为 null
+     * @since 1.8
+     */
+    public void forEachKey(long parallelismThreshold,
+                           Consumer<? super K> action) {
+        MapBulkTasks.forEach(size, parallelismThreshold, new KeySpliterator<>(this, 0, -1, 0, 0), action);
+    }
+
+    /**
+     * 对每个 value 执行给定的操作。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param action 操作
+     * @throws NullPointerException 如果 action 为 null
+     * @since 1.8
+     */
+    public void forEachValue(long parallelismThreshold,
+                             Consumer<? super V> action) {
+        MapBulkTasks.forEach(size, parallelismThreshold, new ValueSpliterator<>(this, 0, -1, 0, 0), action);
+    }
+
+    /**
+     * 对每个键值对执行给定的操作。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param action 操作
+     * @throws NullPointerException 如果 action 为 null
+     * @since 1.8
+     */
+    public void forEachEntry(long parallelismThreshold,
+                             Consumer<? super Map.Entry<K,V>> action) {
+        MapBulkTasks.forEach(size, parallelismThreshold, new EntrySpliterator<>(this, 0, -1, 0, 0), action);
+    }
+
+    /**
+     * 对每个 key 应用搜索函数，返回任意一个非 null 结果，没有则返回 null。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param searchFunction 搜索函数，没有找到时返回 null
+     * @param <U> 搜索结果的类型
+     * @return 任意一个非 null 结果，没有则返回 null
+     * @throws NullPointerException 如果 searchFunction 为 null
+     * @since 1.8
+     */
+    public <U> U searchKeys(long parallelismThreshold,
+                            Function<? super K, ? extends U> searchFunction) {
+        return MapBulkTasks.search(size, parallelismThreshold, new KeySpliterator<>(this, 0, -1, 0, 0),
+                                   searchFunction);
+    }
+
+    /**
+     * 对每个 value 应用搜索函数，返回任意一个非 null 结果，没有则返回 null。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param searchFunction 搜索函数，没有找到时返回 null
+     * @param <U> 搜索结果的类型
+     * @return 任意一个非 null 结果，没有则返回 null
+     * @throws NullPointerException 如果 searchFunction 为 null
+     * @since 1.8
+     */
+    public <U> U searchValues(long parallelismThreshold,
+                              Function<? super V, ? extends U> searchFunction) {
+        return MapBulkTasks.search(size, parallelismThreshold, new ValueSpliterator<>(this, 0, -1, 0, 0),
+                                   searchFunction);
+    }
+
+    /**
+     * 使用 reducer 归并所有非 null 的 key。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果，map 为空时返回 null
+     * @throws NullPointerException 如果 reducer 为 null
+     * @since 1.8
+     */
+    public K reduceKeys(long parallelismThreshold,
+                        BiFunction<? super K, ? super K, ? extends K> reducer) {
+        return MapBulkTasks.reduce(size, parallelismThreshold, new KeySpliterator<>(this, 0, -1, 0, 0),
+                                   Function.<K>identity(), reducer);
+    }
+
+    /**
+     * 使用 reducer 归并所有非 null 的 value。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果，map 为空时返回 null
+     * @throws NullPointerException 如果 reducer 为 null
+     * @since 1.8
+     */
+    public V reduceValues(long parallelismThreshold,
+                          BiFunction<? super V, ? super V, ? extends V> reducer) {
+        return MapBulkTasks.reduce(size, parallelismThreshold, new ValueSpliterator<>(this, 0, -1, 0, 0),
+                                   Function.<V>identity(), reducer);
+    }
+
+    /**
+     * 使用 reducer 归并所有 value 的非 null 转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数，返回 null 表示不参与归并
+     * @param reducer 满足结合律的归并函数
+     * @param <U> 转换结果的类型
+     * @return 归并结果，没有结果则返回 null
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public <U> U reduceValues(long parallelismThreshold,
+                              Function<? super V, ? extends U> transformer,
+                              BiFunction<? super U, ? super U, ? extends U> reducer) {
+        return MapBulkTasks.reduce(size, parallelismThreshold, new ValueSpliterator<>(this, 0, -1, 0, 0),
+                                   transformer, reducer);
+    }
+
+    /**
+     * 使用 reducer 从 basis 开始归并所有 value 的转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数
+     * @param basis 归并的初始值，必须是 reducer 的单位元
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public long reduceValuesToLong(long parallelismThreshold,
+                                   ToLongFunction<? super V> transformer,
+                                   long basis,
+                                   LongBinaryOperator reducer) {
+        return MapBulkTasks.reduceToLong(size, parallelismThreshold, new ValueSpliterator<>(this, 0, -1, 0, 0),
+                                         transformer, basis, reducer);
+    }
+
     /* ------------------------------------------------------------ */
     // 克隆和序列化
 
@@ -1287,7 +1586,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
 
         public KeySpliterator<K,V> trySplit() {
             int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
-            return (lo >= mid || current != null) ? null :
+            // 遍历到桶中间（current 不为 null）时也可拆分：current 所在的桶已在 index 之前，不会交给新的 spliterator
+            return (lo >= mid) ? null :
                 new KeySpliterator<>(map, lo, index = mid, est >>>= 1,
                                         expectedModCount);
         }
@@ -1359,7 +1659,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
 
         public ValueSpliterator<K,V> trySplit() {
             int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
-            return (lo >= mid || current != null) ? null :
+            // 遍历到桶中间（current 不为 null）时也可拆分：current 所在的桶已在 index 之前，不会交给新的 spliterator
+            return (lo >= mid) ? null :
                 new ValueSpliterator<>(map, lo, index = mid, est >>>= 1,
                                           expectedModCount);
         }
@@ -1430,7 +1731,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
 
         public EntrySpliterator<K,V> trySplit() {
             int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
-            return (lo >= mid || current != null) ? null :
+            // 遍历到桶中间（current 不为 null）时也可拆分：current 所在的桶已在 index 之前，不会交给新的 spliterator
+            return (lo >= mid) ? null :
                 new EntrySpliterator<>(map, lo, index = mid, est >>>= 1,
                                           expectedModCount);
         }
@@ -0,0 +1,1014 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Hash table based implementation of the {@code Map} interface whose keys
+ * and values are primitive {@code long}s.  Mappings are kept in two flat
+ * {@code long} arrays using open addressing with linear probing, so that
+ * neither keys nor values are boxed and a lookup touches no per-entry
+ * objects.  Removal uses backward shifting, so the table never contains
+ * tombstones and probe sequences stay short after heavy churn.
+ *
+ * <p>In addition to the {@code Map<Long,Long>} methods, which box their
+ * arguments and results, this class offers primitive accessors such as
+ * {@link #containsKey(long)}, {@link #getOrDefault(long, long)},
+ * {@link #put(long, long)}, {@link #remove(long)} and
+ * {@link #addTo(long, long)}.  Because a primitive result cannot be
+ * {@code null}, the primitive {@code put} and {@code remove} methods
+ * report an absent previous mapping as {@code 0}; use
+ * {@link #containsKey(long)} when the distinction matters.  This map does
+ * not permit {@code null} keys or values through the boxed methods.
+ *
+ * <p>The key and value collections report {@link Spliterator.OfLong}
+ * spliterators, and {@link #keyStream()} and {@link #valueStream()} feed
+ * them straight into {@link LongStream} pipelines without boxing.
+ *
+ * <p>An instance has two parameters that affect its performance: the
+ * <i>initial capacity</i> and the <i>load factor</i>, as in
+ * {@link HashMap}.  Because open addressing needs at least one free slot,
+ * the load factor must be strictly between 0 and 1.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators returned by this class's collection view methods are
+ * <i>fail-fast</i>.  The {@code Map.Entry} objects returned by the
+ * entry-set iterator read and write their values through to the map only
+ * until its next structural modification.
+ *
+ * @see HashMap
+ * @see IntObjectHashMap
+ * @see LongObjectHashMap
+ * @since 1.8
+ */
+public class LongLongHashMap extends AbstractMap<Long,Long>
+    implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = -5387251472619840385L;
+
+    /**
+     * The default initial capacity, in mappings.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximum table length.  Must be a power of two.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    /* ---------------- Fields -------------- */
+
+    /**
+     * The key slots.  Length is a power of two plus one: slot
+     * {@code keys.length - 1} is reserved for the key zero, which
+     * otherwise marks a free slot.
+     */
+    transient long[] keys;
+
+    /**
+     * The value slots, parallel to {@code keys}.
+     */
+    transient long[] vals;
+
+    /**
+     * Mask for indexing the hashed part of the table.
+     */
+    transient int mask;
+
+    /**
+     * Whether the key zero is present in its reserved slot.
+     */
+    transient boolean containsZeroKey;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * Structural modification count, for fail-fast iterators.
+     */
+    transient int modCount;
+
+    /**
+     * The size at which the table is doubled.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     */
+    final float loadFactor;
+
+    /* ---------------- Static utilities -------------- */
+
+    /**
+     * Spreads the bits of a key so that nearby keys do not cluster in
+     * a linearly probed table.
+     */
+    static int mix(long k) {
+        long h = k * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int)(h ^ (h >>> 16));
+    }
+
+    /**
+     * Returns the power of two table length needed to hold the given
+     * number of mappings at the given load factor.
+     */
+    static int tableSizeFor(int expected, float loadFactor) {
+        long n = Math.max(2L, (long)Math.ceil(expected / loadFactor));
+        if (n >= MAXIMUM_CAPACITY)
+            return MAXIMUM_CAPACITY;
+        return Math.max(2, Integer.highestOneBit((int)n - 1) << 1);
+    }
+
+    /**
+     * Returns the fill threshold for the given table length.
+     */
+    static int thresholdFor(int cap, float loadFactor) {
+        return Math.min(cap - 1, (int)Math.ceil(cap * loadFactor));
+    }
+
+    static float checkLoadFactor(float loadFactor) {
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        return loadFactor;
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty map with the specified initial capacity and
+     * load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not strictly between 0 and 1
+     */
+    public LongLongHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        this.loadFactor = checkLoadFactor(loadFactor);
+        allocate(tableSizeFor(initialCapacity, loadFactor));
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public LongLongHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public LongLongHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified
+     * {@code Map} and the default load factor.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null, or
+     *          contains a null key or value
+     */
+    public LongLongHashMap(Map<? extends Long, ? extends Long> m) {
+        this(Math.max(m.size(), DEFAULT_INITIAL_CAPACITY), DEFAULT_LOAD_FACTOR);
+        putAll(m);
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap + 1];
+        vals = new long[cap + 1];
+        mask = cap - 1;
+        threshold = thresholdFor(cap, loadFactor);
+    }
+
+    /**
+     * Returns the slot holding the given key, or -1 if absent.
+     */
+    final int find(long key) {
+        if (key == 0L)
+            return containsZeroKey ? mask + 1 : -1;
+        long[] ks = keys;
+        int m = mask;
+        for (int i = mix(key) & m;; i = (i + 1) & m) {
+            long k = ks[i];
+            if (k == key)
+                return i;
+            if (k == 0L)
+                return -1;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key the key whose presence is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return (key instanceof Long) && find((Long)key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence is to be tested
+     * @return {@code true} if this map maps one or more keys to the value
+     */
+    public boolean containsValue(long value) {
+        long[] ks = keys, vs = vals;
+        if (containsZeroKey && vs[mask + 1] == value)
+            return true;
+        for (int i = mask; i >= 0; --i) {
+            if (ks[i] != 0L && vs[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    public boolean containsValue(Object value) {
+        return (value instanceof Long) && containsValue(((Long)value).longValue());
+    }
+
+    public Long get(Object key) {
+        int i;
+        if (!(key instanceof Long) || (i = find((Long)key)) < 0)
+            return null;
+        return vals[i];
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if the key is absent
+     * @return the mapped value, or {@code defaultValue}
+     */
+    public long getOrDefault(long key, long defaultValue) {
+        int i = find(key);
+        return (i < 0) ? defaultValue : vals[i];
+    }
+
+    @Override
+    public Long getOrDefault(Object key, Long defaultValue) {
+        int i;
+        if (!(key instanceof Long) || (i = find((Long)key)) < 0)
+            return defaultValue;
+        return vals[i];
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map,
+     * replacing any previous value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public long put(long key, long value) {
+        int i = insert(key, value);
+        if (i < 0)
+            return 0L;
+        long old = vals[i];
+        vals[i] = value;
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or value is null
+     */
+    public Long put(Long key, Long value) {
+        long v = value.longValue();
+        int i = insert(key.longValue(), v);
+        if (i < 0)
+            return null;
+        long old = vals[i];
+        vals[i] = v;
+        return old;
+    }
+
+    /**
+     * Adds the given delta to the value mapped to the key, treating an
+     * absent mapping as zero, and returns the new value.  This is the
+     * unboxed equivalent of {@code merge(key, delta, Long::sum)}.
+     *
+     * @param key the key
+     * @param delta the amount to add
+     * @return the updated value
+     */
+    public long addTo(long key, long delta) {
+        int i = insert(key, delta);
+        return (i < 0) ? delta : (vals[i] += delta);
+    }
+
+    /**
+     * Adds the value of each mapping of the specified map to the value
+     * mapped to its key in this map, treating an absent mapping as
+     * zero.  The table of the specified map is walked directly, so
+     * neither keys nor values are boxed; this is the unboxed equivalent
+     * of {@code m.forEach((k, v) -> merge(k, v, Long::sum))}.
+     *
+     * @param m the map whose values are to be added to this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void addAll(LongLongHashMap m) {
+        if (m.size == 0)
+            return;
+        ensureCapacity(Math.max(size, m.size));
+        long[] ks = m.keys, vs = m.vals;
+        if (m.containsZeroKey)
+            addTo(0L, vs[vs.length - 1]);
+        for (int i = ks.length - 2; i >= 0; --i) {
+            long k = ks[i];
+            if (k != 0L)
+                addTo(k, vs[i]);
+        }
+    }
+
+    /**
+     * Inserts a new mapping if the key is absent and returns -1, else
+     * returns the slot holding the existing key without changing it.
+     */
+    private int insert(long key, long value) {
+        int i;
+        if (key == 0L) {
+            i = mask + 1;
+            if (containsZeroKey)
+                return i;
+            containsZeroKey = true;
+        }
+        else {
+            long[] ks = keys;
+            int m = mask;
+            long k;
+            for (i = mix(key) & m; (k = ks[i]) != 0L; i = (i + 1) & m) {
+                if (k == key)
+                    return i;
+            }
+            ks[i] = key;
+        }
+        vals[i] = value;
+        ++modCount;
+        if (++size > threshold)
+            resize((mask + 1) << 1);
+        return -1;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null, or
+     *         contains a null key or value
+     */
+    public void putAll(Map<? extends Long, ? extends Long> m) {
+        int n = m.size();
+        if (n == 0)
+            return;
+        ensureCapacity(size + n);
+        if (m instanceof LongLongHashMap) {
+            LongLongHashMap o = (LongLongHashMap)m;
+            long[] ks = o.keys, vs = o.vals;
+            if (o.containsZeroKey)
+                put(0L, vs[o.mask + 1]);
+            for (int i = o.mask; i >= 0; --i) {
+                long k = ks[i];
+                if (k != 0L)
+                    put(k, vs[i]);
+            }
+        }
+        else {
+            for (Map.Entry<? extends Long, ? extends Long> e : m.entrySet())
+                put(e.getKey(), e.getValue());
+        }
+    }
+
+    private void ensureCapacity(int expected) {
+        if (expected > threshold) {
+            int cap = tableSizeFor(expected, loadFactor);
+            if (cap > mask + 1)
+                resize(cap);
+        }
+    }
+
+    /**
+     * Rehashes all mappings into a table of the given length.
+     */
+    final void resize(int newCap) {
+        long[] oldKeys = keys, oldVals = vals;
+        int oldCap = mask + 1;
+        if (oldCap >= MAXIMUM_CAPACITY) {
+            if (size >= MAXIMUM_CAPACITY)
+                throw new IllegalStateException("Map too large");
+            threshold = MAXIMUM_CAPACITY - 1;
+            return;
+        }
+        allocate(newCap);
+        long[] ks = keys, vs = vals;
+        int m = mask;
+        for (int j = 0; j < oldCap; ++j) {
+            long k = oldKeys[j];
+            if (k != 0L) {
+                int i = mix(k) & m;
+                while (ks[i] != 0L)
+                    i = (i + 1) & m;
+                ks[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+        vs[m + 1] = oldVals[oldCap];
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public long remove(long key) {
+        int i = find(key);
+        if (i < 0)
+            return 0L;
+        long old = vals[i];
+        removeAt(i);
+        return old;
+    }
+
+    public Long remove(Object key) {
+        int i;
+        if (!(key instanceof Long) || (i = find((Long)key)) < 0)
+            return null;
+        long old = vals[i];
+        removeAt(i);
+        return old;
+    }
+
+    /**
+     * Removes the mapping in the given slot, shifting later members of
+     * its probe sequence back so that no tombstone is needed.
+     */
+    final void removeAt(int i) {
+        ++modCount;
+        --size;
+        if (i > mask) {
+            containsZeroKey = false;
+            return;
+        }
+        long[] ks = keys, vs = vals;
+        int m = mask;
+        for (int last = i;;) {
+            long k;
+            i = (i + 1) & m;
+            if ((k = ks[i]) == 0L) {
+                ks[last] = 0L;
+                return;
+            }
+            int slot = mix(k) & m;
+            // move k back unless its home slot lies cyclically in (last, i]
+            if (last <= i ? (last >= slot || slot > i)
+                          : (last >= slot && slot > i)) {
+                ks[last] = k;
+                vs[last] = vs[i];
+                last = i;
+            }
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        if (size > 0) {
+            ++modCount;
+            Arrays.fill(keys, 0L);
+            containsZeroKey = false;
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns a shallow copy of this map.
+     *
+     * @return a copy of this map
+     */
+    public LongLongHashMap clone() {
+        LongLongHashMap result;
+        try {
+            result = (LongLongHashMap)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.keySetView = null;
+        result.valuesView = null;
+        result.entrySetView = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    public int hashCode() {
+        long[] ks = keys, vs = vals;
+        int h = containsZeroKey ? Long.hashCode(vs[mask + 1]) : 0;
+        for (int i = mask; i >= 0; --i) {
+            long k = ks[i];
+            if (k != 0L)
+                h += Long.hashCode(k) ^ Long.hashCode(vs[i]);
+        }
+        return h;
+    }
+
+    /* ---------------- Primitive views -------------- */
+
+    /**
+     * Returns a late-binding, fail-fast {@link Spliterator.OfLong} over
+     * the keys of this map.
+     *
+     * @return a spliterator over the keys of this map
+     */
+    public Spliterator.OfLong keySpliterator() {
+        return new KeySpliterator(this, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a late-binding, fail-fast {@link Spliterator.OfLong} over
+     * the values of this map.
+     *
+     * @return a spliterator over the values of this map
+     */
+    public Spliterator.OfLong valueSpliterator() {
+        return new ValueSpliterator(this, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} over the keys of this map.
+     *
+     * @return a stream of the keys of this map
+     */
+    public LongStream keyStream() {
+        return StreamSupport.longStream(keySpliterator(), false);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} over the values of this map.
+     *
+     * @return a stream of the values of this map
+     */
+    public LongStream valueStream() {
+        return StreamSupport.longStream(valueSpliterator(), false);
+    }
+
+    /* ---------------- Views -------------- */
+
+    transient Set<Long> keySetView;
+    transient Collection<Long> valuesView;
+    transient Set<Map.Entry<Long,Long>> entrySetView;
+
+    public Set<Long> keySet() {
+        Set<Long> ks = keySetView;
+        return (ks != null) ? ks : (keySetView = new KeySet());
+    }
+
+    public Collection<Long> values() {
+        Collection<Long> vs = valuesView;
+        return (vs != null) ? vs : (valuesView = new Values());
+    }
+
+    public Set<Map.Entry<Long,Long>> entrySet() {
+        Set<Map.Entry<Long,Long>> es = entrySetView;
+        return (es != null) ? es : (entrySetView = new EntrySet());
+    }
+
+    final class KeySet extends AbstractSet<Long> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongHashMap.this.clear(); }
+        public final Iterator<Long> iterator()  { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object o) {
+            int i;
+            if (!(o instanceof Long) || (i = find((Long)o)) < 0)
+                return false;
+            removeAt(i);
+            return true;
+        }
+        public final Spliterator.OfLong spliterator() {
+            return keySpliterator();
+        }
+    }
+
+    final class Values extends AbstractCollection<Long> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongHashMap.this.clear(); }
+        public final Iterator<Long> iterator()  { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final Spliterator.OfLong spliterator() {
+            return valueSpliterator();
+        }
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Long,Long>> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongHashMap.this.clear(); }
+        public final Iterator<Map.Entry<Long,Long>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey(), v = e.getValue();
+            int i;
+            return (k instanceof Long) && (v instanceof Long) &&
+                (i = find((Long)k)) >= 0 && vals[i] == (Long)v;
+        }
+        public final boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            removeAt(find((Long)((Map.Entry<?,?>)o).getKey()));
+            return true;
+        }
+    }
+
+    /**
+     * An entry view of a table slot.  The key is captured when the entry
+     * is created; the value is read through to the slot.
+     */
+    final class MapEntry implements Map.Entry<Long,Long> {
+        final long key;
+        final int index;
+        MapEntry(int index) {
+            this.key = keyAt(index);
+            this.index = index;
+        }
+        public Long getKey()              { return key; }
+        public Long getValue()            { return vals[index]; }
+        public Long setValue(Long value) {
+            long old = vals[index];
+            vals[index] = value.longValue();
+            return old;
+        }
+        public int hashCode() {
+            return Long.hashCode(key) ^ Long.hashCode(vals[index]);
+        }
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return getKey().equals(e.getKey()) && getValue().equals(e.getValue());
+        }
+        public String toString() {
+            return key + "=" + vals[index];
+        }
+    }
+
+    final long keyAt(int i) {
+        return (i > mask) ? 0L : keys[i];
+    }
+
+    /* ---------------- Iterators -------------- */
+
+    /**
+     * Base iterator.  Slots are visited from the zero-key slot downward.
+     * A removal shifts later members of a probe sequence back into the
+     * freed slot; only entries that wrap around from the start of the
+     * table can be shifted past the cursor, and those keys are remembered
+     * in {@code wrapped} and returned after the scan.
+     */
+    abstract class HashIterator {
+        int index;             // next slot to examine is index - 1
+        int current = -1;      // slot of last returned entry, or -1
+        int remaining;         // entries not yet returned
+        int expectedModCount;  // for fast-fail
+        long[] wrapped;        // keys moved behind the cursor by remove
+        int wrappedCount;      // number of keys in wrapped
+        int wrappedIndex;      // next wrapped key to return
+
+        HashIterator() {
+            index = mask + 2;
+            remaining = size;
+            expectedModCount = modCount;
+        }
+
+        public final boolean hasNext() {
+            return remaining > 0;
+        }
+
+        final int nextSlot() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            if (index == mask + 2) {
+                --index;
+                if (containsZeroKey)
+                    return current = mask + 1;
+            }
+            long[] ks = keys;
+            while (--index >= 0) {
+                if (ks[index] != 0L)
+                    return current = index;
+            }
+            index = 0;
+            return current = find(wrapped[wrappedIndex++]);
+        }
+
+        public final void remove() {
+            int i = current;
+            if (i < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = -1;
+            if (i > mask || index <= 0 || wrappedIndex > 0) {
+                // zero-key slot, or scan complete: nothing can shift past us
+                removeAt(i);
+            }
+            else
+                removeAndTrack(i);
+            expectedModCount = modCount;
+        }
+
+        private void removeAndTrack(int i) {
+            ++modCount;
+            --size;
+            long[] ks = keys, vs = vals;
+            int m = mask;
+            for (int last = i;;) {
+                long k;
+                i = (i + 1) & m;
+                if ((k = ks[i]) == 0L) {
+                    ks[last] = 0L;
+                    return;
+                }
+                int slot = mix(k) & m;
+                if (last <= i ? (last >= slot || slot > i)
+                              : (last >= slot && slot > i)) {
+                    if (i < last) {
+                        // wrapped past the end: k would escape the scan
+                        long[] w = wrapped;
+                        if (w == null)
+                            wrapped = w = new long[2];
+                        else if (wrappedCount == w.length)
+                            wrapped = w = Arrays.copyOf(w, wrappedCount << 1);
+                        w[wrappedCount++] = k;
+                    }
+                    ks[last] = k;
+                    vs[last] = vs[i];
+                    last = i;
+                }
+            }
+        }
+    }
+
+    final class KeyIterator extends HashIterator
+        implements PrimitiveIterator.OfLong {
+        public final long nextLong() { return keyAt(nextSlot()); }
+    }
+
+    final class ValueIterator extends HashIterator
+        implements PrimitiveIterator.OfLong {
+        public final long nextLong() { return vals[nextSlot()]; }
+    }
+
+    final class EntryIterator extends HashIterator
+        implements Iterator<Map.Entry<Long,Long>> {
+        public final Map.Entry<Long,Long> next() {
+            return new MapEntry(nextSlot());
+        }
+    }
+
+    /* ---------------- Spliterators -------------- */
+
+    /**
+     * Base spliterator over a range of table slots, where the range
+     * [mask + 1, mask + 2) is the zero-key slot.  Splits halve the slot
+     * range, as in {@code HashMap}.
+     */
+    static class SlotSpliterator {
+        final LongLongHashMap map;
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        SlotSpliterator(LongLongHashMap m, int origin, int fence, int est,
+                        int expectedModCount) {
+            this.map = m;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                LongLongHashMap m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.mask + 2;
+            }
+            return hi;
+        }
+
+        public final long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        final boolean isFull(long[] ks, int i) {
+            return (i <= map.mask) ? ks[i] != 0L : map.containsZeroKey;
+        }
+
+        /**
+         * Applies the given action to the slots in [index, fence), then
+         * checks for interference.
+         */
+        final void forEachSlot(long[] src, LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            LongLongHashMap m = map;
+            int hi = getFence(), mc = expectedModCount;
+            long[] ks = m.keys;
+            int i = index;
+            index = hi;
+            if (ks.length >= hi) {
+                for (; i < hi; ++i) {
+                    if (isFull(ks, i))
+                        action.accept((src == null) ? m.keyAt(i) : src[i]);
+                }
+            }
+            if (m.modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+
+        final boolean advanceSlot(long[] src, LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            LongLongHashMap m = map;
+            int hi = getFence();
+            long[] ks = m.keys;
+            if (ks.length >= hi) {
+                while (index < hi) {
+                    int i = index++;
+                    if (isFull(ks, i)) {
+                        action.accept((src == null) ? m.keyAt(i) : src[i]);
+                        if (m.modCount != expectedModCount)
+                            throw new ConcurrentModificationException();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class KeySpliterator extends SlotSpliterator
+        implements Spliterator.OfLong {
+        KeySpliterator(LongLongHashMap m, int origin, int fence, int est,
+                       int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public KeySpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new KeySpliterator(map, lo, index = mid, est >>>= 1,
+                                   expectedModCount);
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            forEachSlot(null, action);
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            return advanceSlot(null, action);
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    static final class ValueSpliterator extends SlotSpliterator
+        implements Spliterator.OfLong {
+        ValueSpliterator(LongLongHashMap m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public ValueSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new ValueSpliterator(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            getFence();
+            forEachSlot(map.vals, action);
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            getFence();
+            return advanceSlot(map.vals, action);
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.NONNULL;
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Saves the state of this map to a stream.
+     *
+     * @serialData The load factor (float) is emitted by the default
+     *             serialization, followed by the number of mappings
+     *             (int), followed by the key (long) and value (long) of
+     *             each mapping, in no particular order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        long[] ks = keys, vs = vals;
+        if (containsZeroKey) {
+            s.writeLong(0L);
+            s.writeLong(vs[mask + 1]);
+        }
+        for (int i = mask; i >= 0; --i) {
+            if (ks[i] != 0L) {
+                s.writeLong(ks[i]);
+                s.writeLong(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream.
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        allocate(tableSizeFor(Math.max(mappings, DEFAULT_INITIAL_CAPACITY),
+                              loadFactor));
+        for (int i = 0; i < mappings; i++) {
+            long k = s.readLong();
+            put(k, s.readLong());
+        }
+    }
+}
@@ -0,0 +1,997 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Hash table based implementation of the {@code Map} interface whose keys
+ * are primitive {@code long}s.  Keys are kept in a flat {@code long} array
+ * and values in a parallel {@code Object} array, using open addressing
+ * with linear probing, so keys are never boxed and a lookup touches no
+ * per-entry node.  Removal uses backward shifting, so the table never
+ * contains tombstones.
+ *
+ * <p>In addition to the {@code Map<Long,V>} methods, which box their
+ * key arguments, this class offers primitive accessors such as
+ * {@link #containsKey(long)}, {@link #get(long)}, {@link #put(long, Object)}
+ * and {@link #remove(long)}.  This map permits {@code null} values but not
+ * {@code null} keys.
+ *
+ * <p>The key set reports a {@link Spliterator.OfLong} spliterator, and
+ * {@link #keyStream()} feeds it straight into {@link LongStream} pipelines
+ * without boxing.
+ *
+ * <p>An instance has two parameters that affect its performance: the
+ * <i>initial capacity</i> and the <i>load factor</i>, as in
+ * {@link HashMap}.  Because open addressing needs at least one free slot,
+ * the load factor must be strictly between 0 and 1.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators returned by this class's collection view methods are
+ * <i>fail-fast</i>.  The {@code Map.Entry} objects returned by the
+ * entry-set iterator read and write their values through to the map only
+ * until its next structural modification.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see HashMap
+ * @see IntObjectHashMap
+ * @see LongLongHashMap
+ * @since 1.8
+ */
+public class LongObjectHashMap<V> extends AbstractMap<Long,V>
+    implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = -2069514329217346123L;
+
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    /* ---------------- Fields -------------- */
+
+    /**
+     * The key slots.  Length is a power of two plus one: slot
+     * {@code keys.length - 1} is reserved for the key zero, which
+     * otherwise marks a free slot.
+     */
+    transient long[] keys;
+
+    /**
+     * The value slots, parallel to {@code keys}.
+     */
+    transient Object[] vals;
+
+    /**
+     * Mask for indexing the hashed part of the table.
+     */
+    transient int mask;
+
+    /**
+     * Whether the key zero is present in its reserved slot.
+     */
+    transient boolean containsZeroKey;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * Structural modification count, for fail-fast iterators.
+     */
+    transient int modCount;
+
+    /**
+     * The size at which the table is doubled.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     */
+    final float loadFactor;
+
+    /**
+     * Spreads the bits of a key so that nearby keys do not cluster in
+     * a linearly probed table.
+     */
+    static int mix(long k) {
+        return LongLongHashMap.mix(k);
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty map with the specified initial capacity and
+     * load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not strictly between 0 and 1
+     */
+    public LongObjectHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        this.loadFactor = LongLongHashMap.checkLoadFactor(loadFactor);
+        allocate(LongLongHashMap.tableSizeFor(initialCapacity, loadFactor));
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public LongObjectHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public LongObjectHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified
+     * {@code Map} and the default load factor.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null, or
+     *          contains a null key
+     */
+    public LongObjectHashMap(Map<? extends Long, ? extends V> m) {
+        this(Math.max(m.size(), DEFAULT_INITIAL_CAPACITY), DEFAULT_LOAD_FACTOR);
+        putAll(m);
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap + 1];
+        vals = new Object[cap + 1];
+        mask = cap - 1;
+        threshold = LongLongHashMap.thresholdFor(cap, loadFactor);
+    }
+
+    /**
+     * Returns the slot holding the given key, or -1 if absent.
+     */
+    final int find(long key) {
+        if (key == 0L)
+            return containsZeroKey ? mask + 1 : -1;
+        long[] ks = keys;
+        int m = mask;
+        for (int i = mix(key) & m;; i = (i + 1) & m) {
+            long k = ks[i];
+            if (k == key)
+                return i;
+            if (k == 0L)
+                return -1;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    final V valAt(int i) {
+        return (V)vals[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key the key whose presence is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return (key instanceof Long) && find((Long)key) >= 0;
+    }
+
+    public boolean containsValue(Object value) {
+        long[] ks = keys;
+        Object[] vs = vals;
+        if (containsZeroKey && Objects.equals(vs[mask + 1], value))
+            return true;
+        for (int i = mask; i >= 0; --i) {
+            if (ks[i] != 0 && Objects.equals(vs[i], value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the mapped value, or {@code null}
+     */
+    public V get(long key) {
+        int i = find(key);
+        return (i < 0) ? null : valAt(i);
+    }
+
+    public V get(Object key) {
+        int i;
+        if (!(key instanceof Long) || (i = find((Long)key)) < 0)
+            return null;
+        return valAt(i);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if the key is absent
+     * @return the mapped value, or {@code defaultValue}
+     */
+    public V getOrDefault(long key, V defaultValue) {
+        int i = find(key);
+        return (i < 0) ? defaultValue : valAt(i);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map,
+     * replacing any previous value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    public V put(long key, V value) {
+        int i = insert(key, value);
+        if (i < 0)
+            return null;
+        V old = valAt(i);
+        vals[i] = value;
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key is null
+     */
+    public V put(Long key, V value) {
+        return put(key.longValue(), value);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value and returns {@code null}, else
+     * returns the current value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    public V putIfAbsent(long key, V value) {
+        int i = insert(key, value);
+        if (i < 0)
+            return null;
+        V old = valAt(i);
+        if (old == null)
+            vals[i] = value;
+        return old;
+    }
+
+    /**
+     * Merges all of the mappings of the specified map into this map.  A
+     * key absent from this map is mapped to its value in the specified
+     * map; otherwise its value is replaced by the result of applying the
+     * remapping function to its current value and its value in the
+     * specified map.  The table of the specified map is walked directly,
+     * so no key is boxed.
+     *
+     * @param m the map whose mappings are to be merged into this map
+     * @param remappingFunction the function combining the values of a key
+     *        present in both maps
+     * @throws NullPointerException if the specified map or the remapping
+     *         function is null
+     */
+    public void mergeAll(LongObjectHashMap<? extends V> m,
+                         BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        if (m.size == 0)
+            return;
+        ensureCapacity(Math.max(size, m.size));
+        long[] ks = m.keys;
+        if (m.containsZeroKey)
+            mergeValue(0L, m.valAt(ks.length - 1), remappingFunction);
+        for (int i = ks.length - 2; i >= 0; --i) {
+            long k = ks[i];
+            if (k != 0L)
+                mergeValue(k, m.valAt(i), remappingFunction);
+        }
+    }
+
+    private void mergeValue(long key, V value,
+                            BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        int i = insert(key, value);
+        if (i >= 0)
+            vals[i] = remappingFunction.apply(valAt(i), value);
+    }
+
+    /**
+     * Inserts a new mapping if the key is absent and returns -1, else
+     * returns the slot holding the existing key without changing it.
+     */
+    private int insert(long key, V value) {
+        int i;
+        if (key == 0L) {
+            i = mask + 1;
+            if (containsZeroKey)
+                return i;
+            containsZeroKey = true;
+        }
+        else {
+            long[] ks = keys;
+            int m = mask;
+            long k;
+            for (i = mix(key) & m; (k = ks[i]) != 0L; i = (i + 1) & m) {
+                if (k == key)
+                    return i;
+            }
+            ks[i] = key;
+        }
+        vals[i] = value;
+        ++modCount;
+        if (++size > threshold)
+            resize((mask + 1) << 1);
+        return -1;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null, or
+     *         contains a null key
+     */
+    public void putAll(Map<? extends Long, ? extends V> m) {
+        int n = m.size();
+        if (n == 0)
+            return;
+        ensureCapacity(size + n);
+        if (m instanceof LongObjectHashMap) {
+            @SuppressWarnings("unchecked")
+            LongObjectHashMap<? extends V> o = (LongObjectHashMap<? extends V>)m;
+            long[] ks = o.keys;
+            if (o.containsZeroKey)
+                put(0L, o.valAt(o.mask + 1));
+            for (int i = o.mask; i >= 0; --i) {
+                long k = ks[i];
+                if (k != 0L)
+                    put(k, o.valAt(i));
+            }
+        }
+        else {
+            for (Map.Entry<? extends Long, ? extends V> e : m.entrySet())
+                put(e.getKey().longValue(), e.getValue());
+        }
+    }
+
+    private void ensureCapacity(int expected) {
+        if (expected > threshold) {
+            int cap = LongLongHashMap.tableSizeFor(expected, loadFactor);
+            if (cap > mask + 1)
+                resize(cap);
+        }
+    }
+
+    /**
+     * Rehashes all mappings into a table of the given length.
+     */
+    final void resize(int newCap) {
+        long[] oldKeys = keys;
+        Object[] oldVals = vals;
+        int oldCap = mask + 1;
+        if (oldCap >= MAXIMUM_CAPACITY) {
+            if (size >= MAXIMUM_CAPACITY)
+                throw new IllegalStateException("Map too large");
+            threshold = MAXIMUM_CAPACITY - 1;
+            return;
+        }
+        allocate(newCap);
+        long[] ks = keys;
+        Object[] vs = vals;
+        int m = mask;
+        for (int j = 0; j < oldCap; ++j) {
+            long k = oldKeys[j];
+            if (k != 0L) {
+                int i = mix(k) & m;
+                while (ks[i] != 0L)
+                    i = (i + 1) & m;
+                ks[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+        vs[m + 1] = oldVals[oldCap];
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    public V remove(long key) {
+        int i = find(key);
+        if (i < 0)
+            return null;
+        V old = valAt(i);
+        removeAt(i);
+        return old;
+    }
+
+    public V remove(Object key) {
+        int i;
+        if (!(key instanceof Long) || (i = find((Long)key)) < 0)
+            return null;
+        V old = valAt(i);
+        removeAt(i);
+        return old;
+    }
+
+    /**
+     * Removes the mapping in the given slot, shifting later members of
+     * its probe sequence back so that no tombstone is needed.
+     */
+    final void removeAt(int i) {
+        ++modCount;
+        --size;
+        Object[] vs = vals;
+        if (i > mask) {
+            containsZeroKey = false;
+            vs[i] = null;
+            return;
+        }
+        long[] ks = keys;
+        int m = mask;
+        for (int last = i;;) {
+            long k;
+            i = (i + 1) & m;
+            if ((k = ks[i]) == 0L) {
+                ks[last] = 0L;
+                vs[last] = null;
+                return;
+            }
+            int slot = mix(k) & m;
+            // move k back unless its home slot lies cyclically in (last, i]
+            if (last <= i ? (last >= slot || slot > i)
+                          : (last >= slot && slot > i)) {
+                ks[last] = k;
+                vs[last] = vs[i];
+                last = i;
+            }
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        if (size > 0) {
+            ++modCount;
+            Arrays.fill(keys, 0L);
+            Arrays.fill(vals, null);
+            containsZeroKey = false;
+            size = 0;
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super Long, ? super V, ? extends V> function) {
+        if (function == null)
+            throw new NullPointerException();
+        long[] ks = keys;
+        Object[] vs = vals;
+        int mc = modCount;
+        if (containsZeroKey)
+            vs[mask + 1] = function.apply(0L, valAt(mask + 1));
+        for (int i = mask; i >= 0; --i) {
+            if (ks[i] != 0L)
+                vs[i] = function.apply(ks[i], valAt(i));
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a shallow copy of this map: the keys and values themselves
+     * are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    public LongObjectHashMap<V> clone() {
+        LongObjectHashMap<V> result;
+        try {
+            result = (LongObjectHashMap<V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.keySetView = null;
+        result.valuesView = null;
+        result.entrySetView = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    public int hashCode() {
+        long[] ks = keys;
+        Object[] vs = vals;
+        int h = containsZeroKey ? Objects.hashCode(vs[mask + 1]) : 0;
+        for (int i = mask; i >= 0; --i) {
+            long k = ks[i];
+            if (k != 0L)
+                h += Long.hashCode(k) ^ Objects.hashCode(vs[i]);
+        }
+        return h;
+    }
+
+    /* ---------------- Primitive views -------------- */
+
+    /**
+     * Returns a late-binding, fail-fast {@link Spliterator.OfLong} over
+     * the keys of this map.
+     *
+     * @return a spliterator over the keys of this map
+     */
+    public Spliterator.OfLong keySpliterator() {
+        return new KeySpliterator<>(this, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} over the keys of this map.
+     *
+     * @return a stream of the keys of this map
+     */
+    public LongStream keyStream() {
+        return StreamSupport.longStream(keySpliterator(), false);
+    }
+
+    /* ---------------- Views -------------- */
+
+    transient Set<Long> keySetView;
+    transient Collection<V> valuesView;
+    transient Set<Map.Entry<Long,V>> entrySetView;
+
+    public Set<Long> keySet() {
+        Set<Long> ks = keySetView;
+        return (ks != null) ? ks : (keySetView = new KeySet());
+    }
+
+    public Collection<V> values() {
+        Collection<V> vs = valuesView;
+        return (vs != null) ? vs : (valuesView = new Values());
+    }
+
+    public Set<Map.Entry<Long,V>> entrySet() {
+        Set<Map.Entry<Long,V>> es = entrySetView;
+        return (es != null) ? es : (entrySetView = new EntrySet());
+    }
+
+    final class KeySet extends AbstractSet<Long> {
+        public final int size()                   { return size; }
+        public final void clear()                 { LongObjectHashMap.this.clear(); }
+        public final Iterator<Long> iterator() { return new KeyIterator(); }
+        public final boolean contains(Object o)   { return containsKey(o); }
+        public final boolean remove(Object o) {
+            int i;
+            if (!(o instanceof Long) || (i = find((Long)o)) < 0)
+                return false;
+            removeAt(i);
+            return true;
+        }
+        public final Spliterator.OfLong spliterator() {
+            return keySpliterator();
+        }
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongObjectHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final Spliterator<V> spliterator() {
+            return new ValueSpliterator<>(LongObjectHashMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Long,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongObjectHashMap.this.clear(); }
+        public final Iterator<Map.Entry<Long,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey();
+            int i;
+            return (k instanceof Long) && (i = find((Long)k)) >= 0 &&
+                Objects.equals(vals[i], e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            removeAt(find((Long)((Map.Entry<?,?>)o).getKey()));
+            return true;
+        }
+    }
+
+    /**
+     * An entry view of a table slot.  The key is captured when the entry
+     * is created; the value is read through to the slot.
+     */
+    final class MapEntry implements Map.Entry<Long,V> {
+        final long key;
+        final int index;
+        MapEntry(int index) {
+            this.key = keyAt(index);
+            this.index = index;
+        }
+        public Long getKey()           { return key; }
+        public V getValue()               { return valAt(index); }
+        public V setValue(V value) {
+            V old = valAt(index);
+            vals[index] = value;
+            return old;
+        }
+        public int hashCode() {
+            return Long.hashCode(key) ^ Objects.hashCode(vals[index]);
+        }
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return getKey().equals(e.getKey()) &&
+                Objects.equals(vals[index], e.getValue());
+        }
+        public String toString() {
+            return key + "=" + vals[index];
+        }
+    }
+
+    final long keyAt(int i) {
+        return (i > mask) ? 0L : keys[i];
+    }
+
+    /* ---------------- Iterators -------------- */
+
+    /**
+     * Base iterator.  Slots are visited from the zero-key slot downward.
+     * A removal shifts later members of a probe sequence back into the
+     * freed slot; only entries that wrap around from the start of the
+     * table can be shifted past the cursor, and those keys are remembered
+     * in {@code wrapped} and returned after the scan.
+     */
+    abstract class HashIterator {
+        int index;             // next slot to examine is index - 1
+        int current = -1;      // slot of last returned entry, or -1
+        int remaining;         // entries not yet returned
+        int expectedModCount;  // for fast-fail
+        long[] wrapped;         // keys moved behind the cursor by remove
+        int wrappedCount;      // number of keys in wrapped
+        int wrappedIndex;      // next wrapped key to return
+
+        HashIterator() {
+            index = mask + 2;
+            remaining = size;
+            expectedModCount = modCount;
+        }
+
+        public final boolean hasNext() {
+            return remaining > 0;
+        }
+
+        final int nextSlot() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            if (index == mask + 2) {
+                --index;
+                if (containsZeroKey)
+                    return current = mask + 1;
+            }
+            long[] ks = keys;
+            while (--index >= 0) {
+                if (ks[index] != 0L)
+                    return current = index;
+            }
+            index = 0;
+            return current = find(wrapped[wrappedIndex++]);
+        }
+
+        public final void remove() {
+            int i = current;
+            if (i < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = -1;
+            if (i > mask || index <= 0 || wrappedIndex > 0) {
+                // zero-key slot, or scan complete: nothing can shift past us
+                removeAt(i);
+            }
+            else
+                removeAndTrack(i);
+            expectedModCount = modCount;
+        }
+
+        private void removeAndTrack(int i) {
+            ++modCount;
+            --size;
+            long[] ks = keys;
+            Object[] vs = vals;
+            int m = mask;
+            for (int last = i;;) {
+                long k;
+                i = (i + 1) & m;
+                if ((k = ks[i]) == 0L) {
+                    ks[last] = 0L;
+                    vs[last] = null;
+                    return;
+                }
+                int slot = mix(k) & m;
+                if (last <= i ? (last >= slot || slot > i)
+                              : (last >= slot && slot > i)) {
+                    if (i < last) {
+                        // wrapped past the end: k would escape the scan
+                        long[] w = wrapped;
+                        if (w == null)
+                            wrapped = w = new long[2];
+                        else if (wrappedCount == w.length)
+                            wrapped = w = Arrays.copyOf(w, wrappedCount << 1);
+                        w[wrappedCount++] = k;
+                    }
+                    ks[last] = k;
+                    vs[last] = vs[i];
+                    last = i;
+                }
+            }
+        }
+    }
+
+    final class KeyIterator extends HashIterator
+        implements PrimitiveIterator.OfLong {
+        public final long nextLong() { return keyAt(nextSlot()); }
+    }
+
+    final class ValueIterator extends HashIterator
+        implements Iterator<V> {
+        public final V next() { return valAt(nextSlot()); }
+    }
+
+    final class EntryIterator extends HashIterator
+        implements Iterator<Map.Entry<Long,V>> {
+        public final Map.Entry<Long,V> next() {
+            return new MapEntry(nextSlot());
+        }
+    }
+
+    /* ---------------- Spliterators -------------- */
+
+    /**
+     * Base spliterator over a range of table slots, where the range
+     * [mask + 1, mask + 2) is the zero-key slot.  Splits halve the slot
+     * range, as in {@code HashMap}.
+     */
+    static class SlotSpliterator<V> {
+        final LongObjectHashMap<V> map;
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        SlotSpliterator(LongObjectHashMap<V> m, int origin, int fence, int est,
+                        int expectedModCount) {
+            this.map = m;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                LongObjectHashMap<V> m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.mask + 2;
+            }
+            return hi;
+        }
+
+        public final long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        /**
+         * Returns the next occupied slot in [index, fence), or -1.
+         */
+        final int nextSlot(int hi) {
+            LongObjectHashMap<V> m = map;
+            long[] ks = m.keys;
+            if (ks.length >= hi) {
+                int mk = m.mask;
+                while (index < hi) {
+                    int i = index++;
+                    if ((i <= mk) ? ks[i] != 0L : m.containsZeroKey)
+                        return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    static final class KeySpliterator<V> extends SlotSpliterator<V>
+        implements Spliterator.OfLong {
+        KeySpliterator(LongObjectHashMap<V> m, int origin, int fence, int est,
+                       int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public KeySpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new KeySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), mc = expectedModCount, i;
+            while ((i = nextSlot(hi)) >= 0)
+                action.accept(map.keyAt(i));
+            if (map.modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot(getFence());
+            if (i < 0)
+                return false;
+            action.accept(map.keyAt(i));
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    static final class ValueSpliterator<V> extends SlotSpliterator<V>
+        implements Spliterator<V> {
+        ValueSpliterator(LongObjectHashMap<V> m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public ValueSpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new ValueSpliterator<>(map, lo, index = mid, est >>>= 1,
+                                       expectedModCount);
+        }
+
+        public void forEachRemaining(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), mc = expectedModCount, i;
+            while ((i = nextSlot(hi)) >= 0)
+                action.accept(map.valAt(i));
+            if (map.modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot(getFence());
+            if (i < 0)
+                return false;
+            action.accept(map.valAt(i));
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0);
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Saves the state of this map to a stream.
+     *
+     * @serialData The load factor (float) is emitted by the default
+     *             serialization, followed by the number of mappings
+     *             (int), followed by the key (long) and value (Object) of
+     *             each mapping, in no particular order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        long[] ks = keys;
+        Object[] vs = vals;
+        if (containsZeroKey) {
+            s.writeLong(0L);
+            s.writeObject(vs[mask + 1]);
+        }
+        for (int i = mask; i >= 0; --i) {
+            if (ks[i] != 0L) {
+                s.writeLong(ks[i]);
+                s.writeObject(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream.
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        allocate(LongLongHashMap.tableSizeFor(
+                     Math.max(mappings, DEFAULT_INITIAL_CAPACITY), loadFactor));
+        for (int i = 0; i < mappings; i++) {
+            long k = s.readLong();
+            @SuppressWarnings("unchecked")
+                V value = (V) s.readObject();
+            put(k, value);
+        }
+    }
+}
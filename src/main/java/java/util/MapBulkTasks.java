@@ -0,0 +1,383 @@
+package java.util;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Fork/join tasks behind the parallel bulk operations of {@link HashMap}
+ * and {@link TreeMap}, in the manner of the bulk tasks of {@link
+ * java.util.concurrent.ConcurrentHashMap}.  Each task repeatedly splits
+ * its {@link Spliterator}, forking the prefix, until its batch count is
+ * exhausted, then traverses what remains.  The spliterators of these
+ * maps split along table slices and subtrees respectively, so the
+ * tasks need no knowledge of either structure.
+ *
+ * <p>Reductions combine the result of each forked prefix before the
+ * result of the task that forked it, so for ordered sources results are
+ * combined in encounter order and reducers need only be associative.
+ */
+final class MapBulkTasks {
+    private MapBulkTasks() {}
+
+    /**
+     * Computes the initial batch value for a bulk task, as in
+     * {@code ConcurrentHashMap.batchFor}.  The returned value is
+     * approximately exp2 of the number of times (minus one) to split
+     * the task by two before executing leaf actions.  This value is
+     * faster to compute and more convenient to use as a guide to
+     * splitting than is the depth, since it is used while dividing by
+     * two anyway.
+     *
+     * @param size the number of elements
+     * @param b the parallelism threshold
+     * @return the batch value, or zero to run sequentially
+     */
+    static int batchFor(long size, long b) {
+        long n;
+        if (b == Long.MAX_VALUE || (n = size) <= 1L || n < b)
+            return 0;
+        int sp = ForkJoinPool.getCommonPoolParallelism() << 2; // slack of 4
+        return (b <= 0L || (n /= b) >= sp) ? sp : (int)n;
+    }
+
+    /**
+     * Base for bulk tasks over the elements of a spliterator.
+     */
+    @SuppressWarnings("serial")
+    abstract static class BulkTask<T,R> extends CountedCompleter<R> {
+        final Spliterator<T> spliterator;
+        int batch;
+
+        BulkTask(BulkTask<T,?> parent, int batch, Spliterator<T> spliterator) {
+            super(parent);
+            this.batch = batch;
+            this.spliterator = spliterator;
+        }
+
+        /**
+         * Halves the batch and splits the spliterator, returning the
+         * split-off prefix, or null if no more splitting should occur.
+         */
+        final Spliterator<T> split() {
+            int b = batch;
+            Spliterator<T> s;
+            if (b <= 0 || (s = spliterator.trySplit()) == null)
+                return null;
+            batch = b >>> 1;
+            return s;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class ForEachTask<T> extends BulkTask<T,Void> {
+        final Consumer<? super T> action;
+        ForEachTask(BulkTask<T,?> p, int b, Spliterator<T> s,
+                    Consumer<? super T> action) {
+            super(p, b, s);
+            this.action = action;
+        }
+        public final void compute() {
+            final Consumer<? super T> action;
+            if ((action = this.action) != null) {
+                for (Spliterator<T> s; (s = split()) != null;) {
+                    addToPendingCount(1);
+                    new ForEachTask<T>(this, batch, s, action).fork();
+                }
+                spliterator.forEachRemaining(action);
+                propagateCompletion();
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class SearchTask<T,U> extends BulkTask<T,U>
+        implements Consumer<T> {
+        final Function<? super T, ? extends U> searchFunction;
+        final AtomicReference<U> result;
+        SearchTask(BulkTask<T,?> p, int b, Spliterator<T> s,
+                   Function<? super T, ? extends U> searchFunction,
+                   AtomicReference<U> result) {
+            super(p, b, s);
+            this.searchFunction = searchFunction;
+            this.result = result;
+        }
+        public final U getRawResult() { return result.get(); }
+        public final void accept(T t) {
+            U u;
+            if ((u = searchFunction.apply(t)) != null &&
+                result.compareAndSet(null, u))
+                quietlyCompleteRoot();
+        }
+        public final void compute() {
+            final AtomicReference<U> result = this.result;
+            if (searchFunction != null && result != null) {
+                for (Spliterator<T> s; (s = split()) != null;) {
+                    if (result.get() != null)
+                        return;
+                    addToPendingCount(1);
+                    new SearchTask<T,U>(this, batch, s, searchFunction,
+                                        result).fork();
+                }
+                while (result.get() == null && spliterator.tryAdvance(this))
+                    ;
+                if (result.get() == null)
+                    propagateCompletion();
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class ReduceTask<T,U> extends BulkTask<T,U>
+        implements Consumer<T> {
+        final Function<? super T, ? extends U> transformer;
+        final BiFunction<? super U, ? super U, ? extends U> reducer;
+        U result;
+        ReduceTask<T,U> rights, nextRight;
+        ReduceTask(BulkTask<T,?> p, int b, Spliterator<T> s,
+                   ReduceTask<T,U> nextRight,
+                   Function<? super T, ? extends U> transformer,
+                   BiFunction<? super U, ? super U, ? extends U> reducer) {
+            super(p, b, s);
+            this.nextRight = nextRight;
+            this.transformer = transformer;
+            this.reducer = reducer;
+        }
+        public final U getRawResult() { return result; }
+        public final void accept(T t) {
+            U u, r;
+            if ((u = transformer.apply(t)) != null)
+                result = ((r = result) == null) ? u : reducer.apply(r, u);
+        }
+        public final void compute() {
+            if (transformer != null && reducer != null) {
+                for (Spliterator<T> s; (s = split()) != null;) {
+                    addToPendingCount(1);
+                    (rights = new ReduceTask<T,U>
+                     (this, batch, s, rights, transformer, reducer)).fork();
+                }
+                spliterator.forEachRemaining(this);
+                CountedCompleter<?> c;
+                for (c = firstComplete(); c != null; c = c.nextComplete()) {
+                    @SuppressWarnings("unchecked")
+                    ReduceTask<T,U> t = (ReduceTask<T,U>)c, s = t.rights;
+                    while (s != null) {
+                        U tr, sr;
+                        if ((sr = s.result) != null)
+                            t.result = (((tr = t.result) == null) ? sr :
+                                        reducer.apply(sr, tr));
+                        s = t.rights = s.nextRight;
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class ReduceToLongTask<T> extends BulkTask<T,Long> {
+        final ToLongFunction<? super T> transformer;
+        final LongBinaryOperator reducer;
+        final long basis;
+        long result;
+        ReduceToLongTask<T> rights, nextRight;
+        ReduceToLongTask(BulkTask<T,?> p, int b, Spliterator<T> s,
+                         ReduceToLongTask<T> nextRight,
+                         ToLongFunction<? super T> transformer,
+                         long basis, LongBinaryOperator reducer) {
+            super(p, b, s);
+            this.nextRight = nextRight;
+            this.transformer = transformer;
+            this.basis = basis;
+            this.reducer = reducer;
+        }
+        public final Long getRawResult() { return result; }
+        public final void compute() {
+            final ToLongFunction<? super T> transformer;
+            final LongBinaryOperator reducer;
+            if ((transformer = this.transformer) != null &&
+                (reducer = this.reducer) != null) {
+                long r = this.basis;
+                for (Spliterator<T> s; (s = split()) != null;) {
+                    addToPendingCount(1);
+                    (rights = new ReduceToLongTask<T>
+                     (this, batch, s, rights, transformer, r, reducer)).fork();
+                }
+                final long[] acc = { r };
+                spliterator.forEachRemaining(
+                    t -> acc[0] = reducer.applyAsLong(acc[0], transformer.applyAsLong(t)));
+                result = acc[0];
+                CountedCompleter<?> c;
+                for (c = firstComplete(); c != null; c = c.nextComplete()) {
+                    @SuppressWarnings("unchecked")
+                    ReduceToLongTask<T> t = (ReduceToLongTask<T>)c, s = t.rights;
+                    while (s != null) {
+                        t.result = reducer.applyAsLong(s.result, t.result);
+                        s = t.rights = s.nextRight;
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class ReduceToIntTask<T> extends BulkTask<T,Integer> {
+        final ToIntFunction<? super T> transformer;
+        final IntBinaryOperator reducer;
+        final int basis;
+        int result;
+        ReduceToIntTask<T> rights, nextRight;
+        ReduceToIntTask(BulkTask<T,?> p, int b, Spliterator<T> s,
+                        ReduceToIntTask<T> nextRight,
+                        ToIntFunction<? super T> transformer,
+                        int basis, IntBinaryOperator reducer) {
+            super(p, b, s);
+            this.nextRight = nextRight;
+            this.transformer = transformer;
+            this.basis = basis;
+            this.reducer = reducer;
+        }
+        public final Integer getRawResult() { return result; }
+        public final void compute() {
+            final ToIntFunction<? super T> transformer;
+            final IntBinaryOperator reducer;
+            if ((transformer = this.transformer) != null &&
+                (reducer = this.reducer) != null) {
+                int r = this.basis;
+                for (Spliterator<T> s; (s = split()) != null;) {
+                    addToPendingCount(1);
+                    (rights = new ReduceToIntTask<T>
+                     (this, batch, s, rights, transformer, r, reducer)).fork();
+                }
+                final int[] acc = { r };
+                spliterator.forEachRemaining(
+                    t -> acc[0] = reducer.applyAsInt(acc[0], transformer.applyAsInt(t)));
+                result = acc[0];
+                CountedCompleter<?> c;
+                for (c = firstComplete(); c != null; c = c.nextComplete()) {
+                    @SuppressWarnings("unchecked")
+                    ReduceToIntTask<T> t = (ReduceToIntTask<T>)c, s = t.rights;
+                    while (s != null) {
+                        t.result = reducer.applyAsInt(s.result, t.result);
+                        s = t.rights = s.nextRight;
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class ReduceToDoubleTask<T> extends BulkTask<T,Double> {
+        final ToDoubleFunction<? super T> transformer;
+        final DoubleBinaryOperator reducer;
+        final double basis;
+        double result;
+        ReduceToDoubleTask<T> rights, nextRight;
+        ReduceToDoubleTask(BulkTask<T,?> p, int b, Spliterator<T> s,
+                           ReduceToDoubleTask<T> nextRight,
+                           ToDoubleFunction<? super T> transformer,
+                           double basis, DoubleBinaryOperator reducer) {
+            super(p, b, s);
+            this.nextRight = nextRight;
+            this.transformer = transformer;
+            this.basis = basis;
+            this.reducer = reducer;
+        }
+        public final Double getRawResult() { return result; }
+        public final void compute() {
+            final ToDoubleFunction<? super T> transformer;
+            final DoubleBinaryOperator reducer;
+            if ((transformer = this.transformer) != null &&
+                (reducer = this.reducer) != null) {
+                double r = this.basis;
+                for (Spliterator<T> s; (s = split()) != null;) {
+                    addToPendingCount(1);
+                    (rights = new ReduceToDoubleTask<T>
+                     (this, batch, s, rights, transformer, r, reducer)).fork();
+                }
+                final double[] acc = { r };
+                spliterator.forEachRemaining(
+                    t -> acc[0] = reducer.applyAsDouble(acc[0], transformer.applyAsDouble(t)));
+                result = acc[0];
+                CountedCompleter<?> c;
+                for (c = firstComplete(); c != null; c = c.nextComplete()) {
+                    @SuppressWarnings("unchecked")
+                    ReduceToDoubleTask<T> t = (ReduceToDoubleTask<T>)c, s = t.rights;
+                    while (s != null) {
+                        t.result = reducer.applyAsDouble(s.result, t.result);
+                        s = t.rights = s.nextRight;
+                    }
+                }
+            }
+        }
+    }
+
+    /* ---------------- Entry points -------------- */
+
+    static <T> void forEach(long size, long parallelismThreshold,
+                            Spliterator<T> s, Consumer<? super T> action) {
+        if (action == null) throw new NullPointerException();
+        new ForEachTask<T>(null, batchFor(size, parallelismThreshold), s,
+                           action).invoke();
+    }
+
+    static <T,U> U search(long size, long parallelismThreshold,
+                          Spliterator<T> s,
+                          Function<? super T, ? extends U> searchFunction) {
+        if (searchFunction == null) throw new NullPointerException();
+        return new SearchTask<T,U>(null, batchFor(size, parallelismThreshold),
+                                   s, searchFunction,
+                                   new AtomicReference<U>()).invoke();
+    }
+
+    static <T,U> U reduce(long size, long parallelismThreshold,
+                          Spliterator<T> s,
+                          Function<? super T, ? extends U> transformer,
+                          BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return new ReduceTask<T,U>(null, batchFor(size, parallelismThreshold),
+                                   s, null, transformer, reducer).invoke();
+    }
+
+    static <T> long reduceToLong(long size, long parallelismThreshold,
+                                 Spliterator<T> s,
+                                 ToLongFunction<? super T> transformer,
+                                 long basis, LongBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return new ReduceToLongTask<T>(null, batchFor(size, parallelismThreshold),
+                                       s, null, transformer, basis,
+                                       reducer).invoke();
+    }
+
+    static <T> int reduceToInt(long size, long parallelismThreshold,
+                               Spliterator<T> s,
+                               ToIntFunction<? super T> transformer,
+                               int basis, IntBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return new ReduceToIntTask<T>(null, batchFor(size, parallelismThreshold),
+                                      s, null, transformer, basis,
+                                      reducer).invoke();
+    }
+
+    static <T> double reduceToDouble(long size, long parallelismThreshold,
+                                     Spliterator<T> s,
+                                     ToDoubleFunction<? super T> transformer,
+                                     double basis, DoubleBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return new ReduceToDoubleTask<T>(null, batchFor(size, parallelismThreshold),
+                                         s, null, transformer, basis,
+                                         reducer).invoke();
+    }
+}
@@ -25,6 +25,12 @@
 
 package java.util;
 import java.util.Date;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimingWheelScheduledExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -80,6 +86,19 @@ import java.util.concurrent.atomic.AtomicInteger;
  *
  * <p>Implementation note: All constructors start a timer thread.
  *
+ * <p>Implementation note: If the system property {@code
+ * java.util.Timer.parallelism} is set to a positive integer, each timer
+ * instead runs its tasks on a pool of up to that many threads, which
+ * are named after the timer, time out when idle, and keep tasks in a
+ * {@link java.util.concurrent.TimingWheelScheduledExecutor timing wheel}
+ * with a resolution of one millisecond.  A slow task then no longer
+ * delays the others, scheduling and cancelling a task take constant
+ * time, and cancelled tasks are removed immediately, leaving nothing
+ * for {@link #purge} to do.  Tasks of the same timer may then run
+ * concurrently, although no execution of a repeating task overlaps the
+ * next.  As with the timer thread, a task that throws an exception
+ * terminates the timer.
+ *
  * @author  Josh Bloch
  * @see     TimerTask
  * @see     Object#wait(long)
@@ -100,6 +119,23 @@ public class Timer {
      */
     private final TimerThread thread = new TimerThread(queue);
 
+    /**
+     * The number of threads over which each timer runs its tasks, or
+     * zero if it uses its timer thread.
+     */
+    private static final int parallelism =
+        java.security.AccessController.doPrivileged(
+            new sun.security.action.GetIntegerAction(
+                "java.util.Timer.parallelism", 0)).intValue();
+
+    /**
+     * The executor running this timer's tasks in place of the timer
+     * thread, or null if {@code parallelism} is zero.  Its tasks refer
+     * back to this timer, so that the timer remains reachable while
+     * any are scheduled.
+     */
+    private final TimingWheelScheduledExecutor executor;
+
     /**
      * This object causes the timer's task execution thread to exit
      * gracefully when there are no live references to the Timer object and no
@@ -113,6 +149,8 @@ public class Timer {
                 thread.newTasksMayBeScheduled = false;
                 queue.notify(); // In case queue is empty.
             }
+            if (executor != null)
+                executor.shutdown();
         }
     };
 
@@ -156,8 +194,11 @@ public class Timer {
      * @since 1.5
      */
     public Timer(String name) {
-        thread.setName(name);
-        thread.start();
+        executor = newExecutor(name, Thread.currentThread().isDaemon());
+        if (executor == null) {
+            thread.setName(name);
+            thread.start();
+        }
     }
 
     /**
@@ -171,9 +212,40 @@ public class Timer {
      * @since 1.5
      */
     public Timer(String name, boolean isDaemon) {
-        thread.setName(name);
-        thread.setDaemon(isDaemon);
-        thread.start();
+        executor = newExecutor(name, isDaemon);
+        if (executor == null) {
+            thread.setName(name);
+            thread.setDaemon(isDaemon);
+            thread.start();
+        }
+    }
+
+    /**
+     * Returns the executor to use in place of the timer thread, or null
+     * if {@code parallelism} is zero.
+     */
+    private static TimingWheelScheduledExecutor newExecutor(
+        final String name, final boolean isDaemon) {
+        if (name == null)
+            throw new NullPointerException();
+        if (parallelism <= 0)
+            return null;
+        final AtomicInteger threadNumber = new AtomicInteger(1);
+        TimingWheelScheduledExecutor e = new TimingWheelScheduledExecutor(
+            parallelism, 1, TimeUnit.MILLISECONDS,
+            new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, name + "-" +
+                                          threadNumber.getAndIncrement());
+                    t.setDaemon(isDaemon);
+                    return t;
+                }
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        e.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        e.setKeepAliveTime(60L, TimeUnit.SECONDS);
+        e.allowCoreThreadTimeOut(true);
+        return e;
     }
 
     /**
@@ -405,12 +477,93 @@ public class Timer {
                 task.state = TimerTask.SCHEDULED;
             }
 
+            if (executor != null) {
+                submit(task, time);
+                return;
+            }
             queue.add(task);
             if (queue.getMin() == task)
                 queue.notify();
         }
     }
 
+    /**
+     * Schedules the next execution of task, at the given time, on the
+     * executor, recording its future in the task so that cancelling the
+     * task removes it.
+     */
+    private void submit(TimerTask task, long time) {
+        ScheduledFuture<?> f;
+        try {
+            f = executor.schedule(new Execution(task),
+                                  time - System.currentTimeMillis(),
+                                  TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            throw new IllegalStateException("Timer already cancelled.");
+        }
+        synchronized(task.lock) {
+            if (task.state == TimerTask.SCHEDULED)
+                task.future = f;
+            else if (task.state == TimerTask.CANCELLED)
+                f.cancel(false);
+        }
+    }
+
+    /**
+     * One execution of a task on the executor.  Like the timer thread,
+     * it updates the task's state and next execution time before
+     * running it, and terminates the timer if the task throws.  The
+     * next execution of a repeating task is scheduled only after this
+     * one completes.
+     */
+    private final class Execution implements Runnable {
+        final TimerTask task;
+
+        Execution(TimerTask task) {
+            this.task = task;
+        }
+
+        public void run() {
+            final TimerTask task = this.task;
+            long period, next;
+            synchronized(task.lock) {
+                if (task.state != TimerTask.SCHEDULED || executor.isShutdown())
+                    return;
+                task.future = null;
+                period = task.period;
+                if (period == 0) {
+                    task.state = TimerTask.EXECUTED;
+                    next = 0L;
+                } else {
+                    next = (period < 0)
+                        ? System.currentTimeMillis() - period
+                        : task.nextExecutionTime + period;
+                    task.nextExecutionTime = next;
+                }
+            }
+            try {
+                task.run();
+            } catch (Throwable ex) {
+                // As when the timer thread dies: cancel, and report
+                cancel();
+                Thread t = Thread.currentThread();
+                t.getUncaughtExceptionHandler().uncaughtException(t, ex);
+                return;
+            }
+            if (period != 0) {
+                synchronized(queue) {
+                    if (thread.newTasksMayBeScheduled) {
+                        try {
+                            submit(task, next);
+                        } catch (IllegalStateException ex) {
+                            // timer cancelled concurrently
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Terminates this timer, discarding any currently scheduled tasks.
      * Does not interfere with a currently executing task (if it exists).
@@ -431,6 +584,8 @@ public class Timer {
             queue.clear();
             queue.notify();  // In case queue was already empty.
         }
+        if (executor != null)
+            executor.shutdown();
     }
 
     /**
@@ -80,6 +80,12 @@ public abstract class TimerTask implements Runnable {
      */
     long period = 0;
 
+    /**
+     * The pending execution of this task if its timer runs tasks on an
+     * executor, cancelled along with the task; otherwise null.
+     */
+    java.util.concurrent.ScheduledFuture<?> future;
+
     /**
      * Creates a new timer task.
      */
@@ -114,11 +120,17 @@ public abstract class TimerTask implements Runnable {
      *         executions from taking place.)
      */
     public boolean cancel() {
+        java.util.concurrent.ScheduledFuture<?> f;
+        boolean result;
         synchronized(lock) {
-            boolean result = (state == SCHEDULED);
+            result = (state == SCHEDULED);
             state = CANCELLED;
-            return result;
+            f = future;
+            future = null;
         }
+        if (f != null)
+            f.cancel(false);
+        return result;
     }
 
     /**
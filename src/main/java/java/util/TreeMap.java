@@ -4,6 +4,14 @@ import java.io.Serializable;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToLongBiFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * A Red-Black tree based {@link NavigableMap} implementation.
@@ -921,6 +929,297 @@ public class TreeMap<K,V>
         }
     }
 
+    // 并行批量操作
+
+    /*
+     * 与 ConcurrentHashMap 的批量操作相同的 API：parallelismThreshold 是并行执行所需的（估算）元素数量，
+     * 元素数少于该值时顺序执行；Long.MAX_VALUE 表示完全顺序执行，1 表示最大并行度（使用 ForkJoinPool 公共池）。
+     * 任务由 MapBulkTasks 中的 CountedCompleter 实现，按红黑树的子树（见 TreeMapSpliterator）拆分。
+     * 与 ConcurrentHashMap 不同，此类不是线程安全的：操作期间不得修改 map 的结构，
+     * 否则抛出 ConcurrentModificationException；传入的函数会被多个线程同时调用，必须无副作用或自行同步。
+     * 归并按 key 的升序组合各部分结果，因此 reducer 只需满足结合律。
+     */
+
+    /**
+     * 对每个 (key, value) 执行给定的操作。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param action 操作
+     * @throws NullPointerException 如果 action 为 null
+     * @since 1.8
+     */
+    public void forEach(long parallelismThreshold,
+                        BiConsumer<? super K,? super V> action) {
+        if (action == null) throw new NullPointerException();
+        MapBulkTasks.forEach(size, parallelismThreshold, new EntrySpliterator<>(this, null, null, 0, -1, 0),
+                             e -> action.accept(e.getKey(), e.getValue()));
+    }
+
+    /**
+     * 对每个 (key, value) 的非 null 转换结果执行给定的操作。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数，返回 null 表示不处理该元素
+     * @param action 操作
+     * @param <U> 转换结果的类型
+     * @throws NullPointerException 如果 transformer 或 action 为 null
+     * @since 1.8
+     */
+    public <U> void forEach(long parallelismThreshold,
+                            BiFunction<? super K, ? super V, ? extends U> transformer,
+                            Consumer<? super U> action) {
+        if (transformer == null || action == null)
+            throw new NullPointerException();
+        MapBulkTasks.forEach(size, parallelismThreshold, new EntrySpliterator<>(this, null, null, 0, -1, 0), e -> {
+            U u;
+            if ((u = transformer.apply(e.getKey(), e.getValue())) != null)
+                action.accept(u);
+        });
+    }
+
+    /**
+     * 对每个 (key, value) 应用搜索函数，返回任意一个非 null 结果，没有则返回 null。
+     * 找到结果后，其余的并行计算会被抑制。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param searchFunction 搜索函数，没有找到时返回 null
+     * @param <U> 搜索结果的类型
+     * @return 任意一个非 null 结果，没有则返回 null
+     * @throws NullPointerException 如果 searchFunction 为 null
+     * @since 1.8
+     */
+    public <U> U search(long parallelismThreshold,
+                        BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        if (searchFunction == null) throw new NullPointerException();
+        return MapBulkTasks.search(size, parallelismThreshold, new EntrySpliterator<>(this, null, null, 0, -1, 0),
+                                   e -> searchFunction.apply(e.getKey(), e.getValue()));
+    }
+
+    /**
+     * 使用 reducer 归并所有 (key, value) 的非 null 转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数，返回 null 表示不参与归并
+     * @param reducer 满足结合律的归并函数
+     * @param <U> 转换结果的类型
+     * @return 归并结果，没有结果则返回 null
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public <U> U reduce(long parallelismThreshold,
+                        BiFunction<? super K, ? super V, ? extends U> transformer,
+                        BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return MapBulkTasks.reduce(size, parallelismThreshold, new EntrySpliterator<>(this, null, null, 0, -1, 0),
+                                   e -> transformer.apply(e.getKey(), e.getValue()),
+                                   reducer);
+    }
+
+    /**
+     * 使用 reducer 从 basis 开始归并所有 (key, value) 的转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数
+     * @param basis 归并的初始值，必须是 reducer 的单位元
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public double reduceToDouble(long parallelismThreshold,
+                                 ToDoubleBiFunction<? super K, ? super V> transformer,
+                                 double basis,
+                                 DoubleBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return MapBulkTasks.reduceToDouble(size, parallelismThreshold, new EntrySpliterator<>(this, null, null, 0, -1, 0),
+                                           e -> transformer.applyAsDouble(e.getKey(), e.getValue()),
+                                           basis, reducer);
+    }
+
+    /**
+     * 使用 reducer 从 basis 开始归并所有 (key, value) 的转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数
+     * @param basis 归并的初始值，必须是 reducer 的单位元
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public long reduceToLong(long parallelismThreshold,
+                             ToLongBiFunction<? super K, ? super V> transformer,
+                             long basis,
+                             LongBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return MapBulkTasks.reduceToLong(size, parallelismThreshold, new EntrySpliterator<>(this, null, null, 0, -1, 0),
+                                         e -> transformer.applyAsLong(e.getKey(), e.getValue()),
+                                         basis, reducer);
+    }
+
+    /**
+     * 使用 reducer 从 basis 开始归并所有 (key, value) 的转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数
+     * @param basis 归并的初始值，必须是 reducer 的单位元
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public int reduceToInt(long parallelismThreshold,
+                           ToIntBiFunction<? super K, ? super V> transformer,
+                           int basis,
+                           IntBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return MapBulkTasks.reduceToInt(size, parallelismThreshold, new EntrySpliterator<>(this, null, null, 0, -1, 0),
+                                        e -> transformer.applyAsInt(e.getKey(), e.getValue()),
+                                        basis, reducer);
+    }
+
+    /**
+     * 对每个 key 执行给定的操作。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param action 操作
+     * @throws NullPointerException 如果 action 为 null
+     * @since 1.8
+     */
+    public void forEachKey(long parallelismThreshold,
+                           Consumer<? super K> action) {
+        MapBulkTasks.forEach(size, parallelismThreshold, new KeySpliterator<>(this, null, null, 0, -1, 0), action);
+    }
+
+    /**
+     * 对每个 value 执行给定的操作。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param action 操作
+     * @throws NullPointerException 如果 action 为 null
+     * @since 1.8
+     */
+    public void forEachValue(long parallelismThreshold,
+                             Consumer<? super V> action) {
+        MapBulkTasks.forEach(size, parallelismThreshold, new ValueSpliterator<>(this, null, null, 0, -1, 0), action);
+    }
+
+    /**
+     * 对每个键值对执行给定的操作。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param action 操作
+     * @throws NullPointerException 如果 action 为 null
+     * @since 1.8
+     */
+    public void forEachEntry(long parallelismThreshold,
+                             Consumer<? super Map.Entry<K,V>> action) {
+        MapBulkTasks.forEach(size, parallelismThreshold, new EntrySpliterator<>(this, null, null, 0, -1, 0), action);
+    }
+
+    /**
+     * 对每个 key 应用搜索函数，返回任意一个非 null 结果，没有则返回 null。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param searchFunction 搜索函数，没有找到时返回 null
+     * @param <U> 搜索结果的类型
+     * @return 任意一个非 null 结果，没有则返回 null
+     * @throws NullPointerException 如果 searchFunction 为 null
+     * @since 1.8
+     */
+    public <U> U searchKeys(long parallelismThreshold,
+                            Function<? super K, ? extends U> searchFunction) {
+        return MapBulkTasks.search(size, parallelismThreshold, new KeySpliterator<>(this, null, null, 0, -1, 0),
+                                   searchFunction);
+    }
+
+    /**
+     * 对每个 value 应用搜索函数，返回任意一个非 null 结果，没有则返回 null。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param searchFunction 搜索函数，没有找到时返回 null
+     * @param <U> 搜索结果的类型
+     * @return 任意一个非 null 结果，没有则返回 null
+     * @throws NullPointerException 如果 searchFunction 为 null
+     * @since 1.8
+     */
+    public <U> U searchValues(long parallelismThreshold,
+                              Function<? super V, ? extends U> searchFunction) {
+        return MapBulkTasks.search(size, parallelismThreshold, new ValueSpliterator<>(this, null, null, 0, -1, 0),
+                                   searchFunction);
+    }
+
+    /**
+     * 使用 reducer 归并所有非 null 的 key。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果，map 为空时返回 null
+     * @throws NullPointerException 如果 reducer 为 null
+     * @since 1.8
+     */
+    public K reduceKeys(long parallelismThreshold,
+                        BiFunction<? super K, ? super K, ? extends K> reducer) {
+        return MapBulkTasks.reduce(size, parallelismThreshold, new KeySpliterator<>(this, null, null, 0, -1, 0),
+                                   Function.<K>identity(), reducer);
+    }
+
+    /**
+     * 使用 reducer 归并所有非 null 的 value。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果，map 为空时返回 null
+     * @throws NullPointerException 如果 reducer 为 null
+     * @since 1.8
+     */
+    public V reduceValues(long parallelismThreshold,
+                          BiFunction<? super V, ? super V, ? extends V> reducer) {
+        return MapBulkTasks.reduce(size, parallelismThreshold, new ValueSpliterator<>(this, null, null, 0, -1, 0),
+                                   Function.<V>identity(), reducer);
+    }
+
+    /**
+     * 使用 reducer 归并所有 value 的非 null 转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数，返回 null 表示不参与归并
+     * @param reducer 满足结合律的归并函数
+     * @param <U> 转换结果的类型
+     * @return 归并结果，没有结果则返回 null
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public <U> U reduceValues(long parallelismThreshold,
+                              Function<? super V, ? extends U> transformer,
+                              BiFunction<? super U, ? super U, ? extends U> reducer) {
+        return MapBulkTasks.reduce(size, parallelismThreshold, new ValueSpliterator<>(this, null, null, 0, -1, 0),
+                                   transformer, reducer);
+    }
+
+    /**
+     * 使用 reducer 从 basis 开始归并所有 value 的转换结果。
+     *
+     * @param parallelismThreshold 并行执行此操作所需的（估算）元素数量
+     * @param transformer 转换函数
+     * @param basis 归并的初始值，必须是 reducer 的单位元
+     * @param reducer 满足结合律的归并函数
+     * @return 归并结果
+     * @throws NullPointerException 如果 transformer 或 reducer 为 null
+     * @since 1.8
+     */
+    public long reduceValuesToLong(long parallelismThreshold,
+                                   ToLongFunction<? super V> transformer,
+                                   long basis,
+                                   LongBinaryOperator reducer) {
+        return MapBulkTasks.reduceToLong(size, parallelismThreshold, new ValueSpliterator<>(this, null, null, 0, -1, 0),
+                                         transformer, basis, reducer);
+    }
+
     // View class support
 
     class Values extends AbstractCollection<V> {
@@ -1802,7 +2101,10 @@ public class TreeMap<K,V>
         }
 
         Spliterator<K> keySpliterator() {
-            return new SubMapKeyIterator(absLowest(), absHighFence());
+            // 按子树拆分；整个 map 的大小作为估算值（非精确，不报告 SIZED）
+            TreeMap.Entry<K,V> first = absLowest();
+            return new KeySpliterator<>(m, first, absHighFence(), 1,
+                                        (first == null) ? 0 : m.size, m.modCount);
         }
 
         Iterator<K> descendingKeyIterator() {
@@ -1813,6 +2115,12 @@ public class TreeMap<K,V>
             public Iterator<Map.Entry<K,V>> iterator() {
                 return new SubMapEntryIterator(absLowest(), absHighFence());
             }
+
+            public Spliterator<Map.Entry<K,V>> spliterator() {
+                TreeMap.Entry<K,V> first = absLowest();
+                return new EntrySpliterator<>(m, first, absHighFence(), 1,
+                                              (first == null) ? 0 : m.size, m.modCount);
+            }
         }
 
         public Set<Map.Entry<K,V>> entrySet() {
@@ -1887,7 +2195,9 @@ public class TreeMap<K,V>
         }
 
         Spliterator<K> keySpliterator() {
-            return new DescendingSubMapKeyIterator(absHighest(), absLowFence());
+            TreeMap.Entry<K,V> last = absHighest();
+            return new DescendingKeySpliterator<>(m, last, absLowFence(), 1,
+                                                  (last == null) ? 0 : m.size, m.modCount);
         }
 
         Iterator<K> descendingKeyIterator() {
@@ -2549,24 +2859,16 @@ public class TreeMap<K,V>
     /**
      * Base class for spliterators.  Iteration starts at a given
      * origin and continues up to but not including a given fence (or
-     * null for end).  At top-level, for ascending cases, the first
-     * split uses the root as left-fence/right-origin. From there,
-     * right-hand splits replace the current fence with its left
-     * child, also serving as origin for the split-off spliterator.
-     * Left-hands are symmetric. Descending versions place the origin
-     * at the end and invert ascending split rules.  This base class
-     * is non-commital about directionality, or whether the top-level
-     * spliterator covers the whole tree. This means that the actual
-     * split mechanics are located in subclasses. Some of the subclass
-     * trySplit methods are identical (except for return types), but
-     * not nicely factorable.
+     * null for end).  Each split uses the shallowest node strictly
+     * between the current position and the fence (see splitPoint) as
+     * fence of the split-off prefix and new origin of this one, so
+     * splits follow the tree structure wherever traversal has reached
+     * and whatever range the spliterator covers.  Descending versions
+     * place the origin at the end and invert the comparisons.
      *
-     * Currently, subclass versions exist only for the full map
-     * (including descending keys via its descendingMap).  Others are
-     * possible but currently not worthwhile because submaps require
-     * O(n) computations to determine size, which substantially limits
-     * potential speed-ups of using custom Spliterators versus default
-     * mechanics.
+     * Key spliterators of submaps also use these classes, with the
+     * size of the whole map as (inexact) initial estimate, because
+     * submaps require O(n) computations to determine size.
      *
      * To boostrap initialization, external constructors use
      * negative size estimates: -1 for ascend, -2 for descend.
@@ -2607,6 +2909,31 @@ public class TreeMap<K,V>
         public final long estimateSize() {
             return (long)getEstimate();
         }
+
+        /**
+         * 返回开区间 (current, fence) 中深度最小的节点作为拆分点，区间内不足两个节点时返回 null。
+         * 区间内的节点都在该节点的子树里，它把剩余区间分成前后两段；红黑树是平衡的，两段大小相近。
+         * 每次都从根节点重新查找（O(log n) 次比较），所以已经开始遍历的、或者区间来自子 map 的 spliterator 也能继续拆分。
+         *
+         * @param descending 是否按降序遍历，降序时 current 是区间的最大端
+         */
+        final TreeMap.Entry<K,V> splitPoint(boolean descending) {
+            TreeMap.Entry<K,V> e = current, f = fence, p = tree.root;
+            if (e == null || e == f)
+                return null;
+            while (p != null) {
+                int c = tree.compare(p.key, e.key);
+                if (descending ? c >= 0 : c <= 0)         // 不在 current 之后
+                    p = descending ? p.left : p.right;
+                else if (f != null &&                     // 不在 fence 之前
+                         ((c = tree.compare(p.key, f.key)) == 0 ||
+                          (descending ? c < 0 : c > 0)))
+                    p = descending ? p.right : p.left;
+                else
+                    return p;
+            }
+            return null;
+        }
     }
 
     static final class KeySpliterator<K,V>
@@ -2621,15 +2948,8 @@ public class TreeMap<K,V>
         public KeySpliterator<K,V> trySplit() {
             if (est < 0)
                 getEstimate(); // force initialization
-            int d = side;
-            TreeMap.Entry<K,V> e = current, f = fence,
-                s = ((e == null || e == f) ? null :      // empty
-                     (d == 0)              ? tree.root : // was top
-                     (d >  0)              ? e.right :   // was right
-                     (d <  0 && f != null) ? f.left :    // was left
-                     null);
-            if (s != null && s != e && s != f &&
-                tree.compare(e.key, s.key) < 0) {        // e not already past s
+            TreeMap.Entry<K,V> e = current, s = splitPoint(false);
+            if (s != null) {
                 side = 1;
                 return new KeySpliterator<>
                     (tree, e, current = s, -1, est >>>= 1, expectedModCount);
@@ -2699,15 +3019,8 @@ public class TreeMap<K,V>
         public DescendingKeySpliterator<K,V> trySplit() {
             if (est < 0)
                 getEstimate(); // force initialization
-            int d = side;
-            TreeMap.Entry<K,V> e = current, f = fence,
-                    s = ((e == null || e == f) ? null :      // empty
-                         (d == 0)              ? tree.root : // was top
-                         (d <  0)              ? e.left :    // was left
-                         (d >  0 && f != null) ? f.right :   // was right
-                         null);
-            if (s != null && s != e && s != f &&
-                tree.compare(e.key, s.key) > 0) {       // e not already past s
+            TreeMap.Entry<K,V> e = current, s = splitPoint(true);
+            if (s != null) {
                 side = 1;
                 return new DescendingKeySpliterator<>
                         (tree, e, current = s, -1, est >>>= 1, expectedModCount);
@@ -2772,15 +3085,8 @@ public class TreeMap<K,V>
         public ValueSpliterator<K,V> trySplit() {
             if (est < 0)
                 getEstimate(); // force initialization
-            int d = side;
-            TreeMap.Entry<K,V> e = current, f = fence,
-                    s = ((e == null || e == f) ? null :      // empty
-                         (d == 0)              ? tree.root : // was top
-                         (d >  0)              ? e.right :   // was right
-                         (d <  0 && f != null) ? f.left :    // was left
-                         null);
-            if (s != null && s != e && s != f &&
-                tree.compare(e.key, s.key) < 0) {        // e not already past s
+            TreeMap.Entry<K,V> e = current, s = splitPoint(false);
+            if (s != null) {
                 side = 1;
                 return new ValueSpliterator<>
                         (tree, e, current = s, -1, est >>>= 1, expectedModCount);
@@ -2844,15 +3150,8 @@ public class TreeMap<K,V>
         public EntrySpliterator<K,V> trySplit() {
             if (est < 0)
                 getEstimate(); // force initialization
-            int d = side;
-            TreeMap.Entry<K,V> e = current, f = fence,
-                    s = ((e == null || e == f) ? null :      // empty
-                         (d == 0)              ? tree.root : // was top
-                         (d >  0)              ? e.right :   // was right
-                         (d <  0 && f != null) ? f.left :    // was left
-                         null);
-            if (s != null && s != e && s != f &&
-                tree.compare(e.key, s.key) < 0) {        // e not already past s
+            TreeMap.Entry<K,V> e = current, s = splitPoint(false);
+            if (s != null) {
                 side = 1;
                 return new EntrySpliterator<>
                         (tree, e, current = s, -1, est >>>= 1, expectedModCount);
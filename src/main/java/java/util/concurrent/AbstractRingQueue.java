@@ -0,0 +1,493 @@
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Skeletal implementation of a bounded, lock-free {@link BlockingQueue}
+ * backed by a power-of-two ring of slots.  Subclasses provide the
+ * non-blocking {@code offer}, {@code poll} and {@code peek} operations
+ * and the batch {@code drain} step; this class layers the blocking
+ * operations on top of them.
+ *
+ * <p>Blocked threads first spin briefly.  In the default mode they then
+ * park on a Treiber stack of waiters, to be unparked by the next
+ * operation on the other end of the queue.  In <em>spin-wait</em> mode
+ * they instead keep yielding, so that no operation ever needs to check
+ * for waiters: this trades CPU time for the lowest hand-off latency and
+ * suits threads that own a core.
+ *
+ * <p>Elements cannot be removed from the middle of a ring, so {@link
+ * #remove(Object)} and {@link Iterator#remove} are not supported.
+ * Iterators traverse a snapshot of the elements present when they were
+ * created.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+abstract class AbstractRingQueue<E> extends AbstractQueue<E>
+    implements BlockingQueue<E> {
+
+    /** The maximum ring capacity */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** Number of CPUS, to decide whether spinning is useful */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of times to spin before parking or yielding.  Zero on
+     * uniprocessors, where spinning only delays the thread it waits for.
+     */
+    static final int SPINS = (NCPU > 1) ? 1 << 7 : 0;
+
+    /** The ring; length is a power of two, and at least two */
+    final Object[] buffer;
+
+    /** The maximum number of elements; at most buffer.length */
+    final int capacity;
+
+    /** buffer.length - 1 */
+    final int mask;
+
+    /** True if blocked threads never park */
+    final boolean spinWait;
+
+    /** Stacks of threads waiting for elements and for space */
+    volatile WaitNode takers, putters;
+
+    AbstractRingQueue(int capacity, boolean spinWait) {
+        if (capacity <= 0 || capacity > MAXIMUM_CAPACITY)
+            throw new IllegalArgumentException();
+        int n = -1 >>> Integer.numberOfLeadingZeros(capacity - 1);
+        this.capacity = (capacity == 1) ? 1 : n + 1;
+        // A one-slot ring would give a slot the same sequence number
+        // when free as when published, so the smallest ring has two
+        // slots and capacity 1 is enforced separately.
+        this.buffer = new Object[(capacity == 1) ? 2 : n + 1];
+        this.mask = buffer.length - 1;
+        this.spinWait = spinWait;
+    }
+
+    /* ---------------- Subclass operations -------------- */
+
+    /**
+     * Inserts without signalling waiting consumers.
+     */
+    abstract boolean offerInternal(E e);
+
+    /**
+     * Removes the head without signalling waiting producers.
+     */
+    abstract E pollInternal();
+
+    /**
+     * Moves at most max elements to c without signalling, returning the
+     * number moved.
+     */
+    abstract int drainInternal(Collection<? super E> c, int max);
+
+    /** Returns the number of elements ever inserted. */
+    abstract long producerIndex();
+
+    /** Returns the number of elements ever removed. */
+    abstract long consumerIndex();
+
+    /**
+     * Appends the elements currently present, from the head, to c.
+     */
+    abstract void snapshot(Collection<? super E> c);
+
+    /* ---------------- Waiting -------------- */
+
+    /**
+     * A thread waiting on one of the stacks.  The thread field is
+     * cleared by whoever claims the node: a signalling thread, or the
+     * waiter itself when giving up.
+     */
+    static final class WaitNode {
+        volatile Thread thread;
+        volatile WaitNode next;
+        WaitNode(Thread thread) { this.thread = thread; }
+    }
+
+    private boolean casTakers(WaitNode cmp, WaitNode val) {
+        return U.compareAndSwapObject(this, TAKERS, cmp, val);
+    }
+
+    private boolean casPutters(WaitNode cmp, WaitNode val) {
+        return U.compareAndSwapObject(this, PUTTERS, cmp, val);
+    }
+
+    private void push(boolean producer, WaitNode node) {
+        for (;;) {
+            WaitNode h = producer ? putters : takers;
+            node.next = h;
+            if (producer ? casPutters(h, node) : casTakers(h, node))
+                return;
+        }
+    }
+
+    /**
+     * Pops and wakes one waiting thread, discarding abandoned nodes.
+     * Returns true if a thread was woken.
+     */
+    private boolean wakeOne(boolean producers) {
+        WaitNode h;
+        while ((h = producers ? putters : takers) != null) {
+            if (producers ? casPutters(h, h.next) : casTakers(h, h.next)) {
+                Thread t = h.thread;
+                if (t != null && U.compareAndSwapObject(h, THREAD, t, null)) {
+                    LockSupport.unpark(t);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wakes up to n waiting consumers (if true) or producers.  The
+     * fence orders the caller's publication of elements or free slots
+     * before the read of the waiter stack; waiters push themselves
+     * before rechecking the queue, so one side always sees the other.
+     */
+    final void signal(boolean producers, int n) {
+        if (!spinWait) {
+            U.fullFence();
+            while (n-- > 0 && (producers ? putters : takers) != null &&
+                   wakeOne(producers))
+                ;
+        }
+    }
+
+    /**
+     * Abandons a node after the wait ended without it being claimed, or
+     * passes on a wake-up that arrived too late to be used.
+     */
+    private void leave(boolean producer, WaitNode node, boolean consumed) {
+        if (node != null) {
+            if (U.compareAndSwapObject(node, THREAD, Thread.currentThread(), null))
+                clean(producer, node);
+            else if (!consumed)
+                wakeOne(producer);
+        }
+    }
+
+    /**
+     * Unlinks the abandoned node, and any other abandoned nodes found
+     * on the way, from its stack.  As in SynchronousQueue, dead nodes
+     * at the top are popped, and those below are spliced out up to the
+     * node's successor.  Nodes are only ever pushed at the top, so a
+     * racing splice can at worst leave a dead node behind for a later
+     * pass; it cannot drop a live one.
+     */
+    private void clean(boolean producer, WaitNode node) {
+        WaitNode past = node.next;
+        if (past != null && past.thread == null)
+            past = past.next;
+
+        WaitNode p;
+        while ((p = producer ? putters : takers) != null && p != past &&
+               p.thread == null) {
+            if (producer)
+                casPutters(p, p.next);
+            else
+                casTakers(p, p.next);
+        }
+
+        while (p != null && p != past) {
+            WaitNode n = p.next;
+            if (n != null && n.thread == null)
+                p.next = n.next;
+            else
+                p = n;
+        }
+    }
+
+    /**
+     * Waits until the element can be inserted (if e non-null) or an
+     * element removed, or the timeout elapses.  Returns the removed
+     * element or e, or null on timeout.
+     */
+    @SuppressWarnings("unchecked")
+    final Object await(E e, boolean timed, long nanos)
+        throws InterruptedException {
+        final boolean producer = (e != null);
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        int spins = SPINS;
+        WaitNode node = null;
+        for (;;) {
+            Object x;
+            if (producer)
+                x = offerInternal(e) ? e : null;
+            else
+                x = pollInternal();
+            if (x != null) {
+                leave(producer, node, true);
+                signal(!producer, 1);
+                return x;
+            }
+            if (Thread.interrupted()) {
+                leave(producer, node, false);
+                throw new InterruptedException();
+            }
+            if (timed && (nanos = deadline - System.nanoTime()) <= 0L) {
+                leave(producer, node, false);
+                return null;
+            }
+            if (spins > 0) {
+                if ((--spins & 31) == 0)
+                    Thread.yield();
+            }
+            else if (spinWait)
+                Thread.yield();
+            else if (node == null || node.thread == null)
+                push(producer, node = new WaitNode(Thread.currentThread()));
+            else if (timed)
+                LockSupport.parkNanos(this, nanos);
+            else
+                LockSupport.park(this);
+        }
+    }
+
+    /* ---------------- Queue operations -------------- */
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        if (offerInternal(e)) {
+            signal(false, 1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (e == null) throw new NullPointerException();
+        if (offerInternal(e))
+            signal(false, 1);
+        else
+            await(e, false, 0L);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (e == null) throw new NullPointerException();
+        if (offerInternal(e)) {
+            signal(false, 1);
+            return true;
+        }
+        return await(e, true, unit.toNanos(timeout)) != null;
+    }
+
+    public E poll() {
+        E x = pollInternal();
+        if (x != null)
+            signal(true, 1);
+        return x;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E take() throws InterruptedException {
+        E x = pollInternal();
+        if (x != null) {
+            signal(true, 1);
+            return x;
+        }
+        return (E)await(null, false, 0L);
+    }
+
+    @SuppressWarnings("unchecked")
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E x = pollInternal();
+        if (x != null) {
+            signal(true, 1);
+            return x;
+        }
+        return (E)await(null, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Returns the number of elements in this queue.  The result is
+     * exact only in the absence of concurrent updates.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long after = consumerIndex(), before, pi;
+        do {
+            before = after;
+            pi = producerIndex();
+        } while ((after = consumerIndex()) != before);
+        long n = pi - after;
+        return (n < 0L) ? 0 : (n > capacity) ? capacity : (int)n;
+    }
+
+    public boolean isEmpty() {
+        return producerIndex() == consumerIndex();
+    }
+
+    /**
+     * Returns the capacity of this queue, the requested capacity rounded
+     * up to a power of two.
+     *
+     * @return the capacity of this queue
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    /**
+     * Always throws {@code UnsupportedOperationException}: elements can
+     * only be removed from the head of a ring.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean contains(Object o) {
+        if (o == null)
+            return false;
+        for (Object e : toArray())
+            if (o.equals(e))
+                return true;
+        return false;
+    }
+
+    public void clear() {
+        int n = 0;
+        while (pollInternal() != null)
+            ++n;
+        signal(true, n);
+    }
+
+    /**
+     * Removes all available elements from this queue and adds them to
+     * the given collection.  Elements are claimed in batches, without
+     * per-element synchronization, and waiting producers are signalled
+     * once per batch.
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes at most the given number of available elements from this
+     * queue and adds them to the given collection.  Elements are claimed
+     * in batches, without per-element synchronization, and waiting
+     * producers are signalled once per batch.
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int total = 0;
+        while (total < maxElements) {
+            int n = drainInternal(c, maxElements - total);
+            if (n == 0)
+                break;
+            total += n;
+            signal(true, n);
+        }
+        return total;
+    }
+
+    public Object[] toArray() {
+        ArrayList<E> list = new ArrayList<E>();
+        snapshot(list);
+        return list.toArray();
+    }
+
+    public <T> T[] toArray(T[] a) {
+        ArrayList<E> list = new ArrayList<E>();
+        snapshot(list);
+        return list.toArray(a);
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this queue,
+     * in proper sequence.  The iterator does not support {@code remove}.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        final ArrayList<E> list = new ArrayList<E>();
+        snapshot(list);
+        return new Iterator<E>() {
+            int cursor;
+            public boolean hasNext() { return cursor < list.size(); }
+            public E next() {
+                if (cursor >= list.size())
+                    throw new NoSuchElementException();
+                return list.get(cursor++);
+            }
+        };
+    }
+
+    // Unsafe mechanics
+    static final sun.misc.Unsafe U;
+    private static final long TAKERS;
+    private static final long PUTTERS;
+    private static final long THREAD;
+    static final long ABASE;
+    static final int ASHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = AbstractRingQueue.class;
+            TAKERS = U.objectFieldOffset(k.getDeclaredField("takers"));
+            PUTTERS = U.objectFieldOffset(k.getDeclaredField("putters"));
+            THREAD = U.objectFieldOffset
+                (WaitNode.class.getDeclaredField("thread"));
+            ABASE = U.arrayBaseOffset(Object[].class);
+            int scale = U.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
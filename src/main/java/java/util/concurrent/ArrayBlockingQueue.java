@@ -753,6 +753,131 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Inserts the elements of the given collection at the tail of this
+     * queue, waiting if necessary up to the specified wait time for
+     * space to become available.  Each run of elements that fits is
+     * copied in under a single acquisition of the lock, after which only
+     * as many waiting consumers are signalled as there are new elements.
+     *
+     * @throws InterruptedException          {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     * @since 1.8
+     */
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == this)
+            throw new IllegalArgumentException();
+        final Object[] a = c.toArray();
+        for (Object x : a)
+            checkNotNull(x);
+        if (a.length == 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        final Object[] items = this.items;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int added = 0;
+            for (;;) {
+                while (count == items.length) {
+                    if (nanos <= 0)
+                        return added;
+                    try {
+                        nanos = notFull.awaitNanos(nanos);
+                    } catch (InterruptedException ie) {
+                        if (added == 0)
+                            throw ie;
+                        Thread.currentThread().interrupt();
+                        return added;
+                    }
+                }
+                int k = Math.min(a.length - added, items.length - count);
+                int put = putIndex;
+                for (int i = 0; i < k; i++) {
+                    items[put] = a[added + i];
+                    if (++put == items.length)
+                        put = 0;
+                }
+                putIndex = put;
+                count += k;
+                added += k;
+                for (int i = k; i > 0 && lock.hasWaiters(notEmpty); i--)
+                    notEmpty.signal();
+                if (added == a.length)
+                    return added;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes up to the given number of elements from the head of this
+     * queue, waiting if necessary up to the specified wait time for one
+     * to become available.  The elements are removed under a single
+     * acquisition of the lock.
+     *
+     * @throws InterruptedException          {@inheritDoc}
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     * @since 1.8
+     */
+    public int pollBatch(Collection<? super E> c, int maxElements,
+                         long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkNotNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        final Object[] items = this.items;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0)
+                    return 0;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            int n = Math.min(maxElements, count);
+            int take = takeIndex;
+            int i = 0;
+            try {
+                while (i < n) {
+                    @SuppressWarnings("unchecked")
+                    E x = (E) items[take];
+                    c.add(x);
+                    items[take] = null;
+                    if (++take == items.length)
+                        take = 0;
+                    i++;
+                }
+                return n;
+            } finally {
+                // Restore invariants even if c.add() threw
+                if (i > 0) {
+                    count -= i;
+                    takeIndex = take;
+                    if (itrs != null) {
+                        if (count == 0)
+                            itrs.queueIsEmpty();
+                        else if (i > take)
+                            itrs.takeIndexWrapped();
+                    }
+                    for (; i > 0 && lock.hasWaiters(notFull); i--)
+                        notFull.signal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Returns an iterator over the elements in this queue in proper sequence.
      * The elements will be returned in order from first (head) to last (tail).
@@ -373,4 +373,124 @@ public interface BlockingQueue<E> extends Queue<E> {
      *         it from being added to the specified collection
      */
     int drainTo(Collection<? super E> c, int maxElements);
+
+    /**
+     * Inserts the elements of the given collection into this queue, in
+     * the order returned by its iterator, waiting up to the specified
+     * wait time if necessary for space to become available.  Insertion
+     * stops at the first element that cannot be added before the wait
+     * time elapses; the elements before it remain in this queue.  If
+     * the current thread is interrupted while waiting after some
+     * elements have been inserted, this method returns their number
+     * with the interrupt status set, rather than throwing
+     * {@code InterruptedException}, so that the caller always learns
+     * how many elements were inserted.
+     *
+     * <p>This operation may be considerably more efficient than
+     * repeatedly calling {@link #offer(Object, long, TimeUnit) offer}:
+     * implementations may acquire their locks and signal waiting
+     * consumers once per batch rather than once per element.  The
+     * default implementation simply offers each element in turn against
+     * a common deadline.  The behavior of this operation is undefined if
+     * the specified collection is modified while the operation is in
+     * progress.
+     *
+     * @param c the elements to insert
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements inserted, which is the size of the
+     *         collection unless the wait time elapsed or the current
+     *         thread was interrupted
+     * @throws InterruptedException if interrupted while waiting before
+     *         any element was inserted
+     * @throws ClassCastException if the class of an element of the
+     *         collection prevents it from being added to this queue
+     * @throws NullPointerException if the collection is null or contains
+     *         a null element, in which case no element is inserted
+     * @throws IllegalArgumentException if the collection is this queue,
+     *         or some property of an element prevents it from being
+     *         added to this queue
+     * @since 1.8
+     */
+    default int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        for (Object x : a)
+            if (x == null) throw new NullPointerException();
+        long nanos = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + nanos;
+        int n = 0;
+        for (Object x : a) {
+            @SuppressWarnings("unchecked") E e = (E) x;
+            try {
+                if (!offer(e, nanos, TimeUnit.NANOSECONDS))
+                    break;
+            } catch (InterruptedException ie) {
+                if (n == 0)
+                    throw ie;
+                Thread.currentThread().interrupt();
+                break;
+            }
+            ++n;
+            nanos = deadline - System.nanoTime();
+        }
+        return n;
+    }
+
+    /**
+     * Removes at most the given number of elements from this queue and
+     * adds them to the given collection, waiting up to the specified
+     * wait time if necessary for at least one element to become
+     * available.  Once an element is available, this method does not
+     * wait for further elements; it transfers those present, up to
+     * {@code maxElements}, and returns.
+     *
+     * <p>This operation may be considerably more efficient than
+     * repeatedly calling {@link #poll(long, TimeUnit) poll}:
+     * implementations may acquire their locks and signal waiting
+     * producers once per batch rather than once per element.  The
+     * default implementation polls for one element and then {@linkplain
+     * #drainTo(Collection, int) drains} the rest.  A failure encountered
+     * while attempting to add elements to collection {@code c} may
+     * result in elements being in neither, either or both collections
+     * when the associated exception is thrown.
+     *
+     * @param c the collection to transfer elements into
+     * @param maxElements the maximum number of elements to transfer
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements transferred, or zero if the wait
+     *         time elapsed before an element was available
+     * @throws InterruptedException if interrupted while waiting
+     * @throws UnsupportedOperationException if addition of elements
+     *         is not supported by the specified collection
+     * @throws ClassCastException if the class of an element of this queue
+     *         prevents it from being added to the specified collection
+     * @throws NullPointerException if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, or some property of an element of this queue prevents
+     *         it from being added to the specified collection
+     * @since 1.8
+     */
+    default int pollBatch(Collection<? super E> c, int maxElements,
+                          long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        E e = poll(timeout, unit);
+        if (e == null)
+            return 0;
+        c.add(e);
+        return 1 + drainTo(c, maxElements - 1);
+    }
 }
@@ -75,9 +75,13 @@ import java.util.concurrent.locks.LockSupport;
  * a completion method.</li>
  *
  * <li>All <em>async</em> methods without an explicit Executor
- * argument are performed using the {@link ForkJoinPool#commonPool()}
+ * argument are performed using the {@link #defaultExecutor} of the
+ * CompletableFuture, which is the {@link ForkJoinPool#commonPool()}
  * (unless it does not support a parallelism level of at least two, in
- * which case, a new Thread is used). To simplify monitoring,
+ * which case, a new Thread is used) unless another executor was given
+ * when creating the CompletableFuture or the one it depends on, so that
+ * a whole tree of dependent stages can be kept on one executor. To
+ * simplify monitoring,
  * debugging, and tracking, all generated asynchronous tasks are
  * instances of the marker interface {@link
  * AsynchronousCompletionTask}. </li>
@@ -154,6 +158,30 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      * is added, the target CF is complete, so must be directly
      * executed. This is all done while avoiding unnecessary object
      * construction in safe-bypass cases.
+     *
+     * 5. Each Completion is itself a node of the completions stack,
+     * so adding a stage with a single source costs one object besides
+     * the dependent CompletableFuture.  A Completion with two sources
+     * (the And and Or forms) resides in two stacks, so is pushed
+     * directly onto one of them and via a CompletionNode onto the
+     * other.
+     *
+     * 6. Dependent CompletableFutures are created by method
+     * newIncompleteFuture, which propagates the default executor for
+     * async methods (if other than the common pool) from each stage to
+     * its dependents.
+     *
+     * 7. Consecutive synchronous stages are deliberately not fused
+     * into a single Completion.  Every intermediate stage is a public
+     * CompletableFuture that may be completed directly (complete,
+     * completeExceptionally, cancel, obtrudeValue) before its source
+     * is, in which case its dependents must run at once rather than
+     * when the head of the chain completes.  So each dependent action
+     * needs its own claim, to be run exactly once by whichever of the
+     * two triggers gets there first, and the Completion, via its
+     * AtomicInteger base, is that claim.  A fused completion would
+     * need a per-stage claim of its own plus a link from each
+     * intermediate future back to it, saving no allocation.
      */
 
     // preliminaries
@@ -169,7 +197,8 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
     volatile Object result;    // Either the result or boxed AltResult
     volatile WaitNode waiters; // Treiber stack of threads blocked on get()
-    volatile CompletionNode completions; // list (Treiber stack) of completions
+    volatile Completion completions; // Treiber stack of completions
+    final Executor asyncExecutor; // default for async methods, or null
 
     // Basic utilities for triggering and processing completions
 
@@ -186,11 +215,10 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
             }
         }
 
-        CompletionNode h; Completion c;
+        Completion h;
         while ((h = completions) != null) {
-            if (UNSAFE.compareAndSwapObject(this, COMPLETIONS, h, h.next) &&
-                (c = h.completion) != null)
-                c.run();
+            if (UNSAFE.compareAndSwapObject(this, COMPLETIONS, h, h.next))
+                h.run();
         }
     }
 
@@ -659,21 +687,24 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
     /* ------------- Completions -------------- */
 
+    // Opportunistically subclass AtomicInteger to use compareAndSet to claim.
+    // Completions are linked into completions stacks in basically the
+    // same way as WaitNodes.
+    @SuppressWarnings("serial")
+    abstract static class Completion extends AtomicInteger implements Runnable {
+        volatile Completion next;
+    }
+
     /**
-     * Simple linked list nodes to record completions, used in
-     * basically the same way as WaitNodes. (We separate nodes from
-     * the Completions themselves mainly because for the And and Or
-     * methods, the same Completion object resides in two lists.)
+     * Extra stack node for the And and Or methods, whose Completion
+     * object resides in two lists but can itself be linked into only
+     * one of them.
      */
-    static final class CompletionNode {
+    @SuppressWarnings("serial")
+    static final class CompletionNode extends Completion {
         final Completion completion;
-        volatile CompletionNode next;
         CompletionNode(Completion completion) { this.completion = completion; }
-    }
-
-    // Opportunistically subclass AtomicInteger to use compareAndSet to claim.
-    @SuppressWarnings("serial")
-    abstract static class Completion extends AtomicInteger implements Runnable {
+        public final void run() { completion.run(); }
     }
 
     static final class ThenApply<T,U> extends Completion {
@@ -1463,11 +1494,10 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
                     ThenCopy<U> d = null;
                     Object s;
                     if ((s = c.result) == null) {
-                        CompletionNode p = new CompletionNode
-                            (d = new ThenCopy<U>(c, dst));
+                        d = new ThenCopy<U>(c, dst);
                         while ((s = c.result) == null) {
                             if (UNSAFE.compareAndSwapObject
-                                (c, COMPLETIONS, p.next = c.completions, p))
+                                (c, COMPLETIONS, d.next = c.completions, d))
                                 break;
                         }
                     }
@@ -1498,15 +1528,14 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         (Function<? super T,? extends U> fn,
          Executor e) {
         if (fn == null) throw new NullPointerException();
-        CompletableFuture<U> dst = new CompletableFuture<U>();
+        CompletableFuture<U> dst = newIncompleteFuture();
         ThenApply<T,U> d = null;
         Object r;
         if ((r = result) == null) {
-            CompletionNode p = new CompletionNode
-                (d = new ThenApply<T,U>(this, fn, dst, e));
+            d = new ThenApply<T,U>(this, fn, dst, e);
             while ((r = result) == null) {
                 if (UNSAFE.compareAndSwapObject
-                    (this, COMPLETIONS, p.next = completions, p))
+                    (this, COMPLETIONS, d.next = completions, d))
                     break;
             }
         }
@@ -1542,15 +1571,14 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     private CompletableFuture<Void> doThenAccept(Consumer<? super T> fn,
                                                  Executor e) {
         if (fn == null) throw new NullPointerException();
-        CompletableFuture<Void> dst = new CompletableFuture<Void>();
+        CompletableFuture<Void> dst = newIncompleteFuture();
         ThenAccept<T> d = null;
         Object r;
         if ((r = result) == null) {
-            CompletionNode p = new CompletionNode
-                (d = new ThenAccept<T>(this, fn, dst, e));
+            d = new ThenAccept<T>(this, fn, dst, e);
             while ((r = result) == null) {
                 if (UNSAFE.compareAndSwapObject
-                    (this, COMPLETIONS, p.next = completions, p))
+                    (this, COMPLETIONS, d.next = completions, d))
                     break;
             }
         }
@@ -1585,15 +1613,14 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     private CompletableFuture<Void> doThenRun(Runnable action,
                                               Executor e) {
         if (action == null) throw new NullPointerException();
-        CompletableFuture<Void> dst = new CompletableFuture<Void>();
+        CompletableFuture<Void> dst = newIncompleteFuture();
         ThenRun d = null;
         Object r;
         if ((r = result) == null) {
-            CompletionNode p = new CompletionNode
-                (d = new ThenRun(this, action, dst, e));
+            d = new ThenRun(this, action, dst, e);
             while ((r = result) == null) {
                 if (UNSAFE.compareAndSwapObject
-                    (this, COMPLETIONS, p.next = completions, p))
+                    (this, COMPLETIONS, d.next = completions, d))
                     break;
             }
         }
@@ -1625,12 +1652,12 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
          BiFunction<? super T,? super U,? extends V> fn,
          Executor e) {
         if (other == null || fn == null) throw new NullPointerException();
-        CompletableFuture<V> dst = new CompletableFuture<V>();
+        CompletableFuture<V> dst = newIncompleteFuture();
         ThenCombine<T,U,V> d = null;
         Object r, s = null;
         if ((r = result) == null || (s = other.result) == null) {
             d = new ThenCombine<T,U,V>(this, other, fn, dst, e);
-            CompletionNode q = null, p = new CompletionNode(d);
+            Completion q = null, p = d;
             while ((r == null && (r = result) == null) ||
                    (s == null && (s = other.result) == null)) {
                 if (q != null) {
@@ -1693,12 +1720,12 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
          BiConsumer<? super T,? super U> fn,
          Executor e) {
         if (other == null || fn == null) throw new NullPointerException();
-        CompletableFuture<Void> dst = new CompletableFuture<Void>();
+        CompletableFuture<Void> dst = newIncompleteFuture();
         ThenAcceptBoth<T,U> d = null;
         Object r, s = null;
         if ((r = result) == null || (s = other.result) == null) {
             d = new ThenAcceptBoth<T,U>(this, other, fn, dst, e);
-            CompletionNode q = null, p = new CompletionNode(d);
+            Completion q = null, p = d;
             while ((r == null && (r = result) == null) ||
                    (s == null && (s = other.result) == null)) {
                 if (q != null) {
@@ -1759,12 +1786,12 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
                                                    Runnable action,
                                                    Executor e) {
         if (other == null || action == null) throw new NullPointerException();
-        CompletableFuture<Void> dst = new CompletableFuture<Void>();
+        CompletableFuture<Void> dst = newIncompleteFuture();
         RunAfterBoth d = null;
         Object r, s = null;
         if ((r = result) == null || (s = other.result) == null) {
             d = new RunAfterBoth(this, other, action, dst, e);
-            CompletionNode q = null, p = new CompletionNode(d);
+            Completion q = null, p = d;
             while ((r == null && (r = result) == null) ||
                    (s == null && (s = other.result) == null)) {
                 if (q != null) {
@@ -1813,12 +1840,12 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
          Function<? super T, U> fn,
          Executor e) {
         if (other == null || fn == null) throw new NullPointerException();
-        CompletableFuture<U> dst = new CompletableFuture<U>();
+        CompletableFuture<U> dst = newIncompleteFuture();
         ApplyToEither<T,U> d = null;
         Object r;
         if ((r = result) == null && (r = other.result) == null) {
             d = new ApplyToEither<T,U>(this, other, fn, dst, e);
-            CompletionNode q = null, p = new CompletionNode(d);
+            Completion q = null, p = d;
             while ((r = result) == null && (r = other.result) == null) {
                 if (q != null) {
                     if (UNSAFE.compareAndSwapObject
@@ -1865,12 +1892,12 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
          Consumer<? super T> fn,
          Executor e) {
         if (other == null || fn == null) throw new NullPointerException();
-        CompletableFuture<Void> dst = new CompletableFuture<Void>();
+        CompletableFuture<Void> dst = newIncompleteFuture();
         AcceptEither<T> d = null;
         Object r;
         if ((r = result) == null && (r = other.result) == null) {
             d = new AcceptEither<T>(this, other, fn, dst, e);
-            CompletionNode q = null, p = new CompletionNode(d);
+            Completion q = null, p = d;
             while ((r = result) == null && (r = other.result) == null) {
                 if (q != null) {
                     if (UNSAFE.compareAndSwapObject
@@ -1916,12 +1943,12 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
          Runnable action,
          Executor e) {
         if (other == null || action == null) throw new NullPointerException();
-        CompletableFuture<Void> dst = new CompletableFuture<Void>();
+        CompletableFuture<Void> dst = newIncompleteFuture();
         RunAfterEither d = null;
         Object r;
         if ((r = result) == null && (r = other.result) == null) {
             d = new RunAfterEither(this, other, action, dst, e);
-            CompletionNode q = null, p = new CompletionNode(d);
+            Completion q = null, p = d;
             while ((r = result) == null && (r = other.result) == null) {
                 if (q != null) {
                     if (UNSAFE.compareAndSwapObject
@@ -1965,12 +1992,11 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         ThenCompose<T,U> d = null;
         Object r;
         if ((r = result) == null) {
-            dst = new CompletableFuture<U>();
-            CompletionNode p = new CompletionNode
-                (d = new ThenCompose<T,U>(this, fn, dst, e));
+            dst = newIncompleteFuture();
+            d = new ThenCompose<T,U>(this, fn, dst, e);
             while ((r = result) == null) {
                 if (UNSAFE.compareAndSwapObject
-                    (this, COMPLETIONS, p.next = completions, p))
+                    (this, COMPLETIONS, d.next = completions, d))
                     break;
             }
         }
@@ -1988,7 +2014,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
             if (ex == null) {
                 if (e != null) {
                     if (dst == null)
-                        dst = new CompletableFuture<U>();
+                        dst = newIncompleteFuture();
                     execAsync(e, new AsyncCompose<T,U>(t, fn, dst));
                 }
                 else {
@@ -2003,7 +2029,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
                 }
             }
             if (dst == null)
-                dst = new CompletableFuture<U>();
+                dst = newIncompleteFuture();
             if (ex != null)
                 dst.internalComplete(null, ex);
         }
@@ -2016,16 +2042,15 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         (BiConsumer<? super T, ? super Throwable> fn,
          Executor e) {
         if (fn == null) throw new NullPointerException();
-        CompletableFuture<T> dst = new CompletableFuture<T>();
+        CompletableFuture<T> dst = newIncompleteFuture();
         WhenCompleteCompletion<T> d = null;
         Object r;
         if ((r = result) == null) {
-            CompletionNode p =
-                new CompletionNode(d = new WhenCompleteCompletion<T>
-                                   (this, fn, dst, e));
+            d = new WhenCompleteCompletion<T>
+                                   (this, fn, dst, e);
             while ((r = result) == null) {
                 if (UNSAFE.compareAndSwapObject(this, COMPLETIONS,
-                                                p.next = completions, p))
+                                                d.next = completions, d))
                     break;
             }
         }
@@ -2060,16 +2085,15 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         (BiFunction<? super T, Throwable, ? extends U> fn,
          Executor e) {
         if (fn == null) throw new NullPointerException();
-        CompletableFuture<U> dst = new CompletableFuture<U>();
+        CompletableFuture<U> dst = newIncompleteFuture();
         HandleCompletion<T,U> d = null;
         Object r;
         if ((r = result) == null) {
-            CompletionNode p =
-                new CompletionNode(d = new HandleCompletion<T,U>
-                                   (this, fn, dst, e));
+            d = new HandleCompletion<T,U>
+                                   (this, fn, dst, e);
             while ((r = result) == null) {
                 if (UNSAFE.compareAndSwapObject(this, COMPLETIONS,
-                                                p.next = completions, p))
+                                                d.next = completions, d))
                     break;
             }
         }
@@ -2111,6 +2135,53 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      * Creates a new incomplete CompletableFuture.
      */
     public CompletableFuture() {
+        this.asyncExecutor = null;
+    }
+
+    /**
+     * Creates a new incomplete CompletableFuture whose <em>async</em>
+     * methods without an explicit Executor argument, and those of all
+     * CompletableFutures returned by its CompletionStage methods, are
+     * performed using the given executor.
+     *
+     * @param defaultExecutor the default executor for async methods
+     * @throws NullPointerException if defaultExecutor is null
+     * @since 1.8
+     */
+    public CompletableFuture(Executor defaultExecutor) {
+        if (defaultExecutor == null) throw new NullPointerException();
+        this.asyncExecutor = defaultExecutor;
+    }
+
+    /**
+     * Returns the default Executor used for async methods that do not
+     * specify an Executor.  This is the executor given on construction
+     * of this CompletableFuture or of the one it depends on, if any,
+     * and otherwise {@link ForkJoinPool#commonPool()}.
+     *
+     * @return the executor
+     * @since 1.8
+     */
+    public Executor defaultExecutor() {
+        Executor e = asyncExecutor;
+        return (e != null) ? e : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Returns a new incomplete CompletableFuture of the type to be
+     * returned by a CompletionStage method, sharing the default
+     * executor of this CompletableFuture.  Subclasses should normally
+     * override this method to return an instance of the same class as
+     * this CompletableFuture.
+     *
+     * @param <U> the type of the value
+     * @return a new CompletableFuture
+     * @since 1.8
+     */
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        Executor e = asyncExecutor;
+        return (e == null) ? new CompletableFuture<U>() :
+            new CompletableFuture<U>(e);
     }
 
     /**
@@ -2371,7 +2442,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
     public <U> CompletableFuture<U> thenApplyAsync
         (Function<? super T,? extends U> fn) {
-        return doThenApply(fn, ForkJoinPool.commonPool());
+        return doThenApply(fn, defaultExecutor());
     }
 
     public <U> CompletableFuture<U> thenApplyAsync
@@ -2388,7 +2459,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
     public CompletableFuture<Void> thenAcceptAsync
         (Consumer<? super T> action) {
-        return doThenAccept(action, ForkJoinPool.commonPool());
+        return doThenAccept(action, defaultExecutor());
     }
 
     public CompletableFuture<Void> thenAcceptAsync
@@ -2405,7 +2476,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
     public CompletableFuture<Void> thenRunAsync
         (Runnable action) {
-        return doThenRun(action, ForkJoinPool.commonPool());
+        return doThenRun(action, defaultExecutor());
     }
 
     public CompletableFuture<Void> thenRunAsync
@@ -2425,7 +2496,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         (CompletionStage<? extends U> other,
          BiFunction<? super T,? super U,? extends V> fn) {
         return doThenCombine(other.toCompletableFuture(), fn,
-                             ForkJoinPool.commonPool());
+                             defaultExecutor());
     }
 
     public <U,V> CompletableFuture<V> thenCombineAsync
@@ -2446,7 +2517,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         (CompletionStage<? extends U> other,
          BiConsumer<? super T, ? super U> action) {
         return doThenAcceptBoth(other.toCompletableFuture(), action,
-                                ForkJoinPool.commonPool());
+                                defaultExecutor());
     }
 
     public <U> CompletableFuture<Void> thenAcceptBothAsync
@@ -2467,7 +2538,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         (CompletionStage<?> other,
          Runnable action) {
         return doRunAfterBoth(other.toCompletableFuture(), action,
-                              ForkJoinPool.commonPool());
+                              defaultExecutor());
     }
 
     public CompletableFuture<Void> runAfterBothAsync
@@ -2489,7 +2560,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         (CompletionStage<? extends T> other,
          Function<? super T, U> fn) {
         return doApplyToEither(other.toCompletableFuture(), fn,
-                               ForkJoinPool.commonPool());
+                               defaultExecutor());
     }
 
     public <U> CompletableFuture<U> applyToEitherAsync
@@ -2510,7 +2581,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         (CompletionStage<? extends T> other,
          Consumer<? super T> action) {
         return doAcceptEither(other.toCompletableFuture(), action,
-                              ForkJoinPool.commonPool());
+                              defaultExecutor());
     }
 
     public CompletableFuture<Void> acceptEitherAsync
@@ -2530,7 +2601,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         (CompletionStage<?> other,
          Runnable action) {
         return doRunAfterEither(other.toCompletableFuture(), action,
-                                ForkJoinPool.commonPool());
+                                defaultExecutor());
     }
 
     public CompletableFuture<Void> runAfterEitherAsync
@@ -2548,7 +2619,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
     public <U> CompletableFuture<U> thenComposeAsync
         (Function<? super T, ? extends CompletionStage<U>> fn) {
-        return doThenCompose(fn, ForkJoinPool.commonPool());
+        return doThenCompose(fn, defaultExecutor());
     }
 
     public <U> CompletableFuture<U> thenComposeAsync
@@ -2565,7 +2636,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
     public CompletableFuture<T> whenCompleteAsync
         (BiConsumer<? super T, ? super Throwable> action) {
-        return doWhenComplete(action, ForkJoinPool.commonPool());
+        return doWhenComplete(action, defaultExecutor());
     }
 
     public CompletableFuture<T> whenCompleteAsync
@@ -2582,7 +2653,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
     public <U> CompletableFuture<U> handleAsync
         (BiFunction<? super T, Throwable, ? extends U> fn) {
-        return doHandle(fn, ForkJoinPool.commonPool());
+        return doHandle(fn, defaultExecutor());
     }
 
     public <U> CompletableFuture<U> handleAsync
@@ -2621,16 +2692,15 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     public CompletableFuture<T> exceptionally
         (Function<Throwable, ? extends T> fn) {
         if (fn == null) throw new NullPointerException();
-        CompletableFuture<T> dst = new CompletableFuture<T>();
+        CompletableFuture<T> dst = newIncompleteFuture();
         ExceptionCompletion<T> d = null;
         Object r;
         if ((r = result) == null) {
-            CompletionNode p =
-                new CompletionNode(d = new ExceptionCompletion<T>
-                                   (this, fn, dst));
+            d = new ExceptionCompletion<T>
+                                   (this, fn, dst);
             while ((r = result) == null) {
                 if (UNSAFE.compareAndSwapObject(this, COMPLETIONS,
-                                                p.next = completions, p))
+                                                d.next = completions, d))
                     break;
             }
         }
@@ -2700,15 +2770,12 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
                 throw new NullPointerException();
             else {
                 ThenPropagate d = null;
-                CompletionNode p = null;
                 Object r;
                 while ((r = f.result) == null) {
                     if (d == null)
                         d = new ThenPropagate(f, dst);
-                    else if (p == null)
-                        p = new CompletionNode(d);
                     else if (UNSAFE.compareAndSwapObject
-                             (f, COMPLETIONS, p.next = f.completions, p))
+                             (f, COMPLETIONS, d.next = f.completions, d))
                         break;
                 }
                 if (r != null && (d == null || d.compareAndSet(0, 1)))
@@ -2733,13 +2800,13 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
             throw new NullPointerException();
         CompletableFuture<Void> dst = new CompletableFuture<Void>();
         AndCompletion d = null;
-        CompletionNode p = null, q = null;
+        Completion p = null, q = null;
         Object r = null, s = null;
         while ((r = fst.result) == null || (s = snd.result) == null) {
             if (d == null)
                 d = new AndCompletion(fst, snd, dst);
             else if (p == null)
-                p = new CompletionNode(d);
+                p = d;
             else if (q == null) {
                 if (UNSAFE.compareAndSwapObject
                     (fst, COMPLETIONS, p.next = fst.completions, p))
@@ -2794,15 +2861,12 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
                 throw new NullPointerException();
             else {
                 ThenCopy<Object> d = null;
-                CompletionNode p = null;
                 Object r;
                 while ((r = f.result) == null) {
                     if (d == null)
                         d = new ThenCopy<Object>(f, dst);
-                    else if (p == null)
-                        p = new CompletionNode(d);
                     else if (UNSAFE.compareAndSwapObject
-                             (f, COMPLETIONS, p.next = f.completions, p))
+                             (f, COMPLETIONS, d.next = f.completions, d))
                         break;
                 }
                 if (r != null && (d == null || d.compareAndSet(0, 1))) {
@@ -2835,13 +2899,13 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
             throw new NullPointerException();
         CompletableFuture<Object> dst = new CompletableFuture<Object>();
         OrCompletion d = null;
-        CompletionNode p = null, q = null;
+        Completion p = null, q = null;
         Object r;
         while ((r = fst.result) == null && (r = snd.result) == null) {
             if (d == null)
                 d = new OrCompletion(fst, snd, dst);
             else if (p == null)
-                p = new CompletionNode(d);
+                p = d;
             else if (q == null) {
                 if (UNSAFE.compareAndSwapObject
                     (fst, COMPLETIONS, p.next = fst.completions, p))
@@ -2962,7 +3026,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      */
     public int getNumberOfDependents() {
         int count = 0;
-        for (CompletionNode p = completions; p != null; p = p.next)
+        for (Completion p = completions; p != null; p = p.next)
             ++count;
         return count;
     }
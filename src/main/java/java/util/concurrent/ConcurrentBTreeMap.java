@@ -0,0 +1,2579 @@
+package java.util.concurrent;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A scalable concurrent {@link ConcurrentNavigableMap} implementation
+ * based on a B+tree.  The map is sorted according to the {@linkplain
+ * Comparable natural ordering} of its keys, or by a {@link Comparator}
+ * provided at map creation time, depending on which constructor is
+ * used.
+ *
+ * <p>This class is an alternative to {@link ConcurrentSkipListMap}
+ * with the same contract, providing <i>log(n)</i> time cost for the
+ * {@code containsKey}, {@code get}, {@code put} and {@code remove}
+ * operations and their variants.  Keys and values are held in wide
+ * nodes, many mappings per node, so that lookups touch few cache
+ * lines and traversals copy out a node's worth of mappings at a time.
+ * Lookups, navigation and traversal never write to shared memory;
+ * they read nodes optimistically and validate what they read, in the
+ * manner of {@link java.util.concurrent.locks.StampedLock#tryOptimisticRead
+ * StampedLock}.  Updates briefly lock the single node they modify.
+ *
+ * <p>Iterators and spliterators are
+ * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+ *
+ * <p>All {@code Map.Entry} pairs returned by methods in this class
+ * and its views represent snapshots of mappings at the time they were
+ * produced. They do <em>not</em> support the {@code Entry.setValue}
+ * method.
+ *
+ * <p>The {@code size} method returns an estimate maintained by
+ * updates, which may differ from the exact number of mappings while
+ * the map is being modified; the {@code size} method of submaps
+ * requires a traversal.  The bulk operations {@code putAll}, {@code
+ * equals}, {@code toArray}, {@code containsValue}, and {@code clear}
+ * are <em>not</em> guaranteed to be performed atomically.
+ *
+ * <p>This class and its views and iterators implement all of the
+ * <em>optional</em> methods of the {@link Map} and {@link Iterator}
+ * interfaces. Like most other concurrent collections, this class does
+ * <em>not</em> permit the use of {@code null} keys or values because some
+ * null return values cannot be reliably distinguished from the absence of
+ * elements.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @since 1.8
+ * @see ConcurrentSkipListMap
+ */
+public class ConcurrentBTreeMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentNavigableMap<K,V>, Cloneable, Serializable {
+    /*
+     * Overview:
+     *
+     * The tree is a B+tree: Leaf nodes hold up to LEAF_CAPACITY keys
+     * and values in sorted parallel arrays, and Inner nodes hold up
+     * to INNER_CAPACITY separator keys and one more child, where
+     * children[i] holds the keys k with keys[i-1] <= k < keys[i].
+     * All leaves are at the same depth. There are no sibling links;
+     * traversals continue from the separator (the "fence") bounding
+     * the last leaf they visited.
+     *
+     * Concurrency control is optimistic lock coupling: each node has
+     * a version word, holding a LOCKED bit, an OBSOLETE bit, and a
+     * counter. Readers never write. They read a node's version
+     * (waiting while it is locked), read its fields, then read the
+     * version of the child they will descend to, and only then check
+     * (after a load fence, as in StampedLock.validate) that the
+     * parent's version is unchanged. A changed version means the
+     * fields read may be inconsistent, and the whole operation
+     * restarts from the root. Reads of inconsistent state must not
+     * fail, so counts are never beyond array bounds, and null keys
+     * or children seen in a racing read cause a restart (RETRY).
+     * Nothing computed from fields is acted on or returned before
+     * validation.
+     *
+     * Writers descend the same way and then lock just the node they
+     * modify by CASing its version from the value they validated
+     * (which also validates all reads made since) to one with the
+     * LOCKED bit set, and unlock by writing the next version. Because
+     * locks are only ever acquired by such CASes, never waited for,
+     * there is no deadlock; a writer that fails to lock restarts.
+     * Leaf splits additionally lock the parent; the root is replaced
+     * only while holding its lock. A full inner node seen while
+     * descending to insert is split eagerly, so a parent always has
+     * room for the separator of a splitting child.
+     *
+     * The key range covered by a node only changes while that node
+     * is locked, except that it may grow when an empty neighbouring
+     * leaf is unlinked. So once a writer has locked a leaf reached
+     * through validated parents, the key it seeks belongs in that
+     * leaf. A leaf emptied by removal is unlinked from its parent if
+     * the parent has other children, and marked OBSOLETE so that
+     * threads holding its old version restart; a root with a single
+     * child is replaced by that child. Nodes are not otherwise
+     * merged, so underfull nodes remain after many removals, and
+     * chains of single-child inner nodes may remain below the root;
+     * neither affects correctness.
+     *
+     * New nodes created by splits copy their contents into final
+     * arrays in constructors, so are safely published by the volatile
+     * write of the parent's (or root's) version or reference. The
+     * nodes keeping the low half are truncated in place while locked.
+     *
+     * Navigation (findNear) tracks the fences of the node it is in;
+     * if the leaf holding the key has no key in the requested
+     * direction, it continues from the fence. Iterators and
+     * spliterators fetch copies of the remaining mappings of one leaf
+     * at a time using the same method, so their cost is per leaf, not
+     * per mapping, and they never block writers.
+     *
+     * The size is kept in a LongAdder updated by insertions and
+     * removals, rather than by traversal as in ConcurrentSkipListMap.
+     */
+
+    private static final long serialVersionUID = 2187609335413627834L;
+
+    /** The maximum number of keys in a leaf */
+    static final int LEAF_CAPACITY = 64;
+
+    /** The maximum number of separator keys in an inner node */
+    static final int INNER_CAPACITY = 64;
+
+    /** Version bit set while a node is locked */
+    static final long LOCKED = 1L;
+
+    /** Version bit set when a node has been unlinked from the tree */
+    static final long OBSOLETE = 2L;
+
+    /** Version increment on each unlock after a modification */
+    static final long UNIT = 4L;
+
+    /** Spins between yields while waiting for a node to be unlocked */
+    static final int SPIN_MASK = (1 << 6) - 1;
+
+    /** Search result indicating that a racing read was seen */
+    static final int RETRY = Integer.MIN_VALUE;
+
+    /**
+     * The comparator used to maintain order in this map, or null if
+     * using natural ordering.  (Non-private to simplify access in
+     * nested classes.)
+     * @serial
+     */
+    final Comparator<? super K> comparator;
+
+    /** The root node of the tree */
+    private transient volatile Node root;
+
+    /** Estimated number of mappings */
+    private transient LongAdder count;
+
+    /** Lazily initialized key set */
+    private transient KeySet<K> keySet;
+    /** Lazily initialized entry set */
+    private transient EntrySet<K,V> entrySet;
+    /** Lazily initialized values collection */
+    private transient Values<V> values;
+    /** Lazily initialized descending map */
+    private transient ConcurrentNavigableMap<K,V> descendingMap;
+
+    /**
+     * Initializes or resets state. Needed by constructors, clone,
+     * and readObject.
+     */
+    private void initialize() {
+        keySet = null;
+        entrySet = null;
+        values = null;
+        descendingMap = null;
+        count = new LongAdder();
+        root = new Leaf();
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * Base of tree nodes. Fields other than version are read without
+     * synchronization, and validated by rereading the version.
+     */
+    abstract static class Node {
+        volatile long version;
+        int count;
+        final Object[] keys;
+        Node(Object[] keys) {
+            this.keys = keys;
+        }
+
+        /**
+         * Moves the upper half of this node's contents to a new node,
+         * which is returned. The separator between the halves is
+         * keys[count >>> 1] before the call. Called only while locked.
+         */
+        abstract Node splitRight();
+    }
+
+    /**
+     * Leaf nodes, holding keys and values.
+     */
+    static final class Leaf extends Node {
+        final Object[] vals;
+
+        /** Creates an empty leaf */
+        Leaf() {
+            super(new Object[LEAF_CAPACITY]);
+            this.vals = new Object[LEAF_CAPACITY];
+        }
+
+        /** Creates a leaf holding the given range of the given arrays */
+        Leaf(Object[] ks, Object[] vs, int from, int to) {
+            super(new Object[LEAF_CAPACITY]);
+            Object[] a = new Object[LEAF_CAPACITY];
+            System.arraycopy(ks, from, keys, 0, to - from);
+            System.arraycopy(vs, from, a, 0, to - from);
+            this.vals = a;
+            this.count = to - from;
+        }
+
+        Node splitRight() {
+            int c = count, h = c >>> 1;
+            Leaf r = new Leaf(keys, vals, h, c);
+            for (int i = h; i < c; ++i)
+                keys[i] = vals[i] = null;
+            count = h;
+            return r;
+        }
+
+        void insert(int i, Object key, Object value) {
+            int c = count;
+            System.arraycopy(keys, i, keys, i + 1, c - i);
+            System.arraycopy(vals, i, vals, i + 1, c - i);
+            keys[i] = key;
+            vals[i] = value;
+            count = c + 1;
+        }
+
+        void delete(int i) {
+            int c = count - 1;
+            System.arraycopy(keys, i + 1, keys, i, c - i);
+            System.arraycopy(vals, i + 1, vals, i, c - i);
+            keys[c] = vals[c] = null;
+            count = c;
+        }
+    }
+
+    /**
+     * Inner nodes, holding separator keys and children.
+     */
+    static final class Inner extends Node {
+        final Node[] children;
+
+        /** Creates a new root with the given children */
+        Inner(Object sep, Node left, Node right) {
+            super(new Object[INNER_CAPACITY]);
+            Node[] cs = new Node[INNER_CAPACITY + 1];
+            keys[0] = sep;
+            cs[0] = left;
+            cs[1] = right;
+            this.children = cs;
+            this.count = 1;
+        }
+
+        /**
+         * Creates a node holding the given range of separators and
+         * the children following each of them, preceded by the child
+         * before the first.
+         */
+        Inner(Object[] ks, Node[] cs, int from, int to) {
+            super(new Object[INNER_CAPACITY]);
+            Node[] a = new Node[INNER_CAPACITY + 1];
+            System.arraycopy(ks, from, keys, 0, to - from);
+            System.arraycopy(cs, from, a, 0, to - from + 1);
+            this.children = a;
+            this.count = to - from;
+        }
+
+        Node splitRight() {
+            int c = count, m = c >>> 1;
+            Inner r = new Inner(keys, children, m + 1, c);
+            for (int i = m; i < c; ++i) {
+                keys[i] = null;
+                children[i + 1] = null;
+            }
+            count = m;
+            return r;
+        }
+
+        /** Inserts separator and the child following it at index i */
+        void insert(int i, Object sep, Node right) {
+            int c = count;
+            System.arraycopy(keys, i, keys, i + 1, c - i);
+            System.arraycopy(children, i + 1, children, i + 2, c - i);
+            keys[i] = sep;
+            children[i + 1] = right;
+            count = c + 1;
+        }
+
+        /**
+         * Removes child i, extending the range of a neighbour over it.
+         * Requires at least two children.
+         */
+        void deleteChild(int i) {
+            int c = count - 1, k = (i > 0) ? i - 1 : 0;
+            System.arraycopy(keys, k + 1, keys, k, c - k);
+            System.arraycopy(children, i + 1, children, i, c + 1 - i);
+            keys[c] = null;
+            children[c + 1] = null;
+            count = c;
+        }
+
+        /** Returns the index of the given child, or -1 if absent */
+        int indexOf(Node child) {
+            for (int i = 0, c = count; i <= c; ++i) {
+                if (children[i] == child)
+                    return i;
+            }
+            return -1;
+        }
+    }
+
+    /* ---------------- Versions -------------- */
+
+    /**
+     * Returns the version of the given node once it is unlocked, or
+     * -1 if it is obsolete.
+     */
+    static long readVersion(Node n) {
+        long v;
+        for (int spins = 0; ((v = n.version) & LOCKED) != 0L; ) {
+            if ((++spins & SPIN_MASK) == 0)
+                Thread.yield();
+        }
+        return ((v & OBSOLETE) != 0L) ? -1L : v;
+    }
+
+    /**
+     * Returns true if the given node has not been modified since its
+     * version was read; that is, if reads made since then were
+     * consistent.
+     */
+    static boolean validate(Node n, long v) {
+        U.loadFence();
+        return n.version == v;
+    }
+
+    /**
+     * Locks the given node if it has not been modified since its
+     * version was read.
+     */
+    static boolean tryLock(Node n, long v) {
+        return U.compareAndSwapLong(n, VERSION, v, v | LOCKED);
+    }
+
+    /* ---------------- Comparison utilities -------------- */
+
+    /**
+     * Compares using comparator or natural ordering if null.
+     * Called only by methods that have performed required type checks.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static final int cpr(Comparator c, Object x, Object y) {
+        return (c != null) ? c.compare(x, y) : ((Comparable)x).compareTo(y);
+    }
+
+    /**
+     * Binary search of the first c keys of the given array, returning
+     * as Arrays.binarySearch, or RETRY if a null key is seen.
+     */
+    static int search(Object[] ks, int c, Object key, Comparator<?> cmp) {
+        int lo = 0, hi = c - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            Object k = ks[mid];
+            if (k == null)
+                return RETRY;
+            int d = cpr(cmp, k, key);
+            if (d < 0)
+                lo = mid + 1;
+            else if (d > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Returns the index of the child of an inner node with the given
+     * separators holding the given key, or RETRY.
+     */
+    static int childIndex(Object[] ks, int c, Object key, Comparator<?> cmp) {
+        int r = search(ks, c, key, cmp);
+        return (r == RETRY) ? RETRY : (r >= 0) ? r + 1 : -(r + 1);
+    }
+
+    /* ---------------- Lookup and update -------------- */
+
+    /**
+     * Gets value for key.
+     * @param key the key
+     * @return the value, or null if absent
+     */
+    private V doGet(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        Comparator<? super K> cmp = comparator;
+        outer: for (;;) {
+            Node n; long v;
+            if ((v = readVersion(n = root)) < 0L || n != root)
+                continue;
+            for (;;) {
+                int c = n.count;
+                if (n instanceof Inner) {
+                    int i = childIndex(n.keys, c, key, cmp);
+                    Node ch; long cv;
+                    if (i == RETRY || (ch = ((Inner)n).children[i]) == null ||
+                        (cv = readVersion(ch)) < 0L || !validate(n, v))
+                        continue outer;
+                    n = ch;
+                    v = cv;
+                }
+                else {
+                    int r = search(n.keys, c, key, cmp);
+                    if (r == RETRY)
+                        continue outer;
+                    Object x = (r >= 0) ? ((Leaf)n).vals[r] : null;
+                    if (!validate(n, v))
+                        continue outer;
+                    @SuppressWarnings("unchecked") V vv = (V)x;
+                    return vv;
+                }
+            }
+        }
+    }
+
+    /**
+     * Main insertion method.  Adds element if not present, or
+     * replaces value if present and onlyIfAbsent is false.
+     * @param key the key
+     * @param value the value that must be associated with key
+     * @param onlyIfAbsent if should not insert if already present
+     * @return the old value, or null if newly inserted
+     */
+    private V doPut(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        Comparator<? super K> cmp = comparator;
+        outer: for (;;) {
+            Node n; long v;
+            if ((v = readVersion(n = root)) < 0L || n != root)
+                continue;
+            Inner p = null;
+            long pv = 0L;
+            for (;;) {
+                int c = n.count;
+                if (n instanceof Inner) {
+                    if (c >= INNER_CAPACITY) {
+                        split(p, pv, n, v);
+                        continue outer;
+                    }
+                    int i = childIndex(n.keys, c, key, cmp);
+                    Node ch; long cv;
+                    if (i == RETRY || (ch = ((Inner)n).children[i]) == null ||
+                        (cv = readVersion(ch)) < 0L || !validate(n, v))
+                        continue outer;
+                    p = (Inner)n;
+                    pv = v;
+                    n = ch;
+                    v = cv;
+                }
+                else {
+                    Leaf leaf = (Leaf)n;
+                    int r = search(leaf.keys, c, key, cmp);
+                    if (r == RETRY)
+                        continue outer;
+                    if (r >= 0) {
+                        Object x = leaf.vals[r];
+                        if (onlyIfAbsent) {
+                            if (!validate(leaf, v))
+                                continue outer;
+                        }
+                        else if (tryLock(leaf, v)) {
+                            leaf.vals[r] = value;
+                            leaf.version = v + UNIT;
+                        }
+                        else
+                            continue outer;
+                        @SuppressWarnings("unchecked") V vv = (V)x;
+                        return vv;
+                    }
+                    if (c >= LEAF_CAPACITY) {
+                        split(p, pv, leaf, v);
+                        continue outer;
+                    }
+                    if (!tryLock(leaf, v))
+                        continue outer;
+                    leaf.insert(-(r + 1), key, value);
+                    leaf.version = v + UNIT;
+                    count.increment();
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Main removal and replacement method. Replaces or, if value is
+     * null, removes the mapping for key if present and, if expect is
+     * non-null, mapped to a value equal to expect.
+     * @param key the key
+     * @param expect if non-null, the value that must be associated
+     * with key
+     * @param value the new value, or null to remove
+     * @return the old value, or null if none or not matched
+     */
+    final V doUpdate(Object key, Object expect, V value) {
+        if (key == null)
+            throw new NullPointerException();
+        Comparator<? super K> cmp = comparator;
+        outer: for (;;) {
+            Node n; long v;
+            if ((v = readVersion(n = root)) < 0L || n != root)
+                continue;
+            Inner p = null;
+            long pv = 0L;
+            int pi = 0;
+            for (;;) {
+                int c = n.count;
+                if (n instanceof Inner) {
+                    int i = childIndex(n.keys, c, key, cmp);
+                    Node ch; long cv;
+                    if (i == RETRY || (ch = ((Inner)n).children[i]) == null ||
+                        (cv = readVersion(ch)) < 0L || !validate(n, v))
+                        continue outer;
+                    p = (Inner)n;
+                    pv = v;
+                    pi = i;
+                    n = ch;
+                    v = cv;
+                }
+                else {
+                    Leaf leaf = (Leaf)n;
+                    int r = search(leaf.keys, c, key, cmp);
+                    if (r == RETRY)
+                        continue outer;
+                    Object x = (r >= 0) ? leaf.vals[r] : null;
+                    if (x == null || (expect != null && !expect.equals(x))) {
+                        if (!validate(leaf, v))
+                            continue outer;
+                        return null;
+                    }
+                    if (!tryLock(leaf, v))
+                        continue outer;
+                    if (value != null) {
+                        leaf.vals[r] = value;
+                        leaf.version = v + UNIT;
+                    }
+                    else {
+                        leaf.delete(r);
+                        count.decrement();
+                        if (c > 1 || p == null || !unlink(p, pv, pi, leaf, v))
+                            leaf.version = v + UNIT;
+                    }
+                    @SuppressWarnings("unchecked") V vv = (V)x;
+                    return vv;
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the given full node, if it and its parent (or, if p is
+     * null, the root field) are unchanged since their versions were
+     * read. Otherwise does nothing; callers restart in either case.
+     */
+    private void split(Inner p, long pv, Node n, long v) {
+        if (p == null) {
+            if (tryLock(n, v)) {
+                if (root == n) {
+                    Object sep = n.keys[n.count >>> 1];
+                    root = new Inner(sep, n, n.splitRight());
+                    n.version = v + UNIT;
+                }
+                else
+                    n.version = v;
+            }
+        }
+        else if (tryLock(p, pv)) {
+            int i;
+            if (!tryLock(n, v))
+                p.version = pv;
+            else if ((i = p.indexOf(n)) < 0) { // cannot happen
+                n.version = v;
+                p.version = pv;
+            }
+            else {
+                Object sep = n.keys[n.count >>> 1];
+                p.insert(i, sep, n.splitRight());
+                n.version = v + UNIT;
+                p.version = pv + UNIT;
+            }
+        }
+    }
+
+    /**
+     * Unlinks a locked, empty leaf from its parent, if the parent is
+     * unchanged and has another child, and replaces the parent by
+     * its remaining child if it is the root and has only one.
+     * @return true if unlinked, in which case the leaf is marked
+     * obsolete and unlocked
+     */
+    private boolean unlink(Inner p, long pv, int i, Leaf leaf, long v) {
+        if (p.count == 0 || !tryLock(p, pv))
+            return false;
+        p.deleteChild(i);
+        leaf.version = (v + UNIT) | OBSOLETE;
+        if (p.count == 0 && root == p) {
+            root = p.children[0];
+            p.version = (pv + UNIT) | OBSOLETE;
+        }
+        else
+            p.version = pv + UNIT;
+        return true;
+    }
+
+    /* ---------------- Relational operations -------------- */
+
+    // Control values OR'ed as arguments to findNear
+
+    static final int EQ = 1;
+    static final int LT = 2;
+    static final int GT = 0; // Actually checked as !LT
+
+    /**
+     * Utility for ceiling, floor, lower, higher methods, and for
+     * traversal.  Returns the key nearest to the given key in the
+     * given relation, and, if all is true, the following ones up to
+     * the end of the leaf holding it, as an array alternating keys
+     * and values, in ascending order unless rel includes LT.
+     *
+     * @param key the key, or null to start from the lowest key (or
+     * the highest if rel includes LT)
+     * @param rel the relation -- OR'ed combination of EQ, LT, GT
+     * @param all whether to return all mappings following the nearest
+     * in its leaf, rather than just the nearest
+     * @return the mappings, or null if there is no key in the relation
+     */
+    final Object[] findNear(Object key, int rel, boolean all) {
+        Comparator<? super K> cmp = comparator;
+        boolean lt = (rel & LT) != 0;
+        outer: for (;;) {
+            Node n; long v;
+            if ((v = readVersion(n = root)) < 0L || n != root)
+                continue;
+            Object lo = null, hi = null; // fences of n; null if unbounded
+            for (;;) {
+                int c = n.count;
+                Object[] ks = n.keys;
+                if (n instanceof Inner) {
+                    int i;
+                    if (key == null)
+                        i = lt ? c : 0;
+                    else if ((i = search(ks, c, key, cmp)) < 0)
+                        i = (i == RETRY) ? RETRY : -(i + 1);
+                    else if (rel != LT) // strictly lower keys are to the left
+                        ++i;
+                    Node ch; long cv;
+                    if (i == RETRY || (ch = ((Inner)n).children[i]) == null)
+                        continue outer;
+                    Object l = (i > 0) ? ks[i - 1] : lo;
+                    Object h = (i < c) ? ks[i] : hi;
+                    if ((cv = readVersion(ch)) < 0L || !validate(n, v))
+                        continue outer;
+                    n = ch;
+                    v = cv;
+                    lo = l;
+                    hi = h;
+                }
+                else {
+                    int from = 0, to = c; // candidates, ascending
+                    if (key != null) {
+                        int r = search(ks, c, key, cmp);
+                        if (r == RETRY)
+                            continue outer;
+                        if (lt)
+                            to = (r < 0) ? -(r + 1) : ((rel & EQ) != 0) ? r + 1 : r;
+                        else
+                            from = (r < 0) ? -(r + 1) : ((rel & EQ) != 0) ? r : r + 1;
+                    }
+                    int m = to - from;
+                    if (m <= 0) {
+                        if (!validate(n, v))
+                            continue outer;
+                        // continue from fence; no keys beyond key precede it
+                        if ((key = lt ? lo : hi) == null)
+                            return null;
+                        rel = lt ? LT : GT|EQ;
+                        continue outer;
+                    }
+                    if (!all)
+                        m = 1;
+                    Object[] vs = ((Leaf)n).vals;
+                    Object[] a = new Object[m << 1];
+                    for (int j = 0; j < m; ++j) {
+                        int k = lt ? to - 1 - j : from + j;
+                        a[j << 1] = ks[k];
+                        a[(j << 1) + 1] = vs[k];
+                    }
+                    if (!validate(n, v))
+                        continue outer;
+                    return a;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns SimpleImmutableEntry for results of findNear.
+     * @param key the key
+     * @param rel the relation -- OR'ed combination of EQ, LT, GT
+     * @return Entry fitting relation, or null if no such
+     */
+    @SuppressWarnings("unchecked")
+    final AbstractMap.SimpleImmutableEntry<K,V> getNear(Object key, int rel) {
+        Object[] a = findNear(key, rel, false);
+        return (a == null) ? null :
+            new AbstractMap.SimpleImmutableEntry<K,V>((K)a[0], (V)a[1]);
+    }
+
+    /**
+     * Returns the key nearest to the given key in the given relation,
+     * or null if none.
+     */
+    @SuppressWarnings("unchecked")
+    final K getNearKey(Object key, int rel) {
+        Object[] a = findNear(key, rel, false);
+        return (a == null) ? null : (K)a[0];
+    }
+
+    /**
+     * Removes the lowest, or if last is true the highest, mapping
+     * within the given bounds, and returns its snapshot, or null if
+     * there is none.
+     */
+    @SuppressWarnings("unchecked")
+    final Map.Entry<K,V> doRemoveEdge(boolean last,
+                                      Object lo, boolean loInclusive,
+                                      Object hi, boolean hiInclusive) {
+        Comparator<? super K> cmp = comparator;
+        for (;;) {
+            Object[] a = last ?
+                findNear(hi, (hi == null || hiInclusive) ? LT|EQ : LT, false) :
+                findNear(lo, (lo == null || loInclusive) ? GT|EQ : GT, false);
+            if (a == null || !inRange(cmp, a[0], lo, loInclusive, hi, hiInclusive))
+                return null;
+            V v = doUpdate(a[0], null, null);
+            if (v != null)
+                return new AbstractMap.SimpleImmutableEntry<K,V>((K)a[0], v);
+        }
+    }
+
+    /**
+     * Returns a key within the given bounds (exclusive of lo) that
+     * splits the mappings between them into two parts of similar
+     * size, or null if none is found.
+     */
+    final Object splitKey(Object lo, Object hi) {
+        Comparator<? super K> cmp = comparator;
+        Node n; long v;
+        if ((v = readVersion(n = root)) < 0L || n != root)
+            return null;
+        for (;;) {
+            int c = n.count, a = 0, b = c, r;
+            Object[] ks = n.keys;
+            // find keys[a..b) strictly between lo and hi
+            if (lo != null) {
+                if ((r = search(ks, c, lo, cmp)) == RETRY)
+                    return null;
+                a = (r >= 0) ? r + 1 : -(r + 1);
+            }
+            if (hi != null) {
+                if ((r = search(ks, c, hi, cmp)) == RETRY)
+                    return null;
+                b = (r >= 0) ? r : -(r + 1);
+            }
+            if (n instanceof Inner && a >= b) {
+                Node ch; long cv;
+                if (a > c || (ch = ((Inner)n).children[a]) == null ||
+                    (cv = readVersion(ch)) < 0L || !validate(n, v))
+                    return null;
+                n = ch;
+                v = cv;
+            }
+            else {
+                Object k = (b - a >= ((n instanceof Inner) ? 1 : 2)) ?
+                    ks[(a + b) >>> 1] : null;
+                return validate(n, v) ? k : null;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given key is within the given bounds, where
+     * null bounds are unbounded.
+     */
+    static boolean inRange(Comparator<?> cmp, Object key,
+                           Object lo, boolean loInclusive,
+                           Object hi, boolean hiInclusive) {
+        int c;
+        return ((lo == null ||
+                 (c = cpr(cmp, key, lo)) > 0 || (c == 0 && loInclusive)) &&
+                (hi == null ||
+                 (c = cpr(cmp, key, hi)) < 0 || (c == 0 && hiInclusive)));
+    }
+
+    /* ---------------- Constructors -------------- */
+
+    /**
+     * Constructs a new, empty map, sorted according to the
+     * {@linkplain Comparable natural ordering} of the keys.
+     */
+    public ConcurrentBTreeMap() {
+        this.comparator = null;
+        initialize();
+    }
+
+    /**
+     * Constructs a new, empty map, sorted according to the specified
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public ConcurrentBTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        initialize();
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given map,
+     * sorted according to the {@linkplain Comparable natural ordering} of
+     * the keys.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in {@code m} are not
+     *         {@link Comparable}, or are not mutually comparable
+     * @throws NullPointerException if the specified map or any of its keys
+     *         or values are null
+     */
+    public ConcurrentBTreeMap(Map<? extends K, ? extends V> m) {
+        this.comparator = null;
+        initialize();
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and using the
+     * same ordering as the specified sorted map.
+     *
+     * @param m the sorted map whose mappings are to be placed in this
+     *        map, and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified sorted map or any of
+     *         its keys or values are null
+     */
+    public ConcurrentBTreeMap(SortedMap<K, ? extends V> m) {
+        this.comparator = m.comparator();
+        initialize();
+        putAll(m);
+    }
+
+    /**
+     * Returns a shallow copy of this {@code ConcurrentBTreeMap}
+     * instance. (The keys and values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    public ConcurrentBTreeMap<K,V> clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            ConcurrentBTreeMap<K,V> clone =
+                (ConcurrentBTreeMap<K,V>) super.clone();
+            clone.initialize();
+            clone.putAll(this);
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The key (Object) and value (Object) for each
+     * key-value mapping represented by the map, followed by
+     * {@code null}. The key-value mappings are emitted in key-order
+     * (as determined by the Comparator, or by the keys' natural
+     * ordering if no Comparator).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out the Comparator and any hidden stuff
+        s.defaultWriteObject();
+
+        // Write out keys and values (alternating)
+        for (Object[] a = findNear(null, GT|EQ, true); a != null;
+             a = findNear(a[a.length - 2], GT, true)) {
+            for (int i = 0; i < a.length; ++i)
+                s.writeObject(a[i]);
+        }
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in the Comparator and any hidden stuff
+        s.defaultReadObject();
+        // Reset transients
+        initialize();
+        for (;;) {
+            Object k = s.readObject();
+            if (k == null)
+                break;
+            Object v = s.readObject();
+            if (v == null)
+                throw new NullPointerException();
+            doPut((K)k, (V)v, false);
+        }
+    }
+
+    /* ------ Map API methods ------ */
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return doGet(key) != null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        return doGet(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or the given defaultValue if this map contains no mapping for the key.
+     *
+     * @param key the key
+     * @param defaultValue the value to return if this map contains
+     * no mapping for the given key
+     * @return the mapping for the key, if present; else the defaultValue
+     * @throws NullPointerException if the specified key is null
+     */
+    public V getOrDefault(Object key, V defaultValue) {
+        V v;
+        return (v = doGet(key)) == null ? defaultValue : v;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        return doPut(key, value, false);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        return doUpdate(key, null, null);
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * map size.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists;
+     *         {@code false} otherwise
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (Object[] a = findNear(null, GT|EQ, true); a != null;
+             a = findNear(a[a.length - 2], GT, true)) {
+            for (int i = 1; i < a.length; i += 2) {
+                if (value.equals(a[i]))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.  If this map
+     * contains more than {@code Integer.MAX_VALUE} elements, it
+     * returns {@code Integer.MAX_VALUE}.
+     *
+     * <p>The value returned is the sum of counts maintained by
+     * insertions and removals, which may not reflect insertions and
+     * removals in progress.
+     *
+     * @return the number of elements in this map
+     */
+    public int size() {
+        long n = count.sum();
+        return ((n < 0L) ? 0 :
+                (n > (long)Integer.MAX_VALUE) ? Integer.MAX_VALUE :
+                (int)n);
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return findNear(null, GT|EQ, false) == null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        for (Object[] a = findNear(null, GT|EQ, true); a != null;
+             a = findNear(a[a.length - 2], GT, true)) {
+            for (int i = 0; i < a.length; i += 2)
+                doUpdate(a[i], null, null);
+        }
+    }
+
+    /* ---------------- View methods -------------- */
+
+    /**
+     * Returns a {@link NavigableSet} view of the keys contained in this map.
+     *
+     * <p>The set's iterator returns the keys in ascending order.
+     * The set's spliterator additionally reports {@link Spliterator#CONCURRENT},
+     * {@link Spliterator#NONNULL}, {@link Spliterator#SORTED} and
+     * {@link Spliterator#ORDERED}, with an encounter order that is ascending
+     * key order.  The spliterator's comparator (see
+     * {@link java.util.Spliterator#getComparator()}) is {@code null} if
+     * the map's comparator (see {@link #comparator()}) is {@code null}.
+     * Otherwise, the spliterator's comparator is the same as or imposes the
+     * same total ordering as the map's comparator.
+     *
+     * <p>The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, which removes the corresponding mapping from the map,
+     * via the {@code Iterator.remove}, {@code Set.remove},
+     * {@code removeAll}, {@code retainAll}, and {@code clear}
+     * operations.  It does not support the {@code add} or {@code addAll}
+     * operations.
+     *
+     * <p>The view's iterators and spliterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * <p>This method is equivalent to method {@code navigableKeySet}.
+     *
+     * @return a navigable set view of the keys in this map
+     */
+    public NavigableSet<K> keySet() {
+        KeySet<K> ks = keySet;
+        return (ks != null) ? ks : (keySet = new KeySet<K>(this));
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        KeySet<K> ks = keySet;
+        return (ks != null) ? ks : (keySet = new KeySet<K>(this));
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * <p>The collection's iterator returns the values in ascending order
+     * of the corresponding keys. The collections's spliterator additionally
+     * reports {@link Spliterator#CONCURRENT}, {@link Spliterator#NONNULL} and
+     * {@link Spliterator#ORDERED}, with an encounter order that is ascending
+     * order of the corresponding keys.
+     *
+     * <p>The collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice-versa.  The collection
+     * supports element removal, which removes the corresponding
+     * mapping from the map, via the {@code Iterator.remove},
+     * {@code Collection.remove}, {@code removeAll},
+     * {@code retainAll} and {@code clear} operations.  It does not
+     * support the {@code add} or {@code addAll} operations.
+     *
+     * <p>The view's iterators and spliterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     */
+    public Collection<V> values() {
+        Values<V> vs = values;
+        return (vs != null) ? vs : (values = new Values<V>(this));
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     *
+     * <p>The set's iterator returns the entries in ascending key order.  The
+     * set's spliterator additionally reports {@link Spliterator#CONCURRENT},
+     * {@link Spliterator#NONNULL}, {@link Spliterator#SORTED} and
+     * {@link Spliterator#ORDERED}, with an encounter order that is ascending
+     * key order.
+     *
+     * <p>The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, which removes the corresponding mapping from the map,
+     * via the {@code Iterator.remove}, {@code Set.remove},
+     * {@code removeAll}, {@code retainAll} and {@code clear}
+     * operations.  It does not support the {@code add} or
+     * {@code addAll} operations.
+     *
+     * <p>The view's iterators and spliterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * <p>The {@code Map.Entry} elements traversed by the {@code iterator}
+     * or {@code spliterator} do <em>not</em> support the {@code setValue}
+     * operation.
+     *
+     * @return a set view of the mappings contained in this map,
+     *         sorted in ascending key order
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet<K,V> es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet<K,V>(this));
+    }
+
+    public ConcurrentNavigableMap<K,V> descendingMap() {
+        ConcurrentNavigableMap<K,V> dm = descendingMap;
+        return (dm != null) ? dm : (descendingMap = new SubMap<K,V>
+                                    (this, null, false, null, false, true));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /* ---------------- AbstractMap Overrides -------------- */
+
+    /**
+     * Compares the specified object with this map for equality.
+     * Returns {@code true} if the given object is also a map and the
+     * two maps represent the same mappings.  More formally, two maps
+     * {@code m1} and {@code m2} represent the same mappings if
+     * {@code m1.entrySet().equals(m2.entrySet())}.  This
+     * operation may return misleading results if either map is
+     * concurrently modified during execution of this method.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof Map))
+            return false;
+        Map<?,?> m = (Map<?,?>) o;
+        try {
+            for (Map.Entry<K,V> e : this.entrySet())
+                if (! e.getValue().equals(m.get(e.getKey())))
+                    return false;
+            for (Map.Entry<?,?> e : m.entrySet()) {
+                Object k = e.getKey();
+                Object v = e.getValue();
+                if (k == null || v == null || !v.equals(get(k)))
+                    return false;
+            }
+            return true;
+        } catch (ClassCastException unused) {
+            return false;
+        } catch (NullPointerException unused) {
+            return false;
+        }
+    }
+
+    /* ------ ConcurrentMap API methods ------ */
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return doPut(key, value, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        return value != null && doUpdate(key, value, null) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        return doUpdate(key, oldValue, newValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        return doUpdate(key, null, value);
+    }
+
+    /* ------ SortedMap API methods ------ */
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        K k = getNearKey(null, GT|EQ);
+        if (k == null)
+            throw new NoSuchElementException();
+        return k;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        K k = getNearKey(null, LT|EQ);
+        if (k == null)
+            throw new NoSuchElementException();
+        return k;
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> subMap(K fromKey,
+                                              boolean fromInclusive,
+                                              K toKey,
+                                              boolean toInclusive) {
+        if (fromKey == null || toKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, fromKey, fromInclusive, toKey, toInclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> headMap(K toKey,
+                                               boolean inclusive) {
+        if (toKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, null, false, toKey, inclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> tailMap(K fromKey,
+                                               boolean inclusive) {
+        if (fromKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, fromKey, inclusive, null, false, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /* ---------------- Relational operations -------------- */
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * strictly less than the given key, or {@code null} if there is
+     * no such key. The returned entry does <em>not</em> support the
+     * {@code Entry.setValue} method.
+     *
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return getNear(nonNull(key), LT);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K lowerKey(K key) {
+        return getNearKey(nonNull(key), LT);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * less than or equal to the given key, or {@code null} if there
+     * is no such key. The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     *
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return getNear(nonNull(key), LT|EQ);
+    }
+
+    /**
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K floorKey(K key) {
+        return getNearKey(nonNull(key), LT|EQ);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * greater than or equal to the given key, or {@code null} if
+     * there is no such entry. The returned entry does <em>not</em>
+     * support the {@code Entry.setValue} method.
+     *
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return getNear(nonNull(key), GT|EQ);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K ceilingKey(K key) {
+        return getNearKey(nonNull(key), GT|EQ);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * strictly greater than the given key, or {@code null} if there
+     * is no such key. The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     *
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return getNear(nonNull(key), GT);
+    }
+
+    /**
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K higherKey(K key) {
+        return getNearKey(nonNull(key), GT);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least
+     * key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> firstEntry() {
+        return getNear(null, GT|EQ);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest
+     * key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> lastEntry() {
+        return getNear(null, LT|EQ);
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the least key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> pollFirstEntry() {
+        return doRemoveEdge(false, null, false, null, false);
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the greatest key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> pollLastEntry() {
+        return doRemoveEdge(true, null, false, null, false);
+    }
+
+    private static Object nonNull(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        return key;
+    }
+
+    /* ---------------- Iterators -------------- */
+
+    /**
+     * Base of iterator classes, traversing the mappings within the
+     * given bounds in either direction, a leaf at a time.
+     */
+    abstract class Iter<T> implements Iterator<T> {
+        final Object lo, hi;
+        final boolean loInclusive, hiInclusive, descending;
+        /** Mappings of the current leaf, alternating keys and values */
+        Object[] batch;
+        /** Index in batch of the key of the next mapping */
+        int index;
+        /** the last key returned by next() */
+        K lastReturned;
+        /** the next key to return from next(), or null if none */
+        K nextKey;
+        /** the value mapped to nextKey when fetched */
+        V nextValue;
+
+        Iter(Object lo, boolean loInclusive, Object hi, boolean hiInclusive,
+             boolean descending) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+            batch = descending ?
+                findNear(hi, (hi == null || hiInclusive) ? LT|EQ : LT, true) :
+                findNear(lo, (lo == null || loInclusive) ? GT|EQ : GT, true);
+            setNext();
+        }
+
+        /** Sets nextKey from the batch, fetching another if needed */
+        @SuppressWarnings("unchecked")
+        private void setNext() {
+            Object[] a = batch;
+            int i = index;
+            if (a != null && i >= a.length) {
+                a = batch = findNear(a[i - 2], descending ? LT : GT, true);
+                i = 0;
+            }
+            if (a == null ||
+                !inRange(comparator, a[i], lo, loInclusive, hi, hiInclusive)) {
+                batch = null;
+                nextKey = null;
+                nextValue = null;
+            }
+            else {
+                nextKey = (K)a[i];
+                nextValue = (V)a[i + 1];
+                index = i + 2;
+            }
+        }
+
+        public final boolean hasNext() {
+            return nextKey != null;
+        }
+
+        final void advance() {
+            if (nextKey == null)
+                throw new NoSuchElementException();
+            lastReturned = nextKey;
+            setNext();
+        }
+
+        public final void remove() {
+            K k = lastReturned;
+            if (k == null)
+                throw new IllegalStateException();
+            doUpdate(k, null, null);
+            lastReturned = null;
+        }
+    }
+
+    final class ValueIterator extends Iter<V> {
+        ValueIterator(Object lo, boolean loInclusive, Object hi,
+                      boolean hiInclusive, boolean descending) {
+            super(lo, loInclusive, hi, hiInclusive, descending);
+        }
+        public V next() {
+            V v = nextValue;
+            advance();
+            return v;
+        }
+    }
+
+    final class KeyIterator extends Iter<K> {
+        KeyIterator(Object lo, boolean loInclusive, Object hi,
+                    boolean hiInclusive, boolean descending) {
+            super(lo, loInclusive, hi, hiInclusive, descending);
+        }
+        public K next() {
+            K k = nextKey;
+            advance();
+            return k;
+        }
+    }
+
+    final class EntryIterator extends Iter<Map.Entry<K,V>> {
+        EntryIterator(Object lo, boolean loInclusive, Object hi,
+                      boolean hiInclusive, boolean descending) {
+            super(lo, loInclusive, hi, hiInclusive, descending);
+        }
+        public Map.Entry<K,V> next() {
+            K k = nextKey;
+            V v = nextValue;
+            advance();
+            return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+        }
+    }
+
+    // Factory methods for iterators needed by views and submaps
+
+    Iterator<K> keyIterator() {
+        return new KeyIterator(null, false, null, false, false);
+    }
+
+    Iterator<V> valueIterator() {
+        return new ValueIterator(null, false, null, false, false);
+    }
+
+    Iterator<Map.Entry<K,V>> entryIterator() {
+        return new EntryIterator(null, false, null, false, false);
+    }
+
+    /* ---------------- View Classes -------------- */
+
+    /*
+     * View classes are static, delegating to a ConcurrentNavigableMap
+     * to allow use by SubMaps, which outweighs the ugliness of
+     * needing type-tests for Iterator methods.
+     */
+
+    static final <E> List<E> toList(Collection<E> c) {
+        // Using size() here would be a pessimization.
+        ArrayList<E> list = new ArrayList<E>();
+        for (E e : c)
+            list.add(e);
+        return list;
+    }
+
+    static final class KeySet<E>
+            extends AbstractSet<E> implements NavigableSet<E> {
+        final ConcurrentNavigableMap<E,?> m;
+        KeySet(ConcurrentNavigableMap<E,?> map) { m = map; }
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public boolean remove(Object o) { return m.remove(o) != null; }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        @SuppressWarnings("unchecked")
+        public Iterator<E> iterator() {
+            if (m instanceof ConcurrentBTreeMap)
+                return ((ConcurrentBTreeMap<E,Object>)m).keyIterator();
+            else
+                return ((ConcurrentBTreeMap.SubMap<E,Object>)m).keyIterator();
+        }
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Set))
+                return false;
+            Collection<?> c = (Collection<?>) o;
+            try {
+                return containsAll(c) && c.containsAll(this);
+            } catch (ClassCastException unused) {
+                return false;
+            } catch (NullPointerException unused) {
+                return false;
+            }
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+        public Iterator<E> descendingIterator() {
+            return descendingSet().iterator();
+        }
+        public NavigableSet<E> subSet(E fromElement,
+                                      boolean fromInclusive,
+                                      E toElement,
+                                      boolean toInclusive) {
+            return new KeySet<E>(m.subMap(fromElement, fromInclusive,
+                                          toElement,   toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<E>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<E>(m.tailMap(fromElement, inclusive));
+        }
+        public NavigableSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public NavigableSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public NavigableSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<E>(m.descendingMap());
+        }
+        @SuppressWarnings("unchecked")
+        public Spliterator<E> spliterator() {
+            if (m instanceof ConcurrentBTreeMap)
+                return ((ConcurrentBTreeMap<E,?>)m).keySpliterator();
+            else
+                return ((SubMap<E,?>)m).keySpliterator();
+        }
+    }
+
+    static final class Values<E> extends AbstractCollection<E> {
+        final ConcurrentNavigableMap<?, E> m;
+        Values(ConcurrentNavigableMap<?, E> map) {
+            m = map;
+        }
+        @SuppressWarnings("unchecked")
+        public Iterator<E> iterator() {
+            if (m instanceof ConcurrentBTreeMap)
+                return ((ConcurrentBTreeMap<?,E>)m).valueIterator();
+            else
+                return ((SubMap<?,E>)m).valueIterator();
+        }
+        public boolean isEmpty() {
+            return m.isEmpty();
+        }
+        public int size() {
+            return m.size();
+        }
+        public boolean contains(Object o) {
+            return m.containsValue(o);
+        }
+        public void clear() {
+            m.clear();
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+        @SuppressWarnings("unchecked")
+        public Spliterator<E> spliterator() {
+            if (m instanceof ConcurrentBTreeMap)
+                return ((ConcurrentBTreeMap<?,E>)m).valueSpliterator();
+            else
+                return ((SubMap<?,E>)m).valueSpliterator();
+        }
+    }
+
+    static final class EntrySet<K1,V1> extends AbstractSet<Map.Entry<K1,V1>> {
+        final ConcurrentNavigableMap<K1, V1> m;
+        EntrySet(ConcurrentNavigableMap<K1, V1> map) {
+            m = map;
+        }
+        @SuppressWarnings("unchecked")
+        public Iterator<Map.Entry<K1,V1>> iterator() {
+            if (m instanceof ConcurrentBTreeMap)
+                return ((ConcurrentBTreeMap<K1,V1>)m).entryIterator();
+            else
+                return ((SubMap<K1,V1>)m).entryIterator();
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            V1 v = m.get(e.getKey());
+            return v != null && v.equals(e.getValue());
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return m.remove(e.getKey(),
+                            e.getValue());
+        }
+        public boolean isEmpty() {
+            return m.isEmpty();
+        }
+        public int size() {
+            return m.size();
+        }
+        public void clear() {
+            m.clear();
+        }
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Set))
+                return false;
+            Collection<?> c = (Collection<?>) o;
+            try {
+                return containsAll(c) && c.containsAll(this);
+            } catch (ClassCastException unused) {
+                return false;
+            } catch (NullPointerException unused) {
+                return false;
+            }
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+        @SuppressWarnings("unchecked")
+        public Spliterator<Map.Entry<K1,V1>> spliterator() {
+            if (m instanceof ConcurrentBTreeMap)
+                return ((ConcurrentBTreeMap<K1,V1>)m).entrySpliterator();
+            else
+                return ((SubMap<K1,V1>)m).entrySpliterator();
+        }
+    }
+
+    /**
+     * Submaps returned by {@link ConcurrentBTreeMap} submap operations
+     * represent a subrange of mappings of their underlying
+     * maps. Instances of this class support all methods of their
+     * underlying maps, differing in that mappings outside their range are
+     * ignored, and attempts to add mappings outside their ranges result
+     * in {@link IllegalArgumentException}.  Instances of this class are
+     * constructed only using the {@code subMap}, {@code headMap}, and
+     * {@code tailMap} methods of their underlying maps.
+     *
+     * @serial include
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V>
+        implements ConcurrentNavigableMap<K,V>, Cloneable, Serializable {
+        private static final long serialVersionUID = -5240317962436587531L;
+
+        /** Underlying map */
+        private final ConcurrentBTreeMap<K,V> m;
+        /** lower bound key, or null if from start */
+        private final K lo;
+        /** upper bound key, or null if to end */
+        private final K hi;
+        /** inclusion flag for lo */
+        private final boolean loInclusive;
+        /** inclusion flag for hi */
+        private final boolean hiInclusive;
+        /** direction */
+        private final boolean isDescending;
+
+        // Lazily initialized view holders
+        private transient KeySet<K> keySetView;
+        private transient Set<Map.Entry<K,V>> entrySetView;
+        private transient Collection<V> valuesView;
+
+        /**
+         * Creates a new submap, initializing all fields.
+         */
+        SubMap(ConcurrentBTreeMap<K,V> map,
+               K fromKey, boolean fromInclusive,
+               K toKey, boolean toInclusive,
+               boolean isDescending) {
+            Comparator<? super K> cmp = map.comparator;
+            if (fromKey != null && toKey != null &&
+                cpr(cmp, fromKey, toKey) > 0)
+                throw new IllegalArgumentException("inconsistent range");
+            this.m = map;
+            this.lo = fromKey;
+            this.hi = toKey;
+            this.loInclusive = fromInclusive;
+            this.hiInclusive = toInclusive;
+            this.isDescending = isDescending;
+        }
+
+        /* ----------------  Utilities -------------- */
+
+        boolean tooLow(Object key, Comparator<? super K> cmp) {
+            int c;
+            return (lo != null && ((c = cpr(cmp, key, lo)) < 0 ||
+                                   (c == 0 && !loInclusive)));
+        }
+
+        boolean tooHigh(Object key, Comparator<? super K> cmp) {
+            int c;
+            return (hi != null && ((c = cpr(cmp, key, hi)) > 0 ||
+                                   (c == 0 && !hiInclusive)));
+        }
+
+        boolean inBounds(Object key, Comparator<? super K> cmp) {
+            return !tooLow(key, cmp) && !tooHigh(key, cmp);
+        }
+
+        void checkKeyBounds(K key, Comparator<? super K> cmp) {
+            if (key == null)
+                throw new NullPointerException();
+            if (!inBounds(key, cmp))
+                throw new IllegalArgumentException("key out of range");
+        }
+
+        /**
+         * Returns lowest (or if last is true, highest) mapping in
+         * range, as an array holding key and value, or null if none.
+         */
+        Object[] edge(boolean last) {
+            Object[] a = last ?
+                m.findNear(hi, (hi == null || hiInclusive) ? LT|EQ : LT, false) :
+                m.findNear(lo, (lo == null || loInclusive) ? GT|EQ : GT, false);
+            return (a != null && inBounds(a[0], m.comparator)) ? a : null;
+        }
+
+        /**
+         * Returns lowest absolute key (ignoring directonality).
+         */
+        @SuppressWarnings("unchecked")
+        K lowestKey() {
+            Object[] a = edge(false);
+            if (a == null)
+                throw new NoSuchElementException();
+            return (K)a[0];
+        }
+
+        /**
+         * Returns highest absolute key (ignoring directonality).
+         */
+        @SuppressWarnings("unchecked")
+        K highestKey() {
+            Object[] a = edge(true);
+            if (a == null)
+                throw new NoSuchElementException();
+            return (K)a[0];
+        }
+
+        @SuppressWarnings("unchecked")
+        Map.Entry<K,V> lowestEntry() {
+            Object[] a = edge(false);
+            return (a == null) ? null :
+                new AbstractMap.SimpleImmutableEntry<K,V>((K)a[0], (V)a[1]);
+        }
+
+        @SuppressWarnings("unchecked")
+        Map.Entry<K,V> highestEntry() {
+            Object[] a = edge(true);
+            return (a == null) ? null :
+                new AbstractMap.SimpleImmutableEntry<K,V>((K)a[0], (V)a[1]);
+        }
+
+        Map.Entry<K,V> removeLowest() {
+            return m.doRemoveEdge(false, lo, loInclusive, hi, hiInclusive);
+        }
+
+        Map.Entry<K,V> removeHighest() {
+            return m.doRemoveEdge(true, lo, loInclusive, hi, hiInclusive);
+        }
+
+        /**
+         * Submap version of ConcurrentBTreeMap.getNear
+         */
+        @SuppressWarnings("unchecked")
+        Object[] getNear(K key, int rel) {
+            Comparator<? super K> cmp = m.comparator;
+            if (key == null)
+                throw new NullPointerException();
+            if (isDescending) { // adjust relation for direction
+                if ((rel & LT) == 0)
+                    rel |= LT;
+                else
+                    rel &= ~LT;
+            }
+            if (tooLow(key, cmp))
+                return ((rel & LT) != 0) ? null : edge(false);
+            if (tooHigh(key, cmp))
+                return ((rel & LT) != 0) ? edge(true) : null;
+            Object[] a = m.findNear(key, rel, false);
+            return (a != null && inBounds(a[0], cmp)) ? a : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map.Entry<K,V> getNearEntry(K key, int rel) {
+            Object[] a = getNear(key, rel);
+            return (a == null) ? null :
+                new AbstractMap.SimpleImmutableEntry<K,V>((K)a[0], (V)a[1]);
+        }
+
+        @SuppressWarnings("unchecked")
+        K getNearKey(K key, int rel) {
+            Object[] a = getNear(key, rel);
+            return (a == null) ? null : (K)a[0];
+        }
+
+        /* ----------------  Map API methods -------------- */
+
+        public boolean containsKey(Object key) {
+            if (key == null) throw new NullPointerException();
+            return inBounds(key, m.comparator) && m.containsKey(key);
+        }
+
+        public V get(Object key) {
+            if (key == null) throw new NullPointerException();
+            return (!inBounds(key, m.comparator)) ? null : m.get(key);
+        }
+
+        public V put(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.put(key, value);
+        }
+
+        public V remove(Object key) {
+            return (!inBounds(key, m.comparator)) ? null : m.remove(key);
+        }
+
+        public int size() {
+            long count = 0;
+            for (Iterator<K> it = keyIterator(); it.hasNext(); it.next())
+                ++count;
+            return count >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)count;
+        }
+
+        public boolean isEmpty() {
+            return edge(false) == null;
+        }
+
+        public boolean containsValue(Object value) {
+            if (value == null)
+                throw new NullPointerException();
+            for (Iterator<V> it = valueIterator(); it.hasNext(); ) {
+                if (value.equals(it.next()))
+                    return true;
+            }
+            return false;
+        }
+
+        public void clear() {
+            for (Iterator<K> it = keyIterator(); it.hasNext(); ) {
+                it.next();
+                it.remove();
+            }
+        }
+
+        /* ----------------  ConcurrentMap API methods -------------- */
+
+        public V putIfAbsent(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.putIfAbsent(key, value);
+        }
+
+        public boolean remove(Object key, Object value) {
+            return inBounds(key, m.comparator) && m.remove(key, value);
+        }
+
+        public boolean replace(K key, V oldValue, V newValue) {
+            checkKeyBounds(key, m.comparator);
+            return m.replace(key, oldValue, newValue);
+        }
+
+        public V replace(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.replace(key, value);
+        }
+
+        /* ----------------  SortedMap API methods -------------- */
+
+        public Comparator<? super K> comparator() {
+            Comparator<? super K> cmp = m.comparator();
+            if (isDescending)
+                return Collections.reverseOrder(cmp);
+            else
+                return cmp;
+        }
+
+        /**
+         * Utility to create submaps, where given bounds override
+         * unbounded(null) ones and/or are checked against bounded ones.
+         */
+        SubMap<K,V> newSubMap(K fromKey, boolean fromInclusive,
+                              K toKey, boolean toInclusive) {
+            Comparator<? super K> cmp = m.comparator;
+            if (isDescending) { // flip senses
+                K tk = fromKey;
+                fromKey = toKey;
+                toKey = tk;
+                boolean ti = fromInclusive;
+                fromInclusive = toInclusive;
+                toInclusive = ti;
+            }
+            if (lo != null) {
+                if (fromKey == null) {
+                    fromKey = lo;
+                    fromInclusive = loInclusive;
+                }
+                else {
+                    int c = cpr(cmp, fromKey, lo);
+                    if (c < 0 || (c == 0 && !loInclusive && fromInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+            }
+            if (hi != null) {
+                if (toKey == null) {
+                    toKey = hi;
+                    toInclusive = hiInclusive;
+                }
+                else {
+                    int c = cpr(cmp, toKey, hi);
+                    if (c > 0 || (c == 0 && !hiInclusive && toInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+            }
+            return new SubMap<K,V>(m, fromKey, fromInclusive,
+                                   toKey, toInclusive, isDescending);
+        }
+
+        public SubMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                  K toKey, boolean toInclusive) {
+            if (fromKey == null || toKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        public SubMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (toKey == null)
+                throw new NullPointerException();
+            return newSubMap(null, false, toKey, inclusive);
+        }
+
+        public SubMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (fromKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, inclusive, null, false);
+        }
+
+        public SubMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public SubMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public SubMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        public SubMap<K,V> descendingMap() {
+            return new SubMap<K,V>(m, lo, loInclusive,
+                                   hi, hiInclusive, !isDescending);
+        }
+
+        /* ----------------  Relational methods -------------- */
+
+        public Map.Entry<K,V> ceilingEntry(K key) {
+            return getNearEntry(key, GT|EQ);
+        }
+
+        public K ceilingKey(K key) {
+            return getNearKey(key, GT|EQ);
+        }
+
+        public Map.Entry<K,V> lowerEntry(K key) {
+            return getNearEntry(key, LT);
+        }
+
+        public K lowerKey(K key) {
+            return getNearKey(key, LT);
+        }
+
+        public Map.Entry<K,V> floorEntry(K key) {
+            return getNearEntry(key, LT|EQ);
+        }
+
+        public K floorKey(K key) {
+            return getNearKey(key, LT|EQ);
+        }
+
+        public Map.Entry<K,V> higherEntry(K key) {
+            return getNearEntry(key, GT);
+        }
+
+        public K higherKey(K key) {
+            return getNearKey(key, GT);
+        }
+
+        public K firstKey() {
+            return isDescending ? highestKey() : lowestKey();
+        }
+
+        public K lastKey() {
+            return isDescending ? lowestKey() : highestKey();
+        }
+
+        public Map.Entry<K,V> firstEntry() {
+            return isDescending ? highestEntry() : lowestEntry();
+        }
+
+        public Map.Entry<K,V> lastEntry() {
+            return isDescending ? lowestEntry() : highestEntry();
+        }
+
+        public Map.Entry<K,V> pollFirstEntry() {
+            return isDescending ? removeHighest() : removeLowest();
+        }
+
+        public Map.Entry<K,V> pollLastEntry() {
+            return isDescending ? removeLowest() : removeHighest();
+        }
+
+        /* ---------------- Submap Views -------------- */
+
+        public NavigableSet<K> keySet() {
+            KeySet<K> ks = keySetView;
+            return (ks != null) ? ks : (keySetView = new KeySet<K>(this));
+        }
+
+        public NavigableSet<K> navigableKeySet() {
+            KeySet<K> ks = keySetView;
+            return (ks != null) ? ks : (keySetView = new KeySet<K>(this));
+        }
+
+        public Collection<V> values() {
+            Collection<V> vs = valuesView;
+            return (vs != null) ? vs : (valuesView = new Values<V>(this));
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            Set<Map.Entry<K,V>> es = entrySetView;
+            return (es != null) ? es : (entrySetView = new EntrySet<K,V>(this));
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        Iterator<K> keyIterator() {
+            return m.new KeyIterator(lo, loInclusive, hi, hiInclusive,
+                                     isDescending);
+        }
+
+        Iterator<V> valueIterator() {
+            return m.new ValueIterator(lo, loInclusive, hi, hiInclusive,
+                                       isDescending);
+        }
+
+        Iterator<Map.Entry<K,V>> entryIterator() {
+            return m.new EntryIterator(lo, loInclusive, hi, hiInclusive,
+                                       isDescending);
+        }
+
+        /*
+         * Ascending submaps use the splittable spliterators of the
+         * underlying map, restricted to their bounds. Descending ones
+         * traverse sequentially, in the order of their iterators.
+         */
+
+        Spliterator<K> keySpliterator() {
+            if (isDescending)
+                return Spliterators.spliteratorUnknownSize
+                    (keyIterator(), Spliterator.DISTINCT |
+                     Spliterator.ORDERED | Spliterator.CONCURRENT |
+                     Spliterator.NONNULL);
+            return new KeySpliterator<K,V>(m, lo, loInclusive,
+                                           hi, hiInclusive, Long.MAX_VALUE);
+        }
+
+        Spliterator<V> valueSpliterator() {
+            if (isDescending)
+                return Spliterators.spliteratorUnknownSize
+                    (valueIterator(), Spliterator.ORDERED |
+                     Spliterator.CONCURRENT | Spliterator.NONNULL);
+            return new ValueSpliterator<K,V>(m, lo, loInclusive,
+                                             hi, hiInclusive, Long.MAX_VALUE);
+        }
+
+        Spliterator<Map.Entry<K,V>> entrySpliterator() {
+            if (isDescending)
+                return Spliterators.spliteratorUnknownSize
+                    (entryIterator(), Spliterator.DISTINCT |
+                     Spliterator.ORDERED | Spliterator.CONCURRENT |
+                     Spliterator.NONNULL);
+            return new EntrySpliterator<K,V>(m, lo, loInclusive,
+                                             hi, hiInclusive, Long.MAX_VALUE);
+        }
+    }
+
+    // default Map method overrides
+
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null) throw new NullPointerException();
+        for (Object[] a = findNear(null, GT|EQ, true); a != null;
+             a = findNear(a[a.length - 2], GT, true)) {
+            for (int i = 0; i < a.length; i += 2) {
+                @SuppressWarnings("unchecked") K k = (K)a[i];
+                @SuppressWarnings("unchecked") V v = (V)a[i + 1];
+                action.accept(k, v);
+            }
+        }
+    }
+
+    /* ---------------- Spliterators -------------- */
+
+    /**
+     * Base class providing common structure for Spliterators.
+     *
+     * A spliterator covers the keys between lo and hi, fetching a
+     * leaf's worth of mappings at a time from the map, and advancing
+     * lo past each key it reports. Splitting asks the map for a key
+     * near the middle of the range using the tree structure
+     * (splitKey), so that each part covers about half of the
+     * subtree holding the range; the size estimate is halved on each
+     * split.
+     */
+    abstract static class BTreeSpliterator<K,V> {
+        final ConcurrentBTreeMap<K,V> map;
+        Object lo;            // lower bound, or null if from start
+        boolean loInclusive;
+        final Object hi;      // upper bound, or null if to end
+        final boolean hiInclusive;
+        Object[] batch;       // mappings fetched but not yet reported
+        int index;            // index in batch of next key
+        long est;             // size estimate
+        boolean exhausted;
+        BTreeSpliterator(ConcurrentBTreeMap<K,V> map,
+                         Object lo, boolean loInclusive,
+                         Object hi, boolean hiInclusive, long est) {
+            this.map = map;
+            this.lo = lo; this.loInclusive = loInclusive;
+            this.hi = hi; this.hiInclusive = hiInclusive;
+            this.est = est;
+        }
+
+        /**
+         * Returns the index in batch of the next mapping, fetching a
+         * batch if needed, and advances past it; or returns -1 if none.
+         */
+        final int nextIndex() {
+            if (exhausted)
+                return -1;
+            Object[] a = batch;
+            int i = index;
+            if (a == null || i >= a.length) {
+                a = batch = map.findNear(lo, (lo == null || loInclusive) ?
+                                         GT|EQ : GT, true);
+                i = 0;
+            }
+            if (a == null ||
+                !inRange(map.comparator, a[i], null, false, hi, hiInclusive)) {
+                exhausted = true;
+                batch = null;
+                return -1;
+            }
+            lo = a[i];
+            loInclusive = false;
+            index = i + 2;
+            return i;
+        }
+
+        /**
+         * Returns a key splitting the remaining range, and restricts
+         * this spliterator to the upper part, or returns null if none.
+         * The lower part of the range is that of the prefix to return.
+         */
+        final Object splitAt() {
+            Object s;
+            if (exhausted || (s = map.splitKey(lo, hi)) == null)
+                return null;
+            batch = null; // refetch from split key
+            est >>>= 1;
+            return s;
+        }
+
+        public final long estimateSize() {
+            return exhausted ? 0L : est;
+        }
+    }
+
+    static final class KeySpliterator<K,V> extends BTreeSpliterator<K,V>
+        implements Spliterator<K> {
+        KeySpliterator(ConcurrentBTreeMap<K,V> map,
+                       Object lo, boolean loInclusive,
+                       Object hi, boolean hiInclusive, long est) {
+            super(map, lo, loInclusive, hi, hiInclusive, est);
+        }
+
+        public Spliterator<K> trySplit() {
+            Object plo = lo; boolean pInclusive = loInclusive;
+            Object s = splitAt();
+            if (s == null)
+                return null;
+            lo = s;
+            loInclusive = true;
+            return new KeySpliterator<K,V>(map, plo, pInclusive, s, false, est);
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super K> action) {
+            if (action == null) throw new NullPointerException();
+            for (int i; (i = nextIndex()) >= 0; )
+                action.accept((K)batch[i]);
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super K> action) {
+            if (action == null) throw new NullPointerException();
+            int i = nextIndex();
+            if (i < 0)
+                return false;
+            action.accept((K)batch[i]);
+            return true;
+        }
+
+        public int characteristics() {
+            return Spliterator.DISTINCT | Spliterator.SORTED |
+                Spliterator.ORDERED | Spliterator.CONCURRENT |
+                Spliterator.NONNULL;
+        }
+
+        public final Comparator<? super K> getComparator() {
+            return map.comparator;
+        }
+    }
+    // factory method for KeySpliterator
+    final KeySpliterator<K,V> keySpliterator() {
+        return new KeySpliterator<K,V>(this, null, false, null, false,
+                                       Math.max(count.sum(), 0L));
+    }
+
+    static final class ValueSpliterator<K,V> extends BTreeSpliterator<K,V>
+        implements Spliterator<V> {
+        ValueSpliterator(ConcurrentBTreeMap<K,V> map,
+                         Object lo, boolean loInclusive,
+                         Object hi, boolean hiInclusive, long est) {
+            super(map, lo, loInclusive, hi, hiInclusive, est);
+        }
+
+        public Spliterator<V> trySplit() {
+            Object plo = lo; boolean pInclusive = loInclusive;
+            Object s = splitAt();
+            if (s == null)
+                return null;
+            lo = s;
+            loInclusive = true;
+            return new ValueSpliterator<K,V>(map, plo, pInclusive, s, false, est);
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super V> action) {
+            if (action == null) throw new NullPointerException();
+            for (int i; (i = nextIndex()) >= 0; )
+                action.accept((V)batch[i + 1]);
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (action == null) throw new NullPointerException();
+            int i = nextIndex();
+            if (i < 0)
+                return false;
+            action.accept((V)batch[i + 1]);
+            return true;
+        }
+
+        public int characteristics() {
+            return Spliterator.CONCURRENT | Spliterator.ORDERED |
+                Spliterator.NONNULL;
+        }
+    }
+
+    // Almost the same as keySpliterator()
+    final ValueSpliterator<K,V> valueSpliterator() {
+        return new ValueSpliterator<K,V>(this, null, false, null, false,
+                                         Math.max(count.sum(), 0L));
+    }
+
+    static final class EntrySpliterator<K,V> extends BTreeSpliterator<K,V>
+        implements Spliterator<Map.Entry<K,V>> {
+        EntrySpliterator(ConcurrentBTreeMap<K,V> map,
+                         Object lo, boolean loInclusive,
+                         Object hi, boolean hiInclusive, long est) {
+            super(map, lo, loInclusive, hi, hiInclusive, est);
+        }
+
+        public Spliterator<Map.Entry<K,V>> trySplit() {
+            Object plo = lo; boolean pInclusive = loInclusive;
+            Object s = splitAt();
+            if (s == null)
+                return null;
+            lo = s;
+            loInclusive = true;
+            return new EntrySpliterator<K,V>(map, plo, pInclusive, s, false, est);
+        }
+
+        public void forEachRemaining(Consumer<? super Map.Entry<K,V>> action) {
+            if (action == null) throw new NullPointerException();
+            for (int i; (i = nextIndex()) >= 0; )
+                action.accept(entryAt(i));
+        }
+
+        public boolean tryAdvance(Consumer<? super Map.Entry<K,V>> action) {
+            if (action == null) throw new NullPointerException();
+            int i = nextIndex();
+            if (i < 0)
+                return false;
+            action.accept(entryAt(i));
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map.Entry<K,V> entryAt(int i) {
+            return new AbstractMap.SimpleImmutableEntry<K,V>
+                ((K)batch[i], (V)batch[i + 1]);
+        }
+
+        public int characteristics() {
+            return Spliterator.DISTINCT | Spliterator.SORTED |
+                Spliterator.ORDERED | Spliterator.CONCURRENT |
+                Spliterator.NONNULL;
+        }
+
+        public final Comparator<Map.Entry<K,V>> getComparator() {
+            // Adapt or create a key-based comparator
+            if (map.comparator != null) {
+                return Map.Entry.comparingByKey(map.comparator);
+            }
+            else {
+                return (Comparator<Map.Entry<K,V>> & Serializable) (e1, e2) -> {
+                    @SuppressWarnings("unchecked")
+                    Comparable<? super K> k1 = (Comparable<? super K>) e1.getKey();
+                    return k1.compareTo(e2.getKey());
+                };
+            }
+        }
+    }
+
+    // Almost the same as keySpliterator()
+    final EntrySpliterator<K,V> entrySpliterator() {
+        return new EntrySpliterator<K,V>(this, null, false, null, false,
+                                         Math.max(count.sum(), 0L));
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long VERSION;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = Node.class;
+            VERSION = U.objectFieldOffset
+                (k.getDeclaredField("version"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
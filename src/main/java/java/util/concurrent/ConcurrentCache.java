@@ -0,0 +1,1360 @@
+package java.util.concurrent;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ToIntBiFunction;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent map that holds at most a bounded total weight of
+ * entries, evicting those least likely to be used again.  Storage is a
+ * {@link ConcurrentHashMap}, so retrievals and updates have the same
+ * concurrency as in that class; the bookkeeping needed to choose victims
+ * is performed in batches by whichever thread acquires a single
+ * eviction lock, never by readers waiting for it.
+ *
+ * <p>Reads are recorded in a set of small lossy ring buffers striped by
+ * thread, in the manner of the cells of {@link
+ * java.util.concurrent.atomic.LongAdder}: a full buffer simply drops the
+ * read, and contention on a buffer causes more stripes to be created.
+ * Writes are recorded in an unbounded queue so that no update is lost.
+ * Both are replayed against the eviction policy under the lock.
+ *
+ * <p>The policy is <em>W-TinyLFU</em>.  New entries enter a small
+ * admission window ordered by recency.  Entries leaving the window
+ * compete with the eldest entry of the main region, and the one with
+ * the lower estimated access frequency is evicted.  Frequencies are
+ * estimated by a compact count-min sketch of 4-bit counters that are
+ * periodically halved, so popularity ages.  The main region is a
+ * segmented LRU: entries accessed again while on probation are promoted
+ * to a protected segment.
+ *
+ * <p>The size of an entry is given by a <em>weigher</em> (each entry
+ * weighs one by default) computed when it is written.  Entries may also
+ * expire a fixed duration after they were written or last accessed.
+ * Expired entries are not visible to retrievals; they are removed by a
+ * periodic task run by a {@link ScheduledExecutorService}, by default a
+ * shared daemon {@link ScheduledThreadPoolExecutor}, and during normal
+ * maintenance.
+ *
+ * <p>The total weight may briefly exceed the maximum while maintenance
+ * is pending.  {@link #cleanUp} performs pending maintenance at once.
+ * Like {@code ConcurrentHashMap}, this class does not allow {@code null}
+ * keys or values, and its views' iterators are weakly consistent.
+ * Retrievals through the views do not count as accesses.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ * @see java.util.LinkedHashMap#removeEldestEntry
+ * @since 1.8
+ */
+public class ConcurrentCache<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V> {
+
+    /*
+     * Overview:
+     *
+     * Each mapping is a Node held as the value of a ConcurrentHashMap.
+     * A node's value and weight change under its monitor; a node is
+     * alive while mapped, retired once removed from the map, and dead
+     * once also unlinked from the policy.  Only the thread holding
+     * evictionLock touches the policy structures (the access-order
+     * deques, the write-order deque, the sketch and weightedSize), so
+     * these need no further synchronization.
+     *
+     * A write first changes the map and then enqueues a task that
+     * applies the change to the policy.  Tasks for one node may run out
+     * of order (a removal may overtake the addition), so each task
+     * checks the node's state, and weight changes are applied as the
+     * difference between the node's current weight and the weight the
+     * policy last accounted for it.
+     *
+     * After enqueuing, writers try to run maintenance, and a thread that
+     * releases the lock rechecks the queue, so tasks are never stranded.
+     * Readers only try the lock when their read buffer fills.
+     */
+
+    /** Number of CPUS, to place bound on number of read buffers */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** Maximum number of read buffer stripes */
+    static final int MAX_STRIPES = tableSizeFor(NCPU << 2);
+
+    /** Fraction of the maximum weight given to the admission window */
+    static final double WINDOW_PERCENT = 0.01d;
+
+    /** Fraction of the main region given to the protected segment */
+    static final double PROTECTED_PERCENT = 0.80d;
+
+    /** Number of pending writes after which writers wait for the lock */
+    static final int WRITE_BUFFER_MAX = 128 * MAX_STRIPES;
+
+    /** The shortest period of the expiration task, in nanoseconds */
+    static final long MIN_CLEANUP_PERIOD = TimeUnit.MILLISECONDS.toNanos(10L);
+
+    // Node states
+    static final int ALIVE   = 0;
+    static final int RETIRED = 1;
+    static final int DEAD    = 2;
+
+    // Access-order queues
+    static final int WINDOW    = 0;
+    static final int PROBATION = 1;
+    static final int PROTECTED = 2;
+
+    static final int tableSizeFor(int c) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(Math.max(c, 2) - 1);
+        return (n < 0) ? 1 : (n >= (1 << 30)) ? 1 << 30 : n + 1;
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * A cache entry.  The value, weight and timestamps are volatile for
+     * readers; the remaining fields are guarded by the eviction lock.
+     */
+    static final class Node<K,V> {
+        final K key;
+        volatile V value;
+        volatile int weight;
+        volatile int state;
+        volatile long writeTime;
+        volatile long accessTime;
+
+        int policyWeight;          // weight accounted in weightedSize
+        int queue;                 // WINDOW, PROBATION or PROTECTED
+        boolean linked;            // in an access-order deque
+        Node<K,V> prev, next;      // access order
+        Node<K,V> prevW, nextW;    // write order
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * An intrusive doubly-linked list of nodes in access order.
+     */
+    static final class AccessOrderDeque<K,V> {
+        Node<K,V> first, last;
+        long weight;
+
+        void linkLast(Node<K,V> e) {
+            Node<K,V> l = last;
+            e.prev = l;
+            e.next = null;
+            last = e;
+            if (l == null)
+                first = e;
+            else
+                l.next = e;
+            weight += e.policyWeight;
+        }
+
+        void unlink(Node<K,V> e) {
+            Node<K,V> p = e.prev, n = e.next;
+            if (p == null)
+                first = n;
+            else
+                p.next = n;
+            if (n == null)
+                last = p;
+            else
+                n.prev = p;
+            e.prev = e.next = null;
+            weight -= e.policyWeight;
+        }
+
+        void moveToBack(Node<K,V> e) {
+            if (e != last) {
+                unlink(e);
+                linkLast(e);
+            }
+        }
+    }
+
+    /**
+     * An intrusive doubly-linked list of nodes in write order.
+     */
+    static final class WriteOrderDeque<K,V> {
+        Node<K,V> first, last;
+
+        void linkLast(Node<K,V> e) {
+            Node<K,V> l = last;
+            e.prevW = l;
+            e.nextW = null;
+            last = e;
+            if (l == null)
+                first = e;
+            else
+                l.nextW = e;
+        }
+
+        void unlink(Node<K,V> e) {
+            Node<K,V> p = e.prevW, n = e.nextW;
+            if (p == null)
+                first = n;
+            else
+                p.nextW = n;
+            if (n == null)
+                last = p;
+            else
+                n.prevW = p;
+            e.prevW = e.nextW = null;
+        }
+    }
+
+    /* ---------------- Read buffers -------------- */
+
+    static final int OFFERED = 0;
+    static final int FULL    = 1;
+    static final int FAILED  = 2;
+
+    /**
+     * A lossy single-consumer ring of recently read nodes.  Producers
+     * claim a slot by CAS of the write counter; the consumer holds the
+     * eviction lock.
+     */
+    static final class ReadBuffer<K,V> {
+        static final int SIZE = 16;
+        static final int MASK = SIZE - 1;
+
+        final Object[] ring = new Object[SIZE];
+        volatile long writes;
+        volatile long reads;
+
+        int offer(Node<K,V> e) {
+            long w = writes;
+            if (w - reads >= SIZE)
+                return FULL;
+            if (!U.compareAndSwapLong(this, WRITES, w, w + 1L))
+                return FAILED;
+            U.putOrderedObject(ring, ((w & MASK) << RSHIFT) + RBASE, e);
+            return OFFERED;
+        }
+
+        @SuppressWarnings("unchecked")
+        void drainTo(ConcurrentCache<K,V> cache) {
+            long r = reads, w = writes;
+            for (; r < w; ++r) {
+                long off = ((r & MASK) << RSHIFT) + RBASE;
+                Object e = U.getObjectVolatile(ring, off);
+                if (e == null)
+                    break;      // slot claimed but not yet filled
+                U.putOrderedObject(ring, off, null);
+                cache.onAccess((Node<K,V>)e);
+            }
+            U.putOrderedLong(this, READS, r);
+        }
+    }
+
+    /* ---------------- Frequency sketch -------------- */
+
+    /**
+     * A count-min sketch of 4-bit counters, sixteen to a long, with
+     * four hashed counters per key.  After a number of increments
+     * proportional to the table size, all counters are halved.
+     */
+    static final class FrequencySketch {
+        static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        static final long RESET_MASK = 0x7777777777777777L;
+        static final long ONE_MASK   = 0x1111111111111111L;
+
+        long[] table;
+        int tableMask;
+        int sampleSize;
+        int additions;
+
+        void ensureCapacity(long maximumSize) {
+            int max = (int)Math.min(Math.max(maximumSize, 16L), 1 << 26);
+            if (table != null && table.length >= max)
+                return;
+            table = new long[tableSizeFor(max)];
+            tableMask = table.length - 1;
+            sampleSize = 10 * max;
+            additions = 0;
+        }
+
+        static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+
+        int indexOf(int item, int i) {
+            long hash = (item + SEEDS[i]) * SEEDS[i];
+            hash += (hash >>> 32);
+            return ((int)hash) & tableMask;
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode()), start = (hash & 3) << 2;
+            int f = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int)((table[index] >>> ((start + i) << 2)) & 0xfL);
+                f = Math.min(f, count);
+            }
+            return f;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode()), start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i), offset = (start + i) << 2;
+                long mask = 0xfL << offset;
+                if ((table[index] & mask) != mask) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize)
+                reset();
+        }
+
+        void reset() {
+            int odd = 0;
+            long[] t = table;
+            for (int i = 0; i < t.length; i++) {
+                odd += Long.bitCount(t[i] & ONE_MASK);
+                t[i] = (t[i] >>> 1) & RESET_MASK;
+            }
+            additions = (additions >>> 1) - (odd >>> 2);
+        }
+    }
+
+    /* ---------------- Fields -------------- */
+
+    final ConcurrentHashMap<K,Node<K,V>> data;
+    final ToIntBiFunction<? super K, ? super V> weigher;
+    final long expireAfterWriteNanos;
+    final long expireAfterAccessNanos;
+
+    /** Guards all policy state below */
+    final ReentrantLock evictionLock = new ReentrantLock();
+    final ConcurrentLinkedQueue<Runnable> writeBuffer =
+        new ConcurrentLinkedQueue<Runnable>();
+    final java.util.concurrent.atomic.AtomicInteger pendingWrites =
+        new java.util.concurrent.atomic.AtomicInteger();
+    volatile ReadBuffer<K,V>[] readBuffers;
+    volatile int stripesBusy;
+
+    final AccessOrderDeque<K,V> window = new AccessOrderDeque<K,V>();
+    final AccessOrderDeque<K,V> probation = new AccessOrderDeque<K,V>();
+    final AccessOrderDeque<K,V> protectedQueue = new AccessOrderDeque<K,V>();
+    final WriteOrderDeque<K,V> writeOrder = new WriteOrderDeque<K,V>();
+    final FrequencySketch sketch = new FrequencySketch();
+    volatile long maximumWeight;
+    volatile long weightedSize;
+    long windowMaximum;
+    long protectedMaximum;
+    int randomSeed = 0x5f356495;
+
+    /** The periodic expiration task, if any */
+    final ScheduledFuture<?> cleanupTask;
+
+    private transient Set<K> keySet;
+    private transient Collection<V> values;
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Creates an empty cache holding at most the given number of
+     * entries, which do not expire.
+     *
+     * @param maximumSize the maximum number of entries
+     * @throws IllegalArgumentException if the maximum size is negative
+     */
+    public ConcurrentCache(long maximumSize) {
+        this(maximumSize, null, 0L, 0L, TimeUnit.NANOSECONDS, null);
+    }
+
+    /**
+     * Creates an empty cache holding entries of at most the given total
+     * weight, which do not expire.
+     *
+     * @param maximumWeight the maximum total weight of entries
+     * @param weigher the function computing the weight of an entry,
+     *        which must be non-negative
+     * @throws IllegalArgumentException if the maximum weight is negative
+     * @throws NullPointerException if the weigher is null
+     */
+    public ConcurrentCache(long maximumWeight,
+                           ToIntBiFunction<? super K, ? super V> weigher) {
+        this(maximumWeight, checkNotNull(weigher), 0L, 0L,
+             TimeUnit.NANOSECONDS, null);
+    }
+
+    /**
+     * Creates an empty cache holding entries of at most the given total
+     * weight, removing entries once the given durations have passed
+     * since they were written or last read.  Expired entries are removed
+     * by a task run periodically by the given scheduler.
+     *
+     * @param maximumWeight the maximum total weight of entries
+     * @param weigher the function computing the weight of an entry,
+     *        which must be non-negative, or {@code null} to give each
+     *        entry a weight of one
+     * @param expireAfterWrite the time after which an entry expires once
+     *        written, or zero if entries do not expire after writes
+     * @param expireAfterAccess the time after which an entry expires once
+     *        written or read, or zero if entries do not expire after
+     *        accesses
+     * @param unit the time unit of the expiration durations
+     * @param scheduler the executor running the expiration task, or
+     *        {@code null} to use a shared daemon scheduler
+     * @throws IllegalArgumentException if the maximum weight or either
+     *         duration is negative
+     * @throws NullPointerException if the unit is null
+     */
+    public ConcurrentCache(long maximumWeight,
+                           ToIntBiFunction<? super K, ? super V> weigher,
+                           long expireAfterWrite, long expireAfterAccess,
+                           TimeUnit unit, ScheduledExecutorService scheduler) {
+        if (maximumWeight < 0L || expireAfterWrite < 0L || expireAfterAccess < 0L)
+            throw new IllegalArgumentException();
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.expireAfterAccessNanos = unit.toNanos(expireAfterAccess);
+        this.weigher = weigher;
+        this.data = new ConcurrentHashMap<K,Node<K,V>>(
+            (int)Math.min(maximumWeight, 1 << 12));
+        @SuppressWarnings("unchecked")
+        ReadBuffer<K,V>[] rb = (ReadBuffer<K,V>[])new ReadBuffer<?,?>[] {
+            new ReadBuffer<K,V>() };
+        this.readBuffers = rb;
+        setMaximum(maximumWeight);
+        long period = Math.min(expireAfterWriteNanos == 0L ? Long.MAX_VALUE :
+                               expireAfterWriteNanos,
+                               expireAfterAccessNanos == 0L ? Long.MAX_VALUE :
+                               expireAfterAccessNanos);
+        if (period == Long.MAX_VALUE)
+            this.cleanupTask = null;
+        else {
+            period = Math.max(period >>> 1, MIN_CLEANUP_PERIOD);
+            if (scheduler == null)
+                scheduler = Expirer.scheduler;
+            this.cleanupTask = scheduler.scheduleWithFixedDelay(
+                new CleanupTask(this), period, period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static <T> T checkNotNull(T t) {
+        if (t == null)
+            throw new NullPointerException();
+        return t;
+    }
+
+    /**
+     * Returns the maximum total weight of entries.
+     *
+     * @return the maximum total weight of entries
+     */
+    public long maximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Sets the maximum total weight of entries, evicting entries if the
+     * cache now exceeds it.
+     *
+     * @param maximumWeight the maximum total weight of entries
+     * @throws IllegalArgumentException if the maximum weight is negative
+     */
+    public void setMaximumWeight(long maximumWeight) {
+        if (maximumWeight < 0L)
+            throw new IllegalArgumentException();
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            setMaximum(maximumWeight);
+            maintenance();
+        } finally {
+            lock.unlock();
+        }
+        drainIfPending();
+    }
+
+    private void setMaximum(long maximum) {
+        long w = (long)(maximum * WINDOW_PERCENT);
+        windowMaximum = w;
+        protectedMaximum = (long)((maximum - w) * PROTECTED_PERCENT);
+        maximumWeight = maximum;
+        sketch.ensureCapacity(weigher == null ? maximum : Math.min(maximum, 1 << 20));
+    }
+
+    /**
+     * Returns the total weight of entries as last accounted by the
+     * eviction policy.  The result may lag behind updates in progress.
+     *
+     * @return the total weight of entries
+     */
+    public long weightedSize() {
+        return Math.max(0L, weightedSize);
+    }
+
+    /**
+     * Performs any pending maintenance: replays recorded reads and
+     * writes against the eviction policy, and removes expired and
+     * excess entries.  This method blocks until the eviction lock is
+     * available.
+     */
+    public void cleanUp() {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            maintenance();
+        } finally {
+            lock.unlock();
+        }
+        drainIfPending();
+    }
+
+    /**
+     * Stops the periodic expiration task, if any.  Expired entries are
+     * still hidden from retrievals and removed during maintenance.
+     */
+    public void shutdownExpiration() {
+        ScheduledFuture<?> t = cleanupTask;
+        if (t != null)
+            t.cancel(false);
+    }
+
+    /**
+     * Returns the number of mappings, including expired mappings that
+     * have not yet been removed.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return data.size();
+    }
+
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this cache contains no unexpired mapping for the
+     * key.  The read is recorded as an access.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        Node<K,V> e = data.get(key);
+        if (e == null)
+            return null;
+        long now = System.nanoTime();
+        V v = e.value;
+        if (hasExpired(e, now)) {
+            tryDrain();
+            return null;
+        }
+        afterRead(e, now);
+        return v;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the
+     * given default if this cache contains no unexpired mapping for the
+     * key.  The read is recorded as an access.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V getOrDefault(Object key, V defaultValue) {
+        V v;
+        return ((v = get(key)) == null) ? defaultValue : v;
+    }
+
+    /**
+     * Tests if the specified object is a key with an unexpired mapping
+     * in this cache.  The test is not recorded as an access.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        Node<K,V> e = data.get(key);
+        return e != null && !hasExpired(e, System.nanoTime());
+    }
+
+    /**
+     * Returns {@code true} if this cache maps one or more keys to the
+     * specified value.  This method requires a full traversal.
+     *
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        long now = System.nanoTime();
+        for (Node<K,V> e : data.values()) {
+            Object v = e.value;
+            if (value.equals(v) && !hasExpired(e, now))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Maps the specified key to the specified value in this cache,
+     * possibly evicting other entries.
+     *
+     * @return the previous unexpired value associated with {@code key},
+     *         or {@code null} if there was none
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous unexpired value associated with the specified
+     *         key, or {@code null} if there was none
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    /** Implementation for put and putIfAbsent */
+    final V putVal(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        int weight = weigh(key, value);
+        long now = System.nanoTime();
+        Node<K,V> node = null;
+        for (;;) {
+            Node<K,V> e = data.get(key);
+            if (e == null) {
+                if (node == null)
+                    node = new Node<K,V>(key, value, weight, now);
+                if ((e = data.putIfAbsent(key, node)) == null) {
+                    afterWrite(new AddTask(node));
+                    return null;
+                }
+            }
+            V oldValue;
+            synchronized (e) {
+                if (e.state != ALIVE)
+                    continue;            // removed; retry
+                oldValue = e.value;
+                if (hasExpired(e, now))
+                    oldValue = null;
+                else if (onlyIfAbsent) {
+                    afterRead(e, now);
+                    return oldValue;
+                }
+                e.value = value;
+                e.weight = weight;
+                e.writeTime = now;
+                e.accessTime = now;
+            }
+            afterWrite(new UpdateTask(e));
+            return oldValue;
+        }
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this cache.
+     *
+     * @return the previous unexpired value associated with {@code key},
+     *         or {@code null} if there was none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        Node<K,V> e = data.get(key);
+        return (e == null) ? null : removeNode(e, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        Node<K,V> e;
+        return (value != null && (e = data.get(key)) != null &&
+                removeNode(e, value) != null);
+    }
+
+    /**
+     * Removes a node if alive, unexpired, and holding the given value if
+     * non-null.  Returns its value, or null if not removed.
+     */
+    final V removeNode(Node<K,V> e, Object cv) {
+        V oldValue;
+        synchronized (e) {
+            if (e.state != ALIVE)
+                return null;
+            oldValue = e.value;
+            boolean expired = hasExpired(e, System.nanoTime());
+            if (cv != null && (expired || !cv.equals(oldValue)))
+                return null;
+            data.remove(e.key, e);
+            e.state = RETIRED;
+            if (expired)
+                oldValue = null;
+        }
+        afterWrite(new RemovalTask(e));
+        return oldValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        return replaceNode(key, oldValue, newValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous unexpired value associated with the specified
+     *         key, or {@code null} if there was none
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        return replaceNode(key, null, value);
+    }
+
+    /**
+     * Replaces the value of a live, unexpired node, conditional upon
+     * match of cv if non-null.  Returns the old value, or null if not
+     * replaced.
+     */
+    final V replaceNode(K key, Object cv, V value) {
+        Node<K,V> e = data.get(key);
+        if (e == null)
+            return null;
+        int weight = weigh(key, value);
+        long now = System.nanoTime();
+        V oldValue;
+        synchronized (e) {
+            if (e.state != ALIVE || hasExpired(e, now))
+                return null;
+            oldValue = e.value;
+            if (cv != null && !cv.equals(oldValue))
+                return null;
+            e.value = value;
+            e.weight = weight;
+            e.writeTime = now;
+            e.accessTime = now;
+        }
+        afterWrite(new UpdateTask(e));
+        return oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this cache.
+     */
+    public void clear() {
+        for (Node<K,V> e : data.values())
+            removeNode(e, null);
+        cleanUp();
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Returns a {@link Set} view of the unexpired keys in this cache.
+     * Removal through the view removes the mapping.
+     *
+     * @return the set view
+     */
+    public Set<K> keySet() {
+        Set<K> ks = keySet;
+        return (ks != null) ? ks : (keySet = new KeySetView());
+    }
+
+    /**
+     * Returns a {@link Collection} view of the unexpired values in this
+     * cache.
+     *
+     * @return the collection view
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        return (vs != null) ? vs : (values = new ValuesView());
+    }
+
+    /**
+     * Returns a {@link Set} view of the unexpired mappings in this cache.
+     * The entries' {@code setValue} writes through with {@link #put}.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySetView());
+    }
+
+    /**
+     * Iterates over live, unexpired nodes of the backing map.
+     */
+    abstract class BaseIterator {
+        final Iterator<Node<K,V>> it = data.values().iterator();
+        Node<K,V> nextNode, lastReturned;
+        V nextValue;
+
+        BaseIterator() { advance(); }
+
+        final void advance() {
+            long now = System.nanoTime();
+            while (it.hasNext()) {
+                Node<K,V> e = it.next();
+                V v = e.value;
+                if (e.state == ALIVE && !hasExpired(e, now)) {
+                    nextNode = e;
+                    nextValue = v;
+                    return;
+                }
+            }
+            nextNode = null;
+            nextValue = null;
+        }
+
+        public final boolean hasNext() { return nextNode != null; }
+
+        final Node<K,V> nextNode() {
+            Node<K,V> e = nextNode;
+            if (e == null)
+                throw new NoSuchElementException();
+            lastReturned = e;
+            return e;
+        }
+
+        public final void remove() {
+            Node<K,V> e = lastReturned;
+            if (e == null)
+                throw new IllegalStateException();
+            lastReturned = null;
+            removeNode(e, null);
+        }
+    }
+
+    final class KeyIterator extends BaseIterator implements Iterator<K> {
+        public K next() {
+            K k = nextNode().key;
+            advance();
+            return k;
+        }
+    }
+
+    final class ValueIterator extends BaseIterator implements Iterator<V> {
+        public V next() {
+            nextNode();
+            V v = nextValue;
+            advance();
+            return v;
+        }
+    }
+
+    final class EntryIterator extends BaseIterator
+        implements Iterator<Map.Entry<K,V>> {
+        public Map.Entry<K,V> next() {
+            Node<K,V> e = nextNode();
+            Map.Entry<K,V> r = new WriteThroughEntry(e.key, nextValue);
+            advance();
+            return r;
+        }
+    }
+
+    /**
+     * Exported entry whose setValue writes through to the cache.
+     */
+    final class WriteThroughEntry extends AbstractMap.SimpleEntry<K,V> {
+        private static final long serialVersionUID = 1L;
+        WriteThroughEntry(K key, V value) { super(key, value); }
+        public V setValue(V value) {
+            if (value == null) throw new NullPointerException();
+            V v = super.setValue(value);
+            put(getKey(), value);
+            return v;
+        }
+    }
+
+    final class KeySetView extends AbstractSet<K> {
+        public int size()                 { return ConcurrentCache.this.size(); }
+        public void clear()               { ConcurrentCache.this.clear(); }
+        public boolean contains(Object o) { return containsKey(o); }
+        public boolean remove(Object o)   { return ConcurrentCache.this.remove(o) != null; }
+        public Iterator<K> iterator()     { return new KeyIterator(); }
+    }
+
+    final class ValuesView extends AbstractCollection<V> {
+        public int size()                 { return ConcurrentCache.this.size(); }
+        public void clear()               { ConcurrentCache.this.clear(); }
+        public boolean contains(Object o) { return containsValue(o); }
+        public Iterator<V> iterator()     { return new ValueIterator(); }
+    }
+
+    final class EntrySetView extends AbstractSet<Map.Entry<K,V>> {
+        public int size()                 { return ConcurrentCache.this.size(); }
+        public void clear()               { ConcurrentCache.this.clear(); }
+        public Iterator<Map.Entry<K,V>> iterator() { return new EntryIterator(); }
+        public boolean contains(Object o) {
+            Object k, v, r; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    (r = peek(k)) != null &&
+                    (v == r || v.equals(r)));
+        }
+        public boolean remove(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    ConcurrentCache.this.remove(k, v));
+        }
+    }
+
+    /**
+     * Returns the unexpired value for a key without recording an access.
+     */
+    final V peek(Object key) {
+        Node<K,V> e = data.get(key);
+        if (e == null)
+            return null;
+        V v = e.value;
+        return hasExpired(e, System.nanoTime()) ? null : v;
+    }
+
+    /* ---------------- Recording -------------- */
+
+    final int weigh(K key, V value) {
+        ToIntBiFunction<? super K, ? super V> w = weigher;
+        if (w == null)
+            return 1;
+        int weight = w.applyAsInt(key, value);
+        if (weight < 0)
+            throw new IllegalArgumentException("negative weight");
+        return weight;
+    }
+
+    final boolean hasExpired(Node<K,V> e, long now) {
+        long d;
+        return (((d = expireAfterWriteNanos) != 0L && now - e.writeTime >= d) ||
+                ((d = expireAfterAccessNanos) != 0L && now - e.accessTime >= d));
+    }
+
+    /**
+     * Records a read in the calling thread's read buffer, creating
+     * stripes on contention as in Striped64, and drains the buffers
+     * if one is full.
+     */
+    final void afterRead(Node<K,V> e, long now) {
+        if (expireAfterAccessNanos != 0L)
+            e.accessTime = now;
+        int h = ThreadLocalRandom.getProbe();
+        if (h == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = ThreadLocalRandom.getProbe();
+        }
+        for (int attempts = 0; attempts < 3; ++attempts) {
+            ReadBuffer<K,V>[] bs = readBuffers;
+            int n = bs.length;
+            int r = bs[h & (n - 1)].offer(e);
+            if (r == OFFERED)
+                return;
+            if (r == FULL) {
+                tryDrain();
+                return;
+            }
+            if (n < MAX_STRIPES && stripesBusy == 0 && readBuffers == bs &&
+                U.compareAndSwapInt(this, STRIPESBUSY, 0, 1)) {
+                try {
+                    if (readBuffers == bs) {  // expand unless stale
+                        @SuppressWarnings("unchecked")
+                        ReadBuffer<K,V>[] rs =
+                            (ReadBuffer<K,V>[])new ReadBuffer<?,?>[n << 1];
+                        System.arraycopy(bs, 0, rs, 0, n);
+                        for (int i = n; i < rs.length; ++i)
+                            rs[i] = new ReadBuffer<K,V>();
+                        readBuffers = rs;
+                    }
+                } finally {
+                    stripesBusy = 0;
+                }
+            }
+            h = ThreadLocalRandom.advanceProbe(h);
+        }
+        // the read is dropped; the policy tolerates lost reads
+    }
+
+    /**
+     * Records a write, waiting for the eviction lock if too many writes
+     * are pending, and otherwise trying to perform maintenance.
+     */
+    final void afterWrite(Runnable task) {
+        writeBuffer.add(task);
+        if (pendingWrites.incrementAndGet() > WRITE_BUFFER_MAX)
+            cleanUp();
+        else
+            tryDrain();
+    }
+
+    /**
+     * Performs maintenance if the eviction lock is free.
+     */
+    final void tryDrain() {
+        final ReentrantLock lock = evictionLock;
+        if (lock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                lock.unlock();
+            }
+            drainIfPending();
+        }
+    }
+
+    /**
+     * Rechecks for writes enqueued while the lock was held by another
+     * thread, so that they are not left until the next access.
+     */
+    private void drainIfPending() {
+        final ReentrantLock lock = evictionLock;
+        while (!writeBuffer.isEmpty() && lock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /* ---------------- Maintenance -------------- */
+
+    /**
+     * Replays buffered reads and writes, then expires and evicts.
+     * Called with the eviction lock held.
+     */
+    final void maintenance() {
+        for (ReadBuffer<K,V> b : readBuffers)
+            b.drainTo(this);
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            pendingWrites.decrementAndGet();
+            task.run();
+        }
+        expireEntries();
+        evictEntries();
+    }
+
+    /**
+     * Applies a read.  An entry in the window moves to its back; an
+     * entry on probation is promoted to the protected segment, demoting
+     * the eldest protected entries if the segment is full.
+     */
+    final void onAccess(Node<K,V> e) {
+        sketch.increment(e.key);
+        if (!e.linked)
+            return;
+        switch (e.queue) {
+        case WINDOW:
+            window.moveToBack(e);
+            break;
+        case PROBATION:
+            probation.unlink(e);
+            e.queue = PROTECTED;
+            protectedQueue.linkLast(e);
+            demoteFromProtected();
+            break;
+        default:
+            protectedQueue.moveToBack(e);
+        }
+    }
+
+    private void demoteFromProtected() {
+        while (protectedQueue.weight > protectedMaximum) {
+            Node<K,V> d = protectedQueue.first;
+            if (d == null)
+                break;
+            protectedQueue.unlink(d);
+            d.queue = PROBATION;
+            probation.linkLast(d);
+        }
+    }
+
+    private AccessOrderDeque<K,V> queueOf(Node<K,V> e) {
+        return (e.queue == WINDOW) ? window :
+            (e.queue == PROBATION) ? probation : protectedQueue;
+    }
+
+    /** Links a newly added node into the window. */
+    final class AddTask implements Runnable {
+        final Node<K,V> node;
+        AddTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> e = node;
+            if (e.state != ALIVE || e.linked)
+                return;   // removed before being added
+            int w = e.weight;
+            e.policyWeight = w;
+            weightedSize += w;
+            e.queue = WINDOW;
+            e.linked = true;
+            window.linkLast(e);
+            if (expireAfterWriteNanos != 0L)
+                writeOrder.linkLast(e);
+            sketch.increment(e.key);
+        }
+    }
+
+    /** Accounts for a changed value and reorders the node. */
+    final class UpdateTask implements Runnable {
+        final Node<K,V> node;
+        UpdateTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> e = node;
+            if (e.state != ALIVE || !e.linked)
+                return;
+            AccessOrderDeque<K,V> q = queueOf(e);
+            int w = e.weight, d = w - e.policyWeight;
+            e.policyWeight = w;
+            weightedSize += d;
+            q.weight += d;
+            if (expireAfterWriteNanos != 0L) {
+                writeOrder.unlink(e);
+                writeOrder.linkLast(e);
+            }
+            onAccess(e);
+        }
+    }
+
+    /** Unlinks a removed node. */
+    final class RemovalTask implements Runnable {
+        final Node<K,V> node;
+        RemovalTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            makeDead(node);
+        }
+    }
+
+    /**
+     * Unlinks a retired node from the policy, if not already done.
+     */
+    final void makeDead(Node<K,V> e) {
+        if (e.state == DEAD)
+            return;
+        e.state = DEAD;
+        if (e.linked) {
+            queueOf(e).unlink(e);
+            if (expireAfterWriteNanos != 0L)
+                writeOrder.unlink(e);
+            e.linked = false;
+            weightedSize -= e.policyWeight;
+        }
+    }
+
+    /**
+     * Removes a node chosen by the policy from the map and the policy.
+     */
+    final void evict(Node<K,V> e) {
+        synchronized (e) {
+            if (e.state == ALIVE) {
+                data.remove(e.key, e);
+                e.state = RETIRED;
+            }
+        }
+        makeDead(e);
+    }
+
+    /**
+     * Removes a node found expired at the front of a deque from the map
+     * and the policy, unless a write has refreshed it since the test.
+     * Returns false if it was refreshed, leaving it to be moved by the
+     * pending UpdateTask.
+     */
+    final boolean expire(Node<K,V> e, long now) {
+        synchronized (e) {
+            if (e.state == ALIVE) {
+                if (!hasExpired(e, now))
+                    return false;
+                data.remove(e.key, e);
+                e.state = RETIRED;
+            }
+        }
+        makeDead(e);
+        return true;
+    }
+
+    /**
+     * Removes expired entries from the fronts of the write-order and
+     * access-order deques.  Reads may be lost, so access order is only
+     * approximate and some expired entries are left for later passes;
+     * they are never visible to retrievals.  Each scan stops at an entry
+     * refreshed by a concurrent write, whose update is still pending.
+     */
+    final void expireEntries() {
+        long now = System.nanoTime();
+        long d;
+        if ((d = expireAfterWriteNanos) != 0L) {
+            Node<K,V> e;
+            while ((e = writeOrder.first) != null && now - e.writeTime >= d &&
+                   expire(e, now))
+                ;
+        }
+        if ((d = expireAfterAccessNanos) != 0L) {
+            expireFront(window, now, d);
+            expireFront(probation, now, d);
+            expireFront(protectedQueue, now, d);
+        }
+    }
+
+    private void expireFront(AccessOrderDeque<K,V> q, long now, long d) {
+        Node<K,V> e;
+        while ((e = q.first) != null && now - e.accessTime >= d &&
+               expire(e, now))
+            ;
+    }
+
+    /**
+     * Moves entries beyond the window's share to the back of the
+     * probation segment, then evicts until within the maximum, letting
+     * each such candidate compete against the eldest entry on probation.
+     */
+    final void evictEntries() {
+        Node<K,V> candidate = null;
+        while (window.weight > windowMaximum) {
+            Node<K,V> e = window.first;
+            if (e == null)
+                break;
+            window.unlink(e);
+            e.queue = PROBATION;
+            probation.linkLast(e);
+            if (candidate == null)
+                candidate = e;
+        }
+        while (weightedSize > maximumWeight) {
+            Node<K,V> victim = probation.first;
+            if (victim == null) {
+                victim = (protectedQueue.first != null) ?
+                    protectedQueue.first : window.first;
+                if (victim == null)
+                    break;
+                evict(victim);
+            }
+            else if (candidate == null || candidate == victim) {
+                if (candidate != null)
+                    candidate = candidate.next;
+                evict(victim);
+            }
+            else {
+                Node<K,V> c = candidate;
+                candidate = c.next;
+                if (admit(c, victim))
+                    evict(victim);
+                else
+                    evict(c);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the candidate should replace the victim: if it is
+     * used more often, or occasionally when a popular candidate ties,
+     * to defeat attacks that keep a victim warm by hash collision.
+     */
+    final boolean admit(Node<K,V> candidate, Node<K,V> victim) {
+        if (candidate.policyWeight > maximumWeight)
+            return false;
+        int cf = sketch.frequency(candidate.key);
+        int vf = sketch.frequency(victim.key);
+        if (cf > vf)
+            return true;
+        if (cf <= 5)
+            return false;
+        int r = randomSeed;
+        r ^= r << 13; r ^= r >>> 17; r ^= r << 5;
+        randomSeed = r;
+        return (r & 127) == 0;
+    }
+
+    /* ---------------- Expiration -------------- */
+
+    /**
+     * Holds the shared expiration scheduler, created on first use.
+     */
+    static final class Expirer {
+        static final ScheduledThreadPoolExecutor scheduler;
+        static {
+            scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "ConcurrentCache-Expirer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    /**
+     * Performs maintenance without keeping the cache reachable, and
+     * cancels itself once the cache has been collected.
+     */
+    static final class CleanupTask implements Runnable {
+        final WeakReference<ConcurrentCache<?,?>> ref;
+        CleanupTask(ConcurrentCache<?,?> cache) {
+            ref = new WeakReference<ConcurrentCache<?,?>>(cache);
+        }
+        public void run() {
+            ConcurrentCache<?,?> c = ref.get();
+            if (c == null)
+                throw new CancellationException(); // suppresses further runs
+            c.tryDrain();
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long STRIPESBUSY;
+    private static final long WRITES;
+    private static final long READS;
+    private static final long RBASE;
+    private static final int RSHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            STRIPESBUSY = U.objectFieldOffset
+                (ConcurrentCache.class.getDeclaredField("stripesBusy"));
+            Class<?> bk = ReadBuffer.class;
+            WRITES = U.objectFieldOffset(bk.getDeclaredField("writes"));
+            READS = U.objectFieldOffset(bk.getDeclaredField("reads"));
+            RBASE = U.arrayBaseOffset(Object[].class);
+            int scale = U.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            RSHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,1546 @@
+package java.util.concurrent;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * A hash table supporting full concurrency of retrievals and high
+ * expected concurrency for updates, whose keys and values are stored
+ * serialized outside the Java heap.  The table itself follows
+ * {@link ConcurrentHashMap}: an array of bins, lock-free insertion into
+ * empty bins by CAS of the bin head, per-bin locking otherwise, and
+ * cooperative incremental resizing.  Each bin node, however, carries only
+ * the key hash and a reference to a <em>record</em> holding the encoded
+ * key and value in a pooled direct {@link ByteBuffer} <em>slab</em>, so
+ * the garbage collector sees one small object per mapping instead of a
+ * node plus a key and value object graph.
+ *
+ * <p>Keys and values are converted to and from bytes by the {@link Codec}s
+ * supplied at construction.  Keys are compared by their encoded bytes, so
+ * a key codec must be deterministic and must encode two keys to the same
+ * bytes exactly when they are {@code equals}.  Every retrieval decodes a
+ * fresh value object; updating an object obtained from this map has no
+ * effect on the map.
+ *
+ * <p>Records are bump-allocated in slabs of a fixed size.  Replacing or
+ * removing a mapping releases its record; once every record in a retired
+ * slab has been released the slab is returned to a small pool for reuse,
+ * or dropped so that its memory is reclaimed when the buffer is
+ * collected.  Readers never block: a record is validated against a
+ * per-slab generation number after it has been read, in the manner of a
+ * {@link java.util.concurrent.locks.StampedLock} optimistic read, and the
+ * read is retried if its slab was recycled meanwhile.  The off-heap
+ * footprint is reported by {@link #getBufferPoolMXBean}.
+ *
+ * <p>Like {@code ConcurrentHashMap}, this class does not allow
+ * {@code null} to be used as a key or value, its iterators are
+ * <i>weakly consistent</i>, and aggregate status methods such as
+ * {@code size} are only estimates while updates are in flight.  This
+ * class is not serializable.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @see ConcurrentHashMap
+ * @since 1.8
+ */
+public class ConcurrentOffHeapMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V> {
+
+    /**
+     * Converts objects to and from their byte representation.
+     *
+     * @param <T> the type of encoded objects
+     */
+    public interface Codec<T> {
+        /**
+         * Returns the number of bytes {@link #encode} will write for the
+         * given object.
+         *
+         * @param t the object
+         * @return the encoded size in bytes
+         */
+        int encodedSize(T t);
+
+        /**
+         * Writes exactly {@code encodedSize(t)} bytes representing the
+         * given object at the buffer's current position.
+         *
+         * @param t the object
+         * @param dst the buffer to write to
+         */
+        void encode(T t, ByteBuffer dst);
+
+        /**
+         * Reads an object from the bytes between the buffer's position
+         * and limit.
+         *
+         * @param src the buffer holding the encoded object
+         * @return the decoded object
+         */
+        T decode(ByteBuffer src);
+    }
+
+    /* ---------------- Constants -------------- */
+
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MIN_TRANSFER_STRIDE = 16;
+    private static final int RESIZE_STAMP_BITS = 16;
+    private static final int MAX_RESIZERS = (1 << (32 - RESIZE_STAMP_BITS)) - 1;
+    private static final int RESIZE_STAMP_SHIFT = 32 - RESIZE_STAMP_BITS;
+    static final int MOVED     = -1; // hash for forwarding nodes
+    static final int HASH_BITS = 0x7fffffff; // usable bits of normal node hash
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The default slab size, in bytes.
+     */
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    /**
+     * The number of empty slabs kept for reuse rather than dropped.
+     */
+    static final int MAX_POOLED_SLABS = 4;
+
+    /*
+     * Record references pack a slab generation, slab id and byte
+     * offset into a long.  A reference is only valid while the slab's
+     * generation matches, so readers can detect reuse of a slab.
+     * Records start with two ints (key and value lengths), followed by
+     * the key and value bytes, padded to a multiple of eight.
+     */
+    static final int OFFSET_BITS = 28;
+    static final int ID_BITS     = 16;
+    static final int GEN_BITS    = 64 - OFFSET_BITS - ID_BITS;
+    static final int MAX_SLAB_SIZE = 1 << OFFSET_BITS;
+    static final int MAX_SLABS     = 1 << ID_BITS;
+    static final int GEN_MASK      = (1 << GEN_BITS) - 1;
+    static final int HEADER_SIZE   = 8;
+
+    /** The {@code top} of a slab that accepts no further records. */
+    static final int RETIRED = -1;
+
+    static long ref(int gen, int id, int offset) {
+        return ((long)gen << (OFFSET_BITS + ID_BITS)) |
+            ((long)id << OFFSET_BITS) | offset;
+    }
+    /**
+     * Returns the generation following g.  Generations are never zero,
+     * so that no valid reference is zero.
+     */
+    static int nextGen(int g) {
+        return ((g + 1) & GEN_MASK) == 0 ? 1 : (g + 1) & GEN_MASK;
+    }
+
+    static int refGen(long ref)    { return (int)(ref >>> (OFFSET_BITS + ID_BITS)); }
+    static int refId(long ref)     { return (int)(ref >>> OFFSET_BITS) & (MAX_SLABS - 1); }
+    static int refOffset(long ref) { return (int)ref & (MAX_SLAB_SIZE - 1); }
+
+    static int recordSize(int klen, int vlen) {
+        return (HEADER_SIZE + klen + vlen + 7) & ~7;
+    }
+
+    /**
+     * Returned by record readers when the record's slab was recycled
+     * while it was being read.
+     */
+    static final Object STALE = new Object();
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * Bin entry.  The record reference is replaced (under the bin lock)
+     * when the value changes, and cleared when the node is unlinked.
+     */
+    static class Node {
+        final int hash;
+        volatile long ref;
+        volatile Node next;
+
+        Node(int hash, long ref, Node next) {
+            this.hash = hash;
+            this.ref = ref;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A node inserted at head of bins during transfer operations.
+     */
+    static final class ForwardingNode extends Node {
+        final Node[] nextTable;
+        ForwardingNode(Node[] tab) {
+            super(MOVED, 0L, null);
+            this.nextTable = tab;
+        }
+    }
+
+    /* ---------------- Slabs -------------- */
+
+    /**
+     * A direct buffer holding records.  The {@code state} word packs the
+     * bump pointer ({@code top}) in its high half and the number of live
+     * record bytes in its low half, so that reserving space and
+     * accounting for it is one CAS, and a retired slab can be recycled
+     * exactly when its live count drops to zero.
+     */
+    static final class Slab {
+        final int id;
+        final boolean pooled;         // standard size, eligible for reuse
+        volatile ByteBuffer buf;      // null once dropped
+        volatile int gen;
+        volatile long state;
+
+        Slab(int id, ByteBuffer buf, boolean pooled) {
+            this.id = id;
+            this.gen = 1;
+            this.buf = buf;
+            this.pooled = pooled;
+        }
+
+        static int top(long state)  { return (int)(state >>> 32); }
+        static int live(long state) { return (int)state; }
+
+        final boolean casState(long cmp, long val) {
+            return U.compareAndSwapLong(this, STATE, cmp, val);
+        }
+    }
+
+    /* ---------------- Table element access -------------- */
+
+    static final Node tabAt(Node[] tab, int i) {
+        return (Node)U.getObjectVolatile(tab, ((long)i << ASHIFT) + ABASE);
+    }
+
+    static final boolean casTabAt(Node[] tab, int i, Node c, Node v) {
+        return U.compareAndSwapObject(tab, ((long)i << ASHIFT) + ABASE, c, v);
+    }
+
+    static final void setTabAt(Node[] tab, int i, Node v) {
+        U.putObjectVolatile(tab, ((long)i << ASHIFT) + ABASE, v);
+    }
+
+    static final int spread(int h) {
+        return (h ^ (h >>> 16)) & HASH_BITS;
+    }
+
+    static final int resizeStamp(int n) {
+        return Integer.numberOfLeadingZeros(n) | (1 << (RESIZE_STAMP_BITS - 1));
+    }
+
+    private static final int tableSizeFor(int c) {
+        int n = c - 1;
+        n |= n >>> 1;
+        n |= n >>> 2;
+        n |= n >>> 4;
+        n |= n >>> 8;
+        n |= n >>> 16;
+        return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    /* ---------------- Fields -------------- */
+
+    transient volatile Node[] table;
+    private transient volatile Node[] nextTable;
+    private transient volatile int sizeCtl;
+    private transient volatile int transferIndex;
+    private final LongAdder count = new LongAdder();
+
+    final Codec<K> keyCodec;
+    final Codec<V> valueCodec;
+    final int slabSize;
+
+    /** Slabs by id; replaced under slabLock when grown. */
+    volatile Slab[] slabs = new Slab[16];
+    /** The slab new records are carved from. */
+    volatile Slab current;
+    /** Number of slab ids handed out; guarded by slabLock. */
+    int slabIds;
+    /** Empty standard slabs and released ids; guarded by slabLock. */
+    final ArrayDeque<Slab> pool = new ArrayDeque<Slab>();
+    final ArrayDeque<Slab> dropped = new ArrayDeque<Slab>();
+    final ReentrantLock slabLock = new ReentrantLock();
+
+    /** Accounting exported through the buffer pool MXBean. */
+    final AtomicLong slabCount = new AtomicLong();
+    final AtomicLong slabCapacity = new AtomicLong();
+    final LongAdder liveBytes = new LongAdder();
+    private final BufferPoolMXBean poolBean;
+
+    /**
+     * Maps whose buffer pools are published for monitoring; guarded by
+     * itself.  Every map is published on construction until it becomes
+     * unreachable.
+     */
+    private static final ArrayList<PoolRef> publishedPools =
+        new ArrayList<PoolRef>();
+
+    /** Queue of publishedPools references cleared by the collector */
+    private static final ReferenceQueue<Object> stalePoolRefs =
+        new ReferenceQueue<Object>();
+
+    /**
+     * Invoked, while holding the publishedPools lock, with the pool
+     * name and bean when a map is published, and with the name and
+     * null when it is found unreachable.  Set (reflectively, as it lies
+     * in another package) by java.lang.management.PlatformComponent
+     * when the platform MBeanServer is created, so that the
+     * BufferPoolMXBeans registered there follow the live maps; null
+     * until then.
+     */
+    private static volatile BiConsumer<String, BufferPoolMXBean> poolHook;
+
+    /**
+     * A publishedPools entry, holding the bean of its map, which does
+     * not keep the map reachable.
+     */
+    static final class PoolRef extends WeakReference<Object> {
+        final BufferPoolMXBean bean;
+        PoolRef(Object map, BufferPoolMXBean bean) {
+            super(map, stalePoolRefs);
+            this.bean = bean;
+        }
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Creates a new, empty map with the default initial table size (16)
+     * and slab size (1 MiB).
+     *
+     * @param keyCodec the codec for keys
+     * @param valueCodec the codec for values
+     * @throws NullPointerException if either codec is null
+     */
+    public ConcurrentOffHeapMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        this(keyCodec, valueCodec, DEFAULT_CAPACITY, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Creates a new, empty map with an initial table size accommodating
+     * the specified number of elements, carving records from direct
+     * buffers of the given size.  Records larger than a slab are given a
+     * buffer of their own.
+     *
+     * @param keyCodec the codec for keys
+     * @param valueCodec the codec for values
+     * @param initialCapacity the implementation performs internal
+     * sizing to accommodate this many elements
+     * @param slabSize the size in bytes of each pooled direct buffer
+     * @throws IllegalArgumentException if the initial capacity is
+     * negative, or the slab size is less than 64 or greater than 2^28
+     * @throws NullPointerException if either codec is null
+     */
+    public ConcurrentOffHeapMap(Codec<K> keyCodec, Codec<V> valueCodec,
+                                int initialCapacity, int slabSize) {
+        if (keyCodec == null || valueCodec == null)
+            throw new NullPointerException();
+        if (initialCapacity < 0 || slabSize < 64 || slabSize > MAX_SLAB_SIZE)
+            throw new IllegalArgumentException();
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.slabSize = slabSize & ~7;
+        this.sizeCtl = ((initialCapacity >= (MAXIMUM_CAPACITY >>> 1)) ?
+                        MAXIMUM_CAPACITY :
+                        tableSizeFor(initialCapacity + (initialCapacity >>> 1) + 1));
+        this.poolBean = new PoolBean(
+            "ConcurrentOffHeapMap@" +
+            Integer.toHexString(System.identityHashCode(this)),
+            slabCount, slabCapacity, liveBytes);
+        publishPool(this, poolBean);
+    }
+
+    public int size() {
+        long n = count.sum();
+        return ((n < 0L) ? 0 :
+                (n > (long)Integer.MAX_VALUE) ? Integer.MAX_VALUE :
+                (int)n);
+    }
+
+    public boolean isEmpty() {
+        return count.sum() <= 0L;
+    }
+
+    /**
+     * Returns the number of mappings.  This method should be used
+     * instead of {@link #size} because the map may hold more mappings
+     * than can be represented as an int.
+     *
+     * @return the number of mappings
+     */
+    public long mappingCount() {
+        long n = count.sum();
+        return (n < 0L) ? 0L : n;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        ByteBuffer kb = encodeForeignKey(key);
+        if (kb == null)
+            return null;
+        int h = spread(key.hashCode());
+        for (;;) {
+            Node e = findNode(h, kb);
+            if (e == null)
+                return null;
+            long r = e.ref;
+            if (r == 0L)
+                continue; // removed after it was matched
+            Object v = readValue(r);
+            if (v != STALE) {
+                @SuppressWarnings("unchecked") V val = (V)v;
+                return val;
+            }
+        }
+    }
+
+    /**
+     * Tests if the specified object is a key in this table.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        ByteBuffer kb = encodeForeignKey(key);
+        return kb != null && findNode(spread(key.hashCode()), kb) != null;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This method requires a full traversal of the
+     * map, and compares encoded values.
+     *
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        ByteBuffer vb;
+        try {
+            @SuppressWarnings("unchecked") V v = (V)value;
+            vb = encode(valueCodec, v);
+        } catch (ClassCastException ex) {
+            return false;
+        }
+        Node[] t;
+        if ((t = table) != null) {
+            Traverser it = new Traverser(t, t.length, 0, t.length);
+            for (Node p; (p = it.advance()) != null; ) {
+                long r;
+                while ((r = p.ref) != 0L) {
+                    int m = matchBytes(r, vb, false);
+                    if (m > 0)
+                        return true;
+                    if (m == 0 || p.ref == r)
+                        break;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Maps the specified key to the specified value in this table.
+     * Neither the key nor the value can be null.
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    /** Implementation for put and putIfAbsent */
+    final V putVal(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null) throw new NullPointerException();
+        int hash = spread(key.hashCode());
+        ByteBuffer kb = encode(keyCodec, key);
+        long rec = writeRecord(kb, value);
+        int binCount = 0;
+        for (Node[] tab = table;;) {
+            Node f; int n, i, fh;
+            if (tab == null || (n = tab.length) == 0)
+                tab = initTable();
+            else if ((f = tabAt(tab, i = (n - 1) & hash)) == null) {
+                if (casTabAt(tab, i, null, new Node(hash, rec, null)))
+                    break;                   // no lock when adding to empty bin
+            }
+            else if ((fh = f.hash) == MOVED)
+                tab = helpTransfer(tab, f);
+            else {
+                long old = 0L;
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        binCount = 1;
+                        for (Node e = f;; ++binCount) {
+                            long r;
+                            if (e.hash == hash &&
+                                keyEquals(r = e.ref, kb)) {
+                                old = r;
+                                if (!onlyIfAbsent)
+                                    e.ref = rec;
+                                break;
+                            }
+                            Node pred = e;
+                            if ((e = e.next) == null) {
+                                pred.next = new Node(hash, rec, null);
+                                break;
+                            }
+                        }
+                    }
+                    if (old != 0L) {
+                        // decode before the old record can be reused
+                        @SuppressWarnings("unchecked")
+                        V oldVal = (V)readValue(old);
+                        free(onlyIfAbsent ? rec : old);
+                        return oldVal;
+                    }
+                }
+                if (binCount != 0)
+                    break;
+            }
+        }
+        addCount(1L, binCount);
+        return null;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this one.
+     *
+     * @param m mappings to be stored in this map
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+            putVal(e.getKey(), e.getValue(), false);
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        ByteBuffer kb = encodeForeignKey(key);
+        return (kb == null) ? null :
+            replaceNode(spread(key.hashCode()), kb, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        if (value == null)
+            return false;
+        ByteBuffer kb = encodeForeignKey(key), cv;
+        if (kb == null)
+            return false;
+        kb = copyOf(kb);
+        try {
+            @SuppressWarnings("unchecked") V v = (V)value;
+            cv = encode(valueCodec, v);
+        } catch (ClassCastException ex) {
+            return false;
+        }
+        return replaceNode(spread(key.hashCode()), kb, null, cv) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        ByteBuffer cv = copyOf(encode(valueCodec, oldValue));
+        return replaceNode(spread(key.hashCode()), encode(keyCodec, key),
+                           newValue, cv) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        return replaceNode(spread(key.hashCode()), encode(keyCodec, key),
+                           value, null);
+    }
+
+    /**
+     * Implementation for the four public remove/replace methods:
+     * Replaces node value with v, conditional upon match of cv if
+     * non-null.  If resulting value is null, delete.  At most one of
+     * kb and cv may be the calling thread's scratch buffer.
+     */
+    final V replaceNode(int hash, ByteBuffer kb, V value, ByteBuffer cv) {
+        long rec = 0L;
+        if (value != null)
+            rec = writeRecord(kb = copyOf(kb), value);
+        for (Node[] tab = table;;) {
+            Node f; int n, i, fh;
+            if (tab == null || (n = tab.length) == 0 ||
+                (f = tabAt(tab, i = (n - 1) & hash)) == null)
+                break;
+            else if ((fh = f.hash) == MOVED)
+                tab = helpTransfer(tab, f);
+            else {
+                boolean validated = false;
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        validated = true;
+                        for (Node e = f, pred = null;;) {
+                            long r;
+                            if (e.hash == hash && keyEquals(r = e.ref, kb)) {
+                                if (cv == null || matchBytes(r, cv, false) > 0) {
+                                    @SuppressWarnings("unchecked")
+                                    V oldVal = (V)readValue(r);
+                                    if (value != null)
+                                        e.ref = rec;
+                                    else {
+                                        e.ref = 0L;
+                                        if (pred != null)
+                                            pred.next = e.next;
+                                        else
+                                            setTabAt(tab, i, e.next);
+                                    }
+                                    free(r);
+                                    if (value == null)
+                                        addCount(-1L, -1);
+                                    return oldVal;
+                                }
+                                break;
+                            }
+                            pred = e;
+                            if ((e = e.next) == null)
+                                break;
+                        }
+                    }
+                }
+                if (validated)
+                    break;
+            }
+        }
+        if (rec != 0L)
+            free(rec);
+        return null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        long delta = 0L; // negative number of deletions
+        int i = 0;
+        Node[] tab = table;
+        while (tab != null && i < tab.length) {
+            Node f = tabAt(tab, i);
+            if (f == null)
+                ++i;
+            else if (f.hash == MOVED) {
+                tab = helpTransfer(tab, f);
+                i = 0; // restart
+            }
+            else {
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        for (Node p = f; p != null; p = p.next) {
+                            long r = p.ref;
+                            p.ref = 0L;
+                            free(r);
+                            --delta;
+                        }
+                        setTabAt(tab, i++, null);
+                    }
+                }
+            }
+        }
+        if (delta != 0L)
+            addCount(delta, -1);
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The entries are decoded snapshots; {@code setValue} writes through
+     * with {@link #put}.  The view's iterators are weakly consistent.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySetView());
+    }
+
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Returns the management interface reporting the direct memory held
+     * by this map: {@code getCount} is the number of slabs,
+     * {@code getTotalCapacity} their combined size, and
+     * {@code getMemoryUsed} the bytes held by live records.  Its object
+     * name has the form {@code java.nio:type=BufferPool,name=}<i>map
+     * name</i>.  Once the platform {@code MBeanServer} has been created,
+     * the bean is registered there for as long as this map is
+     * reachable.
+     *
+     * @return the buffer pool management interface for this map
+     */
+    public BufferPoolMXBean getBufferPoolMXBean() {
+        return poolBean;
+    }
+
+    /**
+     * The bean reports the counters of its map rather than the map
+     * itself, so that registering it does not keep the map reachable.
+     */
+    static final class PoolBean implements BufferPoolMXBean {
+        private final String name;
+        private final AtomicLong slabCount;
+        private final AtomicLong slabCapacity;
+        private final LongAdder liveBytes;
+        PoolBean(String name, AtomicLong slabCount, AtomicLong slabCapacity,
+                 LongAdder liveBytes) {
+            this.name = name;
+            this.slabCount = slabCount;
+            this.slabCapacity = slabCapacity;
+            this.liveBytes = liveBytes;
+        }
+        public String getName()         { return name; }
+        public long getCount()          { return slabCount.get(); }
+        public long getTotalCapacity()  { return slabCapacity.get(); }
+        public long getMemoryUsed()     { return liveBytes.sum(); }
+        public ObjectName getObjectName() {
+            try {
+                return ObjectName.getInstance(
+                    "java.nio:type=BufferPool,name=" + ObjectName.quote(name));
+            } catch (MalformedObjectNameException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+
+    /**
+     * Publishes the pool of a newly constructed map.
+     */
+    private static void publishPool(Object map, BufferPoolMXBean bean) {
+        synchronized (publishedPools) {
+            expungeStalePoolRefs();
+            publishedPools.add(new PoolRef(map, bean));
+            BiConsumer<String, BufferPoolMXBean> hook = poolHook;
+            if (hook != null)
+                hook.accept(bean.getName(), bean);
+        }
+    }
+
+    /**
+     * Removes the entries of maps found unreachable.  Call only when
+     * holding the publishedPools lock.
+     */
+    private static void expungeStalePoolRefs() {
+        for (Reference<?> r; (r = stalePoolRefs.poll()) != null; ) {
+            if (publishedPools.remove(r)) {
+                BiConsumer<String, BufferPoolMXBean> hook = poolHook;
+                if (hook != null)
+                    hook.accept(((PoolRef)r).bean.getName(), null);
+            }
+        }
+    }
+
+    /**
+     * Returns the beans of the maps currently published.  Invoked
+     * reflectively by java.lang.management.PlatformComponent.
+     */
+    private static List<BufferPoolMXBean> getPublishedPools() {
+        List<BufferPoolMXBean> list = new ArrayList<BufferPoolMXBean>();
+        synchronized (publishedPools) {
+            expungeStalePoolRefs();
+            for (PoolRef ref : publishedPools) {
+                if (ref.get() != null)
+                    list.add(ref.bean);
+            }
+        }
+        return list;
+    }
+
+    /* ---------------- Encoding -------------- */
+
+    private static final ThreadLocal<ByteBuffer> scratch =
+        new ThreadLocal<ByteBuffer>();
+
+    /**
+     * Encodes the given object into the calling thread's scratch buffer,
+     * returning it flipped for reading.
+     */
+    static <T> ByteBuffer encode(Codec<T> codec, T t) {
+        int n = codec.encodedSize(t);
+        if (n < 0)
+            throw new IllegalStateException("negative encoded size");
+        ByteBuffer b = scratch.get();
+        if (b == null || b.capacity() < n)
+            scratch.set(b = ByteBuffer.allocate(Math.max(n, 64) * 2));
+        b.clear();
+        codec.encode(t, b);
+        if (b.position() != n)
+            throw new IllegalStateException("codec wrote " + b.position() +
+                                            " bytes, expected " + n);
+        b.flip();
+        return b;
+    }
+
+    /**
+     * Returns a private heap copy of the remaining bytes of b, for use
+     * across a further call to encode.
+     */
+    static ByteBuffer copyOf(ByteBuffer b) {
+        ByteBuffer c = ByteBuffer.allocate(b.remaining()).put(b.duplicate());
+        c.flip();
+        return c;
+    }
+
+    /**
+     * Encodes a lookup key of unchecked type, returning null if it is
+     * of a type the key codec rejects.
+     */
+    private ByteBuffer encodeForeignKey(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        try {
+            @SuppressWarnings("unchecked") K k = (K)key;
+            return encode(keyCodec, k);
+        } catch (ClassCastException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Allocates and fills a record for the given key bytes and value.
+     */
+    private long writeRecord(ByteBuffer kb, V value) {
+        int klen = kb.remaining(), vlen = valueCodec.encodedSize(value);
+        if (vlen < 0)
+            throw new IllegalStateException("negative encoded size");
+        int size = recordSize(klen, vlen);
+        if (size < 0)
+            throw new OutOfMemoryError("record too large");
+        long r = allocate(size);
+        ByteBuffer b = slabs[refId(r)].buf.duplicate();
+        int off = refOffset(r);
+        b.position(off);
+        b.putInt(klen).putInt(vlen).put(kb.duplicate());
+        int vpos = b.position();
+        b.limit(vpos + vlen);
+        try {
+            valueCodec.encode(value, b);
+            if (b.position() != vpos + vlen)
+                throw new IllegalStateException("codec wrote " + (b.position() - vpos) +
+                                                " bytes, expected " + vlen);
+        } catch (RuntimeException | Error ex) {
+            free(r);
+            throw ex;
+        }
+        return r;
+    }
+
+    /**
+     * Returns the slab referenced by r if it has not been recycled.
+     */
+    final Slab slabFor(long r) {
+        Slab[] ss = slabs; Slab s; int id = refId(r);
+        return (id < ss.length && (s = ss[id]) != null &&
+                s.gen == refGen(r)) ? s : null;
+    }
+
+    /**
+     * Returns 1 if the key (or value, if !key) bytes of the record equal
+     * those of the given buffer, 0 if they differ, or -1 if the record
+     * went stale while being read.
+     */
+    final int matchBytes(long r, ByteBuffer cb, boolean key) {
+        Slab s = slabFor(r);
+        if (s == null)
+            return -1;
+        int result;
+        try {
+            ByteBuffer b = s.buf;
+            if (b == null)
+                return -1;
+            int off = refOffset(r), klen = b.getInt(off), vlen = b.getInt(off + 4);
+            int len = key ? klen : vlen, n = cb.remaining(), base = cb.position();
+            int p = off + HEADER_SIZE + (key ? 0 : klen);
+            if (len != n)
+                result = 0;
+            else {
+                int i = 0;
+                for (; i + 8 <= n; i += 8) {
+                    if (b.getLong(p + i) != cb.getLong(base + i))
+                        break;
+                }
+                for (; i < n; ++i) {
+                    if (b.get(p + i) != cb.get(base + i))
+                        break;
+                }
+                result = (i == n) ? 1 : 0;
+            }
+        } catch (RuntimeException ex) {
+            if (s.gen == refGen(r))
+                throw ex;
+            return -1;
+        }
+        U.loadFence();
+        return (s.gen == refGen(r)) ? result : -1;
+    }
+
+    /**
+     * Compares keys within a locked bin, where records cannot go stale.
+     */
+    private boolean keyEquals(long r, ByteBuffer kb) {
+        return r != 0L && matchBytes(r, kb, true) > 0;
+    }
+
+    /**
+     * Decodes the value (or key) of a record, or returns STALE.
+     */
+    final Object readRecord(long r, boolean key) {
+        Slab s = slabFor(r);
+        if (s == null)
+            return STALE;
+        Object result;
+        try {
+            ByteBuffer b = s.buf;
+            if (b == null)
+                return STALE;
+            int off = refOffset(r), klen = b.getInt(off), vlen = b.getInt(off + 4);
+            int p = off + HEADER_SIZE + (key ? 0 : klen);
+            ByteBuffer d = b.duplicate();
+            d.limit(p + (key ? klen : vlen)).position(p);
+            U.loadFence();
+            if (s.gen != refGen(r))
+                return STALE;
+            result = key ? keyCodec.decode(d) : valueCodec.decode(d);
+        } catch (RuntimeException ex) {
+            if (s.gen == refGen(r))
+                throw ex;
+            return STALE;
+        }
+        U.loadFence();
+        return (s.gen == refGen(r)) ? result : STALE;
+    }
+
+    final Object readValue(long r) { return readRecord(r, false); }
+
+    /**
+     * Returns the node for the given key, or null if none.
+     */
+    final Node findNode(int h, ByteBuffer kb) {
+        outer: for (Node[] tab = table;;) {
+            Node e; int n;
+            if (tab == null || (n = tab.length) == 0 ||
+                (e = tabAt(tab, (n - 1) & h)) == null)
+                return null;
+            for (;;) {
+                int eh = e.hash;
+                if (eh == h) {
+                    long r = e.ref;
+                    int m = (r == 0L) ? 0 : matchBytes(r, kb, true);
+                    if (m > 0)
+                        return e;
+                    if (m < 0) {
+                        tab = table;     // record recycled; restart
+                        continue outer;
+                    }
+                }
+                else if (eh < 0) {
+                    tab = ((ForwardingNode)e).nextTable;
+                    continue outer;
+                }
+                if ((e = e.next) == null)
+                    return null;
+            }
+        }
+    }
+
+    /* ---------------- Slab allocation -------------- */
+
+    /**
+     * Reserves a record of the given (aligned) size and returns its
+     * reference.
+     */
+    final long allocate(int size) {
+        if (size > slabSize)
+            return allocateOversize(size);
+        for (;;) {
+            Slab s = current;
+            if (s != null) {
+                long st = s.state;
+                int top = Slab.top(st);
+                if (top != RETIRED && top + size <= slabSize) {
+                    if (s.casState(st, st + ((long)size << 32) + size)) {
+                        liveBytes.add(size);
+                        return ref(s.gen, s.id, top);
+                    }
+                    continue;
+                }
+            }
+            rollSlab(s);
+        }
+    }
+
+    /**
+     * Retires the given current slab, if still current, and installs a
+     * fresh one.
+     */
+    private void rollSlab(Slab s) {
+        final ReentrantLock lock = slabLock;
+        lock.lock();
+        try {
+            if (current == s) {
+                Slab next = pool.poll();
+                if (next == null)
+                    next = newSlab(slabSize, true);
+                current = next;
+                if (s != null)
+                    retire(s);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long allocateOversize(int size) {
+        Slab s;
+        final ReentrantLock lock = slabLock;
+        lock.lock();
+        try {
+            s = newSlab(size, false);
+            s.state = ((long)RETIRED << 32) | size;
+        } finally {
+            lock.unlock();
+        }
+        liveBytes.add(size);
+        return ref(s.gen, s.id, 0);
+    }
+
+    /**
+     * Creates a slab, reusing a dropped slab's id if possible. Called
+     * with slabLock held.
+     */
+    private Slab newSlab(int capacity, boolean pooled) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(capacity);
+        Slab d = dropped.poll();
+        Slab s;
+        if (d != null) {
+            s = new Slab(d.id, buf, pooled);
+            s.gen = nextGen(d.gen);
+        }
+        else {
+            int id = slabIds;
+            if (id >= MAX_SLABS)
+                throw new OutOfMemoryError("Too many off-heap slabs");
+            Slab[] ss = slabs;
+            if (id >= ss.length)
+                slabs = ss = java.util.Arrays.copyOf(ss, Math.min(ss.length << 1, MAX_SLABS));
+            slabIds = id + 1;
+            s = new Slab(id, buf, pooled);
+        }
+        slabs[s.id] = s;
+        slabCount.incrementAndGet();
+        slabCapacity.addAndGet(capacity);
+        return s;
+    }
+
+    /**
+     * Stops allocation from a slab; recycles it at once if empty.
+     * Called with slabLock held.
+     */
+    private void retire(Slab s) {
+        for (;;) {
+            long st = s.state;
+            if (s.casState(st, ((long)RETIRED << 32) | (st & 0xffffffffL))) {
+                if (Slab.live(st) == 0)
+                    recycle(s);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Releases a record.  Called with the owning bin locked, or by the
+     * writer of a record that was never published.
+     */
+    final void free(long r) {
+        Slab s = slabs[refId(r)];
+        ByteBuffer b = s.buf;
+        int off = refOffset(r);
+        int size = recordSize(b.getInt(off), b.getInt(off + 4));
+        liveBytes.add(-size);
+        for (;;) {
+            long st = s.state, nst = st - size;
+            if (s.casState(st, nst)) {
+                if (Slab.live(nst) == 0 && Slab.top(nst) == RETIRED) {
+                    final ReentrantLock lock = slabLock;
+                    lock.lock();
+                    try {
+                        recycle(s);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Invalidates all references into an empty retired slab, then pools
+     * or drops it.  Called with slabLock held.
+     */
+    private void recycle(Slab s) {
+        s.gen = nextGen(s.gen);
+        if (s.pooled && pool.size() < MAX_POOLED_SLABS) {
+            s.state = 0L;
+            pool.push(s);
+        }
+        else {
+            ByteBuffer b = s.buf;
+            s.buf = null;
+            slabs[s.id] = null;
+            dropped.push(s);
+            slabCount.decrementAndGet();
+            slabCapacity.addAndGet(-b.capacity());
+        }
+    }
+
+    /* ---------------- Table Initialization and Resizing -------------- */
+
+    /**
+     * Initializes table, using the size recorded in sizeCtl.
+     */
+    private final Node[] initTable() {
+        Node[] tab; int sc;
+        while ((tab = table) == null || tab.length == 0) {
+            if ((sc = sizeCtl) < 0)
+                Thread.yield(); // lost initialization race; just spin
+            else if (U.compareAndSwapInt(this, SIZECTL, sc, -1)) {
+                try {
+                    if ((tab = table) == null || tab.length == 0) {
+                        int n = (sc > 0) ? sc : DEFAULT_CAPACITY;
+                        table = tab = new Node[n];
+                        sc = n - (n >>> 2);
+                    }
+                } finally {
+                    sizeCtl = sc;
+                }
+                break;
+            }
+        }
+        return tab;
+    }
+
+    /**
+     * Adds to count, and if table is too small and not already
+     * resizing, initiates transfer. If already resizing, helps
+     * perform transfer if work is available.  The count is only
+     * summed when an insertion collided, which at the resize
+     * threshold happens for most insertions.
+     *
+     * @param x the count to add
+     * @param check if <= 0, don't check resize
+     */
+    private final void addCount(long x, int check) {
+        count.add(x);
+        if (check > 0) {
+            Node[] tab, nt; int n, sc;
+            long s = count.sum();
+            while (s >= (long)(sc = sizeCtl) && (tab = table) != null &&
+                   (n = tab.length) < MAXIMUM_CAPACITY) {
+                int rs = resizeStamp(n);
+                if (sc < 0) {
+                    if ((sc >>> RESIZE_STAMP_SHIFT) != rs || sc == rs + 1 ||
+                        sc == rs + MAX_RESIZERS || (nt = nextTable) == null ||
+                        transferIndex <= 0)
+                        break;
+                    if (U.compareAndSwapInt(this, SIZECTL, sc, sc + 1))
+                        transfer(tab, nt);
+                }
+                else if (U.compareAndSwapInt(this, SIZECTL, sc,
+                                             (rs << RESIZE_STAMP_SHIFT) + 2))
+                    transfer(tab, null);
+                s = count.sum();
+            }
+        }
+    }
+
+    /**
+     * Helps transfer if a resize is in progress.
+     */
+    final Node[] helpTransfer(Node[] tab, Node f) {
+        Node[] nextTab; int sc;
+        if (tab != null && (f instanceof ForwardingNode) &&
+            (nextTab = ((ForwardingNode)f).nextTable) != null) {
+            int rs = resizeStamp(tab.length);
+            while (nextTab == nextTable && table == tab &&
+                   (sc = sizeCtl) < 0) {
+                if ((sc >>> RESIZE_STAMP_SHIFT) != rs || sc == rs + 1 ||
+                    sc == rs + MAX_RESIZERS || transferIndex <= 0)
+                    break;
+                if (U.compareAndSwapInt(this, SIZECTL, sc, sc + 1)) {
+                    transfer(tab, nextTab);
+                    break;
+                }
+            }
+            return nextTab;
+        }
+        return table;
+    }
+
+    /**
+     * Moves and/or copies the nodes in each bin to new table, as in
+     * {@code ConcurrentHashMap.transfer}.  Copied nodes share the
+     * record of the node they replace.
+     */
+    private final void transfer(Node[] tab, Node[] nextTab) {
+        int n = tab.length, stride;
+        if ((stride = (NCPU > 1) ? (n >>> 3) / NCPU : n) < MIN_TRANSFER_STRIDE)
+            stride = MIN_TRANSFER_STRIDE; // subdivide range
+        if (nextTab == null) {            // initiating
+            try {
+                nextTab = new Node[n << 1];
+            } catch (Throwable ex) {      // try to cope with OOME
+                sizeCtl = Integer.MAX_VALUE;
+                return;
+            }
+            nextTable = nextTab;
+            transferIndex = n;
+        }
+        int nextn = nextTab.length;
+        ForwardingNode fwd = new ForwardingNode(nextTab);
+        boolean advance = true;
+        boolean finishing = false; // to ensure sweep before committing nextTab
+        for (int i = 0, bound = 0;;) {
+            Node f; int fh;
+            while (advance) {
+                int nextIndex, nextBound;
+                if (--i >= bound || finishing)
+                    advance = false;
+                else if ((nextIndex = transferIndex) <= 0) {
+                    i = -1;
+                    advance = false;
+                }
+                else if (U.compareAndSwapInt
+                         (this, TRANSFERINDEX, nextIndex,
+                          nextBound = (nextIndex > stride ?
+                                       nextIndex - stride : 0))) {
+                    bound = nextBound;
+                    i = nextIndex - 1;
+                    advance = false;
+                }
+            }
+            if (i < 0 || i >= n || i + n >= nextn) {
+                int sc;
+                if (finishing) {
+                    nextTable = null;
+                    table = nextTab;
+                    sizeCtl = (n << 1) - (n >>> 1);
+                    return;
+                }
+                if (U.compareAndSwapInt(this, SIZECTL, sc = sizeCtl, sc - 1)) {
+                    if ((sc - 2) != resizeStamp(n) << RESIZE_STAMP_SHIFT)
+                        return;
+                    finishing = advance = true;
+                    i = n; // recheck before commit
+                }
+            }
+            else if ((f = tabAt(tab, i)) == null)
+                advance = casTabAt(tab, i, null, fwd);
+            else if ((fh = f.hash) == MOVED)
+                advance = true; // already processed
+            else {
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        Node ln, hn;
+                        int runBit = fh & n;
+                        Node lastRun = f;
+                        for (Node p = f.next; p != null; p = p.next) {
+                            int b = p.hash & n;
+                            if (b != runBit) {
+                                runBit = b;
+                                lastRun = p;
+                            }
+                        }
+                        if (runBit == 0) {
+                            ln = lastRun;
+                            hn = null;
+                        }
+                        else {
+                            hn = lastRun;
+                            ln = null;
+                        }
+                        for (Node p = f; p != lastRun; p = p.next) {
+                            int ph = p.hash; long pr = p.ref;
+                            if ((ph & n) == 0)
+                                ln = new Node(ph, pr, ln);
+                            else
+                                hn = new Node(ph, pr, hn);
+                        }
+                        setTabAt(nextTab, i, ln);
+                        setTabAt(nextTab, i + n, hn);
+                        setTabAt(tab, i, fwd);
+                        advance = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /* ---------------- Traversal -------------- */
+
+    /**
+     * Records the table, its length, and current traversal index for a
+     * traverser that must process a region of a forwarded table before
+     * proceeding with current table.
+     */
+    static final class TableStack {
+        int length;
+        int index;
+        Node[] tab;
+        TableStack next;
+    }
+
+    /**
+     * Encapsulates traversal for methods such as containsValue and
+     * iterators, as in {@code ConcurrentHashMap.Traverser}.
+     */
+    static class Traverser {
+        Node[] tab;             // current table; updated if resized
+        Node next;              // the next entry to use
+        TableStack stack, spare; // to save/restore on ForwardingNodes
+        int index;              // index of bin to use next
+        int baseIndex;          // current index of initial table
+        int baseLimit;          // index bound for initial table
+        final int baseSize;     // initial table size
+
+        Traverser(Node[] tab, int size, int index, int limit) {
+            this.tab = tab;
+            this.baseSize = size;
+            this.baseIndex = this.index = index;
+            this.baseLimit = limit;
+            this.next = null;
+        }
+
+        /**
+         * Advances if possible, returning next valid node, or null if none.
+         */
+        final Node advance() {
+            Node e;
+            if ((e = next) != null)
+                e = e.next;
+            for (;;) {
+                Node[] t; int i, n;  // must use locals in checks
+                if (e != null)
+                    return next = e;
+                if (baseIndex >= baseLimit || (t = tab) == null ||
+                    (n = t.length) <= (i = index) || i < 0)
+                    return next = null;
+                if ((e = tabAt(t, i)) != null && e.hash < 0) {
+                    tab = ((ForwardingNode)e).nextTable;
+                    e = null;
+                    pushState(t, i, n);
+                    continue;
+                }
+                if (stack != null)
+                    recoverState(n);
+                else if ((index = i + baseSize) >= n)
+                    index = ++baseIndex; // visit upper slots if present
+            }
+        }
+
+        private void pushState(Node[] t, int i, int n) {
+            TableStack s = spare;  // reuse if possible
+            if (s != null)
+                spare = s.next;
+            else
+                s = new TableStack();
+            s.tab = t;
+            s.length = n;
+            s.index = i;
+            s.next = stack;
+            stack = s;
+        }
+
+        private void recoverState(int n) {
+            TableStack s; int len;
+            while ((s = stack) != null && (index += (len = s.length)) >= n) {
+                n = len;
+                index = s.index;
+                tab = s.tab;
+                s.tab = null;
+                TableStack next = s.next;
+                s.next = spare; // save for reuse
+                stack = next;
+                spare = s;
+            }
+            if (s == null && (index += baseSize) >= n)
+                index = ++baseIndex;
+        }
+    }
+
+    final class EntryIterator extends Traverser
+        implements Iterator<Map.Entry<K,V>> {
+        Map.Entry<K,V> nextEntry, lastReturned;
+
+        EntryIterator(Node[] tab) {
+            super(tab, (tab == null) ? 0 : tab.length, 0,
+                  (tab == null) ? 0 : tab.length);
+            nextEntry = decodeNext();
+        }
+
+        /**
+         * Advances to the next node whose record can be decoded.
+         */
+        @SuppressWarnings("unchecked")
+        private Map.Entry<K,V> decodeNext() {
+            for (Node p; (p = advance()) != null; ) {
+                long r;
+                while ((r = p.ref) != 0L) {
+                    Object k = readRecord(r, true), v;
+                    if (k != STALE && (v = readRecord(r, false)) != STALE)
+                        return new MapEntry((K)k, (V)v);
+                    if (p.ref == r)
+                        break; // superseded copy left behind by a resize
+                }
+            }
+            return null;
+        }
+
+        public boolean hasNext() { return nextEntry != null; }
+
+        public Map.Entry<K,V> next() {
+            Map.Entry<K,V> e = nextEntry;
+            if (e == null)
+                throw new NoSuchElementException();
+            lastReturned = e;
+            nextEntry = decodeNext();
+            return e;
+        }
+
+        public void remove() {
+            Map.Entry<K,V> e = lastReturned;
+            if (e == null)
+                throw new IllegalStateException();
+            lastReturned = null;
+            ConcurrentOffHeapMap.this.remove(e.getKey());
+        }
+    }
+
+    /**
+     * Exported entry: a decoded snapshot whose setValue writes through.
+     */
+    final class MapEntry extends AbstractMap.SimpleEntry<K,V> {
+        private static final long serialVersionUID = 1L;
+        MapEntry(K key, V value) { super(key, value); }
+        public V setValue(V value) {
+            if (value == null) throw new NullPointerException();
+            V v = super.setValue(value);
+            put(getKey(), value);
+            return v;
+        }
+    }
+
+    final class EntrySetView extends AbstractSet<Map.Entry<K,V>> {
+        public int size()                     { return ConcurrentOffHeapMap.this.size(); }
+        public boolean isEmpty()              { return ConcurrentOffHeapMap.this.isEmpty(); }
+        public void clear()                   { ConcurrentOffHeapMap.this.clear(); }
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator(table);
+        }
+        public boolean contains(Object o) {
+            Object k, v, r; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (r = get(k)) != null &&
+                    (v = e.getValue()) != null &&
+                    (v == r || v.equals(r)));
+        }
+        public boolean remove(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    ConcurrentOffHeapMap.this.remove(k, v));
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long SIZECTL;
+    private static final long TRANSFERINDEX;
+    private static final long STATE;
+    private static final long ABASE;
+    private static final int ASHIFT;
+
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentOffHeapMap.class;
+            SIZECTL = U.objectFieldOffset
+                (k.getDeclaredField("sizeCtl"));
+            TRANSFERINDEX = U.objectFieldOffset
+                (k.getDeclaredField("transferIndex"));
+            STATE = U.objectFieldOffset
+                (Slab.class.getDeclaredField("state"));
+            Class<?> ak = Node[].class;
+            ABASE = U.arrayBaseOffset(ak);
+            int scale = U.arrayIndexScale(ak);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -52,6 +52,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.function.BiFunction;
@@ -931,6 +932,388 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
         return null;
     }
 
+    /* ---------------- Bulk insertion -------------- */
+
+    /*
+     * Method putAllSorted inserts entries that arrive in ascending
+     * key order by splicing them in runs rather than one at a time.
+     * A cursor (b) tracks the base-level predecessor of the next
+     * key, so each key costs a comparison or two rather than a
+     * traversal from the head. All consecutive entries that fall
+     * between b and its current successor n are chained into fresh
+     * nodes ending in n, and the whole run is linked in by one CAS
+     * of b.next, so concurrent readers see a run appear at once. If
+     * the CAS fails, the run's nodes are inserted one at a time
+     * using doPut. Index towers for the nodes of a run are then
+     * linked in using an array of per-level predecessors (preds)
+     * that also only moves rightward, and that is recomputed by a
+     * full traversal only when a predecessor is found deleted or a
+     * link fails. Entries that are not in strictly ascending order
+     * relative to the previous entry are inserted with doPut, so the
+     * result is always correct, just slower for unordered input.
+     *
+     * When the map is empty and the source is a large sized and
+     * sorted spliterator, the list is instead built off to the side
+     * in parallel: the spliterator is split across a fork/join tree,
+     * each leaf builds a private chain of nodes and index levels
+     * (as in buildFromSorted), and chains are joined leaf to leaf
+     * at each level, checking order at the seams. The result is
+     * published by CASing the base header's next field from null,
+     * and then installing a head tower over the new index levels.
+     * If the map became nonempty meanwhile, or the input turned out
+     * not to be in strictly ascending order, the chain is instead
+     * inserted using doPut.
+     */
+
+    /** Maximum index level of nodes added by bulk insertion */
+    private static final int MAX_BULK_LEVEL = 31;
+
+    /** Minimum estimated size of a source to build in parallel */
+    private static final long PARALLEL_BUILD_THRESHOLD = 1L << 14;
+
+    /** Minimum number of entries built by each parallel leaf task */
+    private static final long MIN_BUILD_LEAF_SIZE = 1L << 12;
+
+    /**
+     * Returns a random index level for a new node, with the same
+     * distribution as in doPut: zero with probability 3/4, else each
+     * further level with probability 1/2.
+     */
+    static int randomLevel() {
+        int rnd = ThreadLocalRandom.nextSecondarySeed(), level = 0;
+        if ((rnd & 0x80000001) == 0) { // test highest and lowest bits
+            level = 1;
+            while (((rnd >>>= 1) & 1) != 0)
+                ++level;
+        }
+        return level;
+    }
+
+    /**
+     * Inserts the entries of the given iterator, expected in ascending
+     * key order. See above for explanation.
+     */
+    private void mergeSorted(Iterator<? extends Map.Entry<? extends K, ? extends V>> it) {
+        Comparator<? super K> cmp = comparator;
+        Index<K,V>[] preds = null;       // index predecessors, if known
+        Node<K,V> b = null;              // base predecessor, if known
+        K prev = null;                   // last key inserted in order
+        Map.Entry<? extends K, ? extends V> e = it.hasNext() ? it.next() : null;
+        while (e != null) {
+            K key = e.getKey();
+            V value = e.getValue();
+            if (key == null || value == null)
+                throw new NullPointerException();
+            if (prev != null && cpr(cmp, prev, key) >= 0) {
+                doPut(key, value, false); // out of order
+                e = it.hasNext() ? it.next() : null;
+                continue;
+            }
+            if (b == null)
+                b = findPredecessor(key, cmp);
+            Node<K,V> n = b.next;
+            if (n != null) {
+                Object v; int c;
+                Node<K,V> f = n.next;
+                if (n != b.next)                // inconsistent read
+                    continue;
+                if ((v = n.value) == null) {    // n is deleted
+                    n.helpDelete(b, f);
+                    b = null;
+                    continue;
+                }
+                if (b.value == null || v == n) { // b is deleted
+                    b = null;
+                    continue;
+                }
+                if ((c = cpr(cmp, key, n.key)) > 0) {
+                    b = n;
+                    continue;
+                }
+                if (c == 0) {
+                    if (n.casValue(v, value)) {
+                        prev = key;
+                        b = n;
+                        e = it.hasNext() ? it.next() : null;
+                    }
+                    continue;
+                }
+            }
+            else if (b.value == null) {
+                b = null;
+                continue;
+            }
+            // gather the run of entries falling before n
+            Node<K,V> z = new Node<K,V>(key, value, n), last = z;
+            e = null;
+            while (it.hasNext()) {
+                Map.Entry<? extends K, ? extends V> x = it.next();
+                K k = x.getKey();
+                V v = x.getValue();
+                if (k == null || v == null || cpr(cmp, last.key, k) >= 0 ||
+                    (n != null && cpr(cmp, k, n.key) >= 0)) {
+                    e = x;
+                    break;
+                }
+                last = last.next = new Node<K,V>(k, v, n);
+            }
+            prev = last.key;
+            if (b.casNext(n, z)) {
+                b = last;
+                for (Node<K,V> p = z;; p = p.next) {
+                    int level = randomLevel();
+                    if (level > 0)
+                        preds = addIndices(p, level, preds);
+                    if (p == last)
+                        break;
+                }
+            }
+            else {                               // lost race; add singly
+                for (Node<K,V> p = z;; p = p.next) {
+                    @SuppressWarnings("unchecked") V v = (V)p.value;
+                    doPut(p.key, v, false);
+                    if (p == last)
+                        break;
+                }
+                b = null;
+            }
+        }
+    }
+
+    /**
+     * Links in an index tower of the given level for node z, which
+     * is greater than the nodes of all towers previously linked using
+     * preds, growing the head by one level if needed.
+     *
+     * @param z the node
+     * @param level the level of its tower
+     * @param preds the per-level predecessors, or null if unknown
+     * @return the updated predecessors, or null if unknown
+     */
+    private Index<K,V>[] addIndices(Node<K,V> z, int level,
+                                    Index<K,V>[] preds) {
+        Comparator<? super K> cmp = comparator;
+        K key = z.key;
+        HeadIndex<K,V> h = head;
+        int max = h.level;
+        if (level > max)
+            level = max + 1;
+        @SuppressWarnings("unchecked")Index<K,V>[] idxs =
+            (Index<K,V>[])new Index<?,?>[level+1];
+        Index<K,V> idx = null;
+        for (int i = 1; i <= level; ++i)
+            idxs[i] = idx = new Index<K,V>(z, idx, null);
+        if (level > max) { // try to grow by one level
+            if (casHead(h, new HeadIndex<K,V>(h.node, h, idx, level)))
+                preds = null;  // levels changed; recompute
+            --level;
+        }
+        for (int i = 1; i <= level; ++i) {
+            Index<K,V> t = idxs[i];
+            for (;;) {
+                Index<K,V> q, r;
+                if (preds == null || i >= preds.length ||
+                    (q = preds[i]) == null || q.indexesDeletedNode()) {
+                    preds = findPredecessors(key, cmp);
+                    if (i >= preds.length)  // head level was reduced
+                        return preds;
+                    continue;
+                }
+                if ((r = q.right) != null) {
+                    Node<K,V> n = r.node;
+                    // compare before deletion check avoids needing recheck
+                    int c = cpr(cmp, key, n.key);
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            preds[i] = null;
+                        continue;
+                    }
+                    if (c > 0) {
+                        preds[i] = r;
+                        continue;
+                    }
+                }
+                if (q.link(r, t)) {
+                    preds[i] = t;
+                    break;
+                }
+                preds[i] = null;
+            }
+        }
+        if (z.value == null)
+            findNode(key);   // deleted meanwhile; clean up
+        return preds;
+    }
+
+    /**
+     * Returns, indexed by level, the rightmost index at each level
+     * whose node's key is less than the given key, or the head index
+     * of that level if none. Unlinks indexes to deleted nodes along
+     * the way, as does findPredecessor.
+     */
+    private Index<K,V>[] findPredecessors(Object key, Comparator<? super K> cmp) {
+        outer: for (;;) {
+            HeadIndex<K,V> h = head;
+            int j = h.level;
+            @SuppressWarnings("unchecked")Index<K,V>[] preds =
+                (Index<K,V>[])new Index<?,?>[j+1];
+            for (Index<K,V> q = h, r = q.right, d;;) {
+                if (r != null) {
+                    Node<K,V> n = r.node;
+                    K k = n.key;
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            continue outer;  // restart
+                        r = q.right;         // reread r
+                        continue;
+                    }
+                    if (cpr(cmp, key, k) > 0) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                preds[j] = q;
+                if ((d = q.down) == null || --j == 0)
+                    return preds;
+                q = d;
+                r = d.right;
+            }
+        }
+    }
+
+    /**
+     * A privately built chain of nodes with their index levels, used
+     * in parallel bulk builds.
+     */
+    static final class BuildRun<K,V> {
+        final Comparator<? super K> cmp;
+        Node<K,V> first, last;
+        final Index<K,V>[] heads, tails;
+        int maxLevel;
+        boolean ordered = true;  // keys strictly ascending so far
+
+        @SuppressWarnings("unchecked")
+        BuildRun(Comparator<? super K> cmp) {
+            this.cmp = cmp;
+            this.heads = (Index<K,V>[])new Index<?,?>[MAX_BULK_LEVEL+1];
+            this.tails = (Index<K,V>[])new Index<?,?>[MAX_BULK_LEVEL+1];
+        }
+
+        void add(K key, V value) {
+            if (key == null || value == null)
+                throw new NullPointerException();
+            Node<K,V> z = new Node<K,V>(key, value, null);
+            if (last == null)
+                first = z;
+            else {
+                if (ordered && cpr(cmp, last.key, key) >= 0)
+                    ordered = false;
+                last.next = z;
+            }
+            last = z;
+            int level = randomLevel();
+            Index<K,V> idx = null;
+            for (int i = 1; i <= level; ++i) {
+                idx = new Index<K,V>(z, idx, null);
+                if (tails[i] == null)
+                    heads[i] = idx;
+                else
+                    tails[i].right = idx;
+                tails[i] = idx;
+            }
+            if (level > maxLevel)
+                maxLevel = level;
+        }
+
+        /** Appends the given run, which follows this one in the source. */
+        void append(BuildRun<K,V> r) {
+            if (r.first == null)
+                return;
+            if (first == null)
+                first = r.first;
+            else {
+                if (cpr(cmp, last.key, r.first.key) >= 0)
+                    ordered = false;
+                last.next = r.first;
+            }
+            last = r.last;
+            ordered &= r.ordered;
+            for (int i = 1; i <= r.maxLevel; ++i) {
+                Index<K,V> h = r.heads[i];
+                if (h != null) {
+                    if (tails[i] == null)
+                        heads[i] = h;
+                    else
+                        tails[i].right = h;
+                    tails[i] = r.tails[i];
+                }
+            }
+            if (r.maxLevel > maxLevel)
+                maxLevel = r.maxLevel;
+        }
+    }
+
+    /**
+     * Builds a BuildRun from a spliterator, splitting in parallel.
+     */
+    @SuppressWarnings("serial")
+    static final class BulkBuilder<K,V> extends RecursiveTask<BuildRun<K,V>> {
+        final Spliterator<? extends Map.Entry<? extends K, ? extends V>> s;
+        final Comparator<? super K> cmp;
+        final long leafSize;
+        BulkBuilder(Spliterator<? extends Map.Entry<? extends K, ? extends V>> s,
+                    Comparator<? super K> cmp, long leafSize) {
+            this.s = s; this.cmp = cmp; this.leafSize = leafSize;
+        }
+        protected BuildRun<K,V> compute() {
+            Spliterator<? extends Map.Entry<? extends K, ? extends V>> ls;
+            if (s.estimateSize() > leafSize && (ls = s.trySplit()) != null) {
+                BulkBuilder<K,V> left = new BulkBuilder<K,V>(ls, cmp, leafSize);
+                left.fork();
+                BuildRun<K,V> r = new BulkBuilder<K,V>(s, cmp, leafSize).compute();
+                BuildRun<K,V> l = left.join();
+                l.append(r);
+                return l;
+            }
+            BuildRun<K,V> run = new BuildRun<K,V>(cmp);
+            s.forEachRemaining(e -> run.add(e.getKey(), e.getValue()));
+            return run;
+        }
+    }
+
+    /**
+     * Builds the given source in parallel and publishes it if this
+     * map is still empty, else inserts its entries using doPut.
+     */
+    private void buildInParallel(Spliterator<? extends Map.Entry<? extends K, ? extends V>> s) {
+        long leafSize = Math.max(s.estimateSize() /
+                                 (ForkJoinPool.getCommonPoolParallelism() << 3),
+                                 MIN_BUILD_LEAF_SIZE);
+        BuildRun<K,V> run =
+            new BulkBuilder<K,V>(s, comparator, leafSize).invoke();
+        Node<K,V> first = run.first;
+        if (first == null)
+            return;
+        Node<K,V> base = head.node;
+        if (run.ordered && base.casNext(null, first)) {
+            for (HeadIndex<K,V> h;;) {
+                HeadIndex<K,V> newh = null;
+                int top = Math.max(run.maxLevel, 1);
+                for (int i = 1; i <= top; ++i)
+                    newh = new HeadIndex<K,V>(base, newh, run.heads[i], i);
+                if (casHead(h = head, newh))
+                    break;
+            }
+        }
+        else {
+            for (Node<K,V> p = first; p != null; p = p.next) {
+                @SuppressWarnings("unchecked") V v = (V)p.value;
+                doPut(p.key, v, false);
+            }
+        }
+    }
+
     /* ---------------- Deletion -------------- */
 
     /**
@@ -1581,6 +1964,65 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
         return doPut(key, value, false);
     }
 
+    /**
+     * Copies all of the mappings from the specified sorted map to this
+     * map, as if by {@link #putAllSorted(Spliterator)} applied to a
+     * spliterator over its entries.  This is much faster than {@link
+     * #putAll} when the specified map is ordered as this map is.
+     *
+     * @param m the mappings to be stored in this map
+     * @throws ClassCastException if a key cannot be compared with the
+     *         keys currently in the map
+     * @throws NullPointerException if the specified map or any of its
+     *         keys or values are null
+     * @since 1.8
+     */
+    public void putAllSorted(SortedMap<? extends K, ? extends V> m) {
+        putAllSorted(m.entrySet().spliterator());
+    }
+
+    /**
+     * Copies the mappings supplied by the specified spliterator to this
+     * map, replacing the values of keys already present.  The entries
+     * are expected to be in strictly ascending order of their keys, as
+     * ordered by this map; consecutive entries falling between two
+     * keys already in the map are then linked in together by a single
+     * atomic update, and each entry costs about as much as a
+     * comparison rather than a search of the map.  Entries that are
+     * out of order, or duplicate a previous key, are still inserted,
+     * but as if by {@link #put}; their effects are as if all entries
+     * were put in encounter order.
+     *
+     * <p>If this map is empty and the spliterator reports {@link
+     * Spliterator#SIZED} and {@link Spliterator#SORTED}, and many
+     * entries, the map may be built in parallel, using the {@link
+     * ForkJoinPool#commonPool()}, off to the side and then published
+     * in one step, so that concurrent readers see either none or all
+     * of its mappings, although other operations on the map made while
+     * it is built may then take effect after it.  Otherwise, concurrent
+     * readers may see some of the entries added but not others.  If an
+     * exception is thrown, some entries may have been added and others
+     * not.
+     *
+     * @param entries the mappings to be stored in this map
+     * @throws ClassCastException if a key cannot be compared with the
+     *         keys currently in the map
+     * @throws NullPointerException if the specified spliterator or any
+     *         of its entries, keys or values are null
+     * @since 1.8
+     */
+    public void putAllSorted(Spliterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        if (entries == null)
+            throw new NullPointerException();
+        if (entries.hasCharacteristics(Spliterator.SIZED | Spliterator.SORTED) &&
+            entries.estimateSize() >= PARALLEL_BUILD_THRESHOLD &&
+            ForkJoinPool.getCommonPoolParallelism() > 1 &&
+            findFirst() == null)
+            buildInParallel(entries);
+        else
+            mergeSorted(Spliterators.iterator(entries));
+    }
+
     /**
      * Removes the mapping for the specified key from this map if present.
      *
@@ -0,0 +1,1273 @@
+package java.util.concurrent;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread-safe {@link List} with the snapshot semantics of {@link
+ * CopyOnWriteArrayList}, in which each mutative operation creates a
+ * new immutable version of the list, but where versions share all
+ * but a logarithmic part of their structure.
+ *
+ * <p>Elements are held in a tree of nodes of up to 32 entries, each
+ * inner node recording the sizes of its subtrees, so that {@code get}
+ * and {@code set} by index, and {@code add} and {@code remove} at any
+ * position, take time logarithmic (to base 32 for most lists) in the
+ * size of the list, rather than the linear time a copy of the whole
+ * array costs in {@code CopyOnWriteArrayList}.  In exchange, indexed
+ * access is slower than an array access by a small constant factor.
+ * Bulk operations such as {@code removeAll} or {@code sort} rebuild
+ * the list in linear time.
+ *
+ * <p>As with {@code CopyOnWriteArrayList}, iterators, list iterators
+ * and spliterators traverse the version of the list current when they
+ * were created, without synchronization, never throw {@code
+ * ConcurrentModificationException}, and do not support {@code remove},
+ * {@code set} or {@code add}.  Method {@link #snapshot} returns that
+ * version itself, as an immutable list that can be retained and
+ * traversed any number of times, in constant time.  Mutative
+ * operations are serialized by a lock, and are atomic with respect to
+ * each other and to readers; the views returned by {@link #subList}
+ * are not atomic, and operate on the list by index.
+ *
+ * <p>All elements are permitted, including {@code null}.
+ *
+ * <p>Memory consistency effects: As with other concurrent
+ * collections, actions in a thread prior to placing an object into a
+ * {@code CopyOnWriteTrieList}
+ * <a href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that element from
+ * the {@code CopyOnWriteTrieList} in another thread.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ * @see CopyOnWriteArrayList
+ */
+public class CopyOnWriteTrieList<E> extends AbstractList<E>
+    implements List<E>, RandomAccess, Cloneable, java.io.Serializable {
+    private static final long serialVersionUID = -4372946542151478536L;
+
+    /*
+     * Each version is an immutable tree: leaves are Object arrays of
+     * exactly their number of elements (at most WIDTH), and inner
+     * Branch nodes hold up to WIDTH children together with the
+     * cumulative sizes of their subtrees, as in the size tables of
+     * relaxed radix balanced (RRB) vectors, so an index is located by
+     * a binary search per level. All leaves are at the same height.
+     *
+     * Updates copy the path from the root to the affected leaf.
+     * Insertion into a full node splits it into two halves, and may
+     * propagate to the root as in a B-tree; removal that leaves a
+     * node with fewer than MIN_WIDTH entries merges it with a
+     * neighbour (splitting the result if it overflows), and a root
+     * with a single child is replaced by it. So nodes other than the
+     * root and the last built by a bulk operation hold between
+     * MIN_WIDTH and WIDTH entries, bounding the height at
+     * log(n)/log(MIN_WIDTH), and at log(n)/log(WIDTH) for lists built
+     * by appending. Bulk operations build trees of full nodes from
+     * arrays.
+     */
+
+    /** Maximum number of entries of a node */
+    static final int WIDTH = 32;
+
+    /** Number of entries below which a non-root node is merged */
+    static final int MIN_WIDTH = WIDTH >>> 2;
+
+    /** The lock protecting all mutators */
+    final transient ReentrantLock lock = new ReentrantLock();
+
+    /** The current version */
+    private transient volatile Version<E> version;
+
+    /**
+     * Creates an empty list.
+     */
+    public CopyOnWriteTrieList() {
+        version = Version.empty();
+    }
+
+    /**
+     * Creates a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.
+     *
+     * @param c the collection of initially held elements
+     * @throws NullPointerException if the specified collection is null
+     */
+    public CopyOnWriteTrieList(Collection<? extends E> c) {
+        version = Version.of(c.toArray());
+    }
+
+    /**
+     * Returns an immutable list of the elements of this list at the
+     * time of the call.  The returned list is not affected by later
+     * modifications of this list, and its mutative methods throw
+     * {@code UnsupportedOperationException}.  This method takes
+     * constant time.
+     *
+     * @return an immutable snapshot of this list
+     */
+    public List<E> snapshot() {
+        return version;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return version.size;
+    }
+
+    /**
+     * Returns {@code true} if this list contains no elements.
+     *
+     * @return {@code true} if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return version.size == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E get(int index) {
+        return version.get(index);
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
+    public boolean contains(Object o) {
+        return version.indexOf(o) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int indexOf(Object o) {
+        return version.indexOf(o);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int lastIndexOf(Object o) {
+        return version.lastIndexOf(o);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * @return an array containing all the elements in this list
+     */
+    public Object[] toArray() {
+        return version.toArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ArrayStoreException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public <T> T[] toArray(T[] a) {
+        return version.toArray(a);
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with the
+     * specified element.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E set(int index, E element) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<E> v = version;
+            E old = v.get(index);
+            if (old != element)
+                version = new Version<E>(set(v.root, v.height, index, element),
+                                         v.height, v.size);
+            return old;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            version = version.insert(version.size, e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<E> v = version;
+            if (index > v.size || index < 0)
+                throw new IndexOutOfBoundsException("Index: "+index+
+                                                    ", Size: "+v.size);
+            version = v.insert(index, element);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).  Returns the element that was removed from the list.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E remove(int index) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<E> v = version;
+            E old = v.get(index);
+            version = v.delete(index);
+            return old;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this list,
+     * if it is present.  If this list does not contain the element, it is
+     * unchanged.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean remove(Object o) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<E> v = version;
+            int i = v.indexOf(o);
+            if (i < 0)
+                return false;
+            version = v.delete(i);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     * Shifts any succeeding elements to the left (reduces their index).
+     *
+     * @param fromIndex index of first element to be removed
+     * @param toIndex index after last element to be removed
+     * @throws IndexOutOfBoundsException if fromIndex or toIndex out of range
+     *         ({@code fromIndex < 0 || toIndex > size() || toIndex < fromIndex})
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<E> v = version;
+            int len = v.size;
+            if (fromIndex < 0 || toIndex > len || toIndex < fromIndex)
+                throw new IndexOutOfBoundsException();
+            int n = toIndex - fromIndex;
+            if (n >= WIDTH) {
+                Object[] a = v.toArray();
+                Object[] b = new Object[len - n];
+                System.arraycopy(a, 0, b, 0, fromIndex);
+                System.arraycopy(a, toIndex, b, fromIndex, len - toIndex);
+                v = Version.of(b);
+            }
+            else {
+                while (n-- > 0)
+                    v = v.delete(fromIndex);
+            }
+            version = v;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the element, if not present.
+     *
+     * @param e element to be added to this list, if absent
+     * @return {@code true} if the element was added
+     */
+    public boolean addIfAbsent(E e) {
+        Version<E> snapshot = version;
+        return snapshot.indexOf(e) < 0 && addIfAbsent(e, snapshot);
+    }
+
+    /**
+     * A version of addIfAbsent using the strong hint that given
+     * recent snapshot does not contain e.
+     */
+    private boolean addIfAbsent(E e, Version<E> snapshot) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<E> v = version;
+            if (v != snapshot && v.indexOf(e) >= 0)
+                return false;
+            version = v.insert(v.size, e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends all of the elements in the specified collection that
+     * are not already contained in this list, to the end of
+     * this list, in the order that they are returned by the
+     * specified collection's iterator.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return the number of elements added
+     * @throws NullPointerException if the specified collection is null
+     * @see #addIfAbsent(Object)
+     */
+    public int addAllAbsent(Collection<? extends E> c) {
+        Object[] cs = c.toArray();
+        if (cs.length == 0)
+            return 0;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<E> v = version;
+            int added = 0;
+            for (Object e : cs) {
+                if (v.indexOf(e) < 0) {
+                    v = v.insert(v.size, e);
+                    ++added;
+                }
+            }
+            version = v;
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end
+     * of this list, in the order that they are returned by the specified
+     * collection's iterator.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     * @see #add(Object)
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(-1, c);
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list, starting at the specified position.  Shifts the element
+     * currently at that position (if any) and any subsequent elements to
+     * the right (increases their indices).  The new elements will appear
+     * in this list in the order that they are returned by the
+     * specified collection's iterator.
+     *
+     * @param index index at which to insert the first element
+     *        from the specified collection
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws NullPointerException if the specified collection is null
+     * @see #add(int,Object)
+     */
+    public boolean addAll(int index, Collection<? extends E> c) {
+        Object[] cs = c.toArray();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<E> v = version;
+            int len = v.size;
+            if (index < 0) // from addAll(c)
+                index = len;
+            else if (index > len)
+                throw new IndexOutOfBoundsException("Index: "+index+
+                                                    ", Size: "+len);
+            if (cs.length == 0)
+                return false;
+            if (cs.length >= WIDTH) {
+                Object[] a = v.toArray();
+                Object[] b = new Object[len + cs.length];
+                System.arraycopy(a, 0, b, 0, index);
+                System.arraycopy(cs, 0, b, index, cs.length);
+                System.arraycopy(a, index, b, index + cs.length, len - index);
+                v = Version.of(b);
+            }
+            else {
+                for (Object e : cs)
+                    v = v.insert(index++, e);
+            }
+            version = v;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all of the elements from this list.
+     * The list will be empty after this call returns.
+     */
+    public void clear() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            version = Version.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes from this list all of its elements that are contained in
+     * the specified collection.
+     *
+     * @param c collection containing elements to be removed from this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     * @see #remove(Object)
+     */
+    public boolean removeAll(Collection<?> c) {
+        if (c == null) throw new NullPointerException();
+        return bulkRemove(e -> c.contains(e));
+    }
+
+    /**
+     * Retains only the elements in this list that are contained in the
+     * specified collection.
+     *
+     * @param c collection containing elements to be retained in this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     * @see #remove(Object)
+     */
+    public boolean retainAll(Collection<?> c) {
+        if (c == null) throw new NullPointerException();
+        return bulkRemove(e -> !c.contains(e));
+    }
+
+    public boolean removeIf(Predicate<? super E> filter) {
+        if (filter == null) throw new NullPointerException();
+        return bulkRemove(filter);
+    }
+
+    private boolean bulkRemove(Predicate<? super E> filter) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object[] a = version.toArray();
+            int n = 0;
+            for (Object x : a) {
+                @SuppressWarnings("unchecked") E e = (E) x;
+                if (!filter.test(e))
+                    a[n++] = e;
+            }
+            if (n == a.length)
+                return false;
+            version = Version.of(Arrays.copyOf(a, n));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void replaceAll(UnaryOperator<E> operator) {
+        if (operator == null) throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object[] a = version.toArray();
+            for (int i = 0; i < a.length; ++i) {
+                @SuppressWarnings("unchecked") E e = (E) a[i];
+                a[i] = operator.apply(e);
+            }
+            version = Version.of(a);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void sort(Comparator<? super E> c) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object[] a = version.toArray();
+            @SuppressWarnings("unchecked") E[] es = (E[])a;
+            Arrays.sort(es, c);
+            version = Version.of(a);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void forEach(Consumer<? super E> action) {
+        version.forEach(action);
+    }
+
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove} method.
+     *
+     * @return an iterator over the elements in this list in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr<E>(version, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove}, {@code set} or {@code add} methods.
+     */
+    public ListIterator<E> listIterator() {
+        return new Itr<E>(version, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove}, {@code set} or {@code add} methods.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public ListIterator<E> listIterator(int index) {
+        return version.listIterator(index);
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this list.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#IMMUTABLE},
+     * {@link Spliterator#ORDERED}, {@link Spliterator#SIZED}, and
+     * {@link Spliterator#SUBSIZED}.
+     *
+     * <p>The spliterator provides a snapshot of the state of the list
+     * when the spliterator was constructed. No synchronization is needed while
+     * operating on the spliterator.
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    public Spliterator<E> spliterator() {
+        return version.spliterator();
+    }
+
+    /**
+     * Returns a shallow copy of this list.  (The elements themselves
+     * are not copied.)  This method takes constant time.
+     *
+     * @return a clone of this list
+     */
+    public Object clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            CopyOnWriteTrieList<E> clone =
+                (CopyOnWriteTrieList<E>) super.clone();
+            clone.resetLock();
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError();
+        }
+    }
+
+    /**
+     * Saves this list to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The size of the list is emitted (int), followed by
+     *               all of its elements (each an Object) in the proper
+     *               order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+
+        s.defaultWriteObject();
+
+        Object[] elements = version.toArray();
+        // Write out array length
+        s.writeInt(elements.length);
+
+        // Write out all elements in the proper order.
+        for (Object element : elements)
+            s.writeObject(element);
+    }
+
+    /**
+     * Reconstitutes this list from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+
+        s.defaultReadObject();
+
+        // bind to new lock
+        resetLock();
+
+        // Read in array length and allocate array
+        int len = s.readInt();
+        Object[] elements = new Object[len];
+
+        // Read in all elements in the proper order.
+        for (int i = 0; i < len; i++)
+            elements[i] = s.readObject();
+        version = Version.of(elements);
+    }
+
+    /* ---------------- Tree operations -------------- */
+
+    /**
+     * Inner nodes, holding children and the cumulative sizes of their
+     * subtrees: ends[i] is the number of elements in children 0..i.
+     */
+    static final class Branch {
+        final Object[] kids;
+        final int[] ends;
+        Branch(Object[] kids, int height) {
+            int[] ends = new int[kids.length];
+            int n = 0;
+            for (int i = 0; i < kids.length; ++i)
+                ends[i] = n += size(kids[i], height - 1);
+            this.kids = kids;
+            this.ends = ends;
+        }
+        Branch(Object[] kids, int[] ends) {
+            this.kids = kids;
+            this.ends = ends;
+        }
+    }
+
+    /** The result of inserting into a node that had to be split */
+    static final class Split {
+        final Object left, right;
+        Split(Object left, Object right) {
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /** Returns the number of elements in the given node */
+    static int size(Object node, int height) {
+        if (height == 0)
+            return ((Object[])node).length;
+        int[] ends = ((Branch)node).ends;
+        return ends[ends.length - 1];
+    }
+
+    /** Returns the number of entries (elements or children) of a node */
+    static int width(Object node, int height) {
+        return (height == 0) ? ((Object[])node).length :
+            ((Branch)node).kids.length;
+    }
+
+    /**
+     * Returns the index of the child of a branch with the given ends
+     * holding element i, that is, the first j with i < ends[j].
+     */
+    static int childFor(int[] ends, int i) {
+        int lo = 0, hi = ends.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] <= i)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /** Returns a copy of the given node with element i replaced */
+    static Object set(Object node, int height, int i, Object e) {
+        if (height == 0) {
+            Object[] a = ((Object[])node).clone();
+            a[i] = e;
+            return a;
+        }
+        Branch b = (Branch)node;
+        int j = childFor(b.ends, i);
+        Object[] kids = b.kids.clone();
+        kids[j] = set(kids[j], height - 1, (j == 0) ? i : i - b.ends[j - 1], e);
+        return new Branch(kids, b.ends);
+    }
+
+    /**
+     * Returns a copy of the given node with e inserted at index i, or
+     * a Split if the copy would overflow.
+     */
+    static Object insert(Object node, int height, int i, Object e) {
+        if (height == 0) {
+            Object[] a = (Object[])node;
+            int n = a.length;
+            Object[] r = new Object[n + 1];
+            System.arraycopy(a, 0, r, 0, i);
+            r[i] = e;
+            System.arraycopy(a, i, r, i + 1, n - i);
+            return (n < WIDTH) ? r : halve(r, height);
+        }
+        Branch b = (Branch)node;
+        Object[] kids = b.kids;
+        int[] ends = b.ends;
+        int n = kids.length, j = 0;
+        while (j < n - 1 && ends[j] < i) // first child ending at or after i
+            ++j;
+        Object k = insert(kids[j], height - 1,
+                          (j == 0) ? i : i - ends[j - 1], e);
+        if (!(k instanceof Split)) {
+            Object[] ks = kids.clone();
+            int[] es = ends.clone();
+            ks[j] = k;
+            for (int x = j; x < n; ++x)
+                ++es[x];
+            return new Branch(ks, es);
+        }
+        Split s = (Split)k;
+        Object[] ks = new Object[n + 1];
+        System.arraycopy(kids, 0, ks, 0, j);
+        ks[j] = s.left;
+        ks[j + 1] = s.right;
+        System.arraycopy(kids, j + 1, ks, j + 2, n - j - 1);
+        return (n < WIDTH) ? new Branch(ks, height) : halve(ks, height);
+    }
+
+    /** Splits the entries of an overflowing node into two nodes */
+    static Split halve(Object[] a, int height) {
+        int h = a.length >>> 1;
+        Object[] l = Arrays.copyOfRange(a, 0, h);
+        Object[] r = Arrays.copyOfRange(a, h, a.length);
+        return (height == 0) ? new Split(l, r) :
+            new Split(new Branch(l, height), new Branch(r, height));
+    }
+
+    /**
+     * Returns a copy of the given node with element i removed, which
+     * may have fewer than MIN_WIDTH entries, or none.
+     */
+    static Object delete(Object node, int height, int i) {
+        if (height == 0) {
+            Object[] a = (Object[])node;
+            Object[] r = new Object[a.length - 1];
+            System.arraycopy(a, 0, r, 0, i);
+            System.arraycopy(a, i + 1, r, i, r.length - i);
+            return r;
+        }
+        Branch b = (Branch)node;
+        Object[] kids = b.kids;
+        int n = kids.length, j = childFor(b.ends, i);
+        Object k = delete(kids[j], height - 1,
+                          (j == 0) ? i : i - b.ends[j - 1]);
+        int w = width(k, height - 1);
+        if (w == 0) { // drop empty child
+            Object[] ks = new Object[n - 1];
+            System.arraycopy(kids, 0, ks, 0, j);
+            System.arraycopy(kids, j + 1, ks, j, n - j - 1);
+            return new Branch(ks, height);
+        }
+        Object[] ks = kids.clone();
+        ks[j] = k;
+        if (w < MIN_WIDTH && n > 1) { // merge with a neighbour
+            int l = (j > 0) ? j - 1 : j;
+            Object[] m = concat(ks[l], ks[l + 1], height - 1);
+            if (m.length > WIDTH) {
+                Split s = halve(m, height - 1);
+                ks[l] = s.left;
+                ks[l + 1] = s.right;
+            }
+            else {
+                Object[] r = new Object[n - 1];
+                System.arraycopy(ks, 0, r, 0, l);
+                r[l] = (height == 1) ? m : new Branch(m, height - 1);
+                System.arraycopy(ks, l + 2, r, l + 1, n - l - 2);
+                ks = r;
+            }
+        }
+        return new Branch(ks, height);
+    }
+
+    /** Returns the entries of two adjacent nodes of the same height */
+    static Object[] concat(Object a, Object b, int height) {
+        Object[] x, y;
+        if (height == 0) {
+            x = (Object[])a;
+            y = (Object[])b;
+        }
+        else {
+            x = ((Branch)a).kids;
+            y = ((Branch)b).kids;
+        }
+        Object[] r = Arrays.copyOf(x, x.length + y.length);
+        System.arraycopy(y, 0, r, x.length, y.length);
+        return r;
+    }
+
+    /**
+     * An immutable version of the list: a tree of the given height
+     * and size. Returned by {@link #snapshot}.
+     */
+    static final class Version<E> extends AbstractList<E>
+        implements RandomAccess {
+        private static final Version<Object> EMPTY =
+            new Version<Object>(new Object[0], 0, 0);
+
+        final Object root;
+        final int height;
+        final int size;
+
+        Version(Object root, int height, int size) {
+            this.root = root;
+            this.height = height;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <E> Version<E> empty() {
+            return (Version<E>)EMPTY;
+        }
+
+        /** Returns a version holding the elements of the given array */
+        static <E> Version<E> of(Object[] a) {
+            int n = a.length, h = 0;
+            if (n == 0)
+                return empty();
+            Object[] level = new Object[(n + WIDTH - 1) / WIDTH];
+            for (int i = 0, j = 0; i < n; i += WIDTH)
+                level[j++] = Arrays.copyOfRange(a, i, Math.min(n, i + WIDTH),
+                                                Object[].class);
+            while (level.length > 1) {
+                ++h;
+                int m = level.length;
+                Object[] up = new Object[(m + WIDTH - 1) / WIDTH];
+                for (int i = 0, j = 0; i < m; i += WIDTH)
+                    up[j++] = new Branch(Arrays.copyOfRange
+                                         (level, i, Math.min(m, i + WIDTH)), h);
+                level = up;
+            }
+            return new Version<E>(level[0], h, n);
+        }
+
+        /** Returns a version with e inserted at index i */
+        Version<E> insert(int i, Object e) {
+            Object r = CopyOnWriteTrieList.insert(root, height, i, e);
+            if (r instanceof Split) {
+                Split s = (Split)r;
+                return new Version<E>(new Branch(new Object[] { s.left, s.right },
+                                                 height + 1),
+                                      height + 1, size + 1);
+            }
+            return new Version<E>(r, height, size + 1);
+        }
+
+        /** Returns a version with the element at index i removed */
+        Version<E> delete(int i) {
+            if (size == 1)
+                return empty();
+            Object r = CopyOnWriteTrieList.delete(root, height, i);
+            int h = height;
+            while (h > 0 && ((Branch)r).kids.length == 1) {
+                r = ((Branch)r).kids[0];
+                --h;
+            }
+            return new Version<E>(r, h, size - 1);
+        }
+
+        /**
+         * Returns the leaf holding element i, and stores the index of
+         * its first element in base[0].
+         */
+        Object[] leafFor(int i, int[] base) {
+            Object node = root;
+            int b = 0;
+            for (int h = height; h > 0; --h) {
+                Branch br = (Branch)node;
+                int j = childFor(br.ends, i - b);
+                if (j > 0)
+                    b += br.ends[j - 1];
+                node = br.kids[j];
+            }
+            base[0] = b;
+            return (Object[])node;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: "+index+
+                                                    ", Size: "+size);
+            Object node = root;
+            for (int h = height; h > 0; --h) {
+                Branch b = (Branch)node;
+                int j = childFor(b.ends, index);
+                if (j > 0)
+                    index -= b.ends[j - 1];
+                node = b.kids[j];
+            }
+            return (E)((Object[])node)[index];
+        }
+
+        public int indexOf(Object o) {
+            int[] base = new int[1];
+            for (int i = 0; i < size; ) {
+                Object[] leaf = leafFor(i, base);
+                for (int k = i - base[0]; k < leaf.length; ++k, ++i) {
+                    if (o == null ? leaf[k] == null : o.equals(leaf[k]))
+                        return i;
+                }
+            }
+            return -1;
+        }
+
+        public int lastIndexOf(Object o) {
+            int[] base = new int[1];
+            for (int i = size - 1; i >= 0; ) {
+                Object[] leaf = leafFor(i, base);
+                for (int k = i - base[0]; k >= 0; --k, --i) {
+                    if (o == null ? leaf[k] == null : o.equals(leaf[k]))
+                        return i;
+                }
+            }
+            return -1;
+        }
+
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        public Object[] toArray() {
+            Object[] a = new Object[size];
+            copyInto(root, height, a, 0);
+            return a;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            int n = size;
+            T[] r = (a.length >= n) ? a :
+                (T[])java.lang.reflect.Array.newInstance
+                (a.getClass().getComponentType(), n);
+            copyInto(root, height, r, 0);
+            if (r.length > n)
+                r[n] = null;
+            return r;
+        }
+
+        /** Copies the elements of node into a, starting at index i */
+        static int copyInto(Object node, int height, Object[] a, int i) {
+            if (height == 0) {
+                Object[] leaf = (Object[])node;
+                System.arraycopy(leaf, 0, a, i, leaf.length);
+                return i + leaf.length;
+            }
+            for (Object k : ((Branch)node).kids)
+                i = copyInto(k, height - 1, a, i);
+            return i;
+        }
+
+        public void forEach(Consumer<? super E> action) {
+            if (action == null) throw new NullPointerException();
+            forEach(root, height, action);
+        }
+
+        @SuppressWarnings("unchecked")
+        static <E> void forEach(Object node, int height,
+                                Consumer<? super E> action) {
+            if (height == 0) {
+                for (Object e : (Object[])node)
+                    action.accept((E)e);
+            }
+            else {
+                for (Object k : ((Branch)node).kids)
+                    forEach(k, height - 1, action);
+            }
+        }
+
+        public Iterator<E> iterator() {
+            return new Itr<E>(this, 0);
+        }
+
+        public ListIterator<E> listIterator() {
+            return new Itr<E>(this, 0);
+        }
+
+        public ListIterator<E> listIterator(int index) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException("Index: "+index);
+            return new Itr<E>(this, index);
+        }
+
+        public Spliterator<E> spliterator() {
+            return new TrieSpliterator<E>(this, 0, size);
+        }
+    }
+
+    /**
+     * Iterator over a version, reading a leaf at a time.
+     */
+    static final class Itr<E> implements ListIterator<E> {
+        private final Version<E> version;
+        private final int[] base = new int[1];
+        /** The current leaf, or null if not yet located */
+        private Object[] leaf;
+        /** Index of the element that will be returned by next */
+        private int cursor;
+
+        Itr(Version<E> version, int cursor) {
+            this.version = version;
+            this.cursor = cursor;
+        }
+
+        public boolean hasNext() {
+            return cursor < version.size;
+        }
+
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        /** Returns the leaf holding element i */
+        private Object[] leafFor(int i) {
+            Object[] a = leaf;
+            int b = base[0];
+            if (a == null || i < b || i >= b + a.length)
+                leaf = a = version.leafFor(i, base);
+            return a;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            int i = cursor;
+            if (i >= version.size)
+                throw new NoSuchElementException();
+            Object[] a = leafFor(i);
+            cursor = i + 1;
+            return (E) a[i - base[0]];
+        }
+
+        @SuppressWarnings("unchecked")
+        public E previous() {
+            int i = cursor - 1;
+            if (i < 0)
+                throw new NoSuchElementException();
+            Object[] a = leafFor(i);
+            cursor = i;
+            return (E) a[i - base[0]];
+        }
+
+        public int nextIndex() {
+            return cursor;
+        }
+
+        public int previousIndex() {
+            return cursor-1;
+        }
+
+        /**
+         * Not supported. Always throws UnsupportedOperationException.
+         * @throws UnsupportedOperationException always; {@code remove}
+         *         is not supported by this iterator.
+         */
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Not supported. Always throws UnsupportedOperationException.
+         * @throws UnsupportedOperationException always; {@code set}
+         *         is not supported by this iterator.
+         */
+        public void set(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Not supported. Always throws UnsupportedOperationException.
+         * @throws UnsupportedOperationException always; {@code add}
+         *         is not supported by this iterator.
+         */
+        public void add(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            int n = version.size;
+            for (int i = cursor; i < n; ) {
+                Object[] a = leafFor(i);
+                for (int k = i - base[0]; k < a.length; ++k, ++i)
+                    action.accept((E) a[k]);
+                cursor = i;
+            }
+        }
+    }
+
+    /**
+     * Spliterator over a range of indices of a version, splitting the
+     * range in halves, and reading a leaf at a time.
+     */
+    static final class TrieSpliterator<E> implements Spliterator<E> {
+        private final Version<E> version;
+        private final int[] base = new int[1];
+        private Object[] leaf;
+        private int index;       // current index, modified on advance/split
+        private final int fence; // one past last index
+        private final int extra; // characteristics added by the owner
+
+        TrieSpliterator(Version<E> version, int origin, int fence) {
+            this(version, origin, fence, 0);
+        }
+
+        TrieSpliterator(Version<E> version, int origin, int fence,
+                        int extra) {
+            this.version = version;
+            this.index = origin;
+            this.fence = fence;
+            this.extra = extra;
+        }
+
+        public Spliterator<E> trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            if (lo >= mid)
+                return null;
+            index = mid;
+            leaf = null;
+            return new TrieSpliterator<E>(version, lo, mid, extra);
+        }
+
+        private Object[] leafFor(int i) {
+            Object[] a = leaf;
+            int b = base[0];
+            if (a == null || i < b || i >= b + a.length)
+                leaf = a = version.leafFor(i, base);
+            return a;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = fence;
+            for (int i = index; i < hi; ) {
+                Object[] a = leafFor(i);
+                int b = base[0];
+                int end = Math.min(hi - b, a.length);
+                for (int k = i - b; k < end; ++k, ++i)
+                    action.accept((E) a[k]);
+                index = i;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = index;
+            if (i >= fence)
+                return false;
+            Object[] a = leafFor(i);
+            index = i + 1;
+            action.accept((E) a[i - base[0]]);
+            return true;
+        }
+
+        public long estimateSize() {
+            return (long)(fence - index);
+        }
+
+        public int characteristics() {
+            return Spliterator.IMMUTABLE | Spliterator.ORDERED |
+                Spliterator.SIZED | Spliterator.SUBSIZED | extra;
+        }
+    }
+
+    // Support for resetting lock while deserializing
+    private void resetLock() {
+        UNSAFE.putObjectVolatile(this, lockOffset, new ReentrantLock());
+    }
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long lockOffset;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = CopyOnWriteTrieList.class;
+            lockOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("lock"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
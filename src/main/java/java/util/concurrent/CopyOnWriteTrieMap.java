@@ -0,0 +1,908 @@
+package java.util.concurrent;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A thread-safe {@link ConcurrentMap} with the snapshot semantics of
+ * the copy-on-write collections: each mutative operation creates a
+ * new immutable version of the map, and iterators traverse the
+ * version current when they were created.  Versions are hash array
+ * mapped tries sharing all but a logarithmic part of their structure,
+ * so updates take time logarithmic (to base 32) in the size of the
+ * map, and lookups a comparable number of steps.
+ *
+ * <p>This class is best suited to maps that are read and iterated
+ * much more often than they are updated, such as registries of
+ * listeners or configuration, where a {@link ConcurrentHashMap} would
+ * not provide consistent iteration, and where copying a whole map on
+ * each update would be too costly.  Retrievals and iteration never
+ * block and never see a partial update.  Method {@link #snapshot}
+ * returns the current version itself, as an immutable map, in
+ * constant time, as does {@link #clone}.  Mutative operations are
+ * serialized by a lock.
+ *
+ * <p>Iterators of the views of this map do not throw {@code
+ * ConcurrentModificationException}, and do not reflect updates made
+ * after they were created.  Their {@code remove} methods remove the
+ * mapping for the last key returned from the map, if still present.
+ *
+ * <p>Like {@link java.util.Hashtable} but unlike {@link
+ * java.util.HashMap}, this class does <em>not</em> allow {@code null}
+ * to be used as a key or value.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @since 1.8
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @see CopyOnWriteTrieSet
+ */
+public class CopyOnWriteTrieMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V>, Cloneable, java.io.Serializable {
+    private static final long serialVersionUID = 2217958254638357519L;
+
+    /*
+     * Each version is an immutable hash array mapped trie (HAMT).
+     * Each level consumes 5 bits of the spread hash of a key, lowest
+     * first. A BitmapNode holds a 32-bit bitmap of the occupied
+     * slots, and a compact array of pairs, one per set bit in bit
+     * order: either a key and its value, or null and a child node.
+     * Keys whose full hashes are equal, when they cannot be told
+     * apart by further levels, are held in a CollisionNode, a flat
+     * array of pairs.
+     *
+     * Updates copy the path to the affected slot. When a key is added
+     * to a slot already holding a different key, a child node holding
+     * both is created. On removal, a child left holding a single key
+     * (and no children) is replaced by that key in its parent, so the
+     * trie stays as shallow as the hashes allow, and an empty root is
+     * replaced by the shared empty node.
+     */
+
+    /** The lock protecting all mutators */
+    final transient ReentrantLock lock = new ReentrantLock();
+
+    /** The current version */
+    private transient volatile Version<K,V> version;
+
+    /** Lazily initialized views */
+    private transient KeySet<K,V> keySet;
+    private transient EntrySet<K,V> entrySet;
+    private transient Values<K,V> values;
+
+    /**
+     * Creates a new, empty map.
+     */
+    public CopyOnWriteTrieMap() {
+        version = Version.empty();
+    }
+
+    /**
+     * Creates a new map with the same mappings as the given map.
+     *
+     * @param m the map
+     * @throws NullPointerException if the specified map or any of its
+     *         keys or values are null
+     */
+    public CopyOnWriteTrieMap(Map<? extends K, ? extends V> m) {
+        Version<K,V> v = Version.empty();
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            K k = e.getKey();
+            V x = e.getValue();
+            if (k == null || x == null)
+                throw new NullPointerException();
+            v = v.with(k, x, false);
+        }
+        version = v;
+    }
+
+    /**
+     * Returns an immutable map of the mappings of this map at the time
+     * of the call.  The returned map is not affected by later
+     * modifications of this map, and its mutative methods throw
+     * {@code UnsupportedOperationException}.  This method takes
+     * constant time.
+     *
+     * @return an immutable snapshot of this map
+     */
+    public Map<K,V> snapshot() {
+        return version;
+    }
+
+    public int size() {
+        return version.size;
+    }
+
+    public boolean isEmpty() {
+        return version.size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        return version.get(key);
+    }
+
+    /**
+     * Tests if the specified object is a key in this map.
+     *
+     * @param  key possible key
+     * @return {@code true} if and only if the specified object
+     *         is a key in this map, as determined by the
+     *         {@code equals} method; {@code false} otherwise
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return version.get(key) != null;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value. Note: This method requires a full traversal of
+     * the map.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null) throw new NullPointerException();
+        return version.containsValue(value);
+    }
+
+    /**
+     * Maps the specified key to the specified value in this map.
+     * Neither the key nor the value can be null.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        return doPut(key, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return doPut(key, value, true);
+    }
+
+    private V doPut(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null) throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<K,V> v = version;
+            V old = v.get(key);
+            if (old == null || (!onlyIfAbsent && old != value))
+                version = v.with(key, value, old != null);
+            return old;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this one.
+     * These mappings replace any mappings that this map had for any of the
+     * keys currently in the specified map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map or any of its
+     *         keys or values are null
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<K,V> v = version;
+            for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+                K k = e.getKey();
+                V x = e.getValue();
+                if (k == null || x == null)
+                    throw new NullPointerException();
+                v = v.with(k, x, v.get(k) != null);
+            }
+            version = v;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @param  key the key that needs to be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        return doRemove(key, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null) throw new NullPointerException();
+        return value != null && doRemove(key, value) != null;
+    }
+
+    /**
+     * Removes the mapping for the key if present and, if the given
+     * value is non-null, mapped to an equal value.
+     */
+    private V doRemove(Object key, Object value) {
+        if (key == null) throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<K,V> v = version;
+            V old = v.get(key);
+            if (old == null || (value != null && !value.equals(old)))
+                return null;
+            version = v.without(key);
+            return old;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<K,V> v = version;
+            V old = v.get(key);
+            if (old == null || !oldValue.equals(old))
+                return false;
+            if (old != newValue)
+                version = v.with(key, newValue, true);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Version<K,V> v = version;
+            V old = v.get(key);
+            if (old != null && old != value)
+                version = v.with(key, value, true);
+            return old;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            version = Version.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        version.forEach(action);
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  Its iterators traverse
+     * the keys of the map when they were created.
+     *
+     * @return the set view
+     */
+    public Set<K> keySet() {
+        KeySet<K,V> ks = keySet;
+        return (ks != null) ? ks : (keySet = new KeySet<K,V>(this));
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in
+     * this map.  The collection is backed by the map, so changes to
+     * the map are reflected in the collection, and vice-versa.  Its
+     * iterators traverse the values of the map when they were created.
+     *
+     * @return the collection view
+     */
+    public Collection<V> values() {
+        Values<K,V> vs = values;
+        return (vs != null) ? vs : (values = new Values<K,V>(this));
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  Its iterators traverse
+     * the mappings of the map when they were created, and return
+     * immutable entries.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet<K,V> es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet<K,V>(this));
+    }
+
+    /**
+     * Returns a shallow copy of this map.  (The keys and values
+     * themselves are not cloned.)  This method takes constant time.
+     *
+     * @return a shallow copy of this map
+     */
+    public CopyOnWriteTrieMap<K,V> clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            CopyOnWriteTrieMap<K,V> clone =
+                (CopyOnWriteTrieMap<K,V>) super.clone();
+            clone.keySet = null;
+            clone.entrySet = null;
+            clone.values = null;
+            clone.resetLock();
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError();
+        }
+    }
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The number of mappings is emitted (int), followed
+     *             by the key (Object) and value (Object) of each
+     *             mapping.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        Version<K,V> v = version;
+        s.writeInt(v.size);
+        for (Iter<K,V,Object> it = new Iter<K,V,Object>(v, null, 0);
+             it.advance(); ) {
+            s.writeObject(it.key);
+            s.writeObject(it.value);
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        resetLock();
+        int n = s.readInt();
+        Version<K,V> v = Version.empty();
+        for (int i = 0; i < n; ++i) {
+            K k = (K) s.readObject();
+            V x = (V) s.readObject();
+            if (k == null || x == null)
+                throw new java.io.InvalidObjectException("null key or value");
+            v = v.with(k, x, v.get(k) != null);
+        }
+        version = v;
+    }
+
+    /* ---------------- Trie nodes -------------- */
+
+    /** Spreads the bits of a hash code so all are used at some level */
+    static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /** Number of hash bits consumed per level */
+    static final int BITS = 5;
+
+    /** The mask of the hash bits of a level */
+    static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Nodes of a trie. A node is immutable once reachable from a
+     * version.
+     */
+    abstract static class Node {
+        /**
+         * Returns the node with the given key mapped to the given
+         * value, given that it is not already mapped to that value.
+         */
+        abstract Node put(int shift, int hash, Object key, Object value);
+
+        /**
+         * Returns the node without the given key, given that it is
+         * present, or null if the result is empty.
+         */
+        abstract Node remove(int shift, int hash, Object key);
+
+        /** The pairs of keys (or null) and values (or children) */
+        abstract Object[] pairs();
+    }
+
+    static final class BitmapNode extends Node {
+        final int bitmap;
+        final Object[] pairs;
+        BitmapNode(int bitmap, Object[] pairs) {
+            this.bitmap = bitmap;
+            this.pairs = pairs;
+        }
+
+        Object[] pairs() { return pairs; }
+
+        Node put(int shift, int hash, Object key, Object value) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int i = Integer.bitCount(bitmap & (bit - 1)) << 1;
+            Object[] a = pairs;
+            if ((bitmap & bit) == 0) {
+                Object[] r = new Object[a.length + 2];
+                System.arraycopy(a, 0, r, 0, i);
+                r[i] = key;
+                r[i + 1] = value;
+                System.arraycopy(a, i, r, i + 2, a.length - i);
+                return new BitmapNode(bitmap | bit, r);
+            }
+            Object k = a[i], v = a[i + 1], x;
+            if (k == null)
+                x = ((Node)v).put(shift + BITS, hash, key, value);
+            else if (key.equals(k))
+                return with(i, k, value);
+            else
+                x = pair(shift + BITS, spread(k.hashCode()), k, v,
+                         hash, key, value);
+            return with(i, null, x);
+        }
+
+        Node remove(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int i = Integer.bitCount(bitmap & (bit - 1)) << 1;
+            Object[] a = pairs;
+            Object k = a[i];
+            if (k != null) { // the key itself
+                if (bitmap == bit)
+                    return null;
+                Object[] r = new Object[a.length - 2];
+                System.arraycopy(a, 0, r, 0, i);
+                System.arraycopy(a, i + 2, r, i, a.length - i - 2);
+                return new BitmapNode(bitmap & ~bit, r);
+            }
+            Node x = ((Node)a[i + 1]).remove(shift + BITS, hash, key);
+            Object[] xs = x.pairs(); // x is nonempty, as it held another key
+            if (xs.length == 2 && xs[0] != null) // inline a single mapping
+                return with(i, xs[0], xs[1]);
+            return with(i, null, x);
+        }
+
+        /** Returns a copy with pair i replaced */
+        BitmapNode with(int i, Object k, Object v) {
+            Object[] r = pairs.clone();
+            r[i] = k;
+            r[i + 1] = v;
+            return new BitmapNode(bitmap, r);
+        }
+    }
+
+    static final class CollisionNode extends Node {
+        final int hash;
+        final Object[] pairs;
+        CollisionNode(int hash, Object[] pairs) {
+            this.hash = hash;
+            this.pairs = pairs;
+        }
+
+        Object[] pairs() { return pairs; }
+
+        int indexOf(Object key) {
+            Object[] a = pairs;
+            for (int i = 0; i < a.length; i += 2) {
+                if (key.equals(a[i]))
+                    return i;
+            }
+            return -1;
+        }
+
+        Node put(int shift, int hash, Object key, Object value) {
+            Object[] a = pairs, r;
+            if (hash != this.hash) // nest in a bitmap node with the key
+                return new BitmapNode(1 << ((this.hash >>> shift) & MASK),
+                                      new Object[] { null, this })
+                    .put(shift, hash, key, value);
+            int i = indexOf(key);
+            if (i >= 0) {
+                r = a.clone();
+                r[i + 1] = value;
+            }
+            else {
+                r = new Object[a.length + 2];
+                System.arraycopy(a, 0, r, 0, a.length);
+                r[a.length] = key;
+                r[a.length + 1] = value;
+            }
+            return new CollisionNode(hash, r);
+        }
+
+        Node remove(int shift, int hash, Object key) {
+            Object[] a = pairs;
+            int i = indexOf(key);
+            if (a.length == 2)
+                return null;
+            Object[] r = new Object[a.length - 2];
+            System.arraycopy(a, 0, r, 0, i);
+            System.arraycopy(a, i + 2, r, i, a.length - i - 2);
+            return new CollisionNode(hash, r);
+        }
+    }
+
+    /**
+     * Returns a node holding two mappings with distinct keys, from
+     * the given level down.
+     */
+    static Node pair(int shift, int h1, Object k1, Object v1,
+                     int h2, Object k2, Object v2) {
+        if (h1 == h2)
+            return new CollisionNode(h1, new Object[] { k1, v1, k2, v2 });
+        int b1 = (h1 >>> shift) & MASK, b2 = (h2 >>> shift) & MASK;
+        if (b1 == b2)
+            return new BitmapNode(1 << b1, new Object[] {
+                    null, pair(shift + BITS, h1, k1, v1, h2, k2, v2) });
+        Object[] a = (b1 < b2) ?
+            new Object[] { k1, v1, k2, v2 } :
+            new Object[] { k2, v2, k1, v1 };
+        return new BitmapNode((1 << b1) | (1 << b2), a);
+    }
+
+    /**
+     * An immutable version of the map: the root node of a trie and
+     * its number of mappings. Returned by {@link #snapshot}.
+     */
+    static final class Version<K,V> extends AbstractMap<K,V> {
+        private static final Version<Object,Object> EMPTY =
+            new Version<Object,Object>(new BitmapNode(0, new Object[0]), 0);
+
+        final Node root;
+        final int size;
+        private transient Set<Map.Entry<K,V>> entries;
+
+        Version(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <K,V> Version<K,V> empty() {
+            return (Version<K,V>)EMPTY;
+        }
+
+        /**
+         * Returns a version with the given mapping; present is true
+         * if the key was already mapped.
+         */
+        Version<K,V> with(Object key, Object value, boolean present) {
+            Node r = root.put(0, spread(key.hashCode()), key, value);
+            return new Version<K,V>(r, present ? size : size + 1);
+        }
+
+        /** Returns a version without the given key, which is present */
+        Version<K,V> without(Object key) {
+            Node r = root.remove(0, spread(key.hashCode()), key);
+            return (r == null) ? Version.<K,V>empty() :
+                new Version<K,V>(r, size - 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            int h = spread(key.hashCode());
+            Node n = root;
+            for (int shift = 0;; shift += BITS) {
+                if (n instanceof BitmapNode) {
+                    BitmapNode b = (BitmapNode)n;
+                    int bit = 1 << ((h >>> shift) & MASK);
+                    if ((b.bitmap & bit) == 0)
+                        return null;
+                    int i = Integer.bitCount(b.bitmap & (bit - 1)) << 1;
+                    Object k = b.pairs[i];
+                    if (k == null)
+                        n = (Node)b.pairs[i + 1];
+                    else
+                        return (k == key || key.equals(k)) ?
+                            (V)b.pairs[i + 1] : null;
+                }
+                else {
+                    CollisionNode c = (CollisionNode)n;
+                    int i;
+                    return (c.hash == h && (i = c.indexOf(key)) >= 0) ?
+                        (V)c.pairs[i + 1] : null;
+                }
+            }
+        }
+
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        public boolean containsValue(Object value) {
+            for (Iter<K,V,Object> it = new Iter<K,V,Object>(this, null, 0);
+                 it.advance(); ) {
+                if (value.equals(it.value))
+                    return true;
+            }
+            return false;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            if (action == null) throw new NullPointerException();
+            for (Iter<K,V,Object> it = new Iter<K,V,Object>(this, null, 0);
+                 it.advance(); )
+                action.accept((K)it.key, (V)it.value);
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            Set<Map.Entry<K,V>> es = entries;
+            if (es == null) {
+                entries = es = new AbstractSet<Map.Entry<K,V>>() {
+                    public Iterator<Map.Entry<K,V>> iterator() {
+                        return new Iter<K,V,Map.Entry<K,V>>(Version.this,
+                                                            null, ENTRIES);
+                    }
+                    public int size() {
+                        return size;
+                    }
+                    public boolean contains(Object o) {
+                        if (!(o instanceof Map.Entry))
+                            return false;
+                        Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                        Object k, v, x;
+                        return ((k = e.getKey()) != null &&
+                                (v = e.getValue()) != null &&
+                                (x = get(k)) != null && v.equals(x));
+                    }
+                    public Spliterator<Map.Entry<K,V>> spliterator() {
+                        return Spliterators.spliterator
+                            (this, Spliterator.DISTINCT |
+                             Spliterator.IMMUTABLE | Spliterator.NONNULL);
+                    }
+                };
+            }
+            return es;
+        }
+    }
+
+    /* ---------------- Iterators and views -------------- */
+
+    static final int KEYS = 1, VALUES = 2, ENTRIES = 0;
+
+    /**
+     * Iterator over a version, keeping a stack of the nodes traversed
+     * and of the positions within them. If map is non-null, remove is
+     * supported and removes the last key from the map.
+     */
+    static final class Iter<K,V,T> implements Iterator<T> {
+        /** Max depth: 32 bits in 5-bit levels, plus a collision node */
+        private static final int MAX_DEPTH = (32 + BITS - 1) / BITS + 1;
+        final CopyOnWriteTrieMap<K,V> map;
+        final int kind;
+        final Object[][] stack = new Object[MAX_DEPTH][];
+        final int[] index = new int[MAX_DEPTH];
+        int depth;
+        boolean ready;     // true if key and value hold the next mapping
+        Object key, value; // the next mapping, or the last if !ready
+        Object lastKey;    // the key returned by next, for remove
+
+        Iter(Version<K,V> version, CopyOnWriteTrieMap<K,V> map, int kind) {
+            this.map = map;
+            this.kind = kind;
+            stack[0] = version.root.pairs();
+        }
+
+        /**
+         * Moves to the next mapping, if any, setting key and value.
+         */
+        boolean advance() {
+            for (;;) {
+                int d = depth;
+                Object[] a = stack[d];
+                int i = index[d];
+                if (i >= a.length) {
+                    if (d == 0)
+                        return false;
+                    stack[d] = null;
+                    depth = d - 1;
+                }
+                else {
+                    index[d] = i + 2;
+                    Object k = a[i];
+                    if (k != null) {
+                        key = k;
+                        value = a[i + 1];
+                        return true;
+                    }
+                    stack[++d] = ((Node)a[i + 1]).pairs();
+                    index[d] = 0;
+                    depth = d;
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return ready || (ready = advance());
+        }
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            ready = false;
+            Object k = lastKey = key, v = value;
+            return (T)((kind == KEYS) ? k : (kind == VALUES) ? v :
+                       new AbstractMap.SimpleImmutableEntry<K,V>((K)k, (V)v));
+        }
+
+        public void remove() {
+            Object k = lastKey;
+            if (map == null)
+                throw new UnsupportedOperationException();
+            if (k == null)
+                throw new IllegalStateException();
+            map.remove(k);
+            lastKey = null;
+        }
+    }
+
+    static final class KeySet<K,V> extends AbstractSet<K> {
+        final CopyOnWriteTrieMap<K,V> m;
+        KeySet(CopyOnWriteTrieMap<K,V> m) { this.m = m; }
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public boolean remove(Object o) { return m.remove(o) != null; }
+        public void clear() { m.clear(); }
+        public Iterator<K> iterator() {
+            return new Iter<K,V,K>(m.version, m, KEYS);
+        }
+        public Spliterator<K> spliterator() {
+            Version<K,V> v = m.version;
+            return Spliterators.spliterator
+                (new Iter<K,V,K>(v, m, KEYS), v.size, Spliterator.DISTINCT |
+                 Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        }
+    }
+
+    static final class Values<K,V> extends java.util.AbstractCollection<V> {
+        final CopyOnWriteTrieMap<K,V> m;
+        Values(CopyOnWriteTrieMap<K,V> m) { this.m = m; }
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsValue(o); }
+        public void clear() { m.clear(); }
+        public Iterator<V> iterator() {
+            return new Iter<K,V,V>(m.version, m, VALUES);
+        }
+        public Spliterator<V> spliterator() {
+            Version<K,V> v = m.version;
+            return Spliterators.spliterator
+                (new Iter<K,V,V>(v, m, VALUES), v.size,
+                 Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        }
+    }
+
+    static final class EntrySet<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        final CopyOnWriteTrieMap<K,V> m;
+        EntrySet(CopyOnWriteTrieMap<K,V> m) { this.m = m; }
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public void clear() { m.clear(); }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k, v, x;
+            return ((k = e.getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    (x = m.get(k)) != null && v.equals(x));
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k, v;
+            return ((k = e.getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    m.remove(k, v));
+        }
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new Iter<K,V,Map.Entry<K,V>>(m.version, m, ENTRIES);
+        }
+        public Spliterator<Map.Entry<K,V>> spliterator() {
+            Version<K,V> v = m.version;
+            return Spliterators.spliterator
+                (new Iter<K,V,Map.Entry<K,V>>(v, m, ENTRIES), v.size,
+                 Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        }
+    }
+
+    // Support for resetting lock while deserializing
+    private void resetLock() {
+        UNSAFE.putObjectVolatile(this, lockOffset, new ReentrantLock());
+    }
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long lockOffset;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = CopyOnWriteTrieMap.class;
+            lockOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("lock"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package java.util.concurrent;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A {@link java.util.Set} that keeps its elements in an internal
+ * {@link CopyOnWriteTrieList}, in insertion order, and indexes them
+ * for membership tests in an internal {@link CopyOnWriteTrieMap}.
+ * Thus, it shares the basic properties of both:
+ * <ul>
+ *  <li>It is best suited for applications in which read-only
+ *      operations and traversals outnumber mutative operations, and
+ *      you need to prevent interference among threads during
+ *      traversal, but sets may be too large to copy on each update,
+ *      as {@link CopyOnWriteArraySet} does.
+ *  <li>It is thread-safe.
+ *  <li>Iteration order is the order in which elements were first
+ *      added, as for {@link CopyOnWriteArraySet}.
+ *  <li>{@code add} and {@code contains} take time logarithmic in the
+ *      size of the set. {@code remove} must also locate the element
+ *      in the list, which takes linear time, as for {@link
+ *      CopyOnWriteArraySet}.
+ *  <li>Iterators do not support the mutative {@code remove} operation.
+ *  <li>Traversal via iterators is fast and cannot encounter
+ *      interference from other threads. Iterators rely on
+ *      unchanging snapshots of the set at the time the iterators
+ *      were constructed.
+ *  <li>A {@code null} element is permitted.
+ * </ul>
+ *
+ * <p>Method {@link #snapshot} returns an immutable set of the
+ * elements of this set, in constant time.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @see CopyOnWriteTrieList
+ * @see CopyOnWriteTrieMap
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class CopyOnWriteTrieSet<E> extends AbstractSet<E>
+        implements java.io.Serializable {
+    private static final long serialVersionUID = 6251287307451652862L;
+
+    /** Stands in for a null element in the index */
+    private static final Object NULL_KEY = new Object();
+
+    /** The elements in insertion order; its lock guards all mutators */
+    private final CopyOnWriteTrieList<E> al;
+
+    /** The elements, with null masked, as keys; rebuilt on reading */
+    private transient CopyOnWriteTrieMap<Object,Boolean> index;
+
+    /** The current elements and index, published after each update */
+    private transient volatile Snapshot<E> current;
+
+    /**
+     * Creates an empty set.
+     */
+    public CopyOnWriteTrieSet() {
+        al = new CopyOnWriteTrieList<E>();
+        index = new CopyOnWriteTrieMap<Object,Boolean>();
+        publish();
+    }
+
+    /**
+     * Creates a set containing all of the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.
+     *
+     * @param c the collection of elements to initially contain
+     * @throws NullPointerException if the specified collection is null
+     */
+    public CopyOnWriteTrieSet(Collection<? extends E> c) {
+        if (c.getClass() == CopyOnWriteTrieSet.class) {
+            @SuppressWarnings("unchecked") CopyOnWriteTrieSet<E> cc =
+                (CopyOnWriteTrieSet<E>)c;
+            Snapshot<E> s = cc.current;
+            al = new CopyOnWriteTrieList<E>(s.elements);
+            index = new CopyOnWriteTrieMap<Object,Boolean>(s.members);
+            publish();
+        }
+        else {
+            al = new CopyOnWriteTrieList<E>();
+            index = new CopyOnWriteTrieMap<Object,Boolean>();
+            publish();
+            addAll(c);
+        }
+    }
+
+    static Object maskNull(Object o) {
+        return (o == null) ? NULL_KEY : o;
+    }
+
+    /** Publishes the current list and index; call with lock held. */
+    @SuppressWarnings("unchecked")
+    private void publish() {
+        current = new Snapshot<E>(
+            (CopyOnWriteTrieList.Version<E>)al.snapshot(), index.snapshot());
+    }
+
+    /** Rebuilds the index from the list; call with lock held. */
+    private void reindex() {
+        CopyOnWriteTrieMap<Object,Boolean> m =
+            new CopyOnWriteTrieMap<Object,Boolean>();
+        for (E e : al.snapshot())
+            m.put(maskNull(e), Boolean.TRUE);
+        index = m;
+        publish();
+    }
+
+    /**
+     * Returns an immutable set of the elements of this set at the time
+     * of the call, in the same order.  The returned set is not affected
+     * by later modifications of this set, and its mutative methods throw
+     * {@code UnsupportedOperationException}.  This method takes
+     * constant time.
+     *
+     * @return an immutable snapshot of this set
+     */
+    public Set<E> snapshot() {
+        return current;
+    }
+
+    /**
+     * Returns the number of elements in this set.
+     *
+     * @return the number of elements in this set
+     */
+    public int size() {
+        return current.size();
+    }
+
+    /**
+     * Returns {@code true} if this set contains no elements.
+     *
+     * @return {@code true} if this set contains no elements
+     */
+    public boolean isEmpty() {
+        return current.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if this set contains the specified element.
+     *
+     * @param o element whose presence in this set is to be tested
+     * @return {@code true} if this set contains the specified element
+     */
+    public boolean contains(Object o) {
+        return current.contains(o);
+    }
+
+    public Object[] toArray() {
+        return current.toArray();
+    }
+
+    public <T> T[] toArray(T[] a) {
+        return current.toArray(a);
+    }
+
+    /**
+     * Removes all of the elements from this set.
+     * The set will be empty after this call returns.
+     */
+    public void clear() {
+        final ReentrantLock lock = al.lock;
+        lock.lock();
+        try {
+            al.clear();
+            index.clear();
+            publish();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the specified element from this set if it is present.
+     *
+     * @param o object to be removed from this set, if present
+     * @return {@code true} if this set contained the specified element
+     */
+    public boolean remove(Object o) {
+        final ReentrantLock lock = al.lock;
+        lock.lock();
+        try {
+            if (index.remove(maskNull(o)) == null)
+                return false;
+            al.remove(o);
+            publish();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the specified element to this set if it is not already present.
+     *
+     * @param e element to be added to this set
+     * @return {@code true} if this set did not already contain the specified
+     *         element
+     */
+    public boolean add(E e) {
+        final ReentrantLock lock = al.lock;
+        lock.lock();
+        try {
+            if (index.putIfAbsent(maskNull(e), Boolean.TRUE) != null)
+                return false;
+            al.add(e);
+            publish();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds all of the elements in the specified collection to this set
+     * that are not already present, in the order they are returned by
+     * the collection's iterator.
+     *
+     * @param c collection containing elements to be added to this set
+     * @return {@code true} if this set changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     * @see #add(Object)
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        Object[] cs = c.toArray();
+        if (cs.length == 0)
+            return false;
+        final ReentrantLock lock = al.lock;
+        lock.lock();
+        try {
+            int n = 0;
+            for (int i = 0; i < cs.length; ++i) {
+                if (index.putIfAbsent(maskNull(cs[i]), Boolean.TRUE) == null)
+                    cs[n++] = cs[i];
+            }
+            if (n == 0)
+                return false;
+            @SuppressWarnings("unchecked") List<E> added =
+                (List<E>)Arrays.asList(cs).subList(0, n);
+            al.addAll(added);
+            publish();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes from this set all of its elements that are contained in
+     * the specified collection.
+     *
+     * @param c collection containing elements to be removed from this set
+     * @return {@code true} if this set changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     * @see #remove(Object)
+     */
+    public boolean removeAll(Collection<?> c) {
+        if (c == null) throw new NullPointerException();
+        return bulkRemove(e -> c.contains(e));
+    }
+
+    /**
+     * Retains only the elements in this set that are contained in the
+     * specified collection.
+     *
+     * @param c collection containing elements to be retained in this set
+     * @return {@code true} if this set changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     * @see #remove(Object)
+     */
+    public boolean retainAll(Collection<?> c) {
+        if (c == null) throw new NullPointerException();
+        return bulkRemove(e -> !c.contains(e));
+    }
+
+    public boolean removeIf(Predicate<? super E> filter) {
+        if (filter == null) throw new NullPointerException();
+        return bulkRemove(filter);
+    }
+
+    private boolean bulkRemove(Predicate<? super E> filter) {
+        final ReentrantLock lock = al.lock;
+        lock.lock();
+        try {
+            if (!al.removeIf(filter))
+                return false;
+            reindex();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements contained in this set
+     * in the order in which these elements were added.
+     *
+     * <p>The returned iterator provides a snapshot of the state of the set
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove} method.
+     *
+     * @return an iterator over the elements in this set
+     */
+    public Iterator<E> iterator() {
+        return current.iterator();
+    }
+
+    public void forEach(Consumer<? super E> action) {
+        if (action == null) throw new NullPointerException();
+        current.forEach(action);
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this set in the
+     * order in which these elements were added.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#IMMUTABLE},
+     * {@link Spliterator#DISTINCT}, {@link Spliterator#ORDERED},
+     * {@link Spliterator#SIZED}, and {@link Spliterator#SUBSIZED}.
+     *
+     * <p>The spliterator provides a snapshot of the state of the set
+     * when the spliterator was constructed. No synchronization is needed while
+     * operating on the spliterator.
+     *
+     * @return a {@code Spliterator} over the elements in this set
+     */
+    public Spliterator<E> spliterator() {
+        return current.spliterator();
+    }
+
+    /**
+     * Reconstitutes this set from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        final ReentrantLock lock = al.lock;
+        lock.lock();
+        try {
+            reindex();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * An immutable view of the elements and index at one point in
+     * time. Returned by {@link #snapshot}.
+     */
+    static final class Snapshot<E> extends AbstractSet<E> {
+        final CopyOnWriteTrieList.Version<E> elements;
+        final Map<Object,Boolean> members;
+
+        Snapshot(CopyOnWriteTrieList.Version<E> elements,
+                 Map<Object,Boolean> members) {
+            this.elements = elements;
+            this.members = members;
+        }
+
+        public int size() {
+            return elements.size;
+        }
+
+        public boolean isEmpty() {
+            return elements.size == 0;
+        }
+
+        public boolean contains(Object o) {
+            return members.containsKey(maskNull(o));
+        }
+
+        public Object[] toArray() {
+            return elements.toArray();
+        }
+
+        public <T> T[] toArray(T[] a) {
+            return elements.toArray(a);
+        }
+
+        public Iterator<E> iterator() {
+            return elements.iterator();
+        }
+
+        public void forEach(Consumer<? super E> action) {
+            elements.forEach(action);
+        }
+
+        public Spliterator<E> spliterator() {
+            return new CopyOnWriteTrieList.TrieSpliterator<E>(
+                elements, 0, elements.size, Spliterator.DISTINCT);
+        }
+    }
+}
@@ -98,7 +98,8 @@ public class CountDownLatch {
     private static final class Sync extends AbstractQueuedSynchronizer {
         private static final long serialVersionUID = 4982264981922014374L;
 
-        Sync(int count) {
+        Sync(int count, boolean adaptiveSpin) {
+            super(adaptiveSpin);
             setState(count);
         }
 
@@ -138,8 +139,21 @@ public class CountDownLatch {
      * @throws IllegalArgumentException 如果 count为负数
      */
     public CountDownLatch(int count) {
+        this(count, false);
+    }
+
+    /**
+     * 构造一个以给定计数和自旋策略的 CountDownLatch。
+     * 启用自适应自旋时，等待线程在阻塞之前先自旋一段时间，时长根据最近的等待情况调整；
+     * 适用于计数很快就会到零的场景。
+     * @param count count -的次数 countDown()必须调用之前线程可以通过 await()
+     * @param adaptiveSpin 等待线程是否在阻塞前自适应自旋
+     * @throws IllegalArgumentException 如果 count为负数
+     * @since 1.8
+     */
+    public CountDownLatch(int count, boolean adaptiveSpin) {
         if (count < 0) throw new IllegalArgumentException("count < 0");
-        this.sync = new Sync(count);
+        this.sync = new Sync(count, adaptiveSpin);
     }
 
     /**
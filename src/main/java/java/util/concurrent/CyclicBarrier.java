@@ -80,9 +80,55 @@ public class CyclicBarrier {
      * but no subsequent reset.
      */
     private static class Generation {
-        boolean broken = false;
+        volatile boolean broken = false;
+        /** In combining mode, the leaves of the combining tree, else null */
+        final Node[] leaves;
+        /** In combining mode, the next arrival index given by await() */
+        volatile int ticket;
+        Generation(Node[] leaves) {
+            this.leaves = leaves;
+        }
     }
 
+    /*
+     * In combining mode (constructed with a fanIn), arrivals do not
+     * take the lock. Each generation has its own tree of counters:
+     * party i arrives at leaf i / fanIn, and the last of the parties
+     * (or children) of a node to arrive at it arrives at its parent,
+     * so at most fanIn threads update any one counter, and counters
+     * are padded to reside on their own cache lines. The thread
+     * arriving last at the root trips the barrier as in dowait, under
+     * the lock. The others spin briefly waiting for the generation to
+     * change, and then block as in dowait. As each generation has a
+     * fresh tree, arrivals of threads that read a generation broken
+     * or reset in the meantime cannot disturb the counts of the next.
+     * Methods that break the barrier, and reset, work as in the
+     * default mode.
+     */
+
+    /**
+     * A node of a combining tree, counting arrivals of its parties or
+     * children.
+     */
+    @sun.misc.Contended static final class Node {
+        final Node parent;
+        final int width;
+        volatile int arrived;
+        Node(Node parent, int width) {
+            this.parent = parent;
+            this.width = width;
+        }
+    }
+
+    /** The number of CPUs, for spin control */
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of times a thread that is not the last to arrive in
+     * combining mode checks for the barrier to trip before blocking.
+     */
+    private static final int SPINS = (NCPU > 1) ? 1 << 12 : 0;
+
     /** 护栏入口锁 */
     private final ReentrantLock lock = new ReentrantLock();
     /** 等待直到跳闸的条件 */
@@ -91,8 +137,10 @@ public class CyclicBarrier {
     private final int parties;
     /* 跳闸时运行的命令 */
     private final Runnable barrierCommand;
+    /** 组合模式下每个树节点合并的到达数量，默认模式下为 0 */
+    private final int fanIn;
     /** 现在的一代 */
-    private Generation generation = new Generation();
+    private volatile Generation generation;
 
     /**
      * 正在等待的数量
@@ -110,9 +158,44 @@ public class CyclicBarrier {
         trip.signalAll();
         // set up next generation
         count = parties;
-        generation = new Generation();
+        generation = new Generation(newTree());
+    }
+
+    /**
+     * Returns the leaves of a new combining tree, or null if not in
+     * combining mode.
+     */
+    private Node[] newTree() {
+        int f = fanIn;
+        if (f == 0)
+            return null;
+        Node[] leaves = new Node[(parties + f - 1) / f];
+        long span = f;
+        while (span < parties)
+            span *= f;
+        buildTree(null, 0, parties, span, leaves);
+        return leaves;
     }
 
+    /**
+     * Creates the node of a combining tree for parties lo (inclusive)
+     * to hi (exclusive), at the level at which nodes cover span
+     * parties, and its descendants.
+     */
+    private void buildTree(Node parent, int lo, int hi, long span,
+                           Node[] leaves) {
+        int f = fanIn;
+        if (span == f)
+            leaves[lo / f] = new Node(parent, hi - lo);
+        else {
+            int sub = (int)(span / f);
+            Node n = new Node(parent, (hi - lo + sub - 1) / sub);
+            for (int i = lo; i < hi; i += sub)
+                buildTree(n, i, Math.min(hi, i + sub), sub, leaves);
+        }
+    }
+
+
     /**
      * Sets current barrier generation as broken and wakes up everyone.
      * Called only while holding lock.
@@ -209,6 +292,44 @@ public class CyclicBarrier {
         this.parties = parties;
         this.count = parties;
         this.barrierCommand = barrierAction;
+        this.fanIn = 0;
+        this.generation = new Generation(null);
+    }
+
+    /**
+     * Creates a new combining {@code CyclicBarrier} that will trip when
+     * the given number of parties (threads) are waiting upon it, and
+     * which will execute the given barrier action when the barrier is
+     * tripped, performed by the last thread entering the barrier.
+     *
+     * <p>Rather than counting all arrivals under a single lock, a
+     * combining barrier counts them in a tree whose nodes each combine
+     * the arrivals of up to {@code fanIn} parties or nodes, and whose
+     * counters reside on separate cache lines. Parties are grouped by
+     * index: each party should invoke {@link #await(int)} with its own
+     * index, between zero and {@code parties - 1}, so that parties
+     * with nearby indices, such as workers sharing a processor socket,
+     * arrive at the same node. Threads that are not the last to arrive
+     * spin briefly before blocking. This reduces the cost of barriers
+     * among many threads on many-core machines, at the expense of
+     * space proportional to the number of parties per generation.
+     *
+     * @param parties the number of threads that must invoke {@link #await}
+     *        before the barrier is tripped
+     * @param fanIn the maximum number of arrivals combined at each node
+     * @param barrierAction the command to execute when the barrier is
+     *        tripped, or {@code null} if there is no action
+     * @throws IllegalArgumentException if {@code parties} is less than 1
+     *         or {@code fanIn} is less than 2
+     * @since 1.8
+     */
+    public CyclicBarrier(int parties, int fanIn, Runnable barrierAction) {
+        if (parties <= 0 || fanIn < 2) throw new IllegalArgumentException();
+        this.parties = parties;
+        this.count = parties;
+        this.barrierCommand = barrierAction;
+        this.fanIn = fanIn;
+        this.generation = new Generation(newTree());
     }
 
     /**
@@ -283,7 +404,8 @@ public class CyclicBarrier {
      */
     public int await() throws InterruptedException, BrokenBarrierException {
         try {
-            return dowait(false, 0L);
+            return (fanIn == 0) ? dowait(false, 0L) :
+                combiningWait(-1, false, 0L);
         } catch (TimeoutException toe) {
             throw new Error(toe); // cannot happen
         }
@@ -356,7 +478,255 @@ public class CyclicBarrier {
         throws InterruptedException,
                BrokenBarrierException,
                TimeoutException {
-        return dowait(true, unit.toNanos(timeout));
+        return (fanIn == 0) ? dowait(true, unit.toNanos(timeout)) :
+            combiningWait(-1, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Waits until all {@linkplain #getParties parties} have invoked
+     * {@code await} on this barrier, arriving as the party with the
+     * given index.  Behaves as {@link #await()}, except that in a
+     * combining barrier the index selects the node of the combining
+     * tree at which the current thread arrives.  Parties waiting in
+     * the same generation of the barrier must use distinct indices,
+     * and should not mix this method with {@link #await()}, which
+     * assigns indices in order of arrival.  In a barrier that is not
+     * combining, the index is ignored.
+     *
+     * @param index the index of the current party, between zero and
+     *        {@code getParties() - 1}
+     * @return the arrival index of the current thread, where zero
+     *         indicates the last to arrive; in a combining barrier,
+     *         other threads receive an index between one and
+     *         {@code getParties() - 1} that reflects their order of
+     *         arrival only among the parties of their group
+     * @throws IllegalArgumentException if {@code index} is negative
+     *         or not less than {@code getParties()}
+     * @throws IllegalStateException if, in a combining barrier, more
+     *         parties arrived with indices of the same group than it
+     *         holds; in this case the barrier will be broken
+     * @throws InterruptedException if the current thread was interrupted
+     *         while waiting
+     * @throws BrokenBarrierException if <em>another</em> thread was
+     *         interrupted or timed out while the current thread was
+     *         waiting, or the barrier was reset, or the barrier was
+     *         broken when {@code await} was called, or the barrier
+     *         action (if present) failed due to an exception
+     * @since 1.8
+     */
+    public int await(int index)
+        throws InterruptedException, BrokenBarrierException {
+        if (index < 0 || index >= parties)
+            throw new IllegalArgumentException();
+        try {
+            return (fanIn == 0) ? dowait(false, 0L) :
+                combiningWait(index, false, 0L);
+        } catch (TimeoutException toe) {
+            throw new Error(toe); // cannot happen
+        }
+    }
+
+    /**
+     * Waits until all {@linkplain #getParties parties} have invoked
+     * {@code await} on this barrier, arriving as the party with the
+     * given index, or the specified waiting time elapses.  Behaves as
+     * {@link #await(long, TimeUnit)}, with indices as described for
+     * {@link #await(int)}.
+     *
+     * @param index the index of the current party, between zero and
+     *        {@code getParties() - 1}
+     * @param timeout the time to wait for the barrier
+     * @param unit the time unit of the timeout parameter
+     * @return the arrival index of the current thread, as described
+     *         for {@link #await(int)}
+     * @throws IllegalArgumentException if {@code index} is negative
+     *         or not less than {@code getParties()}
+     * @throws IllegalStateException if, in a combining barrier, more
+     *         parties arrived with indices of the same group than it
+     *         holds; in this case the barrier will be broken
+     * @throws InterruptedException if the current thread was interrupted
+     *         while waiting
+     * @throws TimeoutException if the specified timeout elapses.
+     *         In this case the barrier will be broken.
+     * @throws BrokenBarrierException if <em>another</em> thread was
+     *         interrupted or timed out while the current thread was
+     *         waiting, or the barrier was reset, or the barrier was broken
+     *         when {@code await} was called, or the barrier action (if
+     *         present) failed due to an exception
+     * @since 1.8
+     */
+    public int await(int index, long timeout, TimeUnit unit)
+        throws InterruptedException,
+               BrokenBarrierException,
+               TimeoutException {
+        if (index < 0 || index >= parties)
+            throw new IllegalArgumentException();
+        return (fanIn == 0) ? dowait(true, unit.toNanos(timeout)) :
+            combiningWait(index, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Main barrier code in combining mode; see above. An index of -1
+     * requests the next ticket of the generation.
+     */
+    private int combiningWait(int index, boolean timed, long nanos)
+        throws InterruptedException, BrokenBarrierException,
+               TimeoutException {
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        Generation g;
+        for (;;) {
+            g = generation;
+            if (g.broken)
+                throw new BrokenBarrierException();
+            if (Thread.interrupted()) {
+                breakBarrier(g);
+                throw new InterruptedException();
+            }
+            if (index >= 0)
+                break;
+            int t = U.getAndAddInt(g, TICKET, 1);
+            if (t < parties) {
+                index = t;
+                break;
+            }
+            // all parties of g have arrived: wait for the next generation
+            awaitNextGeneration(g, timed, deadline);
+        }
+        for (Node p = g.leaves[index / fanIn];;) {
+            int a = U.getAndAddInt(p, ARRIVED, 1) + 1;
+            if (a < p.width)
+                return awaitTrip(g, p.width - a, timed, deadline);
+            if (a > p.width) {
+                breakBarrier(g);
+                throw new IllegalStateException();
+            }
+            if (p.parent == null)
+                return tripCombining(g);
+            p = p.parent;
+        }
+    }
+
+    /**
+     * Waits in combining mode, before taking a ticket, until the given
+     * generation, all of whose tickets are taken, trips or is broken.
+     * Timing out or being interrupted breaks it, as in awaitTrip.
+     */
+    private void awaitNextGeneration(Generation g, boolean timed,
+                                     long deadline)
+        throws InterruptedException, TimeoutException {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            while (g == generation && !g.broken) {
+                long nanos = timed ? deadline - System.nanoTime() : 0L;
+                if (timed && nanos <= 0L) {
+                    breakBarrier();
+                    throw new TimeoutException();
+                }
+                try {
+                    if (!timed)
+                        trip.await();
+                    else
+                        trip.awaitNanos(nanos);
+                } catch (InterruptedException ie) {
+                    if (g == generation && ! g.broken) {
+                        breakBarrier();
+                        throw ie;
+                    } else {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Trips the barrier of the given generation in combining mode,
+     * running the barrier action as in dowait.
+     */
+    private int tripCombining(Generation g) throws BrokenBarrierException {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (g.broken || g != generation)
+                throw new BrokenBarrierException();
+            boolean ranAction = false;
+            try {
+                final Runnable command = barrierCommand;
+                if (command != null)
+                    command.run();
+                ranAction = true;
+                nextGeneration();
+                return 0;
+            } finally {
+                if (!ranAction)
+                    breakBarrier();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits in combining mode for the barrier of the given generation
+     * to trip, spinning before blocking as in dowait.
+     */
+    private int awaitTrip(Generation g, int index, boolean timed,
+                          long deadline)
+        throws InterruptedException, BrokenBarrierException,
+               TimeoutException {
+        for (int spins = SPINS; spins > 0; --spins) {
+            if (g.broken)
+                throw new BrokenBarrierException();
+            if (g != generation)
+                return index;
+        }
+        long nanos = timed ? deadline - System.nanoTime() : 0L;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            for (;;) {
+                if (g.broken)
+                    throw new BrokenBarrierException();
+                if (g != generation)
+                    return index;
+                if (timed && nanos <= 0L) {
+                    breakBarrier();
+                    throw new TimeoutException();
+                }
+                try {
+                    if (!timed)
+                        trip.await();
+                    else
+                        nanos = trip.awaitNanos(nanos);
+                } catch (InterruptedException ie) {
+                    if (g == generation && ! g.broken) {
+                        breakBarrier();
+                        throw ie;
+                    } else {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Breaks the barrier if the given generation is still current.
+     */
+    private void breakBarrier(Generation g) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (g == generation && !g.broken)
+                breakBarrier();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -403,9 +773,33 @@ public class CyclicBarrier {
         final ReentrantLock lock = this.lock;
         lock.lock();
         try {
-            return parties - count;
+            Generation g = generation;
+            if (g.leaves == null)
+                return parties - count;
+            int n = 0;
+            if (!g.broken) {
+                for (Node leaf : g.leaves)
+                    n += leaf.arrived;
+            }
+            return n;
         } finally {
             lock.unlock();
         }
     }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long ARRIVED;
+    private static final long TICKET;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            ARRIVED = U.objectFieldOffset
+                (Node.class.getDeclaredField("arrived"));
+            TICKET = U.objectFieldOffset
+                (Generation.class.getDeclaredField("ticket"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
 }
@@ -91,6 +91,28 @@ public class Executors {
                                       new LinkedBlockingQueue<Runnable>());
     }
 
+    /**
+     * Creates a thread pool that reuses a fixed number of threads
+     * taking tasks from a {@link WorkStealingQueue}, so that submitting
+     * threads and workers do not all contend on one queue.  Each worker
+     * runs the tasks of its own queue in FIFO order and otherwise steals
+     * from the queues of others; no ordering is guaranteed among tasks
+     * submitted by different threads.  Unlike {@link
+     * #newWorkStealingPool(int)}, the returned pool is a {@link
+     * ThreadPoolExecutor}, retaining its sizing, keep-alive, rejection
+     * and hook policies.
+     *
+     * @param nThreads the number of threads in the pool
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code nThreads <= 0}
+     * @since 1.8
+     */
+    public static ExecutorService newWorkStealingThreadPool(int nThreads) {
+        return new ThreadPoolExecutor(nThreads, nThreads,
+                                      0L, TimeUnit.MILLISECONDS,
+                                      new WorkStealingQueue<Runnable>(nThreads));
+    }
+
     /**
      * Creates a thread pool that maintains enough threads to support
      * the given parallelism level, and may use multiple queues to
@@ -36,10 +36,14 @@
 package java.util.concurrent;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Callable;
@@ -49,6 +53,8 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
 import java.security.AccessControlContext;
 import java.security.ProtectionDomain;
 import java.security.Permissions;
@@ -584,6 +590,169 @@ public class ForkJoinPool extends AbstractExecutorService {
         public ForkJoinWorkerThread newThread(ForkJoinPool pool);
     }
 
+    /**
+     * A handler for tasks that cannot be queued by a {@code
+     * ForkJoinPool} with bounded submission queues, because the
+     * queues tried are full.  Handlers may throw an exception, run,
+     * cancel or discard the task, or wait and resubmit it; a task that
+     * is neither executed nor cancelled by the handler will never
+     * complete.
+     *
+     * @since 1.8
+     */
+    public static interface RejectedSubmissionHandler {
+        /**
+         * Method that may be invoked by a {@link ForkJoinPool} when
+         * {@link ForkJoinPool#execute execute}, {@link
+         * ForkJoinPool#submit submit} or {@link ForkJoinPool#invoke
+         * invoke} cannot queue a task, in the submitting thread.
+         *
+         * @param task the task requested to be executed
+         * @param pool the pool attempting to execute this task
+         * @throws RejectedExecutionException if there is no remedy
+         */
+        void rejectedSubmission(ForkJoinTask<?> task, ForkJoinPool pool);
+    }
+
+    /**
+     * A handler for rejected submissions that throws a {@code
+     * RejectedExecutionException}.
+     *
+     * @since 1.8
+     */
+    public static class AbortPolicy implements RejectedSubmissionHandler {
+        /**
+         * Creates an {@code AbortPolicy}.
+         */
+        public AbortPolicy() { }
+
+        /**
+         * Always throws RejectedExecutionException.
+         *
+         * @param task the task requested to be executed
+         * @param pool the pool attempting to execute this task
+         * @throws RejectedExecutionException always
+         */
+        public void rejectedSubmission(ForkJoinTask<?> task, ForkJoinPool pool) {
+            throw new RejectedExecutionException("Task " + task.toString() +
+                                                 " rejected from " +
+                                                 pool.toString());
+        }
+    }
+
+    /**
+     * A handler for rejected submissions that cancels the task, so
+     * that threads joining it receive a {@code CancellationException}.
+     *
+     * @since 1.8
+     */
+    public static class DiscardPolicy implements RejectedSubmissionHandler {
+        /**
+         * Creates a {@code DiscardPolicy}.
+         */
+        public DiscardPolicy() { }
+
+        /**
+         * Cancels task r.
+         *
+         * @param task the task requested to be executed
+         * @param pool the pool attempting to execute this task
+         */
+        public void rejectedSubmission(ForkJoinTask<?> task, ForkJoinPool pool) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * A handler for rejected submissions that cancels the oldest
+     * queued ordinary submission and then retries, unless the pool is
+     * shut down, in which case the task is cancelled.
+     *
+     * @since 1.8
+     */
+    public static class DiscardOldestPolicy
+        implements RejectedSubmissionHandler {
+        /**
+         * Creates a {@code DiscardOldestPolicy}.
+         */
+        public DiscardOldestPolicy() { }
+
+        /**
+         * Cancels the oldest task in one of the pool's submission
+         * queues other than the priority queue, if one is available,
+         * and then retries submission of the given task, which is
+         * cancelled if the pool is shut down.
+         *
+         * @param task the task requested to be executed
+         * @param pool the pool attempting to execute this task
+         */
+        public void rejectedSubmission(ForkJoinTask<?> task, ForkJoinPool pool) {
+            while (!pool.isShutdown()) {
+                WorkQueue[] ws = pool.workQueues; WorkQueue q;
+                ForkJoinTask<?> t = null;
+                if (ws != null) {
+                    for (int i = 2; i < ws.length && t == null; i += 2) {
+                        if ((q = ws[i]) != null)
+                            t = q.poll();
+                    }
+                }
+                if (t != null)
+                    t.cancel(false);
+                if (pool.fullExternalPush(task, false))
+                    return;
+                Thread.yield();
+            }
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * A handler for rejected submissions that blocks the submitting
+     * thread until the task can be queued, providing backpressure to
+     * submitters, unless the pool is shut down or the thread is
+     * interrupted, in which case a {@code RejectedExecutionException}
+     * is thrown.  If the submitting thread is a worker of the pool,
+     * which could otherwise wait for itself, it runs the task instead.
+     *
+     * @since 1.8
+     */
+    public static class CallerBlocksPolicy
+        implements RejectedSubmissionHandler {
+        /** The longest time to park between attempts, in nanoseconds */
+        private static final long MAX_PARK_NANOS = 1L << 20;
+
+        /**
+         * Creates a {@code CallerBlocksPolicy}.
+         */
+        public CallerBlocksPolicy() { }
+
+        /**
+         * Waits, parking for increasing intervals, until the task can
+         * be queued, or runs it if the current thread is a worker of
+         * the pool.
+         *
+         * @param task the task requested to be executed
+         * @param pool the pool attempting to execute this task
+         * @throws RejectedExecutionException if the pool is shut down
+         *         or the current thread is interrupted while waiting
+         */
+        public void rejectedSubmission(ForkJoinTask<?> task, ForkJoinPool pool) {
+            Thread t = Thread.currentThread();
+            if (t instanceof ForkJoinWorkerThread &&
+                ((ForkJoinWorkerThread)t).pool == pool) {
+                task.quietlyInvoke();
+                return;
+            }
+            for (long nanos = 1L << 10; !pool.fullExternalPush(task, false); ) {
+                if (pool.isShutdown() || Thread.interrupted())
+                    throw new RejectedExecutionException();
+                LockSupport.parkNanos(pool, nanos);
+                if (nanos < MAX_PARK_NANOS)
+                    nanos <<= 1;
+            }
+        }
+    }
+
     /**
      * Default ForkJoinWorkerThreadFactory implementation; creates a
      * new ForkJoinWorkerThread.
@@ -1125,6 +1294,49 @@ public class ForkJoinPool extends AbstractExecutorService {
      */
     static final int commonParallelism;
 
+    /**
+     * The rejected submission handler of pools with unbounded
+     * submission queues, which never reject submissions when running.
+     */
+    private static final RejectedSubmissionHandler defaultHandler =
+        new AbortPolicy();
+
+    /**
+     * Pools published for monitoring by enableManagement; guarded by
+     * itself.
+     */
+    private static final ArrayList<ManagedRef> managedPools =
+        new ArrayList<ManagedRef>();
+
+    /** Queue of managedPools references cleared by the collector */
+    private static final ReferenceQueue<ForkJoinPool> staleManagedRefs =
+        new ReferenceQueue<ForkJoinPool>();
+
+    /**
+     * Invoked, while holding the managedPools lock, with the name and
+     * the pool when a pool is published, and with the name and null
+     * when it is withdrawn on termination or found unreachable.  Set
+     * (reflectively, as it lies in another package) by
+     * java.lang.management.PlatformComponent when the platform
+     * MBeanServer is created, so that the ForkJoinPoolMXBeans
+     * registered there follow the published pools; null until then.
+     */
+    private static volatile BiConsumer<String, ForkJoinPool> managementHook;
+
+    /**
+     * A managedPools entry, remembering the pool name once cleared.
+     */
+    static final class ManagedRef extends WeakReference<ForkJoinPool> {
+        final String name;
+        ManagedRef(ForkJoinPool pool) {
+            super(pool, staleManagedRefs);
+            this.name = pool.getName();
+        }
+    }
+
+    /** The suffix of workerNamePrefix following the pool name */
+    private static final String WORKER_SUFFIX = "-worker-";
+
     /**
      * Sequence number for creating workerNamePrefix.
      */
@@ -1271,6 +1483,9 @@ public class ForkJoinPool extends AbstractExecutorService {
     final ForkJoinWorkerThreadFactory factory;
     final UncaughtExceptionHandler ueh;        // per-worker UEH
     final String workerNamePrefix;             // to create worker name string
+    final int submissionCapacity;              // max tasks per shared queue
+    final RejectedSubmissionHandler rejectionHandler;
+    volatile long rejectedCount;               // rejected submissions
 
     /**
      * Acquires the plock lock to protect worker array and related
@@ -1484,10 +1699,11 @@ public class ForkJoinPool extends AbstractExecutorService {
         int ps = plock;
         WorkQueue[] ws = workQueues;
         if (ps > 0 && ws != null && (m = (ws.length - 1)) >= 0 &&
-            (q = ws[m & r & SQMASK]) != null && r != 0 &&
+            (q = ws[submissionIndex(r, m)]) != null && r != 0 &&
             U.compareAndSwapInt(q, QLOCK, 0, 1)) { // lock
             if ((a = q.array) != null &&
-                (am = a.length - 1) > (n = (s = q.top) - q.base)) {
+                (am = a.length - 1) > (n = (s = q.top) - q.base) &&
+                n < submissionCapacity) {
                 int j = ((am & s) << ASHIFT) + ABASE;
                 U.putOrderedObject(a, j, task);
                 q.top = s + 1;                     // push on to deque
@@ -1498,7 +1714,39 @@ public class ForkJoinPool extends AbstractExecutorService {
             }
             q.qlock = 0;
         }
-        fullExternalPush(task);
+        if (!fullExternalPush(task, false))
+            rejectSubmission(task);
+    }
+
+    /**
+     * Unless shutting down, adds the given task to the priority
+     * submission queue, which workers check before all other queues.
+     *
+     * @param task the task. Caller must ensure non-null.
+     */
+    final void priorityPush(ForkJoinTask<?> task) {
+        if (!fullExternalPush(task, true))
+            rejectSubmission(task);
+    }
+
+    /**
+     * Returns the index of the shared queue for a submitter with the
+     * given probe in a workQueues array with the given mask. Slot
+     * zero is reserved for priority submissions, so submitters
+     * hashing to it use the highest shared slot instead.
+     */
+    static int submissionIndex(int r, int m) {
+        int k = r & m & SQMASK;
+        return (k != 0) ? k : m & SQMASK;
+    }
+
+    /**
+     * Invokes the rejection handler for the given submission, which
+     * did not fit in a bounded submission queue.
+     */
+    final void rejectSubmission(ForkJoinTask<?> task) {
+        U.getAndAddLong(this, REJECTEDCOUNT, 1L);
+        rejectionHandler.rejectedSubmission(task, this);
     }
 
     /**
@@ -1517,9 +1765,17 @@ public class ForkJoinPool extends AbstractExecutorService {
      * must also be exception-free. Because the plock seq value can
      * eventually wrap around zero, this method harmlessly fails to
      * reinitialize if workQueues exists, while still advancing plock.
+     *
+     * Priority submissions always use the queue at index zero. In a
+     * pool with bounded submission queues, a submitter finding its
+     * queue full moves to another, and gives up, returning false,
+     * after seeing about as many full queues as there are shared
+     * slots, or at once for priority submissions.
+     *
+     * @return true if submitted, false if rejected as full
      */
-    private void fullExternalPush(ForkJoinTask<?> task) {
-        int r;
+    private boolean fullExternalPush(ForkJoinTask<?> task, boolean priority) {
+        int r, fulls = 0;
         if ((r = ThreadLocalRandom.getProbe()) == 0) {
             ThreadLocalRandom.localInit();
             r = ThreadLocalRandom.getProbe();
@@ -1546,14 +1802,17 @@ public class ForkJoinPool extends AbstractExecutorService {
                 if (!U.compareAndSwapInt(this, PLOCK, ps, nps))
                     releasePlock(nps);
             }
-            else if ((q = ws[k = r & m & SQMASK]) != null) {
+            else if ((q = ws[k = (priority ? 0 : submissionIndex(r, m))])
+                     != null) {
                 if (q.qlock == 0 && U.compareAndSwapInt(q, QLOCK, 0, 1)) {
                     ForkJoinTask<?>[] a = q.array;
                     int s = q.top;
-                    boolean submitted = false;
+                    boolean submitted = false, full = false;
                     try {                      // locked version of push
-                        if ((a != null && a.length > s + 1 - q.base) ||
-                            (a = q.growArray()) != null) {   // must presize
+                        if (s - q.base >= submissionCapacity)
+                            full = true;
+                        else if ((a != null && a.length > s + 1 - q.base) ||
+                                 (a = q.growArray()) != null) { // must presize
                             int j = (((a.length - 1) & s) << ASHIFT) + ABASE;
                             U.putOrderedObject(a, j, task);
                             q.top = s + 1;
@@ -1564,8 +1823,10 @@ public class ForkJoinPool extends AbstractExecutorService {
                     }
                     if (submitted) {
                         signalWork(ws, q);
-                        return;
+                        return true;
                     }
+                    if (full && (priority || ++fulls > ((m & SQMASK) >>> 1)))
+                        return false;
                 }
                 move = true; // move on failure
             }
@@ -1655,7 +1916,8 @@ public class ForkJoinPool extends AbstractExecutorService {
      * re-invocation.
      *
      * The scan searches for tasks across queues starting at a random
-     * index, checking each at least twice.  The scan terminates upon
+     * index, or at the priority submission queue (index zero) if it
+     * is non-empty, checking each at least twice.  The scan terminates upon
      * either finding a non-empty queue, or completing the sweep. If
      * the worker is not inactivated, it takes and runs a task from
      * this queue. Otherwise, if not activated, it tries to activate
@@ -1672,6 +1934,9 @@ public class ForkJoinPool extends AbstractExecutorService {
         WorkQueue[] ws; int m;
         long c = ctl;                            // for consistency check
         if ((ws = workQueues) != null && (m = ws.length - 1) >= 0 && w != null) {
+            WorkQueue pq;                        // start at priority queue
+            if ((pq = ws[0]) != null && pq.base - pq.top < 0)
+                r = m + m + 1;
             for (int j = m + m + 1, ec = w.eventCount;;) {
                 WorkQueue q; int b, e; ForkJoinTask<?>[] a; ForkJoinTask<?> t;
                 if ((q = ws[(r - j) & m]) != null &&
@@ -1989,6 +2254,32 @@ public class ForkJoinPool extends AbstractExecutorService {
         return false;
     }
 
+    /**
+     * Called by worker w of this pool before it blocks other than via
+     * managedBlock. On the outermost such call, tries (as managedBlock
+     * does, but without retrying after failure) to release or create
+     * a compensating worker. Must be paired with endCompensatedBlock.
+     */
+    final void beginCompensatedBlock(ForkJoinWorkerThread w) {
+        if (w.blockDepth++ == 0) {
+            long c; boolean done;
+            while (!(done = tryCompensate(c = ctl)) && ctl != c)
+                ;
+            w.compensated = done;
+        }
+    }
+
+    /**
+     * Undoes one call to beginCompensatedBlock by worker w, restoring
+     * the active count when the outermost compensated block ends.
+     */
+    final void endCompensatedBlock(ForkJoinWorkerThread w) {
+        if (--w.blockDepth == 0 && w.compensated) {
+            w.compensated = false;
+            incrementActiveCount();
+        }
+    }
+
     /**
      * Helps and/or blocks until the given task is done.
      *
@@ -2235,6 +2526,7 @@ public class ForkJoinPool extends AbstractExecutorService {
                     synchronized (this) {
                         notifyAll();               // signal when 0 workers
                     }
+                    withdrawManagement();
                 }
                 return true;
             }
@@ -2309,7 +2601,7 @@ public class ForkJoinPool extends AbstractExecutorService {
                 (p = common) != null &&
                 (ws = p.workQueues) != null &&
                 (m = ws.length - 1) >= 0) ?
-            ws[m & z & SQMASK] : null;
+            ws[submissionIndex(z, m)] : null;
     }
 
     /**
@@ -2321,7 +2613,7 @@ public class ForkJoinPool extends AbstractExecutorService {
         int z = ThreadLocalRandom.getProbe();
         boolean popped = false;
         if (ws != null && (m = ws.length - 1) >= 0 &&
-            (joiner = ws[z & m & SQMASK]) != null &&
+            (joiner = ws[submissionIndex(z, m)]) != null &&
             joiner.base != (s = joiner.top) &&
             (a = joiner.array) != null) {
             long j = (((a.length - 1) & (s - 1)) << ASHIFT) + ABASE;
@@ -2344,7 +2636,7 @@ public class ForkJoinPool extends AbstractExecutorService {
         int j = ThreadLocalRandom.getProbe();
         int s = 0;
         if (ws != null && (m = ws.length - 1) >= 0 &&
-            (joiner = ws[j & m & SQMASK]) != null && task != null) {
+            (joiner = ws[submissionIndex(j, m)]) != null && task != null) {
             int scans = m + m + 1;
             long c = 0L;             // for stability check
             j |= 1;                  // poll odd queues
@@ -2448,10 +2740,81 @@ public class ForkJoinPool extends AbstractExecutorService {
              checkFactory(factory),
              handler,
              (asyncMode ? FIFO_QUEUE : LIFO_QUEUE),
-             "ForkJoinPool-" + nextPoolId() + "-worker-");
+             "ForkJoinPool-" + nextPoolId() + "-worker-",
+             Integer.MAX_VALUE, defaultHandler);
+        checkPermission();
+    }
+
+    /**
+     * Creates a {@code ForkJoinPool} with the given parameters and
+     * bounded submission queues.  Tasks submitted from outside the
+     * pool are held in a set of submission queues, to which
+     * submitting threads are assigned by hash, until taken by
+     * workers.  Unlike an ordinary pool, whose queues grow without
+     * bound, this pool holds at most {@code submissionQueueCapacity}
+     * tasks in each submission queue.  A submitter finding its queue
+     * full tries others, and if those it tries are also full, the
+     * task is passed to the given handler, in the submitting thread.
+     * The number of submission queues grows with the number of
+     * submitting threads, up to a small multiple of the parallelism
+     * level (and at most 64), which bounds the total number of queued
+     * submissions.  Tasks forked by workers are not bounded.
+     *
+     * @param parallelism the parallelism level. For default value,
+     * use {@link java.lang.Runtime#availableProcessors}.
+     * @param factory the factory for creating new threads. For default value,
+     * use {@link #defaultForkJoinWorkerThreadFactory}.
+     * @param handler the handler for internal worker threads that
+     * terminate due to unrecoverable errors encountered while executing
+     * tasks. For default value, use {@code null}.
+     * @param asyncMode if true,
+     * establishes local first-in-first-out scheduling mode for forked
+     * tasks that are never joined. For default value, use {@code false}.
+     * @param submissionQueueCapacity the maximum number of tasks held
+     * in each submission queue
+     * @param rejectionHandler the handler to use when a submission
+     * cannot be queued, for example a {@link CallerBlocksPolicy} to
+     * make submitters wait for capacity
+     * @throws IllegalArgumentException if parallelism less than or
+     *         equal to zero, or greater than implementation limit, or
+     *         if {@code submissionQueueCapacity} is less than one
+     * @throws NullPointerException if the factory or rejection handler
+     *         is null
+     * @throws SecurityException if a security manager exists and
+     *         the caller is not permitted to modify threads
+     *         because it does not hold {@link
+     *         java.lang.RuntimePermission}{@code ("modifyThread")}
+     * @since 1.8
+     */
+    public ForkJoinPool(int parallelism,
+                        ForkJoinWorkerThreadFactory factory,
+                        UncaughtExceptionHandler handler,
+                        boolean asyncMode,
+                        int submissionQueueCapacity,
+                        RejectedSubmissionHandler rejectionHandler) {
+        this(checkParallelism(parallelism),
+             checkFactory(factory),
+             handler,
+             (asyncMode ? FIFO_QUEUE : LIFO_QUEUE),
+             "ForkJoinPool-" + nextPoolId() + "-worker-",
+             checkCapacity(submissionQueueCapacity),
+             checkRejectionHandler(rejectionHandler));
         checkPermission();
     }
 
+    private static int checkCapacity(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+        return capacity;
+    }
+
+    private static RejectedSubmissionHandler checkRejectionHandler
+        (RejectedSubmissionHandler handler) {
+        if (handler == null)
+            throw new NullPointerException();
+        return handler;
+    }
+
     private static int checkParallelism(int parallelism) {
         if (parallelism <= 0 || parallelism > MAX_CAP)
             throw new IllegalArgumentException();
@@ -2474,10 +2837,14 @@ public class ForkJoinPool extends AbstractExecutorService {
                          ForkJoinWorkerThreadFactory factory,
                          UncaughtExceptionHandler handler,
                          int mode,
-                         String workerNamePrefix) {
+                         String workerNamePrefix,
+                         int submissionCapacity,
+                         RejectedSubmissionHandler rejectionHandler) {
         this.workerNamePrefix = workerNamePrefix;
         this.factory = factory;
         this.ueh = handler;
+        this.submissionCapacity = submissionCapacity;
+        this.rejectionHandler = rejectionHandler;
         this.mode = (short)mode;
         this.parallelism = (short)parallelism;
         long np = (long)(-parallelism); // offset ctl counts
@@ -2542,6 +2909,50 @@ public class ForkJoinPool extends AbstractExecutorService {
         externalPush(task);
     }
 
+    /**
+     * Arranges for (asynchronous) execution of the given task, as a
+     * priority submission if {@code priority} is true.  Priority
+     * submissions are held in a separate queue, which workers check
+     * before taking any other submitted or stolen task, so they begin
+     * executing before other queued submissions, in
+     * first-in-first-out order among themselves.  Subtasks they fork
+     * are scheduled as usual.
+     *
+     * @param task the task
+     * @param priority true to use the priority lane
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @since 1.8
+     */
+    public void execute(ForkJoinTask<?> task, boolean priority) {
+        if (task == null)
+            throw new NullPointerException();
+        if (priority)
+            priorityPush(task);
+        else
+            externalPush(task);
+    }
+
+    /**
+     * Submits a ForkJoinTask for execution, as a priority submission
+     * if {@code priority} is true, as described for {@link
+     * #execute(ForkJoinTask, boolean)}.
+     *
+     * @param task the task to submit
+     * @param priority true to use the priority lane
+     * @param <T> the type of the task's result
+     * @return the task
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @since 1.8
+     */
+    public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task, boolean priority) {
+        execute(task, priority);
+        return task;
+    }
+
     // AbstractExecutorService methods
 
     /**
@@ -2775,6 +3186,157 @@ public class ForkJoinPool extends AbstractExecutorService {
         return count;
     }
 
+    /**
+     * Returns the maximum number of tasks held in each submission
+     * queue, or {@code Integer.MAX_VALUE} if submission queues are not
+     * bounded.
+     *
+     * @return the submission queue capacity
+     * @since 1.8
+     */
+    public int getSubmissionQueueCapacity() {
+        return submissionCapacity;
+    }
+
+    /**
+     * Returns the handler for submissions that cannot be queued.
+     *
+     * @return the rejected submission handler
+     * @since 1.8
+     */
+    public RejectedSubmissionHandler getRejectedSubmissionHandler() {
+        return rejectionHandler;
+    }
+
+    /**
+     * Returns the number of submissions passed to the rejected
+     * submission handler since this pool was created.
+     *
+     * @return the number of rejected submissions
+     * @since 1.8
+     */
+    public long getRejectedSubmissionCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Returns an estimate of the number of priority submissions that
+     * have not yet begun executing.
+     *
+     * @return the number of queued priority submissions
+     * @since 1.8
+     */
+    public int getQueuedPrioritySubmissionCount() {
+        WorkQueue[] ws; WorkQueue w;
+        return ((ws = workQueues) != null && ws.length > 0 &&
+                (w = ws[0]) != null) ? w.queueSize() : 0;
+    }
+
+    /**
+     * Returns the name of this pool, the prefix of the names of its
+     * worker threads, such as {@code "ForkJoinPool-1"} or {@code
+     * "ForkJoinPool.commonPool"}.
+     *
+     * @return the name of this pool
+     * @since 1.8
+     */
+    public String getName() {
+        String p = workerNamePrefix;
+        return p.substring(0, p.length() - WORKER_SUFFIX.length());
+    }
+
+    /**
+     * Publishes this pool for monitoring, so that it is reported by
+     * {@link #getManagedPools}, and as a {@link
+     * java.lang.management.ForkJoinPoolMXBean}.  The common pool is
+     * always published.  Pools are published until they terminate or
+     * become unreachable; this method has no effect if this pool is
+     * already published or has terminated.
+     *
+     * @throws SecurityException if a security manager exists and
+     *         the caller is not permitted to modify threads
+     *         because it does not hold {@link
+     *         java.lang.RuntimePermission}{@code ("modifyThread")}
+     * @since 1.8
+     */
+    public void enableManagement() {
+        checkPermission();
+        synchronized (managedPools) {
+            expungeStaleManagedRefs();
+            for (ManagedRef ref : managedPools) {
+                if (ref.get() == this)
+                    return;
+            }
+            if (isTerminated())
+                return;
+            managedPools.add(new ManagedRef(this));
+            BiConsumer<String, ForkJoinPool> hook = managementHook;
+            if (hook != null)
+                hook.accept(getName(), this);
+        }
+        if (isTerminated())             // raced with termination
+            withdrawManagement();
+    }
+
+    /**
+     * Withdraws this pool, if published, from monitoring.  Called on
+     * termination.
+     */
+    private void withdrawManagement() {
+        synchronized (managedPools) {
+            for (Iterator<ManagedRef> it = managedPools.iterator(); it.hasNext();) {
+                ManagedRef ref = it.next();
+                if (ref.get() == this) {
+                    it.remove();
+                    BiConsumer<String, ForkJoinPool> hook = managementHook;
+                    if (hook != null)
+                        hook.accept(ref.name, null);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the entries of published pools found unreachable.  Call
+     * only when holding the managedPools lock.
+     */
+    private static void expungeStaleManagedRefs() {
+        for (Reference<? extends ForkJoinPool> r;
+             (r = staleManagedRefs.poll()) != null; ) {
+            if (managedPools.remove(r)) {
+                BiConsumer<String, ForkJoinPool> hook = managementHook;
+                if (hook != null)
+                    hook.accept(((ManagedRef)r).name, null);
+            }
+        }
+    }
+
+    /**
+     * Returns the pools currently published for monitoring, in order
+     * of publication, starting with the common pool.
+     *
+     * @return the pools published for monitoring
+     * @throws SecurityException if a security manager exists and
+     *         the caller is not permitted to modify threads
+     *         because it does not hold {@link
+     *         java.lang.RuntimePermission}{@code ("modifyThread")}
+     * @since 1.8
+     */
+    public static List<ForkJoinPool> getManagedPools() {
+        checkPermission();
+        List<ForkJoinPool> list = new ArrayList<ForkJoinPool>();
+        synchronized (managedPools) {
+            expungeStaleManagedRefs();
+            for (ManagedRef ref : managedPools) {
+                ForkJoinPool p = ref.get();
+                if (p != null)
+                    list.add(p);
+            }
+        }
+        return list;
+    }
+
     /**
      * Returns an estimate of the total number of tasks currently held
      * in queues by worker threads (but not including tasks submitted
@@ -3207,14 +3769,18 @@ public class ForkJoinPool extends AbstractExecutorService {
     public static void managedBlock(ManagedBlocker blocker)
         throws InterruptedException {
         Thread t = Thread.currentThread();
-        if (t instanceof ForkJoinWorkerThread) {
-            ForkJoinPool p = ((ForkJoinWorkerThread)t).pool;
+        ForkJoinWorkerThread wt;
+        if ((t instanceof ForkJoinWorkerThread) &&
+            (wt = (ForkJoinWorkerThread)t).blockDepth == 0) {
+            ForkJoinPool p = wt.pool;
             while (!blocker.isReleasable()) {
                 if (p.tryCompensate(p.ctl)) {
+                    wt.blockDepth = 1; // don't recompensate nested blocks
                     try {
                         do {} while (!blocker.isReleasable() &&
                                      !blocker.block());
                     } finally {
+                        wt.blockDepth = 0;
                         p.incrementActiveCount();
                     }
                     break;
@@ -3246,6 +3812,7 @@ public class ForkJoinPool extends AbstractExecutorService {
     private static final int ABASE;
     private static final int ASHIFT;
     private static final long STEALCOUNT;
+    private static final long REJECTEDCOUNT;
     private static final long PLOCK;
     private static final long INDEXSEED;
     private static final long QBASE;
@@ -3260,6 +3827,8 @@ public class ForkJoinPool extends AbstractExecutorService {
                 (k.getDeclaredField("ctl"));
             STEALCOUNT = U.objectFieldOffset
                 (k.getDeclaredField("stealCount"));
+            REJECTEDCOUNT = U.objectFieldOffset
+                (k.getDeclaredField("rejectedCount"));
             PLOCK = U.objectFieldOffset
                 (k.getDeclaredField("plock"));
             INDEXSEED = U.objectFieldOffset
@@ -3291,6 +3860,7 @@ public class ForkJoinPool extends AbstractExecutorService {
                 public ForkJoinPool run() { return makeCommonPool(); }});
         int par = common.parallelism; // report 1 even if threads disabled
         commonParallelism = par > 0 ? par : 1;
+        managedPools.add(new ManagedRef(common));
     }
 
     /**
@@ -3330,7 +3900,8 @@ public class ForkJoinPool extends AbstractExecutorService {
         if (parallelism > MAX_CAP)
             parallelism = MAX_CAP;
         return new ForkJoinPool(parallelism, factory, handler, LIFO_QUEUE,
-                                "ForkJoinPool.commonPool-worker-");
+                                "ForkJoinPool.commonPool-worker-",
+                                Integer.MAX_VALUE, defaultHandler);
     }
 
     /**
@@ -72,6 +72,8 @@ public class ForkJoinWorkerThread extends Thread {
 
     final ForkJoinPool pool;                // the pool this thread works in
     final ForkJoinPool.WorkQueue workQueue; // work-stealing mechanics
+    int blockDepth;                         // nesting of compensated blocks
+    boolean compensated;                    // true if outermost block compensated
 
     /**
      * Creates a ForkJoinWorkerThread operating in the given pool.
@@ -86,6 +88,16 @@ public class ForkJoinWorkerThread extends Thread {
         this.workQueue = pool.registerWorker(this);
     }
 
+    /**
+     * Version for ManagedBlockingExecutor, with the given stack size
+     * (zero for the platform default).
+     */
+    ForkJoinWorkerThread(ForkJoinPool pool, long stackSize) {
+        super(null, null, "aForkJoinWorkerThread", stackSize);
+        this.pool = pool;
+        this.workQueue = pool.registerWorker(this);
+    }
+
     /**
      * Version for InnocuousForkJoinWorkerThread
      */
@@ -760,6 +760,151 @@ public class LinkedBlockingDeque<E>
         }
     }
 
+    /**
+     * Inserts the elements of the given collection at the end of this
+     * deque, waiting if necessary up to the specified wait time for
+     * space to become available.  The nodes are created and linked to
+     * each other before the lock is acquired; each run of elements that
+     * fits is then spliced in at once, after which only as many waiting
+     * consumers are signalled as there are new elements.
+     *
+     * @throws InterruptedException          {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     * @since 1.8
+     */
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Node<E> chain = null, chainLast = null;
+        int remaining = 0;
+        for (E e : c) {
+            if (e == null) throw new NullPointerException();
+            Node<E> p = new Node<E>(e);
+            if (chainLast == null)
+                chain = p;
+            else {
+                chainLast.next = p;
+                p.prev = chainLast;
+            }
+            chainLast = p;
+            ++remaining;
+        }
+        if (remaining == 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int added = 0;
+            for (;;) {
+                while (count >= capacity) {
+                    if (nanos <= 0)
+                        return added;
+                    try {
+                        nanos = notFull.awaitNanos(nanos);
+                    } catch (InterruptedException ie) {
+                        if (added == 0)
+                            throw ie;
+                        Thread.currentThread().interrupt();
+                        return added;
+                    }
+                }
+                int k;
+                Node<E> q;
+                if (remaining <= capacity - count) {
+                    k = remaining;
+                    q = chainLast;
+                } else {
+                    k = capacity - count;
+                    q = chain;
+                    for (int i = 1; i < k; ++i)
+                        q = q.next;
+                }
+                Node<E> rest = q.next;
+                q.next = null;
+                if (rest != null)
+                    rest.prev = null;
+                Node<E> l = last;
+                chain.prev = l;
+                if (l == null)
+                    first = chain;
+                else
+                    l.next = chain;
+                last = q;
+                count += k;
+                added += k;
+                remaining -= k;
+                chain = rest;
+                for (int i = k; i > 0 && lock.hasWaiters(notEmpty); i--)
+                    notEmpty.signal();
+                if (remaining == 0)
+                    return added;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes up to the given number of elements from the head of this
+     * deque, waiting if necessary up to the specified wait time for one
+     * to become available.  The elements are unlinked under a single
+     * acquisition of the lock, after which only as many waiting
+     * producers are signalled as there are elements removed.
+     *
+     * @throws InterruptedException          {@inheritDoc}
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     * @since 1.8
+     */
+    public int pollBatch(Collection<? super E> c, int maxElements,
+                         long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (first == null) {
+                if (nanos <= 0)
+                    return 0;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            int n = Math.min(maxElements, count);
+            int i = 0;
+            try {
+                for (; i < n; i++) {
+                    Node<E> f = first;
+                    c.add(f.item);   // In this order, in case add() throws.
+                    Node<E> next = f.next;
+                    f.item = null;
+                    f.next = f; // help GC
+                    first = next;
+                    if (next == null)
+                        last = null;
+                    else
+                        next.prev = null;
+                    --count;
+                }
+                return n;
+            } finally {
+                for (; i > 0 && lock.hasWaiters(notFull); i--)
+                    notFull.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     // Stack methods
 
     /**
@@ -762,6 +762,163 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Inserts the elements of the given collection at the tail of this
+     * queue, waiting if necessary up to the specified wait time for
+     * space to become available.  The nodes are created before the put
+     * lock is acquired, and each run of elements that fits is linked
+     * and counted at once, so that a batch costs one lock acquisition
+     * and at most one signal to waiting consumers per run.
+     *
+     * @throws InterruptedException          {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     * @since 1.8
+     */
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Node<E> chain = null, chainLast = null;
+        int remaining = 0;
+        for (E e : c) {
+            if (e == null) throw new NullPointerException();
+            Node<E> p = new Node<E>(e);
+            if (chainLast == null)
+                chain = p;
+            else
+                chainLast.next = p;
+            chainLast = p;
+            ++remaining;
+        }
+        if (remaining == 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        int added = 0;
+        boolean wasEmpty = false;
+        final ReentrantLock putLock = this.putLock;
+        final AtomicInteger count = this.count;
+        putLock.lockInterruptibly();
+        try {
+            for (;;) {
+                int free;
+                while ((free = capacity - count.get()) <= 0) {
+                    if (wasEmpty) {
+                        // wake consumers before sleeping; lock order
+                        // putLock -> takeLock is the same as fullyLock
+                        wasEmpty = false;
+                        signalNotEmpty();
+                    }
+                    if (nanos <= 0)
+                        return added;
+                    try {
+                        nanos = notFull.awaitNanos(nanos);
+                    } catch (InterruptedException ie) {
+                        if (added == 0)
+                            throw ie;
+                        Thread.currentThread().interrupt();
+                        return added;
+                    }
+                }
+                int k;
+                Node<E> q;
+                if (remaining <= free) {
+                    k = remaining;
+                    q = chainLast;
+                } else {
+                    k = free;
+                    q = chain;
+                    for (int i = 1; i < k; ++i)
+                        q = q.next;
+                }
+                Node<E> rest = q.next;
+                q.next = null;
+                last.next = chain;
+                last = q;
+                chain = rest;
+                remaining -= k;
+                added += k;
+                int prev = count.getAndAdd(k);
+                if (prev == 0)
+                    wasEmpty = true;
+                if (remaining == 0) {
+                    if (prev + k < capacity)
+                        notFull.signal();
+                    return added;
+                }
+            }
+        } finally {
+            putLock.unlock();
+            if (wasEmpty)
+                signalNotEmpty();
+        }
+    }
+
+    /**
+     * Removes up to the given number of elements from the head of this
+     * queue, waiting if necessary up to the specified wait time for one
+     * to become available.  The elements are unlinked and uncounted at
+     * once under a single acquisition of the take lock.
+     *
+     * @throws InterruptedException          {@inheritDoc}
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     * @since 1.8
+     */
+    public int pollBatch(Collection<? super E> c, int maxElements,
+                         long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        boolean signalNotFull = false;
+        final ReentrantLock takeLock = this.takeLock;
+        final AtomicInteger count = this.count;
+        takeLock.lockInterruptibly();
+        try {
+            while (count.get() == 0) {
+                if (nanos <= 0)
+                    return 0;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            int n = Math.min(maxElements, count.get());
+            // count.get provides visibility to first n Nodes
+            Node<E> h = head;
+            int i = 0;
+            try {
+                while (i < n) {
+                    Node<E> p = h.next;
+                    c.add(p.item);
+                    p.item = null;
+                    h.next = h;
+                    h = p;
+                    ++i;
+                }
+                return n;
+            } finally {
+                // Restore invariants even if c.add() threw
+                if (i > 0) {
+                    // assert h.item == null;
+                    head = h;
+                    int before = count.getAndAdd(-i);
+                    if (before > i)
+                        notEmpty.signal();
+                    signalNotFull = (before == capacity);
+                }
+            }
+        } finally {
+            takeLock.unlock();
+            if (signalNotFull)
+                signalNotFull();
+        }
+    }
+
     /**
      * Returns an iterator over the elements in this queue in proper sequence.
      * The elements will be returned in order from first (head) to last (tail).
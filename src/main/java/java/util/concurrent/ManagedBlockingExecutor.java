@@ -0,0 +1,194 @@
+package java.util.concurrent;
+
+import java.util.List;
+
+/**
+ * An {@link ExecutorService} for large numbers of tasks that spend most
+ * of their time blocked, such as requests served with blocking I/O.
+ * Tasks run on the threads of a {@link ForkJoinPool}, and block as
+ * usual; but whenever a task blocks in {@link
+ * java.util.concurrent.locks.LockSupport#park LockSupport.park} (and so
+ * in any synchronizer built on {@link
+ * java.util.concurrent.locks.AbstractQueuedSynchronizer}), in a blocking
+ * operation on a {@link java.nio.channels.spi.AbstractInterruptibleChannel
+ * channel} or {@link java.nio.channels.spi.AbstractSelector selector}, or
+ * between calls to {@link #beginBlocking} and {@link #endBlocking}, the
+ * pool is told of it as if by {@link ForkJoinPool#managedBlock}, and
+ * releases or creates a spare thread so that the target parallelism of
+ * runnable threads is maintained.  Blocking code written for one thread
+ * per task thus keeps the processors busy without sizing the pool for
+ * the worst case in advance.
+ *
+ * <p>A blocked task still occupies its thread: the stack of a blocked
+ * task cannot be set aside in this implementation, so the number of
+ * threads grows with the number of tasks blocked at once, up to the
+ * limit of {@code 32767} threads of a {@code ForkJoinPool}, and spare
+ * threads that remain idle are retired after a short time.  To reduce
+ * the memory held by many blocked tasks, threads may be created with a
+ * smaller stack size than the platform default, given at construction.
+ * Blocking in {@code synchronized} blocks or {@link Object#wait()} is
+ * not detected.
+ *
+ * <p>Tasks are started in the order they are submitted.  Exceptions
+ * thrown by tasks passed to {@link #execute} are relayed to the
+ * uncaught exception handler of the thread that ran them, as for
+ * {@code ForkJoinPool}.
+ *
+ * @since 1.8
+ */
+public class ManagedBlockingExecutor extends AbstractExecutorService {
+
+    /**
+     * The thread type whose blocking is reported to its pool.
+     */
+    static final class CarrierThread extends ForkJoinWorkerThread {
+        CarrierThread(ForkJoinPool pool, long stackSize) {
+            super(pool, stackSize);
+        }
+    }
+
+    static final class CarrierThreadFactory
+        implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        final long stackSize;
+        CarrierThreadFactory(long stackSize) { this.stackSize = stackSize; }
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            return new CarrierThread(pool, stackSize);
+        }
+    }
+
+    /** The pool running all tasks */
+    final ForkJoinPool pool;
+
+    /**
+     * Creates an executor with a target parallelism equal to the number
+     * of available processors and threads of the default stack size.
+     */
+    public ManagedBlockingExecutor() {
+        this(Runtime.getRuntime().availableProcessors(), 0L);
+    }
+
+    /**
+     * Creates an executor with the given target parallelism and threads
+     * of the default stack size.
+     *
+     * @param parallelism the number of threads to keep runnable
+     * @throws IllegalArgumentException if {@code parallelism} is not
+     *         positive or exceeds the limit of {@code ForkJoinPool}
+     */
+    public ManagedBlockingExecutor(int parallelism) {
+        this(parallelism, 0L);
+    }
+
+    /**
+     * Creates an executor with the given target parallelism, whose
+     * threads have the given stack size.  As described for {@link
+     * Thread#Thread(ThreadGroup, Runnable, String, long)}, the stack
+     * size is a hint that some platforms ignore.
+     *
+     * @param parallelism the number of threads to keep runnable
+     * @param stackSize the desired stack size in bytes of each thread,
+     *        or zero for the platform default
+     * @throws IllegalArgumentException if {@code parallelism} is not
+     *         positive or exceeds the limit of {@code ForkJoinPool}, or
+     *         {@code stackSize} is negative
+     */
+    public ManagedBlockingExecutor(int parallelism, long stackSize) {
+        if (stackSize < 0L)
+            throw new IllegalArgumentException();
+        this.pool = new ForkJoinPool(parallelism,
+                                     new CarrierThreadFactory(stackSize),
+                                     null, true);
+    }
+
+    /**
+     * Notifies the executor running the current thread, if any, that
+     * the thread is about to block in a way this executor would not
+     * otherwise detect, for example in a native call, so that a spare
+     * thread may take over its work.  Has no effect if the current thread
+     * is not a thread of a {@code ManagedBlockingExecutor}.  Each call
+     * must be followed by exactly one call to {@link #endBlocking} by
+     * the same thread, typically in a {@code finally} block; such pairs
+     * may nest, and only the outermost pair has any effect.
+     */
+    public static void beginBlocking() {
+        Thread t = Thread.currentThread();
+        if (t instanceof CarrierThread) {
+            CarrierThread w = (CarrierThread)t;
+            w.pool.beginCompensatedBlock(w);
+        }
+    }
+
+    /**
+     * Notifies the executor running the current thread, if any, that
+     * the blocking announced by the matching call to {@link
+     * #beginBlocking} has ended.
+     */
+    public static void endBlocking() {
+        Thread t = Thread.currentThread();
+        if (t instanceof CarrierThread) {
+            CarrierThread w = (CarrierThread)t;
+            w.pool.endCompensatedBlock(w);
+        }
+    }
+
+    /**
+     * Returns the target parallelism of this executor.
+     *
+     * @return the target parallelism of this executor
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Returns the number of threads that have been started but not yet
+     * terminated, including those blocked in tasks.
+     *
+     * @return the number of threads
+     */
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    /**
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     */
+    public void execute(Runnable command) {
+        pool.execute(command);
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public List<Runnable> shutdownNow() {
+        return pool.shutdownNow();
+    }
+
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    public boolean isTerminated() {
+        return pool.isTerminated();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Returns a string identifying this executor, as well as its state,
+     * including indications of run state, parallelism level, and
+     * worker and task counts.
+     *
+     * @return a string identifying this executor, as well as its state
+     */
+    public String toString() {
+        String s = pool.toString();
+        return super.toString() + s.substring(s.indexOf('['));
+    }
+}
@@ -0,0 +1,228 @@
+package java.util.concurrent;
+
+import java.util.Collection;
+
+/**
+ * A bounded lock-free {@linkplain BlockingQueue blocking queue} backed by
+ * a ring of sequence-numbered slots, supporting any number of producer
+ * and consumer threads.  This queue orders elements FIFO.
+ *
+ * <p>This is the array-based queue of D. Vyukov.  Each slot carries a
+ * sequence number recording whether it is ready to be written or read
+ * for a given lap of the ring.  A producer claims the next slot with a
+ * single CAS of the producer index, writes the element, and publishes it
+ * by advancing the slot's sequence; consumers proceed symmetrically on
+ * the consumer index.  The two indices are padded against false sharing,
+ * so producers and consumers contend only among themselves, and no
+ * per-element nodes are allocated.  Compared with {@link
+ * ArrayBlockingQueue}, which guards both ends with one lock, throughput
+ * under contention is typically several times higher.
+ *
+ * <p>The capacity is fixed at construction, rounded up to a power of
+ * two.  Threads blocked in {@link #put} or {@link #take} spin briefly
+ * and then either park until signalled (the default) or, if the queue
+ * was created in <em>spin-wait</em> mode, keep yielding.  The {@code
+ * drainTo} methods claim runs of ready slots with one CAS per run.
+ *
+ * <p>Elements may only be removed from the head: {@link #remove(Object)}
+ * and the iterator's {@code remove} throw {@code
+ * UnsupportedOperationException}.  Iterators traverse a snapshot.  This
+ * queue does not permit {@code null} elements and is not serializable.
+ *
+ * @param <E> the type of elements held in this queue
+ * @see SpscArrayQueue
+ * @since 1.8
+ */
+public class MpmcArrayQueue<E> extends AbstractRingQueue<E> {
+
+    /** Slot sequence numbers; sequences[i & mask] == i when slot i is free */
+    final long[] sequences;
+
+    /** Number of elements ever claimed by producers */
+    @sun.misc.Contended("producer") volatile long producerIndex;
+
+    /** Number of elements ever claimed by consumers */
+    @sun.misc.Contended("consumer") volatile long consumerIndex;
+
+    /**
+     * Creates a queue with (at least) the given capacity, whose blocked
+     * threads park.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity} is not
+     *         positive or exceeds 2^30
+     */
+    public MpmcArrayQueue(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * Creates a queue with (at least) the given capacity and the given
+     * waiting mode.
+     *
+     * @param capacity the capacity of this queue
+     * @param spinWait if {@code true}, blocked threads spin and yield
+     *        instead of parking, and updates never check for waiters
+     * @throws IllegalArgumentException if {@code capacity} is not
+     *         positive or exceeds 2^30
+     */
+    public MpmcArrayQueue(int capacity, boolean spinWait) {
+        super(capacity, spinWait);
+        long[] seq = new long[buffer.length];
+        for (int i = 0; i < seq.length; ++i)
+            seq[i] = i;
+        this.sequences = seq;
+    }
+
+    private static long seqOffset(long i) {
+        return ((i << 3) + SBASE);
+    }
+
+    private static long slotOffset(long i) {
+        return ((i << ASHIFT) + ABASE);
+    }
+
+    final long producerIndex() { return producerIndex; }
+    final long consumerIndex() { return consumerIndex; }
+
+    final boolean offerInternal(E e) {
+        final long[] seqs = sequences;
+        final int m = mask;
+        for (;;) {
+            long pi = producerIndex;
+            long so = seqOffset(pi & m);
+            long d = U.getLongVolatile(seqs, so) - pi;
+            if (d == 0L) {
+                if (capacity <= m && pi - consumerIndex >= capacity)
+                    return false;   // ring larger than capacity (1)
+                if (U.compareAndSwapLong(this, PINDEX, pi, pi + 1L)) {
+                    U.putObject(buffer, slotOffset(pi & m), e);
+                    U.putOrderedLong(seqs, so, pi + 1L); // publish
+                    return true;
+                }
+            }
+            else if (d < 0L) {
+                // slot still holds the element of the previous lap
+                if (pi - consumerIndex > m)
+                    return false;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    final E pollInternal() {
+        final long[] seqs = sequences;
+        final int m = mask;
+        for (;;) {
+            long ci = consumerIndex;
+            long so = seqOffset(ci & m);
+            long d = U.getLongVolatile(seqs, so) - (ci + 1L);
+            if (d == 0L) {
+                if (U.compareAndSwapLong(this, CINDEX, ci, ci + 1L)) {
+                    long eo = slotOffset(ci & m);
+                    E e = (E)U.getObject(buffer, eo);
+                    U.putObject(buffer, eo, null);
+                    U.putOrderedLong(seqs, so, ci + m + 1L); // free for next lap
+                    return e;
+                }
+            }
+            else if (d < 0L) {
+                // slot not yet published for this lap
+                if (ci >= producerIndex)
+                    return null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final long[] seqs = sequences;
+        final int m = mask;
+        for (;;) {
+            long ci = consumerIndex;
+            long seq = U.getLongVolatile(seqs, seqOffset(ci & m));
+            if (seq == ci + 1L) {
+                E e = (E)U.getObjectVolatile(buffer, slotOffset(ci & m));
+                if (e != null && consumerIndex == ci)
+                    return e;
+            }
+            else if (seq < ci + 1L && ci >= producerIndex)
+                return null;
+        }
+    }
+
+    /**
+     * Claims the longest run of published slots at the head, up to max,
+     * with a single CAS, then moves their elements to c.
+     */
+    @SuppressWarnings("unchecked")
+    final int drainInternal(Collection<? super E> c, int max) {
+        final long[] seqs = sequences;
+        final int m = mask;
+        final int limit = Math.min(max, m + 1);
+        for (;;) {
+            long ci = consumerIndex;
+            int n = 0;
+            while (n < limit &&
+                   U.getLongVolatile(seqs, seqOffset((ci + n) & m)) == ci + n + 1L)
+                ++n;
+            if (n == 0) {
+                if (ci >= producerIndex)
+                    return 0;
+                continue;               // head slot being published
+            }
+            if (!U.compareAndSwapLong(this, CINDEX, ci, ci + n))
+                continue;
+            int i = 0;
+            try {
+                for (; i < n; ++i) {
+                    long k = ci + i, eo = slotOffset(k & m);
+                    E e = (E)U.getObject(buffer, eo);
+                    U.putObject(buffer, eo, null);
+                    U.putOrderedLong(seqs, seqOffset(k & m), k + m + 1L);
+                    c.add(e);
+                }
+            } finally {
+                // release claimed slots even if the collection throws
+                for (int j = i + 1; j < n; ++j) {
+                    long k = ci + j;
+                    U.putObject(buffer, slotOffset(k & m), null);
+                    U.putOrderedLong(seqs, seqOffset(k & m), k + m + 1L);
+                }
+            }
+            return n;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    final void snapshot(Collection<? super E> c) {
+        final long[] seqs = sequences;
+        final int m = mask;
+        long pi = producerIndex;
+        for (long i = Math.max(consumerIndex, pi - m - 1L); i < pi; ++i) {
+            long so = seqOffset(i & m);
+            if (U.getLongVolatile(seqs, so) == i + 1L) {
+                E e = (E)U.getObjectVolatile(buffer, slotOffset(i & m));
+                if (e != null && U.getLongVolatile(seqs, so) == i + 1L)
+                    c.add(e);
+            }
+        }
+    }
+
+    // Unsafe mechanics
+    private static final long PINDEX;
+    private static final long CINDEX;
+    private static final long SBASE;
+    static {
+        try {
+            Class<?> k = MpmcArrayQueue.class;
+            PINDEX = U.objectFieldOffset(k.getDeclaredField("producerIndex"));
+            CINDEX = U.objectFieldOffset(k.getDeclaredField("consumerIndex"));
+            SBASE = U.arrayBaseOffset(long[].class);
+            if (U.arrayIndexScale(long[].class) != 8)
+                throw new Error("data type scale not eight");
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
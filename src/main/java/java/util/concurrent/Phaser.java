@@ -35,6 +35,7 @@
 
 package java.util.concurrent;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -572,6 +573,97 @@ public class Phaser {
             ((long)parties);
     }
 
+    /**
+     * Equivalent to {@link #tiered(Phaser, int, int) tiered(new
+     * Phaser(), parties, fanIn)}.
+     *
+     * @param parties the number of parties
+     * @param fanIn the maximum number of parties or child phasers
+     * registered with each phaser of the tree
+     * @return an array of length {@code parties} whose element {@code i}
+     * is the phaser to be used by party {@code i}
+     * @throws IllegalArgumentException if {@code parties} is negative,
+     * or {@code fanIn} is less than two or greater than the maximum
+     * number of parties supported
+     * @since 1.8
+     */
+    public static Phaser[] tiered(int parties, int fanIn) {
+        return tiered(new Phaser(), parties, fanIn);
+    }
+
+    /**
+     * Registers the given number of parties with a tree of phasers
+     * under the given root, built so that no phaser has more than
+     * {@code fanIn} registered parties or child phasers, as in the
+     * {@code build} method shown in the class documentation.  Parties
+     * are grouped by index: those with indices {@code i} and {@code j}
+     * share a phaser if {@code i / fanIn == j / fanIn}.  Each party
+     * should then synchronize only through its own element of the
+     * returned array, for example by invoking {@link
+     * #arriveAndAwaitAdvance} on it, and its arrival contends only
+     * with those of the other parties of its group; only the last of
+     * a group to arrive propagates to the next tier.  The number of
+     * parties is not limited by the maximum number of parties
+     * supported by each phaser.
+     *
+     * <p>If {@code parties} is at most {@code fanIn}, all parties are
+     * registered with the root itself.  The root may be a phaser that
+     * overrides {@link #onAdvance}, which is invoked once per phase of
+     * the whole tree.
+     *
+     * @param root the phaser at the root of the tree
+     * @param parties the number of parties
+     * @param fanIn the maximum number of parties or child phasers
+     * registered with each phaser of the tree
+     * @return an array of length {@code parties} whose element {@code i}
+     * is the phaser to be used by party {@code i}
+     * @throws NullPointerException if {@code root} is null
+     * @throws IllegalArgumentException if {@code parties} is negative,
+     * or {@code fanIn} is less than two or greater than the maximum
+     * number of parties supported
+     * @throws IllegalStateException if the root already has the
+     * maximum number of parties supported
+     * @since 1.8
+     */
+    public static Phaser[] tiered(Phaser root, int parties, int fanIn) {
+        if (root == null)
+            throw new NullPointerException();
+        if (parties < 0 || fanIn < 2 || fanIn > MAX_PARTIES)
+            throw new IllegalArgumentException();
+        Phaser[] phasers = new Phaser[parties];
+        if (parties <= fanIn) {
+            root.bulkRegister(parties);
+            Arrays.fill(phasers, root);
+        }
+        else {
+            long span = fanIn;
+            while (span * fanIn < parties)
+                span *= fanIn;
+            for (int i = 0; i < parties; i += span)
+                buildTier(root, i, (int)Math.min(parties, i + span), span,
+                          fanIn, phasers);
+        }
+        return phasers;
+    }
+
+    /**
+     * Creates the child of the given parent for parties lo (inclusive)
+     * to hi (exclusive) in a tree built by {@link #tiered}, given that
+     * phasers at its tier cover span parties, and its descendants.
+     */
+    private static void buildTier(Phaser parent, int lo, int hi, long span,
+                                  int fanIn, Phaser[] phasers) {
+        if (span == fanIn)
+            Arrays.fill(phasers, lo, hi, new Phaser(parent, hi - lo));
+        else {
+            Phaser ph = new Phaser(parent);
+            long sub = span / fanIn;
+            for (int i = lo; i < hi; i += sub)
+                buildTier(ph, i, (int)Math.min(hi, i + sub), sub,
+                          fanIn, phasers);
+        }
+    }
+
     /**
      * Adds a new unarrived party to this phaser.  If an ongoing
      * invocation of {@link #onAdvance} is in progress, this method
@@ -277,15 +277,16 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
     }
 
     /**
-     * Tries to grow array to accommodate at least one more element
+     * Tries to grow array to accommodate at least minCap elements
      * (but normally expand by about 50%), giving up (allowing retry)
      * on contention (which we expect to be rare). Call only while
      * holding lock.
      *
      * @param array the heap array
      * @param oldCap the length of the array
+     * @param minCap the desired minimum capacity
      */
-    private void tryGrow(Object[] array, int oldCap) {
+    private void tryGrow(Object[] array, int oldCap, int minCap) {
         lock.unlock(); // must release and then re-acquire main lock
         Object[] newArray = null;
         if (allocationSpinLock == 0 &&
@@ -295,8 +296,9 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
                 int newCap = oldCap + ((oldCap < 64) ?
                                        (oldCap + 2) : // grow faster if small
                                        (oldCap >> 1));
+                if (newCap - minCap < 0)
+                    newCap = minCap;
                 if (newCap - MAX_ARRAY_SIZE > 0) {    // possible overflow
-                    int minCap = oldCap + 1;
                     if (minCap < 0 || minCap > MAX_ARRAY_SIZE)
                         throw new OutOfMemoryError();
                     newCap = MAX_ARRAY_SIZE;
@@ -482,7 +484,7 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         int n, cap;
         Object[] array;
         while ((n = size) >= (cap = (array = queue).length))
-            tryGrow(array, cap);
+            tryGrow(array, cap, cap + 1);
         try {
             Comparator<? super E> cmp = comparator;
             if (cmp == null)
@@ -789,6 +791,104 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Inserts the elements of the given collection into this priority
+     * queue.  As the queue is unbounded, this method will never block
+     * and always inserts every element.  The backing array is grown
+     * at most once to fit the whole batch (unless another thread is
+     * growing it at the same time), the elements are sifted in under a
+     * single acquisition of the lock, and then only as many waiting
+     * consumers are signalled as there are new elements.
+     *
+     * @param c the elements to insert
+     * @param timeout This parameter is ignored as the method never blocks
+     * @param unit This parameter is ignored as the method never blocks
+     * @return the size of the collection
+     * @throws ClassCastException if the elements cannot be compared
+     *         with elements currently in the priority queue according to the
+     *         priority queue's ordering
+     * @throws NullPointerException if the collection is null or contains
+     *         a null element, in which case no element is inserted
+     * @throws IllegalArgumentException if the collection is this queue
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        final Object[] a = c.toArray();
+        for (Object x : a)
+            if (x == null)
+                throw new NullPointerException();
+        int len = a.length;
+        if (len == 0)
+            return 0;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        int n, cap;
+        Object[] array;
+        while ((cap = (array = queue).length) - (n = size) < len)
+            tryGrow(array, cap, n + len);
+        try {
+            Comparator<? super E> cmp = comparator;
+            for (int i = 0; i < len; i++) {
+                if (cmp == null)
+                    siftUpComparable(n, (E) a[i], array);
+                else
+                    siftUpUsingComparator(n, (E) a[i], array, cmp);
+                size = ++n;
+            }
+            for (int i = len; i > 0 && lock.hasWaiters(notEmpty); i--)
+                notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return len;
+    }
+
+    /**
+     * Removes up to the given number of elements from the head of this
+     * queue, waiting if necessary up to the specified wait time for one
+     * to become available.  The elements are removed in priority order
+     * under a single acquisition of the lock.
+     *
+     * @throws InterruptedException          {@inheritDoc}
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    public int pollBatch(Collection<? super E> c, int maxElements,
+                         long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0)
+                    return 0;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            int n = Math.min(size, maxElements);
+            for (int i = 0; i < n; i++) {
+                c.add((E) queue[0]); // In this order, in case add() throws.
+                dequeue();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Atomically removes all of the elements from this queue.
      * The queue will be empty after this call returns.
@@ -202,6 +202,12 @@ public class ScheduledThreadPoolExecutor
          */
         int heapIndex;
 
+        /**
+         * Node holding this task in a TimingWheelQueue, to support
+         * constant-time cancellation.
+         */
+        TimingWheelQueue.Node timerNode;
+
         /**
          * Creates a one-shot action with given nanoTime-based trigger time.
          */
@@ -486,6 +492,21 @@ public class ScheduledThreadPoolExecutor
               new DelayedWorkQueue(), threadFactory, handler);
     }
 
+    /**
+     * Creates a new ScheduledThreadPoolExecutor whose tasks are held
+     * in a {@link TimingWheelQueue} with the given tick, and are
+     * always removed from it when cancelled.  Used by {@link
+     * TimingWheelScheduledExecutor}.
+     */
+    ScheduledThreadPoolExecutor(int corePoolSize,
+                                long tickNanos,
+                                ThreadFactory threadFactory,
+                                RejectedExecutionHandler handler) {
+        super(corePoolSize, Integer.MAX_VALUE, 0, NANOSECONDS,
+              new TimingWheelQueue(tickNanos), threadFactory, handler);
+        removeOnCancel = true;
+    }
+
     /**
      * Returns the trigger time of a delayed action.
      */
@@ -1280,4 +1301,644 @@ public class ScheduledThreadPoolExecutor
             }
         }
     }
+
+    /**
+     * Hierarchical hashed timing wheel. Like DelayedWorkQueue, this
+     * class is declared as a BlockingQueue<Runnable> even though it
+     * can only hold RunnableScheduledFutures.
+     */
+    static class TimingWheelQueue extends AbstractQueue<Runnable>
+        implements BlockingQueue<Runnable> {
+
+        /*
+         * Time is divided into ticks of tickNanos since the queue was
+         * created, and each task is assigned the tick at or after its
+         * trigger time.  Pending tasks are kept in LEVELS wheels of
+         * WHEEL_SIZE buckets each; bucket i of level L holds tasks
+         * whose tick agrees with currentTick above level L, and has
+         * value i in level L's group of WHEEL_SHIFT bits.  So level 0
+         * holds the tasks due within the current rotation of tick
+         * values, level 1 those due within the current rotation of
+         * level 1, and so on; seven levels of nine bits cover every
+         * representable tick.  Each bucket is a doubly-linked FIFO
+         * list of Nodes, so insertion and removal take constant time,
+         * and ScheduledFutureTasks record their Node so cancellation
+         * need not search for them.  (As in DelayedWorkQueue, other
+         * RunnableScheduledFutures are found by linear search.)
+         *
+         * Ticks advance lazily, only when a thread looks for a task to
+         * run.  Rather than visiting every tick, advance() jumps
+         * directly to the start of the earliest occupied bucket, found
+         * through per-level occupancy bitmaps, and redistributes that
+         * bucket's tasks: those now due move to the ready list, the
+         * others to lower levels.  The earliest occupied bucket is
+         * always on the lowest level having one, because every bucket
+         * of a level starts after the current rotation of the level
+         * below ends.  A thread waiting for tasks that are not yet due
+         * thus sleeps until that bucket's start; as in
+         * DelayedWorkQueue, only a leader thread waits timed.
+         *
+         * Tasks are never enabled before their trigger time, and at
+         * most one tick after it; tasks already due when offered go
+         * straight to the ready list.  Tasks due in the same tick are
+         * enabled in the order they reached the ready list, which is
+         * not necessarily the order of their trigger times.
+         */
+
+        static final int WHEEL_SHIFT = 9;
+        static final int WHEEL_SIZE  = 1 << WHEEL_SHIFT;
+        static final int WHEEL_MASK  = WHEEL_SIZE - 1;
+        static final int LEVELS      = 7;
+        static final int READY       = LEVELS; // level of the ready list
+
+        /**
+         * A task in a bucket or the ready list.
+         */
+        static final class Node {
+            final RunnableScheduledFuture<?> task;
+            final TimingWheelQueue owner;
+            final long tick;
+            Node prev, next;
+            int level = -1;       // -1 if not in any list
+            int slot;
+
+            Node(RunnableScheduledFuture<?> task, TimingWheelQueue owner,
+                 long tick) {
+                this.task = task;
+                this.owner = owner;
+                this.tick = tick;
+            }
+        }
+
+        private final long tickNanos;
+        private final long origin = System.nanoTime();
+
+        /** Largest tick assigned; its start time cannot overflow. */
+        private final long maxTick;
+
+        /** Ticks up to and including this one have been processed. */
+        private long currentTick;
+
+        private final Node[][] heads = new Node[LEVELS + 1][];
+        private final Node[][] tails = new Node[LEVELS + 1][];
+        private final long[][] occupied = new long[LEVELS][];
+        private int pending;      // number of tasks in buckets
+        private int ready;        // number of tasks in the ready list
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Thread designated to wait for the next bucket, as described
+         * for DelayedWorkQueue.
+         */
+        private Thread leader = null;
+
+        /** Tick the leader waits for, or Long.MAX_VALUE if none. */
+        private long leaderTick = Long.MAX_VALUE;
+
+        /**
+         * Condition signalled when a task becomes ready or may become
+         * ready earlier, or a new thread may need to become leader.
+         */
+        private final Condition available = lock.newCondition();
+
+        TimingWheelQueue(long tickNanos) {
+            if (tickNanos <= 0)
+                throw new IllegalArgumentException();
+            this.tickNanos = tickNanos;
+            this.maxTick = (Long.MAX_VALUE >> 1) / tickNanos;
+            heads[READY] = new Node[1];
+            tails[READY] = new Node[1];
+        }
+
+        /**
+         * Returns the last tick that has fully elapsed at time now.
+         */
+        private long tickAt(long now) {
+            long t = now - origin;
+            return (t <= 0L) ? 0L : Math.min(t / tickNanos, maxTick);
+        }
+
+        /**
+         * Returns the first tick starting at or after now + delay.
+         */
+        private long tickAfter(long now, long delay) {
+            long t = now - origin;
+            if (delay >= (Long.MAX_VALUE >> 1) - t)
+                return maxTick;
+            t += delay;
+            if (t <= 0L)
+                return 0L;
+            long k = t / tickNanos;
+            return Math.min((t % tickNanos == 0L) ? k : k + 1L, maxTick);
+        }
+
+        /**
+         * Appends n to the given bucket.  Call only when holding lock.
+         */
+        private void link(Node n, int level, int slot) {
+            Node[] hs = heads[level], ts = tails[level];
+            if (hs == null) {
+                heads[level] = hs = new Node[WHEEL_SIZE];
+                tails[level] = ts = new Node[WHEEL_SIZE];
+                occupied[level] = new long[WHEEL_SIZE >>> 6];
+            }
+            Node t = ts[slot];
+            n.prev = t;
+            n.next = null;
+            if (t == null)
+                hs[slot] = n;
+            else
+                t.next = n;
+            ts[slot] = n;
+            n.level = level;
+            n.slot = slot;
+            if (level == READY)
+                ++ready;
+            else {
+                occupied[level][slot >>> 6] |= 1L << slot;
+                ++pending;
+            }
+        }
+
+        /**
+         * Removes n from its bucket.  Call only when holding lock.
+         */
+        private void unlink(Node n) {
+            int level = n.level, slot = n.slot;
+            Node p = n.prev, q = n.next;
+            if (p == null)
+                heads[level][slot] = q;
+            else
+                p.next = q;
+            if (q == null)
+                tails[level][slot] = p;
+            else
+                q.prev = p;
+            n.prev = n.next = null;
+            n.level = -1;
+            if (level == READY)
+                --ready;
+            else {
+                --pending;
+                if (heads[level][slot] == null)
+                    occupied[level][slot >>> 6] &= ~(1L << slot);
+            }
+        }
+
+        /**
+         * Puts n into the ready list if due, else into the bucket of
+         * the highest level at which its tick differs from
+         * currentTick, and returns the tick at which that bucket must
+         * be processed.  Call only when holding lock.
+         */
+        private long place(Node n) {
+            long d = n.tick, c = currentTick;
+            if (d <= c) {
+                link(n, READY, 0);
+                return c;
+            }
+            int level = (63 - Long.numberOfLeadingZeros(d ^ c)) / WHEEL_SHIFT;
+            int shift = level * WHEEL_SHIFT;
+            link(n, level, (int)(d >>> shift) & WHEEL_MASK);
+            return (d >>> shift) << shift;
+        }
+
+        /**
+         * Returns the index of the first set bit at or after from, or
+         * -1 if none.
+         */
+        private static int nextSetBit(long[] bits, int from) {
+            int i = from >>> 6;
+            if (i >= bits.length)
+                return -1;
+            long w = bits[i] & (-1L << from);
+            for (;;) {
+                if (w != 0L)
+                    return (i << 6) + Long.numberOfTrailingZeros(w);
+                if (++i == bits.length)
+                    return -1;
+                w = bits[i];
+            }
+        }
+
+        /**
+         * Returns the first tick after currentTick at which some bucket
+         * must be processed, or Long.MAX_VALUE if all are empty.  Call
+         * only when holding lock.
+         */
+        private long nextBucketTick() {
+            if (pending != 0) {
+                long c = currentTick;
+                for (int level = 0; level < LEVELS; ++level) {
+                    long[] bits = occupied[level];
+                    if (bits != null) {
+                        int shift = level * WHEEL_SHIFT;
+                        int s = nextSetBit(bits,
+                                           ((int)(c >>> shift) & WHEEL_MASK) + 1);
+                        if (s >= 0)
+                            return ((c >>> shift >>> WHEEL_SHIFT << WHEEL_SHIFT) | s)
+                                << shift;
+                    }
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Processes all buckets starting at or before the given tick.
+         * Call only when holding lock.
+         */
+        private void advance(long target) {
+            while (currentTick < target) {
+                long next = nextBucketTick();
+                if (next > target) {
+                    currentTick = target;
+                    break;
+                }
+                currentTick = next;
+                for (int level = LEVELS - 1; level >= 0; --level) {
+                    int shift = level * WHEEL_SHIFT;
+                    Node[] hs = heads[level];
+                    if (hs == null || (next & ((1L << shift) - 1L)) != 0L)
+                        continue;
+                    int slot = (int)(next >>> shift) & WHEEL_MASK;
+                    Node p = hs[slot];
+                    if (p != null) {
+                        hs[slot] = tails[level][slot] = null;
+                        occupied[level][slot >>> 6] &= ~(1L << slot);
+                        do {
+                            Node q = p.next;
+                            --pending;
+                            place(p);
+                            p = q;
+                        } while (p != null);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the node of x if it is a task held in this queue,
+         * else null.  Call only when holding lock.
+         */
+        private Node nodeOf(Object x) {
+            if (x instanceof ScheduledFutureTask) {
+                Node n = ((ScheduledFutureTask)x).timerNode;
+                // Sanity check; x could be held by some other pool
+                return (n != null && n.owner == this && n.task == x &&
+                        n.level >= 0) ? n : null;
+            }
+            else if (x != null) {
+                for (int level = 0; level <= READY; level++) {
+                    Node[] hs = heads[level];
+                    if (hs != null)
+                        for (Node p : hs)
+                            for (; p != null; p = p.next)
+                                if (x.equals(p.task))
+                                    return p;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Detaches n from the queue and returns its task.  Call only
+         * when holding lock.
+         */
+        private RunnableScheduledFuture<?> finishPoll(Node n) {
+            unlink(n);
+            RunnableScheduledFuture<?> f = n.task;
+            if (f instanceof ScheduledFutureTask)
+                ((ScheduledFutureTask)f).timerNode = null;
+            return f;
+        }
+
+        /**
+         * Returns the first ready node after advancing to the current
+         * time, or null if none.  Call only when holding lock.
+         */
+        private Node pollReady(long now) {
+            advance(tickAt(now));
+            return heads[READY][0];
+        }
+
+        public boolean contains(Object x) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return nodeOf(x) != null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean remove(Object x) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                Node n = nodeOf(x);
+                if (n == null)
+                    return false;
+                finishPoll(n);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int size() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return pending + ready;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        public int remainingCapacity() {
+            return Integer.MAX_VALUE;
+        }
+
+        /**
+         * Returns the first ready task if any, else a task of the
+         * bucket to be processed next, which is due no later than the
+         * start of the following rotation of its level.
+         */
+        public RunnableScheduledFuture<?> peek() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                Node n = pollReady(System.nanoTime());
+                if (n == null && pending != 0) {
+                    long next = nextBucketTick();
+                    for (int level = 0; n == null; level++) {
+                        int shift = level * WHEEL_SHIFT;
+                        Node[] hs = heads[level];
+                        if (hs != null)
+                            n = hs[(int)(next >>> shift) & WHEEL_MASK];
+                    }
+                }
+                return (n == null) ? null : n.task;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean offer(Runnable x) {
+            if (x == null)
+                throw new NullPointerException();
+            RunnableScheduledFuture<?> e = (RunnableScheduledFuture<?>)x;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                // Tasks already due skip the wheel: rounding them up to
+                // the next tick would delay every submit and execute.
+                long delay = e.getDelay(NANOSECONDS);
+                long tick = (delay <= 0L) ? currentTick :
+                    tickAfter(System.nanoTime(), delay);
+                Node n = new Node(e, this, tick);
+                if (e instanceof ScheduledFutureTask)
+                    ((ScheduledFutureTask)e).timerNode = n;
+                if (place(n) < leaderTick) {
+                    leader = null;
+                    available.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        }
+
+        public void put(Runnable e) {
+            offer(e);
+        }
+
+        public boolean add(Runnable e) {
+            return offer(e);
+        }
+
+        public boolean offer(Runnable e, long timeout, TimeUnit unit) {
+            return offer(e);
+        }
+
+        public RunnableScheduledFuture<?> poll() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                Node n = pollReady(System.nanoTime());
+                return (n == null) ? null : finishPoll(n);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Waits as leader until the next bucket must be processed, or
+         * for at most maxNanos, returning the time left of maxNanos.
+         * Call only when holding lock.
+         */
+        private long awaitNextBucket(long now, long maxNanos)
+            throws InterruptedException {
+            long next = nextBucketTick();
+            long delay = next * tickNanos - (now - origin);
+            if (maxNanos < delay || leader != null)
+                return available.awaitNanos(maxNanos);
+            Thread thisThread = Thread.currentThread();
+            leader = thisThread;
+            leaderTick = next;
+            try {
+                long timeLeft = available.awaitNanos(delay);
+                return maxNanos - (delay - timeLeft);
+            } finally {
+                if (leader == thisThread) {
+                    leader = null;
+                    leaderTick = Long.MAX_VALUE;
+                }
+            }
+        }
+
+        public RunnableScheduledFuture<?> take() throws InterruptedException {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                for (;;) {
+                    long now = System.nanoTime();
+                    Node n = pollReady(now);
+                    if (n != null)
+                        return finishPoll(n);
+                    if (pending == 0 || leader != null)
+                        available.await();
+                    else
+                        awaitNextBucket(now, Long.MAX_VALUE);
+                }
+            } finally {
+                if (leader == null && (ready != 0 || pending != 0))
+                    available.signal();
+                lock.unlock();
+            }
+        }
+
+        public RunnableScheduledFuture<?> poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                for (;;) {
+                    long now = System.nanoTime();
+                    Node n = pollReady(now);
+                    if (n != null)
+                        return finishPoll(n);
+                    if (nanos <= 0)
+                        return null;
+                    if (pending == 0)
+                        nanos = available.awaitNanos(nanos);
+                    else
+                        nanos = awaitNextBucket(now, nanos);
+                }
+            } finally {
+                if (leader == null && (ready != 0 || pending != 0))
+                    available.signal();
+                lock.unlock();
+            }
+        }
+
+        public void clear() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                for (int level = 0; level <= READY; level++) {
+                    Node[] hs = heads[level];
+                    if (hs != null) {
+                        for (int i = 0; i < hs.length; i++) {
+                            for (Node p = hs[i]; p != null; ) {
+                                Node q = p.next;
+                                p.prev = p.next = null;
+                                p.level = -1;
+                                if (p.task instanceof ScheduledFutureTask)
+                                    ((ScheduledFutureTask)p.task).timerNode = null;
+                                p = q;
+                            }
+                            hs[i] = tails[level][i] = null;
+                        }
+                        if (level < LEVELS)
+                            Arrays.fill(occupied[level], 0L);
+                    }
+                }
+                pending = ready = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            if (c == null)
+                throw new NullPointerException();
+            if (c == this)
+                throw new IllegalArgumentException();
+            if (maxElements <= 0)
+                return 0;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                Node first;
+                int n = 0;
+                if ((first = pollReady(System.nanoTime())) != null) {
+                    do {
+                        c.add(first.task);   // In this order, in case add() throws.
+                        finishPoll(first);
+                        ++n;
+                    } while (n < maxElements &&
+                             (first = heads[READY][0]) != null);
+                }
+                return n;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the tasks, ready ones first.
+         */
+        private RunnableScheduledFuture<?>[] snapshot() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                RunnableScheduledFuture<?>[] a =
+                    new RunnableScheduledFuture<?>[pending + ready];
+                int k = 0;
+                for (int level = READY; level >= 0; level--) {
+                    Node[] hs = heads[level];
+                    if (hs != null)
+                        for (Node p : hs)
+                            for (; p != null; p = p.next)
+                                a[k++] = p.task;
+                }
+                return a;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Object[] toArray() {
+            RunnableScheduledFuture<?>[] s = snapshot();
+            return Arrays.copyOf(s, s.length, Object[].class);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            RunnableScheduledFuture<?>[] s = snapshot();
+            if (a.length < s.length)
+                return (T[]) Arrays.copyOf(s, s.length, a.getClass());
+            System.arraycopy(s, 0, a, 0, s.length);
+            if (a.length > s.length)
+                a[s.length] = null;
+            return a;
+        }
+
+        public Iterator<Runnable> iterator() {
+            return new Itr(snapshot());
+        }
+
+        /**
+         * Snapshot iterator that works off a copy of the tasks.
+         */
+        private class Itr implements Iterator<Runnable> {
+            final RunnableScheduledFuture<?>[] array;
+            int cursor = 0;     // index of next element to return
+            int lastRet = -1;   // index of last element, or -1 if no such
+
+            Itr(RunnableScheduledFuture<?>[] array) {
+                this.array = array;
+            }
+
+            public boolean hasNext() {
+                return cursor < array.length;
+            }
+
+            public Runnable next() {
+                if (cursor >= array.length)
+                    throw new NoSuchElementException();
+                lastRet = cursor;
+                return array[cursor++];
+            }
+
+            public void remove() {
+                if (lastRet < 0)
+                    throw new IllegalStateException();
+                TimingWheelQueue.this.remove(array[lastRet]);
+                lastRet = -1;
+            }
+        }
+    }
 }
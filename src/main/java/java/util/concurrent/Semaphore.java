@@ -36,6 +36,7 @@
 package java.util.concurrent;
 import java.util.Collection;
 import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.LockStatistics;
 
 /**
  * A counting semaphore.  Conceptually, a semaphore maintains a set of
@@ -166,7 +167,8 @@ public class Semaphore implements java.io.Serializable {
     abstract static class Sync extends AbstractQueuedSynchronizer {
         private static final long serialVersionUID = 1192457210091910933L;
 
-        Sync(int permits) {
+        Sync(int permits, boolean adaptiveSpin) {
+            super(adaptiveSpin);
             setState(permits);
         }
 
@@ -213,6 +215,22 @@ public class Semaphore implements java.io.Serializable {
                     return current;
             }
         }
+
+        final boolean tryAcquirePermits(int acquires) {
+            if (nonfairTryAcquireShared(acquires) >= 0) {
+                recordAcquisition();
+                return true;
+            }
+            return false;
+        }
+
+        final void enableStatistics(LockStatistics stats) {
+            setStatistics(stats);
+        }
+
+        final LockStatistics statistics() {
+            return getStatistics();
+        }
     }
 
     /**
@@ -221,8 +239,8 @@ public class Semaphore implements java.io.Serializable {
     static final class NonfairSync extends Sync {
         private static final long serialVersionUID = -2694183684443567898L;
 
-        NonfairSync(int permits) {
-            super(permits);
+        NonfairSync(int permits, boolean adaptiveSpin) {
+            super(permits, adaptiveSpin);
         }
 
         protected int tryAcquireShared(int acquires) {
@@ -236,8 +254,8 @@ public class Semaphore implements java.io.Serializable {
     static final class FairSync extends Sync {
         private static final long serialVersionUID = 2014338818796000944L;
 
-        FairSync(int permits) {
-            super(permits);
+        FairSync(int permits, boolean adaptiveSpin) {
+            super(permits, adaptiveSpin);
         }
 
         protected int tryAcquireShared(int acquires) {
@@ -262,7 +280,7 @@ public class Semaphore implements java.io.Serializable {
      *        must occur before any acquires will be granted.
      */
     public Semaphore(int permits) {
-        sync = new NonfairSync(permits);
+        sync = new NonfairSync(permits, false);
     }
 
     /**
@@ -277,7 +295,29 @@ public class Semaphore implements java.io.Serializable {
      *        else {@code false}
      */
     public Semaphore(int permits, boolean fair) {
-        sync = fair ? new FairSync(permits) : new NonfairSync(permits);
+        this(permits, fair, false);
+    }
+
+    /**
+     * Creates a {@code Semaphore} with the given number of
+     * permits and the given fairness and spinning settings.  With
+     * adaptive spinning, a thread about to acquire a permit spins
+     * briefly, for a time learned from recent waits, before it blocks;
+     * this helps when permits are released soon after they run out.
+     *
+     * @param permits the initial number of permits available.
+     *        This value may be negative, in which case releases
+     *        must occur before any acquires will be granted.
+     * @param fair {@code true} if this semaphore will guarantee
+     *        first-in first-out granting of permits under contention,
+     *        else {@code false}
+     * @param adaptiveSpin {@code true} if waiting threads should spin
+     *        adaptively before blocking
+     * @since 1.8
+     */
+    public Semaphore(int permits, boolean fair, boolean adaptiveSpin) {
+        sync = fair ? new FairSync(permits, adaptiveSpin) :
+            new NonfairSync(permits, adaptiveSpin);
     }
 
     /**
@@ -360,7 +400,7 @@ public class Semaphore implements java.io.Serializable {
      *         otherwise
      */
     public boolean tryAcquire() {
-        return sync.nonfairTryAcquireShared(1) >= 0;
+        return sync.tryAcquirePermits(1);
     }
 
     /**
@@ -523,7 +563,7 @@ public class Semaphore implements java.io.Serializable {
      */
     public boolean tryAcquire(int permits) {
         if (permits < 0) throw new IllegalArgumentException();
-        return sync.nonfairTryAcquireShared(permits) >= 0;
+        return sync.tryAcquirePermits(permits);
     }
 
     /**
@@ -694,6 +734,37 @@ public class Semaphore implements java.io.Serializable {
         return sync.getQueuedThreads();
     }
 
+    /**
+     * Enables recording of contention statistics for this semaphore
+     * into the {@link LockStatistics} registered under the given name,
+     * and returns them.  Semaphores and locks enabled under the same
+     * name share their statistics, which are published as a {@link
+     * java.lang.management.LockContentionMXBean}.  Statistics are not
+     * serialized with the semaphore.
+     *
+     * @param name the name of the statistics
+     * @return the statistics this semaphore now records into
+     * @throws NullPointerException if {@code name} is null
+     * @since 1.8
+     */
+    public LockStatistics enableStatistics(String name) {
+        LockStatistics stats = LockStatistics.forName(name);
+        sync.enableStatistics(stats);
+        return stats;
+    }
+
+    /**
+     * Returns the statistics this semaphore records into, or {@code
+     * null} if statistics have not been {@linkplain #enableStatistics
+     * enabled}.
+     *
+     * @return the statistics, or {@code null}
+     * @since 1.8
+     */
+    public LockStatistics getStatistics() {
+        return sync.statistics();
+    }
+
     /**
      * Returns a string identifying this semaphore, as well as its state.
      * The state, in brackets, includes the String {@code "Permits ="}
@@ -0,0 +1,151 @@
+package java.util.concurrent;
+
+import java.util.Collection;
+
+/**
+ * A bounded wait-free {@linkplain BlockingQueue blocking queue} backed by
+ * a ring of slots, for use by exactly one producer thread and one
+ * consumer thread at a time.  This queue orders elements FIFO.
+ *
+ * <p>With a single thread at each end no atomic read-modify-write
+ * instructions are needed: the producer writes an element into the next
+ * slot with an ordered store, and the consumer recognizes a published
+ * slot by its non-null element and clears it the same way.  Each side
+ * advances its own padded index and caches the other side's, reading it
+ * only when the cached value says the ring looks full.
+ *
+ * <p>Insertion methods must only be invoked by one thread at a time,
+ * and likewise removal methods, including {@code drainTo}; the queue
+ * is otherwise left inconsistent.  The handoff between successive
+ * producer (or consumer) threads must itself establish a
+ * <i>happens-before</i> relation.  Blocking, batch draining, iteration
+ * and the restrictions on removal are as described for {@link
+ * MpmcArrayQueue}.  This queue does not permit {@code null} elements and
+ * is not serializable.
+ *
+ * @param <E> the type of elements held in this queue
+ * @see MpmcArrayQueue
+ * @since 1.8
+ */
+public class SpscArrayQueue<E> extends AbstractRingQueue<E> {
+
+    /** Number of elements ever inserted; written only by the producer */
+    @sun.misc.Contended("producer") volatile long producerIndex;
+
+    /** Producer's cached bound: insertion is known possible below it */
+    @sun.misc.Contended("producer") long producerLimit;
+
+    /** Number of elements ever removed; written only by the consumer */
+    @sun.misc.Contended("consumer") volatile long consumerIndex;
+
+    /**
+     * Creates a queue with (at least) the given capacity, whose blocked
+     * threads park.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity} is not
+     *         positive or exceeds 2^30
+     */
+    public SpscArrayQueue(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * Creates a queue with (at least) the given capacity and the given
+     * waiting mode.
+     *
+     * @param capacity the capacity of this queue
+     * @param spinWait if {@code true}, blocked threads spin and yield
+     *        instead of parking, and updates never check for waiters
+     * @throws IllegalArgumentException if {@code capacity} is not
+     *         positive or exceeds 2^30
+     */
+    public SpscArrayQueue(int capacity, boolean spinWait) {
+        super(capacity, spinWait);
+        this.producerLimit = capacity;
+    }
+
+    private static long slotOffset(long i) {
+        return ((i << ASHIFT) + ABASE);
+    }
+
+    final long producerIndex() { return producerIndex; }
+    final long consumerIndex() { return consumerIndex; }
+
+    final boolean offerInternal(E e) {
+        long pi = producerIndex;
+        if (pi >= producerLimit) {
+            long limit = consumerIndex + capacity;
+            if (pi >= limit)
+                return false;
+            producerLimit = limit;
+        }
+        U.putOrderedObject(buffer, slotOffset(pi & mask), e);
+        U.putOrderedLong(this, PINDEX, pi + 1L);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    final E pollInternal() {
+        long ci = consumerIndex;
+        long eo = slotOffset(ci & mask);
+        E e = (E)U.getObjectVolatile(buffer, eo);
+        if (e != null) {
+            U.putOrderedObject(buffer, eo, null);
+            U.putOrderedLong(this, CINDEX, ci + 1L);
+        }
+        return e;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        return (E)U.getObjectVolatile(buffer, slotOffset(consumerIndex & mask));
+    }
+
+    /**
+     * Moves published elements to c, advancing the consumer index once
+     * for the whole run.
+     */
+    @SuppressWarnings("unchecked")
+    final int drainInternal(Collection<? super E> c, int max) {
+        final long ci = consumerIndex;
+        final int m = mask;
+        int n = 0;
+        try {
+            for (E e; n < max &&
+                     (e = (E)U.getObjectVolatile(buffer, slotOffset((ci + n) & m))) != null; ) {
+                U.putOrderedObject(buffer, slotOffset((ci + n) & m), null);
+                ++n;
+                c.add(e);
+            }
+        } finally {
+            if (n != 0)
+                U.putOrderedLong(this, CINDEX, ci + n);
+        }
+        return n;
+    }
+
+    @SuppressWarnings("unchecked")
+    final void snapshot(Collection<? super E> c) {
+        long pi = producerIndex;
+        for (long i = consumerIndex; i < pi; ++i) {
+            E e = (E)U.getObjectVolatile(buffer, slotOffset(i & mask));
+            if (e == null || consumerIndex > i)
+                break;          // consumed meanwhile, possibly refilled
+            c.add(e);
+        }
+    }
+
+    // Unsafe mechanics
+    private static final long PINDEX;
+    private static final long CINDEX;
+    static {
+        try {
+            Class<?> k = SpscArrayQueue.class;
+            PINDEX = U.objectFieldOffset(k.getDeclaredField("producerIndex"));
+            CINDEX = U.objectFieldOffset(k.getDeclaredField("consumerIndex"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
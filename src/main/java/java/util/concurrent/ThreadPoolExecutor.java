@@ -194,6 +194,12 @@ import java.util.*;
  *
  * </ol>
  *
+ * With many threads, a queue guarded by a single lock may itself
+ * become the main point of contention.  A {@link WorkStealingQueue}
+ * instead gives each thread its own queue, from which idle workers
+ * steal, and may be used in any of the above roles: unbounded, or
+ * bounded per underlying queue.
+ *
  * </dd>
  *
  * <dt>Rejected tasks</dt>
@@ -0,0 +1,97 @@
+package java.util.concurrent;
+
+/**
+ * A {@link ScheduledThreadPoolExecutor} that keeps its delayed tasks in
+ * a hierarchical hashed timing wheel rather than a binary heap, for
+ * applications that schedule large numbers of tasks, such as timeouts,
+ * and cancel most of them before they run.
+ *
+ * <p>Time is divided into ticks of a fixed duration, given at
+ * construction.  Scheduling and cancelling a task take constant time
+ * regardless of the number of scheduled tasks, where the heap of a
+ * {@code ScheduledThreadPoolExecutor} takes time logarithmic in that
+ * number.  The wheel is advanced lazily, when a thread looks for a task
+ * to run, directly to the next tick at which some task falls due, so an
+ * idle executor does not wake up on every tick.  The price is
+ * precision: a delayed task is never enabled before its delay elapses,
+ * but may be enabled up to one tick later than a {@code
+ * ScheduledThreadPoolExecutor} would enable it, and tasks enabled in the
+ * same tick are not necessarily enabled in the order of their trigger
+ * times.
+ *
+ * <p>Cancelled tasks are always removed from the work queue at the time
+ * of cancellation, so {@link #setRemoveOnCancelPolicy} has no effect.
+ * In all other respects this class behaves as its superclass.
+ *
+ * @since 1.8
+ */
+public class TimingWheelScheduledExecutor extends ScheduledThreadPoolExecutor {
+
+    /** The default tick, in nanoseconds: one millisecond. */
+    static final long DEFAULT_TICK_NANOS = 1000L * 1000L;
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * core pool size and a tick of one millisecond.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @throws IllegalArgumentException if {@code corePoolSize < 0}
+     */
+    public TimingWheelScheduledExecutor(int corePoolSize) {
+        this(corePoolSize, DEFAULT_TICK_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * core pool size and tick.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param tick the resolution of the timing wheel
+     * @param unit the time unit of the {@code tick} argument
+     * @throws IllegalArgumentException if {@code corePoolSize < 0} or
+     *         {@code tick} is not positive
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public TimingWheelScheduledExecutor(int corePoolSize,
+                                        long tick, TimeUnit unit) {
+        this(corePoolSize, tick, unit, Executors.defaultThreadFactory(),
+             new AbortPolicy());
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * initial parameters.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param tick the resolution of the timing wheel
+     * @param unit the time unit of the {@code tick} argument
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @param handler the handler to use when execution is blocked
+     *        because the thread bounds and queue capacities are reached
+     * @throws IllegalArgumentException if {@code corePoolSize < 0} or
+     *         {@code tick} is not positive
+     * @throws NullPointerException if {@code unit}, {@code threadFactory}
+     *         or {@code handler} is null
+     */
+    public TimingWheelScheduledExecutor(int corePoolSize,
+                                        long tick, TimeUnit unit,
+                                        ThreadFactory threadFactory,
+                                        RejectedExecutionHandler handler) {
+        super(corePoolSize, unit.toNanos(tick), threadFactory, handler);
+    }
+
+    /**
+     * Has no effect: cancelled tasks are always removed from the work
+     * queue at the time of cancellation.
+     *
+     * @param value ignored
+     * @see #getRemoveOnCancelPolicy
+     */
+    @Override
+    public void setRemoveOnCancelPolicy(boolean value) {
+    }
+}
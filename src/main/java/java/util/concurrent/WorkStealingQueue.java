@@ -0,0 +1,667 @@
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@linkplain BlockingQueue blocking queue} that spreads its elements
+ * over a fixed array of work-stealing queues, intended as the work queue
+ * of a {@link ThreadPoolExecutor} running many threads.
+ *
+ * <p>A single shared queue such as {@link LinkedBlockingQueue} makes
+ * every submission and every task retrieval in a pool acquire the same
+ * lock.  Here each thread is associated, through its thread-local probe
+ * hash, with one of the underlying queues.  Insertions add to the
+ * thread's own queue under a lock that is rarely contended, rehashing to
+ * another queue if it is.  Removals first poll the thread's own queue
+ * and otherwise steal from the others, claiming an element with a
+ * single CAS in the manner of {@link ForkJoinPool} work queues.  Worker
+ * threads of a pool thus mostly touch distinct memory, and interfere
+ * only when stealing.  Threads blocked in {@link #take} or {@link #poll(
+ * long, TimeUnit)} wait on a condition that producers signal only when
+ * such threads exist.
+ *
+ * <p>Elements are removed in FIFO order from each underlying queue, but
+ * this class makes no guarantee about the relative order of elements
+ * inserted by different threads.  The optional capacity bound applies to
+ * each underlying queue separately: {@link #offer(Object) offer} fails,
+ * and so a {@code ThreadPoolExecutor} adds threads beyond its core size
+ * or rejects the task, only when every underlying queue is full.  The
+ * {@code size} and {@code remainingCapacity} methods traverse all
+ * underlying queues, and are only estimates when the queue is being
+ * modified concurrently.  Iterators are weakly consistent and traverse
+ * a snapshot.  This queue does not permit {@code null} elements and is
+ * not serializable.
+ *
+ * <p><b>Sample Usage.</b> A pool of 64 threads whose workers do not
+ * contend on a common queue:
+ *
+ * <pre> {@code
+ * ExecutorService pool =
+ *   new ThreadPoolExecutor(64, 64, 0L, TimeUnit.MILLISECONDS,
+ *                          new WorkStealingQueue<Runnable>(64));}</pre>
+ *
+ * @param <E> the type of elements held in this queue
+ * @see Executors#newWorkStealingThreadPool(int)
+ * @since 1.8
+ */
+public class WorkStealingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * Each WorkQueue is a circular array indexed by base and top as in
+     * ForkJoinPool.WorkQueue, except that any thread may push (holding
+     * qlock) and all threads poll from base, so each is used as a FIFO
+     * queue.  A pushing thread that fails to acquire qlock advances its
+     * probe and tries another queue, so the probe doubles as an
+     * adaptive thread-to-queue assignment.  Once it has found a full
+     * queue, though, it sweeps the queues in turn from there, waiting
+     * out a busy qlock rather than skipping that queue, so that it
+     * reports failure only after finding each distinct queue full.
+     *
+     * Removal of interior elements (remove(Object), used by
+     * ThreadPoolExecutor.remove and purge) replaces the slot's element
+     * with the REMOVED marker, which polls skip, rather than shifting
+     * elements.
+     *
+     * Blocking uses a single lock and two conditions, touched only by
+     * threads that found nothing to take (or no room to put), and by
+     * threads that see a nonzero count of such waiters.  Waiters
+     * publish their count before rescanning, and updaters write top or
+     * base before reading the count; as all of these are volatile,
+     * either the waiter sees the update or the updater sees the waiter.
+     */
+
+    /** Marker left in the slot of an element removed from the interior. */
+    static final Object REMOVED = new Object();
+
+    /** Initial capacity of a WorkQueue's array; must be a power of two. */
+    static final int INITIAL_QUEUE_CAPACITY = 1 << 5;
+
+    /** Maximum size of a WorkQueue's array; must be a power of two. */
+    static final int MAXIMUM_QUEUE_CAPACITY = 1 << 26;
+
+    /** Maximum number of underlying queues. */
+    static final int MAXIMUM_QUEUES = 1 << 16;
+
+    /**
+     * A FIFO queue supporting locked pushes and lock-free polls.
+     */
+    @sun.misc.Contended
+    static final class WorkQueue {
+        volatile int qlock;        // 1: locked, else 0
+        volatile int base;         // index of next slot for poll
+        volatile int top;          // index of next slot for push
+        volatile Object[] array;   // the elements (initially unallocated)
+
+        /**
+         * Adds x if fewer than cap elements are present.  Call only
+         * while holding qlock.
+         */
+        final boolean push(Object x, int cap) {
+            int s = top, n = s - base;
+            if (n >= cap || n >= MAXIMUM_QUEUE_CAPACITY - 1)
+                return false;
+            Object[] a = array;
+            if (a == null || n >= a.length - 1)
+                a = growArray();
+            U.putOrderedObject(a, slotOffset(a, s), x);
+            top = s + 1;
+            return true;
+        }
+
+        /**
+         * Allocates or doubles the array, moving elements with CASes so
+         * that concurrent polls claim each element exactly once.  The
+         * new array is published only once filled.  Call only while
+         * holding qlock.
+         */
+        final Object[] growArray() {
+            Object[] oldA = array;
+            int size = (oldA != null) ? oldA.length << 1 : INITIAL_QUEUE_CAPACITY;
+            Object[] a = new Object[size];
+            int t, b;
+            if (oldA != null && (t = top) - (b = base) > 0) {
+                do {
+                    long oldj = slotOffset(oldA, b);
+                    Object x = U.getObjectVolatile(oldA, oldj);
+                    if (x != null && U.compareAndSwapObject(oldA, oldj, x, null))
+                        U.putObjectVolatile(a, slotOffset(a, b), x);
+                } while (++b != t);
+            }
+            return array = a;
+        }
+
+        /**
+         * Takes the element at base, if one exists, skipping removed
+         * slots.
+         */
+        final Object poll() {
+            Object[] a;
+            int b;
+            while ((b = base) - top < 0 && (a = array) != null) {
+                long j = slotOffset(a, b);
+                Object x = U.getObjectVolatile(a, j);
+                if (x != null) {
+                    if (base == b && U.compareAndSwapObject(a, j, x, null)) {
+                        base = b + 1;
+                        if (x != REMOVED)
+                            return x;
+                    }
+                }
+                else if (base == b) {
+                    if (b + 1 == top)
+                        break;          // being moved by growArray
+                    Thread.yield();     // wait for lagging update
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the first live element, or null if none.
+         */
+        final Object peek() {
+            Object[] a = array;
+            if (a != null) {
+                for (int b = base, t = top; b - t < 0; ++b) {
+                    Object x = U.getObjectVolatile(a, slotOffset(a, b));
+                    if (x != null && x != REMOVED)
+                        return x;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Replaces the first element matching o with REMOVED.
+         */
+        final boolean remove(Object o, boolean identity) {
+            Object[] a;
+            do {
+                if ((a = array) == null)
+                    return false;
+                for (int b = base, t = top; b - t < 0; ++b) {
+                    long j = slotOffset(a, b);
+                    Object x = U.getObjectVolatile(a, j);
+                    if (x != null && x != REMOVED &&
+                        (identity ? x == o : o.equals(x)) &&
+                        U.compareAndSwapObject(a, j, x, REMOVED))
+                        return true;
+                }
+            } while (a != array);       // retry if moved meanwhile
+            return false;
+        }
+
+        /**
+         * Adds the live elements to c, returning their number.
+         */
+        final int snapshot(Collection<Object> c) {
+            Object[] a = array;
+            int n = 0;
+            if (a != null) {
+                for (int b = base, t = top; b - t < 0; ++b) {
+                    Object x = U.getObjectVolatile(a, slotOffset(a, b));
+                    if (x != null && x != REMOVED) {
+                        if (c != null)
+                            c.add(x);
+                        ++n;
+                    }
+                }
+            }
+            return n;
+        }
+
+        static long slotOffset(Object[] a, int i) {
+            return ((long)((a.length - 1) & i) << ASHIFT) + ABASE;
+        }
+    }
+
+    /** The underlying queues; length is a power of two. */
+    final WorkQueue[] queues;
+
+    /** Maximum number of elements held by each underlying queue, or
+     *  Integer.MAX_VALUE if unbounded. */
+    final int capacity;
+
+    /** Lock guarding waits for elements or space. */
+    final ReentrantLock lock = new ReentrantLock();
+
+    /** Condition for waiting takes. */
+    private final Condition notEmpty = lock.newCondition();
+
+    /** Condition for waiting puts. */
+    private final Condition notFull = lock.newCondition();
+
+    /** Number of threads waiting in take or timed poll. */
+    private volatile int takers;
+
+    /** Number of threads waiting in put or timed offer. */
+    private volatile int putters;
+
+    /**
+     * Creates a queue with one underlying queue per available
+     * processor and no capacity bound.
+     */
+    public WorkStealingQueue() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a queue with at least the given number of underlying
+     * queues and no capacity bound.
+     *
+     * @param parallelism the expected number of threads concurrently
+     *        using this queue, typically the pool size
+     * @throws IllegalArgumentException if {@code parallelism} is not
+     *         positive
+     */
+    public WorkStealingQueue(int parallelism) {
+        this(parallelism, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a queue with at least the given number of underlying
+     * queues, each holding at most the given number of elements.
+     *
+     * @param parallelism the expected number of threads concurrently
+     *        using this queue, typically the pool size
+     * @param capacity the maximum number of elements in each underlying
+     *        queue, which in any case holds fewer than 2^26 elements
+     * @throws IllegalArgumentException if {@code parallelism} or
+     *         {@code capacity} is not positive
+     */
+    public WorkStealingQueue(int parallelism, int capacity) {
+        if (parallelism <= 0 || capacity <= 0)
+            throw new IllegalArgumentException();
+        int n = 1;
+        while (n < parallelism && n < MAXIMUM_QUEUES)
+            n <<= 1;
+        WorkQueue[] qs = new WorkQueue[n];
+        for (int i = 0; i < n; ++i)
+            qs[i] = new WorkQueue();
+        this.queues = qs;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the probe hash of the current thread, initializing it if
+     * necessary.
+     */
+    private static int probe() {
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit();
+            h = ThreadLocalRandom.getProbe();
+        }
+        return h;
+    }
+
+    /**
+     * Pushes e to the current thread's queue, moving on to another one
+     * if its lock is busy or it is full.  Returns false only if every
+     * queue was found full, each being counted once.
+     */
+    private boolean tryPush(Object e) {
+        final WorkQueue[] qs = queues;
+        final int m = qs.length - 1;
+        int r = probe();
+        for (int full = 0;;) {
+            WorkQueue q = qs[r & m];
+            if (U.compareAndSwapInt(q, QLOCK, 0, 1)) {
+                boolean pushed;
+                try {
+                    pushed = q.push(e, capacity);
+                } finally {
+                    q.qlock = 0;
+                }
+                if (pushed) {
+                    if (takers != 0)
+                        signal(notEmpty);
+                    return true;
+                }
+                if (++full > m)
+                    return false;
+                ++r;                    // sweep the queues from here on
+            }
+            else if (full == 0)
+                r = ThreadLocalRandom.advanceProbe(r);
+            else
+                Thread.yield();         // revisiting could recount a queue
+        }
+    }
+
+    /**
+     * Polls the current thread's queue, then the others in turn.
+     */
+    @SuppressWarnings("unchecked")
+    private E scan() {
+        final WorkQueue[] qs = queues;
+        final int m = qs.length - 1;
+        int r = probe();
+        for (int i = 0; i <= m; ++i) {
+            Object x = qs[(r + i) & m].poll();
+            if (x != null) {
+                if (putters != 0)
+                    signal(notFull);
+                return (E)x;
+            }
+        }
+        return null;
+    }
+
+    private void signal(Condition cond) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            cond.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts the specified element into this queue if it is possible
+     * to do so immediately without violating the capacity bound,
+     * returning {@code true} upon success and {@code false} if every
+     * underlying queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        return tryPush(e);
+    }
+
+    /**
+     * Inserts the specified element into this queue, waiting if
+     * necessary for space to become available in some underlying queue.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (e == null) throw new NullPointerException();
+        if (!tryPush(e)) {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++putters;
+                try {
+                    while (!tryPush(e))
+                        notFull.await();
+                } finally {
+                    --putters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Inserts the specified element into this queue, waiting up to the
+     * specified wait time if necessary for space to become available in
+     * some underlying queue.
+     *
+     * @return {@code true} if successful, or {@code false} if
+     *         the specified waiting time elapses before space is available
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (e == null) throw new NullPointerException();
+        if (tryPush(e))
+            return true;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            ++putters;
+            try {
+                while (!tryPush(e)) {
+                    if (nanos <= 0)
+                        return false;
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                return true;
+            } finally {
+                --putters;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public E poll() {
+        return scan();
+    }
+
+    public E take() throws InterruptedException {
+        E x;
+        if ((x = scan()) == null) {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++takers;
+                try {
+                    while ((x = scan()) == null)
+                        notEmpty.await();
+                } finally {
+                    --takers;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return x;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E x;
+        if ((x = scan()) == null) {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++takers;
+                try {
+                    while ((x = scan()) == null) {
+                        if (nanos <= 0)
+                            return null;
+                        nanos = notEmpty.awaitNanos(nanos);
+                    }
+                } finally {
+                    --takers;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return x;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final WorkQueue[] qs = queues;
+        final int m = qs.length - 1;
+        int r = probe();
+        for (int i = 0; i <= m; ++i) {
+            Object x = qs[(r + i) & m].peek();
+            if (x != null)
+                return (E)x;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of elements in this queue.  The result is
+     * computed by traversing all underlying queues.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long n = 0L;
+        for (WorkQueue q : queues)
+            n += q.snapshot(null);
+        return (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    public boolean isEmpty() {
+        for (WorkQueue q : queues)
+            if (q.peek() != null)
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints) accept
+     * without blocking, or {@code Integer.MAX_VALUE} if there is no
+     * intrinsic limit.  As each underlying queue is bounded separately,
+     * an insertion may succeed only after moving on to a queue other
+     * than the inserting thread's own.
+     *
+     * @return the remaining capacity
+     */
+    public int remainingCapacity() {
+        if (capacity == Integer.MAX_VALUE)
+            return Integer.MAX_VALUE;
+        long r = (long)capacity * queues.length - size();
+        return (r >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)Math.max(r, 0L);
+    }
+
+    /**
+     * Removes a single instance of the specified element from this
+     * queue, if it is present.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o != null) {
+            for (WorkQueue q : queues)
+                if (q.remove(o, false))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        for (E x; n < maxElements && (x = scan()) != null; ++n)
+            c.add(x);
+        return n;
+    }
+
+    /**
+     * Returns the elements of each underlying queue in turn.
+     */
+    private ArrayList<Object> snapshot() {
+        ArrayList<Object> list = new ArrayList<Object>();
+        for (WorkQueue q : queues)
+            q.snapshot(list);
+        return list;
+    }
+
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    public <T> T[] toArray(T[] a) {
+        return snapshot().toArray(a);
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this
+     * queue, taken from each underlying queue in turn.  The iterator's
+     * {@code remove} method removes the element last returned, if it is
+     * still present.
+     *
+     * <p>The returned iterator is
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr(snapshot().toArray());
+    }
+
+    final class Itr implements Iterator<E> {
+        final Object[] array;
+        int cursor;
+        int lastRet = -1;
+
+        Itr(Object[] array) {
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= array.length)
+                throw new NoSuchElementException();
+            lastRet = cursor;
+            return (E)array[cursor++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            Object x = array[lastRet];
+            lastRet = -1;
+            for (WorkQueue q : queues)
+                if (q.remove(x, true))
+                    break;
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long QLOCK;
+    private static final int ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            QLOCK = U.objectFieldOffset
+                (WorkQueue.class.getDeclaredField("qlock"));
+            ABASE = U.arrayBaseOffset(Object[].class);
+            int scale = U.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package java.util.concurrent.atomic;
+
+/**
+ * A histogram of non-negative {@code double} values, such as
+ * latencies in seconds, recorded by many threads.  Values are counted
+ * in log-linear buckets, each covering a fraction {@code
+ * 2^-precision} of its lowest value, between a lowest and a highest
+ * value given at construction; every value reported by a {@link
+ * Snapshot} is within that relative error of a recorded value.  Values
+ * below the lowest value (including zero) are counted in the first
+ * bucket, and values above the highest value in the last.  The number
+ * of buckets is about {@code 2^precision} times the base 2 logarithm
+ * of the ratio of the highest to the lowest value.
+ *
+ * <p>Recording is wait-free, and snapshots, resets and queries have
+ * the same properties as those of {@link LongHistogram}.
+ *
+ * @since 1.8
+ * @see LongHistogram
+ */
+public class DoubleHistogram extends StripedHistogram {
+
+    private final int precision;
+    private final double lowestTrackableValue;
+    private final double highestTrackableValue;
+
+    /** Number of low-order bits of a double ignored in bucketing */
+    private final int shift;
+
+    /** The bucketing key of the lowest trackable value */
+    private final long lowKey;
+
+    /**
+     * Creates a new empty histogram for the given range of values,
+     * with a relative precision of {@code 2^-7}, under one percent.
+     *
+     * @param lowestTrackableValue the lowest value counted in its own
+     *        bucket
+     * @param highestTrackableValue the highest value counted in its
+     *        own bucket
+     * @throws IllegalArgumentException if {@code lowestTrackableValue}
+     *         is not positive, or {@code highestTrackableValue} is not
+     *         finite and greater than {@code lowestTrackableValue}
+     */
+    public DoubleHistogram(double lowestTrackableValue,
+                           double highestTrackableValue) {
+        this(lowestTrackableValue, highestTrackableValue,
+             LongHistogram.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a new empty histogram for the given range of values,
+     * with the given precision.
+     *
+     * @param lowestTrackableValue the lowest value counted in its own
+     *        bucket
+     * @param highestTrackableValue the highest value counted in its
+     *        own bucket
+     * @param precision the number of bits of the significand of each
+     *        value that are counted exactly; values are reported within
+     *        a relative error of {@code 2^-precision}
+     * @throws IllegalArgumentException if {@code lowestTrackableValue}
+     *         is not positive, {@code highestTrackableValue} is not
+     *         finite and greater than {@code lowestTrackableValue}, or
+     *         {@code precision} is negative or greater than 10
+     */
+    public DoubleHistogram(double lowestTrackableValue,
+                           double highestTrackableValue,
+                           int precision) {
+        super(bucketCount(lowestTrackableValue, highestTrackableValue,
+                          precision));
+        this.precision = precision;
+        this.lowestTrackableValue = lowestTrackableValue;
+        this.highestTrackableValue = highestTrackableValue;
+        this.shift = 52 - precision;
+        this.lowKey = Double.doubleToRawLongBits(lowestTrackableValue) >>> shift;
+    }
+
+    private static int bucketCount(double lowest, double highest,
+                                   int precision) {
+        if (!(lowest > 0.0 && lowest < highest &&
+              highest < Double.POSITIVE_INFINITY) ||
+            precision < 0 || precision > LongHistogram.MAX_PRECISION)
+            throw new IllegalArgumentException();
+        int s = 52 - precision;
+        return (int)((Double.doubleToRawLongBits(highest) >>> s) -
+                     (Double.doubleToRawLongBits(lowest) >>> s)) + 1;
+    }
+
+    /**
+     * Returns the index of the bucket holding the given value.  The
+     * raw bits of non-negative doubles are ordered as their values, and
+     * the high bits hold the exponent and leading significand bits.
+     */
+    private int bucketFor(double value) {
+        long k = (Double.doubleToRawLongBits(value) >>> shift) - lowKey;
+        return ((value < lowestTrackableValue || k < 0L) ? 0 :
+                (k >= buckets) ? buckets - 1 : (int)k);
+    }
+
+    /**
+     * Returns the least upper bound of the values counted in the given
+     * bucket, ignoring values outside the trackable range.
+     */
+    private static double upperBound(int bucket, long lowKey, int shift) {
+        return Double.longBitsToDouble((lowKey + bucket + 1L) << shift);
+    }
+
+    /**
+     * Records one occurrence of the given value.
+     *
+     * @param value the value
+     * @throws IllegalArgumentException if {@code value} is negative or
+     *         NaN
+     */
+    public void record(double value) {
+        if (!(value >= 0.0))
+            throw new IllegalArgumentException();
+        add(bucketFor(value), 1L);
+    }
+
+    /**
+     * Records the given number of occurrences of the given value.
+     *
+     * @param value the value
+     * @param count the number of occurrences
+     * @throws IllegalArgumentException if {@code value} is negative or
+     *         NaN, or {@code count} is negative
+     */
+    public void record(double value, long count) {
+        if (!(value >= 0.0) || count < 0L)
+            throw new IllegalArgumentException();
+        if (count != 0L)
+            add(bucketFor(value), count);
+    }
+
+    /**
+     * Returns the precision of this histogram.
+     *
+     * @return the precision
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Returns the lowest value counted in its own bucket.
+     *
+     * @return the lowest trackable value
+     */
+    public double getLowestTrackableValue() {
+        return lowestTrackableValue;
+    }
+
+    /**
+     * Returns the highest value counted in its own bucket.
+     *
+     * @return the highest trackable value
+     */
+    public double getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * Returns a snapshot of the counts of this histogram.
+     *
+     * @return a snapshot of the counts of this histogram
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(counts(false), lowKey, shift);
+    }
+
+    /**
+     * Returns a snapshot of the counts of this histogram, and removes
+     * the counts returned from the histogram.  Recordings concurrent
+     * with this method are either included in the snapshot or remain
+     * in the histogram.
+     *
+     * @return a snapshot of the counts removed from this histogram
+     */
+    public Snapshot snapshotThenReset() {
+        return new Snapshot(counts(true), lowKey, shift);
+    }
+
+    /**
+     * Removes all counts from this histogram.  Equivalent to {@link
+     * #snapshotThenReset}, ignoring the result.
+     */
+    public void reset() {
+        counts(true);
+    }
+
+    /**
+     * Returns the String representation of the {@link #snapshot}.
+     *
+     * @return the String representation of the {@link #snapshot}
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * An immutable set of bucket counts taken from a {@link
+     * DoubleHistogram}, supporting percentile queries.  All values
+     * returned are the lower or upper bound of some bucket, so are
+     * within the relative precision of the histogram of a recorded
+     * value in the trackable range.
+     *
+     * @since 1.8
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long lowKey;
+        private final int shift;
+        private final long total;
+
+        Snapshot(long[] counts, long lowKey, int shift) {
+            this.counts = counts;
+            this.lowKey = lowKey;
+            this.shift = shift;
+            this.total = total(counts);
+        }
+
+        /**
+         * Returns the number of values recorded.
+         *
+         * @return the number of values recorded
+         */
+        public long getCount() {
+            return total;
+        }
+
+        /**
+         * Returns the value below or at which the given percentage of
+         * recorded values lie, or zero if no values are recorded.
+         *
+         * @param percentile the percentage, from 0.0 to 100.0
+         * @return the value at the given percentile
+         * @throws IllegalArgumentException if {@code percentile} is
+         *         not between 0.0 and 100.0
+         */
+        public double getValueAtPercentile(double percentile) {
+            int i = bucketAtPercentile(counts, total, percentile);
+            return (i < 0) ? 0.0 : upperBound(i, lowKey, shift);
+        }
+
+        /**
+         * Returns the smallest recorded value, or zero if no values
+         * are recorded.
+         *
+         * @return the smallest recorded value
+         */
+        public double getMinValue() {
+            int i = lowestBucket(counts);
+            return (i < 0) ? 0.0 : upperBound(i - 1, lowKey, shift);
+        }
+
+        /**
+         * Returns the largest recorded value, or zero if no values are
+         * recorded.
+         *
+         * @return the largest recorded value
+         */
+        public double getMaxValue() {
+            int i = highestBucket(counts);
+            return (i < 0) ? 0.0 : upperBound(i, lowKey, shift);
+        }
+
+        /**
+         * Returns a string summarizing this snapshot: its count, the
+         * minimum, median, 90th, 99th and 99.9th percentile, and
+         * maximum values.
+         *
+         * @return a string summarizing this snapshot
+         */
+        public String toString() {
+            return "[count=" + total +
+                ", min=" + getMinValue() +
+                ", p50=" + getValueAtPercentile(50.0) +
+                ", p90=" + getValueAtPercentile(90.0) +
+                ", p99=" + getValueAtPercentile(99.0) +
+                ", p99.9=" + getValueAtPercentile(99.9) +
+                ", max=" + getMaxValue() + "]";
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package java.util.concurrent.atomic;
+
+/**
+ * A histogram of non-negative {@code long} values, such as latencies
+ * in nanoseconds, recorded by many threads.  Values are counted in
+ * log-linear buckets: values below {@code 2^(precision+1)} are counted
+ * exactly, and larger values in buckets whose width is at most a
+ * fraction {@code 2^-precision} of the values they hold, so every
+ * value reported by a {@link Snapshot} is within that relative error
+ * of a recorded value.  The number of buckets is {@code
+ * (64 - precision) * 2^precision}, so any non-negative {@code long} can
+ * be recorded.
+ *
+ * <p>When recordings are contended across threads, the counts are
+ * spread over a set of arrays that grows dynamically, in the manner
+ * of {@link LongAdder}, at the expense of space: each array holds a
+ * count per bucket.  Recording is wait-free.  Methods {@link
+ * #snapshot} and {@link #snapshotThenReset} never block recording
+ * threads, and a reset never loses a concurrent recording, which is
+ * counted either in the returned snapshot or in the histogram; but a
+ * snapshot taken during concurrent recording is not an atomic view
+ * of the histogram.  Percentile and other queries are answered by
+ * the snapshot, without further reference to the histogram.
+ *
+ * @since 1.8
+ * @see DoubleHistogram
+ */
+public class LongHistogram extends StripedHistogram {
+
+    /** The default precision, for a relative error below one percent */
+    static final int DEFAULT_PRECISION = 7;
+
+    /** The largest precision */
+    static final int MAX_PRECISION = 10;
+
+    private final int precision;
+
+    /**
+     * Creates a new empty histogram with a relative precision of
+     * {@code 2^-7}, under one percent.
+     */
+    public LongHistogram() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a new empty histogram with the given precision.
+     *
+     * @param precision the number of bits of each value, after the
+     *        highest one bit, that are counted exactly; values are
+     *        reported within a relative error of {@code 2^-precision}
+     * @throws IllegalArgumentException if {@code precision} is
+     *         negative or greater than 10
+     */
+    public LongHistogram(int precision) {
+        super(bucketCount(precision));
+        this.precision = precision;
+    }
+
+    private static int bucketCount(int precision) {
+        if (precision < 0 || precision > MAX_PRECISION)
+            throw new IllegalArgumentException();
+        return (64 - precision) << precision;
+    }
+
+    /**
+     * Returns the index of the bucket holding the given value.
+     */
+    static int bucketFor(long value, int precision) {
+        int s = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - precision);
+        return (s << precision) + (int)(value >>> s);
+    }
+
+    /**
+     * Returns the lowest value counted in the given bucket.
+     */
+    static long lowestValue(int bucket, int precision) {
+        int s = Math.max(0, (bucket >>> precision) - 1);
+        return (long)(bucket - (s << precision)) << s;
+    }
+
+    /**
+     * Returns the highest value counted in the given bucket.
+     */
+    static long highestValue(int bucket, int precision) {
+        int s = Math.max(0, (bucket >>> precision) - 1);
+        return lowestValue(bucket, precision) + ((1L << s) - 1L);
+    }
+
+    /**
+     * Records one occurrence of the given value.
+     *
+     * @param value the value
+     * @throws IllegalArgumentException if {@code value} is negative
+     */
+    public void record(long value) {
+        if (value < 0L)
+            throw new IllegalArgumentException();
+        add(bucketFor(value, precision), 1L);
+    }
+
+    /**
+     * Records the given number of occurrences of the given value.
+     *
+     * @param value the value
+     * @param count the number of occurrences
+     * @throws IllegalArgumentException if {@code value} or {@code count}
+     *         is negative
+     */
+    public void record(long value, long count) {
+        if (value < 0L || count < 0L)
+            throw new IllegalArgumentException();
+        if (count != 0L)
+            add(bucketFor(value, precision), count);
+    }
+
+    /**
+     * Returns the precision of this histogram.
+     *
+     * @return the precision
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Returns a snapshot of the counts of this histogram.
+     *
+     * @return a snapshot of the counts of this histogram
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(counts(false), precision);
+    }
+
+    /**
+     * Returns a snapshot of the counts of this histogram, and removes
+     * the counts returned from the histogram.  Recordings concurrent
+     * with this method are either included in the snapshot or remain
+     * in the histogram.
+     *
+     * @return a snapshot of the counts removed from this histogram
+     */
+    public Snapshot snapshotThenReset() {
+        return new Snapshot(counts(true), precision);
+    }
+
+    /**
+     * Removes all counts from this histogram.  Equivalent to {@link
+     * #snapshotThenReset}, ignoring the result.
+     */
+    public void reset() {
+        counts(true);
+    }
+
+    /**
+     * Returns the String representation of the {@link #snapshot}.
+     *
+     * @return the String representation of the {@link #snapshot}
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * An immutable set of bucket counts taken from a {@link
+     * LongHistogram}, supporting percentile queries.  All values
+     * returned are the lowest or highest value counted in some bucket,
+     * so are within the relative precision of the histogram of a
+     * recorded value.
+     *
+     * @since 1.8
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final int precision;
+        private final long total;
+
+        Snapshot(long[] counts, int precision) {
+            this.counts = counts;
+            this.precision = precision;
+            this.total = total(counts);
+        }
+
+        /**
+         * Returns the number of values recorded.
+         *
+         * @return the number of values recorded
+         */
+        public long getCount() {
+            return total;
+        }
+
+        /**
+         * Returns the number of values recorded in the range of the
+         * given value, that is, equal to it within the relative
+         * precision of the histogram.
+         *
+         * @param value the value
+         * @return the number of values recorded in its range
+         * @throws IllegalArgumentException if {@code value} is negative
+         */
+        public long getCountAtValue(long value) {
+            if (value < 0L)
+                throw new IllegalArgumentException();
+            return counts[bucketFor(value, precision)];
+        }
+
+        /**
+         * Returns the value below or at which the given percentage of
+         * recorded values lie, or zero if no values are recorded.
+         *
+         * @param percentile the percentage, from 0.0 to 100.0
+         * @return the value at the given percentile
+         * @throws IllegalArgumentException if {@code percentile} is
+         *         not between 0.0 and 100.0
+         */
+        public long getValueAtPercentile(double percentile) {
+            int i = bucketAtPercentile(counts, total, percentile);
+            return (i < 0) ? 0L : highestValue(i, precision);
+        }
+
+        /**
+         * Returns the smallest recorded value, or zero if no values
+         * are recorded.
+         *
+         * @return the smallest recorded value
+         */
+        public long getMinValue() {
+            int i = lowestBucket(counts);
+            return (i < 0) ? 0L : lowestValue(i, precision);
+        }
+
+        /**
+         * Returns the largest recorded value, or zero if no values are
+         * recorded.
+         *
+         * @return the largest recorded value
+         */
+        public long getMaxValue() {
+            int i = highestBucket(counts);
+            return (i < 0) ? 0L : highestValue(i, precision);
+        }
+
+        /**
+         * Returns a string summarizing this snapshot: its count, the
+         * minimum, median, 90th, 99th and 99.9th percentile, and
+         * maximum values.
+         *
+         * @return a string summarizing this snapshot
+         */
+        public String toString() {
+            return "[count=" + total +
+                ", min=" + getMinValue() +
+                ", p50=" + getValueAtPercentile(50.0) +
+                ", p90=" + getValueAtPercentile(90.0) +
+                ", p99=" + getValueAtPercentile(99.0) +
+                ", p99.9=" + getValueAtPercentile(99.9) +
+                ", max=" + getMaxValue() + "]";
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package java.util.concurrent.atomic;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A package-local class holding the bucket counts of {@link
+ * LongHistogram} and {@link DoubleHistogram}, striped across arrays
+ * in the manner of {@link Striped64}.
+ */
+abstract class StripedHistogram {
+    /*
+     * Counts are kept in a table of stripes, each a long[] holding one
+     * count per bucket, indexed by the same per-thread probe as
+     * Striped64 cells. The table starts with a single stripe. An
+     * update CASes its bucket in the stripe the thread hashes to; on
+     * failure, which indicates contention, the table is doubled (up to
+     * the number of CPUs) and the thread's probe advanced, as in
+     * Striped64.longAccumulate. Unlike there, a thread never retries:
+     * after at most one attempt to expand the table or populate its
+     * slot, it adds unconditionally (getAndAddLong) into whichever
+     * stripe it then maps to, falling back to stripe 0 if that slot is
+     * still empty, so recording is wait-free. The spinlock guarding
+     * expansion and slot creation is only ever tried, never waited
+     * for. Stripes are separately allocated arrays, so are not padded.
+     *
+     * Readers sum the bucket across stripes with volatile reads, and
+     * resets exchange each count with zero, so neither blocks nor
+     * loses concurrent updates; the combined counts are however not
+     * an atomic snapshot.
+     */
+
+    /** Table of stripes; a power of two in size, slot 0 always set */
+    transient volatile long[][] stripes;
+
+    /** Spinlock (locked via CAS) used when resizing and/or creating stripes */
+    transient volatile int stripesBusy;
+
+    /** Number of buckets per stripe */
+    final int buckets;
+
+    StripedHistogram(int buckets) {
+        this.buckets = buckets;
+        this.stripes = new long[][] { new long[buckets] };
+    }
+
+    /**
+     * Adds n to the count of the given bucket.
+     */
+    final void add(int bucket, long n) {
+        long[][] as; long[] a; long v;
+        long off = ((long)bucket << ASHIFT) + ABASE;
+        if ((a = (as = stripes)[Striped64.getProbe() & (as.length - 1)])
+            == null ||
+            !U.compareAndSwapLong(a, off, v = U.getLongVolatile(a, off),
+                                  v + n))
+            addContended(off, n);
+    }
+
+    /**
+     * Handles a failed or impossible CAS in add; see above.
+     */
+    private void addContended(long off, long n) {
+        int h;
+        if ((h = Striped64.getProbe()) == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = Striped64.getProbe();
+        }
+        long[][] as = stripes; int len = as.length, j;
+        if (stripesBusy == 0 && U.compareAndSwapInt(this, BUSY, 0, 1)) {
+            try {
+                if (stripes == as) {
+                    if (as[j = h & (len - 1)] == null)
+                        as[j] = new long[buckets];
+                    else if (len < Striped64.NCPU) {
+                        long[][] rs = new long[len << 1][];
+                        System.arraycopy(as, 0, rs, 0, len);
+                        stripes = rs;
+                    }
+                }
+            } finally {
+                stripesBusy = 0;
+            }
+        }
+        h = Striped64.advanceProbe(h);
+        long[] a;
+        if ((a = (as = stripes)[h & (as.length - 1)]) == null)
+            a = as[0];
+        U.getAndAddLong(a, off, n);
+    }
+
+    /**
+     * Returns the counts of all buckets, summed across stripes, and
+     * if reset is true, subtracts each from the histogram.
+     */
+    final long[] counts(boolean reset) {
+        long[] counts = new long[buckets];
+        for (long[] a : stripes) {
+            if (a != null) {
+                for (int i = 0; i < counts.length; ++i) {
+                    long off = ((long)i << ASHIFT) + ABASE;
+                    counts[i] += (reset ?
+                                  U.getAndSetLong(a, off, 0L) :
+                                  U.getLongVolatile(a, off));
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the sum of the given counts.
+     */
+    static long total(long[] counts) {
+        long total = 0L;
+        for (long c : counts)
+            total += c;
+        return total;
+    }
+
+    /**
+     * Returns the index of the bucket holding the value at the given
+     * percentile of the given counts with the given total, or -1 if
+     * the total is zero.
+     */
+    static int bucketAtPercentile(long[] counts, long total, double percentile) {
+        if (!(percentile >= 0.0 && percentile <= 100.0))
+            throw new IllegalArgumentException();
+        if (total == 0L)
+            return -1;
+        long rank = Math.max(1L, (long)Math.ceil(total * (percentile / 100.0)));
+        long sum = 0L;
+        int last = -1;
+        for (int i = 0; i < counts.length; ++i) {
+            if (counts[i] != 0L) {
+                last = i;
+                if ((sum += counts[i]) >= rank)
+                    return i;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Returns the index of the lowest nonempty bucket, or -1 if none.
+     */
+    static int lowestBucket(long[] counts) {
+        for (int i = 0; i < counts.length; ++i) {
+            if (counts[i] != 0L)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the highest nonempty bucket, or -1 if none.
+     */
+    static int highestBucket(long[] counts) {
+        for (int i = counts.length - 1; i >= 0; --i) {
+            if (counts[i] != 0L)
+                return i;
+        }
+        return -1;
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long BUSY;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = StripedHistogram.class;
+            BUSY = U.objectFieldOffset(k.getDeclaredField("stripesBusy"));
+            ABASE = U.arrayBaseOffset(long[].class);
+            int scale = U.arrayIndexScale(long[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
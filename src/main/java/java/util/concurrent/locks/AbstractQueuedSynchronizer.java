@@ -296,7 +296,30 @@ public abstract class AbstractQueuedSynchronizer
      * Creates a new {@code AbstractQueuedSynchronizer} instance
      * with initial synchronization state of zero.
      */
-    protected AbstractQueuedSynchronizer() { }
+    protected AbstractQueuedSynchronizer() {
+        this(false);
+    }
+
+    /**
+     * Creates a new {@code AbstractQueuedSynchronizer} instance with initial
+     * synchronization state of zero and the given spinning policy.
+     *
+     * <p>If {@code adaptiveSpin} is {@code true}, a thread that is first
+     * in the queue spins for a while, watching for the release of the
+     * synchronizer, before it parks, and so avoids a park and unpark
+     * when the synchronizer is held only briefly.  The length of the
+     * spin is learned from recent waits: it is lengthened when releases
+     * arrive late in a spin, and shortened when a spin ends without
+     * one.  Threads never spin on a uniprocessor.
+     *
+     * @param adaptiveSpin {@code true} if waiting threads should spin
+     *        adaptively before parking
+     * @since 1.8
+     */
+    protected AbstractQueuedSynchronizer(boolean adaptiveSpin) {
+        this.adaptiveSpin = adaptiveSpin;
+        this.spinLimit = INITIAL_SPINS;
+    }
 
     /**
      * Wait queue node class.
@@ -532,6 +555,22 @@ public abstract class AbstractQueuedSynchronizer
      */
     private volatile int state;
 
+    /**
+     * Whether threads first in the queue spin before parking.
+     */
+    private final boolean adaptiveSpin;
+
+    /**
+     * The current adaptive spin length, in iterations; updated without
+     * synchronization by the threads that spin.
+     */
+    private transient int spinLimit;
+
+    /**
+     * The statistics to record into, or null if none.
+     */
+    private transient volatile LockStatistics statistics;
+
     /**
      * Returns the current value of synchronization state.
      * This operation has memory semantics of a {@code volatile} read.
@@ -575,6 +614,16 @@ public abstract class AbstractQueuedSynchronizer
      */
     static final long spinForTimeoutThreshold = 1000L;
 
+    /**
+     * The bounds and initial value of the adaptive spin length.  Each
+     * iteration is a single volatile read, so the upper bound amounts
+     * to a few microseconds: about the cost of parking and unparking.
+     */
+    static final int MAX_SPINS =
+        (Runtime.getRuntime().availableProcessors() < 2) ? 0 : 1 << 12;
+    static final int MIN_SPINS = MAX_SPINS >>> 7;
+    static final int INITIAL_SPINS = MAX_SPINS >>> 4;
+
     /**
      * Inserts node into queue, initializing if necessary. See picture above.
      * @param node the node to insert
@@ -827,16 +876,65 @@ public abstract class AbstractQueuedSynchronizer
         Thread.currentThread().interrupt();
     }
 
+    /**
+     * If adaptive spinning is enabled and the node after pred is first
+     * in the queue, spins until pred is released, which clears its
+     * SIGNAL status, or the spin length is exhausted, then adjusts the
+     * spin length to the outcome.  A release that happens after i
+     * iterations moves the length towards 2 * i; a spin that fails
+     * halves it.
+     *
+     * @param pred the node's predecessor, with status SIGNAL
+     * @return {@code true} if pred was released, so the caller should
+     *         retry instead of parking
+     */
+    private final boolean spinForRelease(Node pred) {
+        int limit;
+        if (!adaptiveSpin || pred != head ||
+            (limit = Math.max(spinLimit, MIN_SPINS)) == 0)
+            return false;
+        for (int i = 0; i < limit; ++i) {
+            if (pred.waitStatus != Node.SIGNAL) {
+                spinLimit = Math.min((limit + (i << 1)) >>> 1, MAX_SPINS);
+                return true;
+            }
+        }
+        spinLimit = limit >>> 1;
+        return false;
+    }
+
     /**
      * Convenience method to park and then check if interrupted
      *
      * @return {@code true} if interrupted
      */
     private final boolean parkAndCheckInterrupt() {
-        LockSupport.park(this);
+        LockStatistics stats = statistics;
+        if (stats == null)
+            LockSupport.park(this);
+        else {
+            long start = System.nanoTime();
+            LockSupport.park(this);
+            stats.parked(System.nanoTime() - start);
+        }
         return Thread.interrupted();
     }
 
+    /**
+     * Parks for at most the given time, recording the time parked if
+     * statistics are enabled.
+     */
+    private final void parkNanos(long nanosTimeout) {
+        LockStatistics stats = statistics;
+        if (stats == null)
+            LockSupport.parkNanos(this, nanosTimeout);
+        else {
+            long start = System.nanoTime();
+            LockSupport.parkNanos(this, nanosTimeout);
+            stats.parked(System.nanoTime() - start);
+        }
+    }
+
     /*
      * Various flavors of acquire, varying in exclusive/shared and
      * control modes.  Each is mostly the same, but annoyingly
@@ -855,6 +953,9 @@ public abstract class AbstractQueuedSynchronizer
      * @return {@code true} if interrupted while waiting
      */
     final boolean acquireQueued(final Node node, int arg) {
+        final LockStatistics stats = statistics;
+        if (stats != null)
+            stats.enqueued();
         boolean failed = true;
         try {
             boolean interrupted = false;
@@ -867,12 +968,15 @@ public abstract class AbstractQueuedSynchronizer
                     return interrupted;
                 }
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p) &&
                     parkAndCheckInterrupt())
                     interrupted = true;
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (stats != null)
+                stats.dequeued(!failed);
         }
     }
 
@@ -883,6 +987,9 @@ public abstract class AbstractQueuedSynchronizer
     private void doAcquireInterruptibly(int arg)
         throws InterruptedException {
         final Node node = addWaiter(Node.EXCLUSIVE);
+        final LockStatistics stats = statistics;
+        if (stats != null)
+            stats.enqueued();
         boolean failed = true;
         try {
             for (;;) {
@@ -894,12 +1001,15 @@ public abstract class AbstractQueuedSynchronizer
                     return;
                 }
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p) &&
                     parkAndCheckInterrupt())
                     throw new InterruptedException();
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (stats != null)
+                stats.dequeued(!failed);
         }
     }
 
@@ -916,6 +1026,9 @@ public abstract class AbstractQueuedSynchronizer
             return false;
         final long deadline = System.nanoTime() + nanosTimeout;
         final Node node = addWaiter(Node.EXCLUSIVE);
+        final LockStatistics stats = statistics;
+        if (stats != null)
+            stats.enqueued();
         boolean failed = true;
         try {
             for (;;) {
@@ -930,14 +1043,17 @@ public abstract class AbstractQueuedSynchronizer
                 if (nanosTimeout <= 0L)
                     return false;
                 if (shouldParkAfterFailedAcquire(p, node) &&
-                    nanosTimeout > spinForTimeoutThreshold)
-                    LockSupport.parkNanos(this, nanosTimeout);
+                    nanosTimeout > spinForTimeoutThreshold &&
+                    !spinForRelease(p))
+                    parkNanos(nanosTimeout);
                 if (Thread.interrupted())
                     throw new InterruptedException();
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (stats != null)
+                stats.dequeued(!failed);
         }
     }
 
@@ -947,6 +1063,9 @@ public abstract class AbstractQueuedSynchronizer
      */
     private void doAcquireShared(int arg) {
         final Node node = addWaiter(Node.SHARED);
+        final LockStatistics stats = statistics;
+        if (stats != null)
+            stats.enqueued();
         boolean failed = true;
         try {
             boolean interrupted = false;
@@ -964,12 +1083,15 @@ public abstract class AbstractQueuedSynchronizer
                     }
                 }
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p) &&
                     parkAndCheckInterrupt())
                     interrupted = true;
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (stats != null)
+                stats.dequeued(!failed);
         }
     }
 
@@ -980,6 +1102,9 @@ public abstract class AbstractQueuedSynchronizer
     private void doAcquireSharedInterruptibly(int arg)
         throws InterruptedException {
         final Node node = addWaiter(Node.SHARED);
+        final LockStatistics stats = statistics;
+        if (stats != null)
+            stats.enqueued();
         boolean failed = true;
         try {
             for (;;) {
@@ -994,12 +1119,15 @@ public abstract class AbstractQueuedSynchronizer
                     }
                 }
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p) &&
                     parkAndCheckInterrupt())
                     throw new InterruptedException();
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (stats != null)
+                stats.dequeued(!failed);
         }
     }
 
@@ -1016,6 +1144,9 @@ public abstract class AbstractQueuedSynchronizer
             return false;
         final long deadline = System.nanoTime() + nanosTimeout;
         final Node node = addWaiter(Node.SHARED);
+        final LockStatistics stats = statistics;
+        if (stats != null)
+            stats.enqueued();
         boolean failed = true;
         try {
             for (;;) {
@@ -1033,14 +1164,17 @@ public abstract class AbstractQueuedSynchronizer
                 if (nanosTimeout <= 0L)
                     return false;
                 if (shouldParkAfterFailedAcquire(p, node) &&
-                    nanosTimeout > spinForTimeoutThreshold)
-                    LockSupport.parkNanos(this, nanosTimeout);
+                    nanosTimeout > spinForTimeoutThreshold &&
+                    !spinForRelease(p))
+                    parkNanos(nanosTimeout);
                 if (Thread.interrupted())
                     throw new InterruptedException();
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (stats != null)
+                stats.dequeued(!failed);
         }
     }
 
@@ -1195,8 +1329,9 @@ public abstract class AbstractQueuedSynchronizer
      *        can represent anything you like.
      */
     public final void acquire(int arg) {
-        if (!tryAcquire(arg) &&
-            acquireQueued(addWaiter(Node.EXCLUSIVE), arg))
+        if (tryAcquire(arg))
+            recordAcquisition();
+        else if (acquireQueued(addWaiter(Node.EXCLUSIVE), arg))
             selfInterrupt();
     }
 
@@ -1218,7 +1353,9 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        if (!tryAcquire(arg))
+        if (tryAcquire(arg))
+            recordAcquisition();
+        else
             doAcquireInterruptibly(arg);
     }
 
@@ -1243,8 +1380,11 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        return tryAcquire(arg) ||
-            doAcquireNanos(arg, nanosTimeout);
+        if (tryAcquire(arg)) {
+            recordAcquisition();
+            return true;
+        }
+        return doAcquireNanos(arg, nanosTimeout);
     }
 
     /**
@@ -1279,7 +1419,9 @@ public abstract class AbstractQueuedSynchronizer
      *        and can represent anything you like.
      */
     public final void acquireShared(int arg) {
-        if (tryAcquireShared(arg) < 0)
+        if (tryAcquireShared(arg) >= 0)
+            recordAcquisition();
+        else
             doAcquireShared(arg);
     }
 
@@ -1300,7 +1442,9 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        if (tryAcquireShared(arg) < 0)
+        if (tryAcquireShared(arg) >= 0)
+            recordAcquisition();
+        else
             doAcquireSharedInterruptibly(arg);
     }
 
@@ -1324,8 +1468,11 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        return tryAcquireShared(arg) >= 0 ||
-            doAcquireSharedNanos(arg, nanosTimeout);
+        if (tryAcquireShared(arg) >= 0) {
+            recordAcquisition();
+            return true;
+        }
+        return doAcquireSharedNanos(arg, nanosTimeout);
     }
 
     /**
@@ -1523,6 +1670,46 @@ public abstract class AbstractQueuedSynchronizer
 
     // Instrumentation and monitoring methods
 
+    /**
+     * Sets the statistics into which this synchronizer records its
+     * acquisitions, contended acquisitions, time blocked waiting to
+     * acquire and queue length, or disables recording if {@code null}.
+     * Statistics are disabled initially.  Subclasses that acquire
+     * without invoking the acquire methods of this class, as in an
+     * initial attempt before calling {@link #acquire}, should invoke
+     * {@link #recordAcquisition} when such an attempt succeeds.
+     *
+     * @param statistics the statistics, or {@code null}
+     * @since 1.8
+     */
+    protected final void setStatistics(LockStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the statistics this synchronizer records into, or
+     * {@code null} if statistics are disabled.
+     *
+     * @return the statistics, or {@code null}
+     * @since 1.8
+     */
+    protected final LockStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Records an acquisition that succeeded without waiting, if
+     * statistics are enabled.  Invoked by the acquire methods of this
+     * class, and by subclasses whose own fast paths succeed.
+     *
+     * @since 1.8
+     */
+    protected final void recordAcquisition() {
+        LockStatistics stats = statistics;
+        if (stats != null)
+            stats.acquired();
+    }
+
     /**
      * Returns an estimate of the number of threads waiting to
      * acquire.  The value is only an estimate because the number of
@@ -0,0 +1,277 @@
+package java.util.concurrent.locks;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Contention counters for one or more locks sharing a name.  A lock
+ * that supports statistics keeps none until they are enabled, for
+ * example by {@link ReentrantLock#enableStatistics}, and then records
+ * into the {@code LockStatistics} registered under the given name;
+ * all locks enabled under the same name, such as the locks of the
+ * many instances of one class, record into the same counters.  The
+ * counters are published as a {@link
+ * java.lang.management.LockContentionMXBean LockContentionMXBean}.
+ *
+ * <p>Counters are updated with {@link LongAdder}s, so recording does
+ * not itself serialize the threads of a contended lock, and time is
+ * read only around a thread's blocking, so an uncontended acquisition
+ * costs one adder increment.  Values are not read atomically with
+ * respect to each other, and are only estimates while the locks are
+ * in use.
+ *
+ * <p>A {@code LockStatistics} remains registered while some lock
+ * records into it, or while it is otherwise strongly reachable; when
+ * it becomes unreachable, its name may be reused for new counters.
+ * Once the platform {@code MBeanServer} exists, the MXBean of each
+ * {@code LockStatistics} is registered into it when the statistics are
+ * registered, and unregistered when they are next found unreachable.
+ *
+ * @since 1.8
+ */
+public final class LockStatistics {
+
+    /** Registered statistics, by name; guarded by itself */
+    private static final HashMap<String, Ref> registry =
+        new HashMap<String, Ref>();
+
+    /** Queue of registry references cleared by the collector */
+    private static final ReferenceQueue<LockStatistics> staleRefs =
+        new ReferenceQueue<LockStatistics>();
+
+    /**
+     * Invoked, while holding the registry lock, with the name and the
+     * statistics when statistics are registered, and with the name and
+     * null when they are unregistered.  Set (reflectively, as it lies
+     * in another package) by java.lang.management.PlatformComponent
+     * when the platform MBeanServer is created, so that the
+     * LockContentionMXBeans registered there follow the registry; null
+     * until then.
+     */
+    private static volatile BiConsumer<String, LockStatistics> registrationHook;
+
+    /**
+     * A registry entry, remembering its name once cleared.
+     */
+    static final class Ref extends WeakReference<LockStatistics> {
+        final String name;
+        Ref(LockStatistics s) {
+            super(s, staleRefs);
+            this.name = s.name;
+        }
+    }
+
+    private final String name;
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final LongAdder parkNanos = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private volatile int maxQueueLength;
+
+    private LockStatistics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the statistics registered under the given name, creating
+     * and registering them if there are none.
+     *
+     * @param name the name
+     * @return the statistics registered under the given name
+     * @throws NullPointerException if {@code name} is null
+     */
+    public static LockStatistics forName(String name) {
+        if (name == null)
+            throw new NullPointerException();
+        synchronized (registry) {
+            expungeStaleEntries();
+            Ref ref = registry.get(name);
+            LockStatistics s = (ref == null) ? null : ref.get();
+            if (s == null) {
+                if (ref != null)        // cleared but not yet enqueued
+                    unregister(ref);
+                s = new LockStatistics(name);
+                registry.put(name, new Ref(s));
+                BiConsumer<String, LockStatistics> hook = registrationHook;
+                if (hook != null)
+                    hook.accept(name, s);
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Returns the statistics currently registered, in no particular
+     * order.
+     *
+     * @return the statistics currently registered
+     */
+    public static List<LockStatistics> getAll() {
+        List<LockStatistics> list = new ArrayList<LockStatistics>();
+        synchronized (registry) {
+            expungeStaleEntries();
+            for (Ref ref : registry.values()) {
+                LockStatistics s = ref.get();
+                if (s != null)
+                    list.add(s);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Removes the entries of statistics found unreachable.  Call only
+     * when holding the registry lock.
+     */
+    private static void expungeStaleEntries() {
+        for (Reference<? extends LockStatistics> r; (r = staleRefs.poll()) != null; ) {
+            Ref ref = (Ref)r;
+            if (registry.get(ref.name) == ref)
+                unregister(ref);
+        }
+    }
+
+    /**
+     * Removes the given cleared entry.  Call only when holding the
+     * registry lock.
+     */
+    private static void unregister(Ref ref) {
+        registry.remove(ref.name);
+        BiConsumer<String, LockStatistics> hook = registrationHook;
+        if (hook != null)
+            hook.accept(ref.name, null);
+    }
+
+    /**
+     * Records an acquisition that did not wait.
+     */
+    final void acquired() {
+        acquisitions.increment();
+    }
+
+    /**
+     * Records that a thread is about to wait for an acquisition, and
+     * updates the maximum queue length.
+     */
+    final void enqueued() {
+        queued.increment();
+        int n = (int)queued.sum(), m;
+        while (n > (m = maxQueueLength) &&
+               !U.compareAndSwapInt(this, MAXQ, m, n))
+            ;
+    }
+
+    /**
+     * Records that a thread has stopped waiting.
+     *
+     * @param acquired true if the wait ended in an acquisition
+     */
+    final void dequeued(boolean acquired) {
+        queued.decrement();
+        if (acquired) {
+            acquisitions.increment();
+            contendedAcquisitions.increment();
+        }
+    }
+
+    /**
+     * Records time spent blocked.
+     *
+     * @param nanos the time blocked, in nanoseconds
+     */
+    final void parked(long nanos) {
+        parkNanos.add(nanos);
+    }
+
+    /**
+     * Returns the name these statistics are registered under.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of acquisitions, including contended ones.
+     *
+     * @return the number of acquisitions
+     */
+    public long getAcquisitionCount() {
+        return acquisitions.sum();
+    }
+
+    /**
+     * Returns the number of acquisitions for which the acquiring
+     * thread had to wait for another thread to release.
+     *
+     * @return the number of contended acquisitions
+     */
+    public long getContendedAcquisitionCount() {
+        return contendedAcquisitions.sum();
+    }
+
+    /**
+     * Returns the total time threads have spent blocked waiting to
+     * acquire, in nanoseconds.  Time spent spinning, or waiting on a
+     * {@link Condition}, is not included.
+     *
+     * @return the total blocked time in nanoseconds
+     */
+    public long getParkTime() {
+        return parkNanos.sum();
+    }
+
+    /**
+     * Returns an estimate of the number of threads now waiting to
+     * acquire.
+     *
+     * @return the estimated number of waiting threads
+     */
+    public int getQueueLength() {
+        return Math.max((int)queued.sum(), 0);
+    }
+
+    /**
+     * Returns the largest number of threads seen waiting to acquire at
+     * the same time.
+     *
+     * @return the maximum queue length
+     */
+    public int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    /**
+     * Returns a string identifying these statistics, as well as their
+     * values.
+     *
+     * @return a string identifying these statistics
+     */
+    public String toString() {
+        return super.toString() + "[name=" + name +
+            ", acquisitions=" + getAcquisitionCount() +
+            ", contended=" + getContendedAcquisitionCount() +
+            ", parkTime=" + getParkTime() +
+            ", maxQueueLength=" + maxQueueLength + "]";
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long MAXQ;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = LockStatistics.class;
+            MAXQ = U.objectFieldOffset(k.getDeclaredField("maxQueueLength"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
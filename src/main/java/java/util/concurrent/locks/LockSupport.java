@@ -1,4 +1,5 @@
 package java.util.concurrent.locks;
+import java.util.concurrent.ManagedBlockingExecutor;
 import sun.misc.Unsafe;
 
 /**
@@ -83,7 +84,10 @@ public class LockSupport {
      * 例如，调用者还可以确定线程在返回时的中断状态。
      */
     public static void park() {
+        // 若当前线程属于 ManagedBlockingExecutor，通知其线程池补偿一个线程
+        ManagedBlockingExecutor.beginBlocking();
         UNSAFE.park(false, 0L);
+        ManagedBlockingExecutor.endBlocking();
     }
 
     /**
@@ -106,8 +110,12 @@ public class LockSupport {
         Thread t = Thread.currentThread();
         // 设置Blocker
         setBlocker(t, blocker);
+        // 若当前线程属于 ManagedBlockingExecutor，通知其线程池补偿一个线程
+        ManagedBlockingExecutor.beginBlocking();
         // 获取许可
         UNSAFE.park(false, 0L);
+        // 恢复线程池的活跃线程计数
+        ManagedBlockingExecutor.endBlocking();
         // 重新可运行后再此设置Blocker
         setBlocker(t, null);
     }
@@ -129,8 +137,11 @@ public class LockSupport {
      * @param nanos 等待的最大纳秒数
      */
     public static void parkNanos(long nanos) {
-        if (nanos > 0)
+        if (nanos > 0) {
+            ManagedBlockingExecutor.beginBlocking();
             UNSAFE.park(false, nanos);
+            ManagedBlockingExecutor.endBlocking();
+        }
     }
 
     /**
@@ -154,7 +165,9 @@ public class LockSupport {
         if (nanos > 0) {
             Thread t = Thread.currentThread();
             setBlocker(t, blocker);
+            ManagedBlockingExecutor.beginBlocking();
             UNSAFE.park(false, nanos);
+            ManagedBlockingExecutor.endBlocking();
             setBlocker(t, null);
         }
     }
@@ -176,7 +189,9 @@ public class LockSupport {
      * @param deadline 绝对时间，以从纪元开始的毫秒数，等待
      */
     public static void parkUntil(long deadline) {
+        ManagedBlockingExecutor.beginBlocking();
         UNSAFE.park(true, deadline);
+        ManagedBlockingExecutor.endBlocking();
     }
 
     /**
@@ -199,7 +214,9 @@ public class LockSupport {
     public static void parkUntil(Object blocker, long deadline) {
         Thread t = Thread.currentThread();
         setBlocker(t, blocker);
+        ManagedBlockingExecutor.beginBlocking();
         UNSAFE.park(true, deadline);
+        ManagedBlockingExecutor.endBlocking();
         setBlocker(t, null);
     }
 
@@ -116,6 +116,10 @@ public class ReentrantLock implements Lock, java.io.Serializable {
     abstract static class Sync extends AbstractQueuedSynchronizer {
         private static final long serialVersionUID = -5179523762034025860L;
 
+        Sync(boolean adaptiveSpin) {
+            super(adaptiveSpin);
+        }
+
         /**
          * Performs {@link Lock#lock}. The main reason for subclassing
          * is to allow fast path for nonfair version.
@@ -198,13 +202,19 @@ public class ReentrantLock implements Lock, java.io.Serializable {
     static final class NonfairSync extends Sync {
         private static final long serialVersionUID = 7316153563782823691L;
 
+        NonfairSync(boolean adaptiveSpin) {
+            super(adaptiveSpin);
+        }
+
         /**
          * Performs lock.  Try immediate barge, backing up to normal
          * acquire on failure.
          */
         final void lock() {
-            if (compareAndSetState(0, 1))
+            if (compareAndSetState(0, 1)) {
                 setExclusiveOwnerThread(Thread.currentThread());
+                recordAcquisition();
+            }
             else
                 acquire(1);
         }
@@ -220,6 +230,10 @@ public class ReentrantLock implements Lock, java.io.Serializable {
     static final class FairSync extends Sync {
         private static final long serialVersionUID = -3000897897090466540L;
 
+        FairSync(boolean adaptiveSpin) {
+            super(adaptiveSpin);
+        }
+
         final void lock() {
             acquire(1);
         }
@@ -254,7 +268,7 @@ public class ReentrantLock implements Lock, java.io.Serializable {
      * This is equivalent to using {@code ReentrantLock(false)}.
      */
     public ReentrantLock() {
-        sync = new NonfairSync();
+        sync = new NonfairSync(false);
     }
 
     /**
@@ -264,7 +278,23 @@ public class ReentrantLock implements Lock, java.io.Serializable {
      * @param fair {@code true} if this lock should use a fair ordering policy
      */
     public ReentrantLock(boolean fair) {
-        sync = fair ? new FairSync() : new NonfairSync();
+        this(fair, false);
+    }
+
+    /**
+     * Creates an instance of {@code ReentrantLock} with the
+     * given fairness and spinning policies.  With adaptive spinning,
+     * a thread about to acquire the lock spins briefly, for a time
+     * learned from recent waits, before it blocks; this helps when the
+     * lock is contended but held only for short periods.
+     *
+     * @param fair {@code true} if this lock should use a fair ordering policy
+     * @param adaptiveSpin {@code true} if waiting threads should spin
+     *        adaptively before blocking
+     * @since 1.8
+     */
+    public ReentrantLock(boolean fair, boolean adaptiveSpin) {
+        sync = fair ? new FairSync(adaptiveSpin) : new NonfairSync(adaptiveSpin);
     }
 
     /**
@@ -362,7 +392,11 @@ public class ReentrantLock implements Lock, java.io.Serializable {
      *         thread; and {@code false} otherwise
      */
     public boolean tryLock() {
-        return sync.nonfairTryAcquire(1);
+        if (sync.nonfairTryAcquire(1)) {
+            sync.recordAcquisition();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -745,6 +779,36 @@ public class ReentrantLock implements Lock, java.io.Serializable {
         return sync.getWaitingThreads((AbstractQueuedSynchronizer.ConditionObject)condition);
     }
 
+    /**
+     * Enables recording of contention statistics for this lock into
+     * the {@link LockStatistics} registered under the given name, and
+     * returns them.  Locks enabled under the same name share their
+     * statistics, which are published as a {@link
+     * java.lang.management.LockContentionMXBean}.  Statistics are not
+     * serialized with the lock.
+     *
+     * @param name the name of the statistics
+     * @return the statistics this lock now records into
+     * @throws NullPointerException if {@code name} is null
+     * @since 1.8
+     */
+    public LockStatistics enableStatistics(String name) {
+        LockStatistics stats = LockStatistics.forName(name);
+        sync.setStatistics(stats);
+        return stats;
+    }
+
+    /**
+     * Returns the statistics this lock records into, or {@code null}
+     * if statistics have not been {@linkplain #enableStatistics enabled}.
+     *
+     * @return the statistics, or {@code null}
+     * @since 1.8
+     */
+    public LockStatistics getStatistics() {
+        return sync.getStatistics();
+    }
+
     /**
      * Returns a string identifying this lock, as well as its lock state.
      * The state, in brackets, includes either the String {@code "Unlocked"}
@@ -333,6 +333,8 @@ public class StampedLock implements java.io.Serializable {
     private transient volatile long state;
     /** extra reader count when state read count saturated */
     private transient int readerOverflow;
+    /** statistics to record into, or null if none */
+    private transient volatile LockStatistics statistics;
 
     /**
      * Creates a new lock, initially in unlocked state.
@@ -349,9 +351,12 @@ public class StampedLock implements java.io.Serializable {
      */
     public long writeLock() {
         long s, next;  // bypass acquireWrite in fully unlocked case only
-        return ((((s = state) & ABITS) == 0L &&
-                 U.compareAndSwapLong(this, STATE, s, next = s + WBIT)) ?
-                next : acquireWrite(false, 0L));
+        if (((s = state) & ABITS) == 0L &&
+            U.compareAndSwapLong(this, STATE, s, next = s + WBIT)) {
+            recordAcquisition();
+            return next;
+        }
+        return acquireWrite(false, 0L);
     }
 
     /**
@@ -362,9 +367,12 @@ public class StampedLock implements java.io.Serializable {
      */
     public long tryWriteLock() {
         long s, next;
-        return ((((s = state) & ABITS) == 0L &&
-                 U.compareAndSwapLong(this, STATE, s, next = s + WBIT)) ?
-                next : 0L);
+        if (((s = state) & ABITS) == 0L &&
+            U.compareAndSwapLong(this, STATE, s, next = s + WBIT)) {
+            recordAcquisition();
+            return next;
+        }
+        return 0L;
     }
 
     /**
@@ -423,9 +431,12 @@ public class StampedLock implements java.io.Serializable {
      */
     public long readLock() {
         long s = state, next;  // bypass acquireRead on common uncontended case
-        return ((whead == wtail && (s & ABITS) < RFULL &&
-                 U.compareAndSwapLong(this, STATE, s, next = s + RUNIT)) ?
-                next : acquireRead(false, 0L));
+        if (whead == wtail && (s & ABITS) < RFULL &&
+            U.compareAndSwapLong(this, STATE, s, next = s + RUNIT)) {
+            recordAcquisition();
+            return next;
+        }
+        return acquireRead(false, 0L);
     }
 
     /**
@@ -435,17 +446,19 @@ public class StampedLock implements java.io.Serializable {
      * or zero if the lock is not available
      */
     public long tryReadLock() {
+        long s, m, next;
         for (;;) {
-            long s, m, next;
             if ((m = (s = state) & ABITS) == WBIT)
                 return 0L;
             else if (m < RFULL) {
                 if (U.compareAndSwapLong(this, STATE, s, next = s + RUNIT))
-                    return next;
+                    break;
             }
             else if ((next = tryIncReaderOverflow(s)) != 0L)
-                return next;
+                break;
         }
+        recordAcquisition();
+        return next;
     }
 
     /**
@@ -467,12 +480,12 @@ public class StampedLock implements java.io.Serializable {
         long nanos = unit.toNanos(time);
         if (!Thread.interrupted()) {
             if ((m = (s = state) & ABITS) != WBIT) {
-                if (m < RFULL) {
-                    if (U.compareAndSwapLong(this, STATE, s, next = s + RUNIT))
-                        return next;
-                }
-                else if ((next = tryIncReaderOverflow(s)) != 0L)
+                if ((m < RFULL) ?
+                    U.compareAndSwapLong(this, STATE, s, next = s + RUNIT) :
+                    (next = tryIncReaderOverflow(s)) != 0L) {
+                    recordAcquisition();
                     return next;
+                }
             }
             if (nanos <= 0L)
                 return 0L;
@@ -812,6 +825,37 @@ public class StampedLock implements java.io.Serializable {
         return getReadLockCount(state);
     }
 
+    /**
+     * Enables recording of contention statistics for this lock into
+     * the {@link LockStatistics} registered under the given name, and
+     * returns them.  Read and write acquisitions are counted alike;
+     * optimistic reads and conversions are not counted.  Locks enabled
+     * under the same name share their statistics, which are published
+     * as a {@link java.lang.management.LockContentionMXBean}.
+     * Statistics are not serialized with the lock.
+     *
+     * @param name the name of the statistics
+     * @return the statistics this lock now records into
+     * @throws NullPointerException if {@code name} is null
+     * @since 1.8
+     */
+    public LockStatistics enableStatistics(String name) {
+        LockStatistics stats = LockStatistics.forName(name);
+        statistics = stats;
+        return stats;
+    }
+
+    /**
+     * Returns the statistics this lock records into, or {@code null}
+     * if statistics have not been {@linkplain #enableStatistics enabled}.
+     *
+     * @return the statistics, or {@code null}
+     * @since 1.8
+     */
+    public LockStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Returns a string identifying this lock, as well as its lock
      * state.  The state, in brackets, includes the String {@code
@@ -1034,6 +1078,22 @@ public class StampedLock implements java.io.Serializable {
      * @return next state, or INTERRUPTED
      */
     private long acquireWrite(boolean interruptible, long deadline) {
+        LockStatistics stats = statistics;
+        if (stats == null)
+            return awaitWrite(interruptible, deadline);
+        long next = 0L;
+        stats.enqueued();
+        try {
+            return next = awaitWrite(interruptible, deadline);
+        } finally {
+            stats.dequeued(next != 0L && next != INTERRUPTED);
+        }
+    }
+
+    /**
+     * Body of acquireWrite, without statistics.
+     */
+    private long awaitWrite(boolean interruptible, long deadline) {
         WNode node = null, p;
         for (int spins = -1;;) { // spin while enqueuing
             long m, s, ns;
@@ -1116,7 +1176,7 @@ public class StampedLock implements java.io.Serializable {
                     node.thread = wt;
                     if (p.status < 0 && (p != h || (state & ABITS) != 0L) &&
                         whead == h && node.prev == p)
-                        U.park(false, time);  // emulate LockSupport.park
+                        park(time);  // emulate LockSupport.park
                     node.thread = null;
                     U.putObject(wt, PARKBLOCKER, null);
                     if (interruptible && Thread.interrupted())
@@ -1136,6 +1196,22 @@ public class StampedLock implements java.io.Serializable {
      * @return next state, or INTERRUPTED
      */
     private long acquireRead(boolean interruptible, long deadline) {
+        LockStatistics stats = statistics;
+        if (stats == null)
+            return awaitRead(interruptible, deadline);
+        long next = 0L;
+        stats.enqueued();
+        try {
+            return next = awaitRead(interruptible, deadline);
+        } finally {
+            stats.dequeued(next != 0L && next != INTERRUPTED);
+        }
+    }
+
+    /**
+     * Body of acquireRead, without statistics.
+     */
+    private long awaitRead(boolean interruptible, long deadline) {
         WNode node = null, p;
         for (int spins = -1;;) {
             WNode h;
@@ -1212,7 +1288,7 @@ public class StampedLock implements java.io.Serializable {
                         node.thread = wt;
                         if ((h != pp || (state & ABITS) == WBIT) &&
                             whead == h && p.prev == pp)
-                            U.park(false, time);
+                            park(time);
                         node.thread = null;
                         U.putObject(wt, PARKBLOCKER, null);
                         if (interruptible && Thread.interrupted())
@@ -1283,7 +1359,7 @@ public class StampedLock implements java.io.Serializable {
                     if (p.status < 0 &&
                         (p != h || (state & ABITS) == WBIT) &&
                         whead == h && node.prev == p)
-                        U.park(false, time);
+                        park(time);
                     node.thread = null;
                     U.putObject(wt, PARKBLOCKER, null);
                     if (interruptible && Thread.interrupted())
@@ -1293,6 +1369,33 @@ public class StampedLock implements java.io.Serializable {
         }
     }
 
+    /**
+     * Records an acquisition that did not wait, if statistics are
+     * enabled.
+     */
+    private void recordAcquisition() {
+        LockStatistics stats = statistics;
+        if (stats != null)
+            stats.acquired();
+    }
+
+    /**
+     * Parks the current thread as by U.park(false, time), recording
+     * the time parked if statistics are enabled.
+     *
+     * @param time the maximum time to park, or zero for no timeout
+     */
+    private void park(long time) {
+        LockStatistics stats = statistics;
+        if (stats == null)
+            U.park(false, time);
+        else {
+            long start = System.nanoTime();
+            U.park(false, time);
+            stats.parked(System.nanoTime() - start);
+        }
+    }
+
     /**
      * If node non-null, forces cancel status and unsplices it from
      * queue if possible and wakes up any cowaiters (of the node, or
@@ -0,0 +1,839 @@
+package java.util.concurrent.locks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A reentrant {@link ReadWriteLock} for read-mostly data accessed from
+ * many cores, whose read lock is acquired and released without writing
+ * to any memory shared by all readers.
+ *
+ * <p>A {@link ReentrantReadWriteLock} counts its readers in the single
+ * synchronization state of its {@link AbstractQueuedSynchronizer}, so
+ * every acquisition and release of the read lock updates the same cache
+ * line.  This lock instead counts readers in a table of padded cells,
+ * in the manner of {@link java.util.concurrent.atomic.LongAdder}: each
+ * reader increments the cell selected by a per-thread hash, and the
+ * table is expanded, up to the number of processors, when readers are
+ * found to collide.  The synchronization state holds only the write
+ * lock, and a reader proceeds if, after announcing itself in its cell,
+ * it sees the write lock free.  A writer, after taking the write lock,
+ * proceeds only if all cells are zero, and otherwise waits to be
+ * signalled by the last reader to leave.  Writers are therefore more
+ * expensive than with {@code ReentrantReadWriteLock}, in proportion to
+ * the size of the table.
+ *
+ * <p>In all other respects this class behaves as {@code
+ * ReentrantReadWriteLock}:
+ *
+ * <ul>
+ * <li>Blocked threads are queued by an {@code
+ * AbstractQueuedSynchronizer}, and the lock supports the same
+ * <em>fair</em> and <em>non-fair</em> ordering policies.  In the
+ * non-fair mode a reader does not acquire the lock if the thread that
+ * has waited longest is a writer.
+ *
+ * <li>Both locks are reentrant.  The writer may acquire the read lock,
+ * so the write lock can be downgraded to a read lock; upgrading from a
+ * read lock to the write lock is not possible.
+ *
+ * <li>Acquisition of either lock may be interrupted or timed out, and
+ * {@code tryLock()} barges in both modes.
+ *
+ * <li>The write lock provides a {@link Condition} implementation, as
+ * does {@link ReentrantLock#newCondition}; the read lock does not.
+ * </ul>
+ *
+ * <p>Each thread records its read holds of each lock in a {@link
+ * ThreadLocal}.  This class is not serializable.
+ *
+ * @since 1.8
+ */
+public class StripedReadWriteLock implements ReadWriteLock {
+
+    /** Number of CPUS, to place bound on table size */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    private final ReadLock readerLock;
+    private final WriteLock writerLock;
+    final Sync sync;
+
+    /**
+     * Creates a new {@code StripedReadWriteLock} with
+     * the default (nonfair) ordering properties.
+     */
+    public StripedReadWriteLock() {
+        this(false);
+    }
+
+    /**
+     * Creates a new {@code StripedReadWriteLock} with
+     * the given fairness policy.
+     *
+     * @param fair {@code true} if this lock should use a fair ordering policy
+     */
+    public StripedReadWriteLock(boolean fair) {
+        sync = new Sync(fair);
+        readerLock = new ReadLock(this);
+        writerLock = new WriteLock(this);
+    }
+
+    public StripedReadWriteLock.WriteLock writeLock() { return writerLock; }
+    public StripedReadWriteLock.ReadLock  readLock()  { return readerLock; }
+
+    /**
+     * A reader indicator.  Padded, as the cells of Striped64, so that
+     * readers using different cells do not share cache lines.
+     */
+    @sun.misc.Contended static final class Cell {
+        volatile long value;
+        Cell() { }
+        final boolean cas(long cmp, long val) {
+            return U.compareAndSwapLong(this, VALUE, cmp, val);
+        }
+        final void add(long x) {
+            U.getAndAddLong(this, VALUE, x);
+        }
+    }
+
+    /**
+     * The read holds of one thread, and the cell it counts them in.
+     * The same cell is used by every hold of the thread until it
+     * releases its last one, so no cell is ever negative and a writer
+     * seeing all cells zero knows that there are no readers.
+     */
+    static final class HoldCounter {
+        int count;
+        Cell cell;
+    }
+
+    static final class ThreadLocalHoldCounter
+        extends ThreadLocal<HoldCounter> {
+        public HoldCounter initialValue() {
+            return new HoldCounter();
+        }
+    }
+
+    /**
+     * Synchronization implementation.  The state is the write hold
+     * count; readers are counted in cells, and use the queue only to
+     * wait.  Since readers leave without updating the state, a writer
+     * that finds readers active sets writerPending before rechecking
+     * the cells, and a reader leaving its cell (or backing out of it)
+     * while writerPending is set calls releaseShared, which wakes the
+     * first queued thread to recheck.  Either the writer sees the cell
+     * cleared or the reader sees the flag.  The flag is cleared when a
+     * writer acquires; writers still waiting set it again when they are
+     * next woken and find readers.  A writer that was queued while
+     * another writer held the lock, and reached the front of the queue
+     * while readers held it, has not set the flag, so releasing readers
+     * also signal when the first queued thread is a writer.  Readers do
+     * not signal otherwise: waking the queue on every release would
+     * make a queued reader unpark itself instead of waiting.
+     */
+    static final class Sync extends AbstractQueuedSynchronizer {
+        private static final long serialVersionUID = 6317671515068378041L;
+
+        final boolean fair;
+
+        /** The reader indicators; length is a power of two. */
+        volatile Cell[] cells;
+
+        /** Spinlock (locked via CAS) used when resizing cells. */
+        volatile int cellsBusy;
+
+        /** True if a writer may be waiting for readers to leave. */
+        volatile boolean writerPending;
+
+        /** The current thread's read holds. */
+        final ThreadLocalHoldCounter readHolds;
+
+        Sync(boolean fair) {
+            this.fair = fair;
+            this.cells = new Cell[] { new Cell() };
+            this.readHolds = new ThreadLocalHoldCounter();
+        }
+
+        /**
+         * Returns true if the current thread, when trying to acquire
+         * the read lock and otherwise eligible to do so, should block
+         * because of the ordering policy.
+         */
+        final boolean readerShouldBlock() {
+            return fair ? hasQueuedPredecessors() :
+                apparentlyFirstQueuedIsExclusive();
+        }
+
+        /**
+         * Returns true if the current thread, when trying to acquire
+         * the write lock, should block because of the ordering policy.
+         */
+        final boolean writerShouldBlock() {
+            return fair && hasQueuedPredecessors();
+        }
+
+        /**
+         * Returns true if some cell is nonzero, that is, if some thread
+         * holds, or is trying to acquire, the read lock.
+         */
+        final boolean readersActive() {
+            Cell[] as = cells;
+            for (int i = 0; i < as.length; ++i) {
+                if (as[i].value != 0L)
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Increments and returns the cell for the current thread,
+         * expanding the table on contention.
+         */
+        final Cell incrementCell() {
+            int h;
+            if ((h = getProbe()) == 0) {
+                ThreadLocalRandom.current(); // force initialization
+                h = getProbe();
+            }
+            for (;;) {
+                Cell[] as = cells;
+                int n = as.length;
+                Cell a = as[h & (n - 1)];
+                long v = a.value;
+                if (a.cas(v, v + 1L))
+                    return a;
+                if (n < NCPU && cellsBusy == 0 &&
+                    U.compareAndSwapInt(this, CELLSBUSY, 0, 1)) {
+                    try {
+                        if (cells == as) {      // expand table
+                            Cell[] rs = new Cell[n << 1];
+                            for (int i = 0; i < n; ++i)
+                                rs[i] = as[i];
+                            for (int i = n; i < rs.length; ++i)
+                                rs[i] = new Cell();
+                            cells = rs;
+                        }
+                    } finally {
+                        cellsBusy = 0;
+                    }
+                }
+                h = advanceProbe(h);
+            }
+        }
+
+        /**
+         * Wakes the first queued thread, if any, to recheck for
+         * readers or writers.
+         */
+        final void signalQueued() {
+            if (hasQueuedThreads())
+                releaseShared(0);
+        }
+
+        /*
+         * Note that tryRelease and tryAcquire can be called by
+         * Conditions. So it is possible that their arguments contain
+         * both read and write holds that are all released during a
+         * condition wait and re-established in tryAcquire.
+         */
+
+        protected final boolean tryRelease(int releases) {
+            if (!isHeldExclusively())
+                throw new IllegalMonitorStateException();
+            int nextc = getState() - releases;
+            boolean free = nextc == 0;
+            if (free)
+                setExclusiveOwnerThread(null);
+            setState(nextc);
+            return free;
+        }
+
+        protected final boolean tryAcquire(int acquires) {
+            Thread current = Thread.currentThread();
+            int c = getState();
+            if (c != 0) {
+                if (current != getExclusiveOwnerThread())
+                    return false;
+                if (c + acquires < 0)
+                    throw new Error("Maximum lock count exceeded");
+                setState(c + acquires);
+                return true;
+            }
+            return !writerShouldBlock() && tryWriteAcquire(current, acquires);
+        }
+
+        /**
+         * Takes the write lock if it is free and no readers are
+         * active.  A reader may announce itself just as the state is
+         * set, in which case one of them (or both) backs out; the
+         * writer then wakes queued threads that may have seen the
+         * state set.  Before failing because of readers, the writer
+         * sets writerPending and rechecks, so that the last reader to
+         * leave wakes it.
+         */
+        final boolean tryWriteAcquire(Thread current, int acquires) {
+            if (readersActive()) {
+                writerPending = true;
+                if (readersActive())
+                    return false;
+            }
+            if (!compareAndSetState(0, acquires))
+                return false;
+            if (readersActive()) {
+                writerPending = true;
+                if (readersActive()) {
+                    setState(0);
+                    signalQueued();
+                    return false;
+                }
+            }
+            if (writerPending)
+                writerPending = false;
+            setExclusiveOwnerThread(current);
+            return true;
+        }
+
+        /**
+         * Performs tryLock for write, enabling barging in both modes.
+         */
+        final boolean tryWriteLock() {
+            Thread current = Thread.currentThread();
+            int c = getState();
+            if (c != 0) {
+                if (current != getExclusiveOwnerThread())
+                    return false;
+                if (c == Integer.MAX_VALUE)
+                    throw new Error("Maximum lock count exceeded");
+                setState(c + 1);
+                return true;
+            }
+            return tryWriteAcquire(current, 1);
+        }
+
+        protected final boolean tryReleaseShared(int unused) {
+            return true;        // called only to wake queued threads
+        }
+
+        protected final int tryAcquireShared(int unused) {
+            HoldCounter rh = readHolds.get();
+            if (rh.count != 0 ||
+                getExclusiveOwnerThread() == Thread.currentThread()) {
+                reacquireRead(rh);
+                return 1;
+            }
+            if (readerShouldBlock())
+                return -1;
+            return tryReadAcquire(rh) ? 1 : -1;
+        }
+
+        /**
+         * Acquires a read hold for a thread already holding the read
+         * or write lock, which no writer can prevent.
+         */
+        final void reacquireRead(HoldCounter rh) {
+            int c = rh.count;
+            if (c == Integer.MAX_VALUE)
+                throw new Error("Maximum lock count exceeded");
+            if (c == 0)
+                rh.cell = incrementCell();
+            else
+                rh.cell.add(1L);
+            rh.count = c + 1;
+        }
+
+        /**
+         * Announces a reader and keeps it if the write lock is free,
+         * otherwise backs it out.
+         */
+        final boolean tryReadAcquire(HoldCounter rh) {
+            Cell a = incrementCell();
+            if (getState() == 0) {
+                rh.cell = a;
+                rh.count = 1;
+                return true;
+            }
+            a.add(-1L);
+            if (writerPending)
+                signalQueued(); // the writer may have seen our cell
+            return false;
+        }
+
+        /**
+         * Performs tryLock for read, enabling barging in both modes.
+         */
+        final boolean tryReadLock() {
+            HoldCounter rh = readHolds.get();
+            if (rh.count != 0 ||
+                getExclusiveOwnerThread() == Thread.currentThread()) {
+                reacquireRead(rh);
+                return true;
+            }
+            return getState() == 0 && tryReadAcquire(rh);
+        }
+
+        final void releaseRead() {
+            HoldCounter rh = readHolds.get();
+            int c = rh.count;
+            if (c <= 0)
+                throw new IllegalMonitorStateException(
+                    "attempt to unlock read lock, not locked by current thread");
+            Cell a = rh.cell;
+            if ((rh.count = c - 1) == 0)
+                rh.cell = null;
+            a.add(-1L);
+            if (writerPending || apparentlyFirstQueuedIsExclusive())
+                signalQueued();
+        }
+
+        protected final boolean isHeldExclusively() {
+            // While we must in general read state before owner,
+            // we don't need to do so to check if current thread is owner
+            return getExclusiveOwnerThread() == Thread.currentThread();
+        }
+
+        // Methods relayed to outer class
+
+        final ConditionObject newCondition() {
+            return new ConditionObject();
+        }
+
+        final Thread getOwner() {
+            // Must read state before owner to ensure memory consistency
+            return (getState() == 0) ? null : getExclusiveOwnerThread();
+        }
+
+        final long getReadLockCount() {
+            long sum = 0L;
+            for (Cell a : cells)
+                sum += a.value;
+            return sum;
+        }
+
+        final int getCount() { return getState(); }
+
+        final int getWriteHoldCount() {
+            return isHeldExclusively() ? getState() : 0;
+        }
+
+        final int getReadHoldCount() {
+            return readHolds.get().count;
+        }
+
+        // Unsafe mechanics
+        private static final long CELLSBUSY;
+        static {
+            try {
+                CELLSBUSY = U.objectFieldOffset
+                    (Sync.class.getDeclaredField("cellsBusy"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * The lock returned by method {@link StripedReadWriteLock#readLock}.
+     */
+    public static class ReadLock implements Lock {
+        private final Sync sync;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected ReadLock(StripedReadWriteLock lock) {
+            sync = lock.sync;
+        }
+
+        /**
+         * Acquires the read lock.
+         *
+         * <p>Acquires the read lock if the write lock is not held by
+         * another thread and returns immediately.
+         *
+         * <p>If the write lock is held by another thread then
+         * the current thread becomes disabled for thread scheduling
+         * purposes and lies dormant until the read lock has been acquired.
+         */
+        public void lock() {
+            sync.acquireShared(1);
+        }
+
+        /**
+         * Acquires the read lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}, as described for
+         * {@link ReentrantReadWriteLock.ReadLock#lockInterruptibly}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            sync.acquireSharedInterruptibly(1);
+        }
+
+        /**
+         * Acquires the read lock only if the write lock is not held by
+         * another thread at the time of invocation.  As for {@link
+         * ReentrantReadWriteLock.ReadLock#tryLock()}, this method barges
+         * even if this lock has been set to use a fair ordering policy.
+         *
+         * @return {@code true} if the read lock was acquired
+         */
+        public boolean tryLock() {
+            return sync.tryReadLock();
+        }
+
+        /**
+         * Acquires the read lock if the write lock is not held by
+         * another thread within the given waiting time and the
+         * current thread has not been {@linkplain Thread#interrupt
+         * interrupted}, as described for {@link
+         * ReentrantReadWriteLock.ReadLock#tryLock(long, TimeUnit)}.
+         *
+         * @param timeout the time to wait for the read lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the read lock was acquired
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return sync.tryAcquireSharedNanos(1, unit.toNanos(timeout));
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * @throws IllegalMonitorStateException if the current thread
+         *         does not hold this lock
+         */
+        public void unlock() {
+            sync.releaseRead();
+        }
+
+        /**
+         * Throws {@code UnsupportedOperationException} because
+         * {@code ReadLocks} do not support conditions.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock state.
+         * The state, in brackets, includes the String {@code "Read locks ="}
+         * followed by the number of held read locks.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            long r = sync.getReadLockCount();
+            return super.toString() +
+                "[Read locks = " + r + "]";
+        }
+    }
+
+    /**
+     * The lock returned by method {@link StripedReadWriteLock#writeLock}.
+     */
+    public static class WriteLock implements Lock {
+        private final Sync sync;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected WriteLock(StripedReadWriteLock lock) {
+            sync = lock.sync;
+        }
+
+        /**
+         * Acquires the write lock.
+         *
+         * <p>Acquires the write lock if neither the read nor write lock
+         * are held by another thread and returns immediately, setting
+         * the write lock hold count to one.  If the current thread
+         * already holds the write lock then the hold count is
+         * incremented by one.  Otherwise the current thread becomes
+         * disabled for thread scheduling purposes and lies dormant
+         * until the write lock has been acquired.
+         */
+        public void lock() {
+            sync.acquire(1);
+        }
+
+        /**
+         * Acquires the write lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}, as described for
+         * {@link ReentrantReadWriteLock.WriteLock#lockInterruptibly}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            sync.acquireInterruptibly(1);
+        }
+
+        /**
+         * Acquires the write lock only if it is not held by another
+         * thread and no thread holds the read lock at the time of
+         * invocation.  As for {@link
+         * ReentrantReadWriteLock.WriteLock#tryLock()}, this method
+         * barges even if this lock has been set to use a fair ordering
+         * policy.
+         *
+         * @return {@code true} if the lock was free and was acquired
+         * by the current thread, or the write lock was already held
+         * by the current thread; and {@code false} otherwise.
+         */
+        public boolean tryLock() {
+            return sync.tryWriteLock();
+        }
+
+        /**
+         * Acquires the write lock if it is not held by another thread
+         * and no thread holds the read lock within the given waiting
+         * time and the current thread has not been {@linkplain
+         * Thread#interrupt interrupted}, as described for {@link
+         * ReentrantReadWriteLock.WriteLock#tryLock(long, TimeUnit)}.
+         *
+         * @param timeout the time to wait for the write lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the lock was free and was acquired
+         * by the current thread, or the write lock was already held by the
+         * current thread; and {@code false} if the waiting time
+         * elapsed before the lock could be acquired.
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return sync.tryAcquireNanos(1, unit.toNanos(timeout));
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * <p>If the current thread is the holder of this lock then
+         * the hold count is decremented. If the hold count is now
+         * zero then the lock is released.
+         *
+         * @throws IllegalMonitorStateException if the current thread does
+         * not hold this lock
+         */
+        public void unlock() {
+            sync.release(1);
+        }
+
+        /**
+         * Returns a {@link Condition} instance for use with this
+         * {@link Lock} instance, with the same behavior as the
+         * conditions of {@link ReentrantReadWriteLock.WriteLock}.
+         *
+         * @return the Condition object
+         */
+        public Condition newCondition() {
+            return sync.newCondition();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock
+         * state.  The state, in brackets includes either the String
+         * {@code "Unlocked"} or the String {@code "Locked by"}
+         * followed by the {@linkplain Thread#getName name} of the owning thread.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            Thread o = sync.getOwner();
+            return super.toString() + ((o == null) ?
+                                       "[Unlocked]" :
+                                       "[Locked by thread " + o.getName() + "]");
+        }
+
+        /**
+         * Queries if this write lock is held by the current thread.
+         *
+         * @return {@code true} if the current thread holds this lock and
+         *         {@code false} otherwise
+         */
+        public boolean isHeldByCurrentThread() {
+            return sync.isHeldExclusively();
+        }
+
+        /**
+         * Queries the number of holds on this write lock by the current
+         * thread.
+         *
+         * @return the number of holds on this lock by the current thread,
+         *         or zero if this lock is not held by the current thread
+         */
+        public int getHoldCount() {
+            return sync.getWriteHoldCount();
+        }
+    }
+
+    // Instrumentation and status
+
+    /**
+     * Returns {@code true} if this lock has fairness set true.
+     *
+     * @return {@code true} if this lock has fairness set true
+     */
+    public final boolean isFair() {
+        return sync.fair;
+    }
+
+    /**
+     * Queries the number of read locks held for this lock, including
+     * those of threads momentarily announcing themselves while failing
+     * to acquire the read lock.  This method is designed for use in
+     * monitoring system state, not for synchronization control.
+     *
+     * @return the number of read locks held
+     */
+    public long getReadLockCount() {
+        return sync.getReadLockCount();
+    }
+
+    /**
+     * Queries if the write lock is held by any thread. This method is
+     * designed for use in monitoring system state, not for
+     * synchronization control.
+     *
+     * @return {@code true} if any thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLocked() {
+        return sync.getOwner() != null;
+    }
+
+    /**
+     * Queries if the write lock is held by the current thread.
+     *
+     * @return {@code true} if the current thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLockedByCurrentThread() {
+        return sync.isHeldExclusively();
+    }
+
+    /**
+     * Queries the number of reentrant write holds on this lock by the
+     * current thread.
+     *
+     * @return the number of holds on the write lock by the current thread,
+     *         or zero if the write lock is not held by the current thread
+     */
+    public int getWriteHoldCount() {
+        return sync.getWriteHoldCount();
+    }
+
+    /**
+     * Queries the number of reentrant read holds on this lock by the
+     * current thread.
+     *
+     * @return the number of holds on the read lock by the current thread,
+     *         or zero if the read lock is not held by the current thread
+     */
+    public int getReadHoldCount() {
+        return sync.getReadHoldCount();
+    }
+
+    /**
+     * Queries whether any threads are waiting to acquire the read or
+     * write lock.
+     *
+     * @return {@code true} if there may be other threads waiting to
+     *         acquire the lock
+     */
+    public final boolean hasQueuedThreads() {
+        return sync.hasQueuedThreads();
+    }
+
+    /**
+     * Returns an estimate of the number of threads waiting to acquire
+     * either the read or write lock.
+     *
+     * @return the estimated number of threads waiting for this lock
+     */
+    public final int getQueueLength() {
+        return sync.getQueueLength();
+    }
+
+    /**
+     * Queries whether any threads are waiting on the given condition
+     * associated with the write lock.
+     *
+     * @param condition the condition
+     * @return {@code true} if there are any waiting threads
+     * @throws IllegalMonitorStateException if this lock is not held
+     * @throws IllegalArgumentException if the given condition is
+     *         not associated with this lock
+     * @throws NullPointerException if the condition is null
+     */
+    public boolean hasWaiters(Condition condition) {
+        if (condition == null)
+            throw new NullPointerException();
+        if (!(condition instanceof AbstractQueuedSynchronizer.ConditionObject))
+            throw new IllegalArgumentException("not owner");
+        return sync.hasWaiters((AbstractQueuedSynchronizer.ConditionObject)condition);
+    }
+
+    /**
+     * Returns a string identifying this lock, as well as its lock state.
+     * The state, in brackets, includes the String {@code "Write locks ="}
+     * followed by the number of reentrantly held write locks, and the
+     * String {@code "Read locks ="} followed by the number of held
+     * read locks.
+     *
+     * @return a string identifying this lock, as well as its lock state
+     */
+    public String toString() {
+        int w = (sync.getOwner() == null) ? 0 : sync.getCount();
+        long r = sync.getReadLockCount();
+
+        return super.toString() +
+            "[Write locks = " + w + ", Read locks = " + r + "]";
+    }
+
+    /**
+     * Returns the probe value for the current thread, as does
+     * ThreadLocalRandom.getProbe, which is not accessible here.
+     */
+    static final int getProbe() {
+        return U.getInt(Thread.currentThread(), PROBE);
+    }
+
+    /**
+     * Pseudo-randomly advances and records the given probe value for
+     * the current thread.
+     */
+    static final int advanceProbe(int probe) {
+        probe ^= probe << 13;   // xorshift
+        probe ^= probe >>> 17;
+        probe ^= probe << 5;
+        U.putInt(Thread.currentThread(), PROBE, probe);
+        return probe;
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long VALUE;
+    private static final long PROBE;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            VALUE = U.objectFieldOffset
+                (Cell.class.getDeclaredField("value"));
+            PROBE = U.objectFieldOffset
+                (Thread.class.getDeclaredField("threadLocalRandomProbe"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -148,6 +148,12 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     private boolean parallel;
 
+    /**
+     * Per-stage statistics, if {@link PipelineDiagnostics#ENABLED diagnostics}
+     * are enabled and this is an intermediate stage, otherwise {@code null}.
+     */
+    final PipelineDiagnostics.Stage diagnostics;
+
     /**
      * Constructor for the head of a stream pipeline.
      *
@@ -167,6 +173,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         this.combinedFlags = (~(sourceOrOpFlags << 1)) & StreamOpFlag.INITIAL_OPS_VALUE;
         this.depth = 0;
         this.parallel = parallel;
+        this.diagnostics = null;
     }
 
     /**
@@ -188,6 +195,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         this.combinedFlags = (~(sourceOrOpFlags << 1)) & StreamOpFlag.INITIAL_OPS_VALUE;
         this.depth = 0;
         this.parallel = parallel;
+        this.diagnostics = null;
     }
 
     /**
@@ -211,6 +219,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         if (opIsStateful())
             sourceStage.sourceAnyStateful = true;
         this.depth = previousStage.depth + 1;
+        this.diagnostics = PipelineDiagnostics.ENABLED ? new PipelineDiagnostics.Stage() : null;
     }
 
 
@@ -229,9 +238,12 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
-        return isParallel()
-               ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
-               : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        R result = isParallel()
+                   ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
+                   : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        if (PipelineDiagnostics.ENABLED)
+            PipelineDiagnostics.report(this);
+        return result;
     }
 
     /**
@@ -248,12 +260,16 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
 
         // If the last intermediate operation is stateful then
         // evaluate directly to avoid an extra collection step
+        Node<E_OUT> node;
         if (isParallel() && previousStage != null && opIsStateful()) {
-            return opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
+            node = opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
         }
         else {
-            return evaluate(sourceSpliterator(0), true, generator);
+            node = evaluate(sourceSpliterator(0), true, generator);
         }
+        if (PipelineDiagnostics.ENABLED)
+            PipelineDiagnostics.report(this);
+        return node;
     }
 
     /**
@@ -544,12 +560,74 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     final <P_IN> Sink<P_IN> wrapSink(Sink<E_OUT> sink) {
         Objects.requireNonNull(sink);
 
-        for ( @SuppressWarnings("rawtypes") AbstractPipeline p=AbstractPipeline.this; p.depth > 0; p=p.previousStage) {
-            sink = p.opWrapSink(p.previousStage.combinedFlags, sink);
+        if (PipelineDiagnostics.ENABLED) {
+            // Record each stage separately, without fusion
+            @SuppressWarnings("rawtypes")
+            Sink wrapped = sink, next = null;
+            for ( @SuppressWarnings("rawtypes") AbstractPipeline p=AbstractPipeline.this; p.depth > 0; p=p.previousStage) {
+                wrapped = p.opWrapSink(p.previousStage.combinedFlags, wrapped);
+                wrapped = next = PipelineDiagnostics.record(p.previousStage.getOutputShape(),
+                                                            p.diagnostics, wrapped, next);
+            }
+            return (Sink<P_IN>) wrapped;
+        }
+
+        @SuppressWarnings("rawtypes")
+        AbstractPipeline p = AbstractPipeline.this;
+        while (p.depth > 0) {
+            @SuppressWarnings("rawtypes")
+            AbstractPipeline q = p.previousStage;
+            FusedOps.Step step, prev;
+            @SuppressWarnings("rawtypes")
+            Sink fused = null;
+            if ((step = p.opFusedStep()) != null && q.depth > 0 &&
+                (prev = q.opFusedStep()) != null)
+                fused = FusedOps.fuse(prev, step, sink);
+            if (fused != null) {
+                // One sink for the pair of stages ending with p
+                sink = fused;
+                p = q.previousStage;
+            }
+            else {
+                sink = p.opWrapSink(q.combinedFlags, sink);
+                p = q;
+            }
         }
         return (Sink<P_IN>) sink;
     }
 
+    /**
+     * Returns the intermediate stages of the pipeline ending with this
+     * stage, in pipeline order.  Unlike {@code depth}, which is reset at
+     * stateful stages when a parallel pipeline is prepared, this covers all
+     * the stages back to the source.
+     *
+     * @return the intermediate stages
+     */
+    @SuppressWarnings("rawtypes")
+    final AbstractPipeline[] stages() {
+        int n = 0;
+        for (AbstractPipeline p = this; p.previousStage != null; p = p.previousStage)
+            n++;
+        AbstractPipeline[] stages = new AbstractPipeline[n];
+        for (AbstractPipeline p = this; p.previousStage != null; p = p.previousStage)
+            stages[--n] = p;
+        return stages;
+    }
+
+    /**
+     * Returns a short name for the operation of this stage, for diagnostics.
+     *
+     * @return the name of the operation of this stage
+     */
+    final String stageName() {
+        FusedOps.Step step = opFusedStep();
+        if (step != null)
+            return step.name();
+        String name = getClass().getName();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     final <P_IN> Spliterator<E_OUT> wrapSpliterator(Spliterator<P_IN> sourceSpliterator) {
@@ -688,6 +766,23 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     abstract Sink<E_IN> opWrapSink(int flags, Sink<E_OUT> sink);
 
+    /**
+     * Returns the step performed by this operation if it is a stateless
+     * reference operation that may be fused with an adjacent one into a
+     * single sink, otherwise {@code null}.  When two adjacent stages return
+     * steps of a shape that has a {@link FusedOps fused} sink,
+     * {@link #wrapSink} wraps that sink, performing both steps, in place of
+     * calling their {@link #opWrapSink} methods, which must then be
+     * equivalent to it.
+     *
+     * @implSpec The default implementation returns {@code null}.
+     *
+     * @return the fusible step of this operation, or {@code null}
+     */
+    FusedOps.Step opFusedStep() {
+        return null;
+    }
+
     /**
      * Performs a parallel evaluation of the operation using the specified
      * {@code PipelineHelper} which describes the upstream intermediate
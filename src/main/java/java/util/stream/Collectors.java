@@ -35,9 +35,12 @@ import java.util.DoubleSummaryStatistics;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IntObjectHashMap;
 import java.util.IntSummaryStatistics;
 import java.util.Iterator;
 import java.util.List;
+import java.util.LongLongHashMap;
+import java.util.LongObjectHashMap;
 import java.util.LongSummaryStatistics;
 import java.util.Map;
 import java.util.Objects;
@@ -1091,6 +1094,251 @@ public final class Collectors {
         }
     }
 
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T}, grouping elements according to an
+     * {@code int}-valued classification function, and returning the results
+     * in an {@link IntObjectHashMap}, so that keys are never boxed.
+     *
+     * <p>There are no guarantees on the mutability, serializability, or
+     * thread-safety of the {@code List} objects returned.
+     * @implSpec
+     * This produces a result similar to:
+     * <pre>{@code
+     *     groupingByInt(classifier, toList());
+     * }</pre>
+     *
+     * @param <T> the type of the input elements
+     * @param classifier the classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingByInt(ToIntFunction, Collector)
+     * @see #groupingBy(Function)
+     */
+    public static <T> Collector<T, ?, IntObjectHashMap<List<T>>>
+    groupingByInt(ToIntFunction<? super T> classifier) {
+        return groupingByInt(classifier, toList());
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements according to an
+     * {@code int}-valued classification function, and then performing a
+     * reduction operation on the values associated with a given key using the
+     * specified downstream {@code Collector}.  The results are returned in an
+     * {@link IntObjectHashMap}, so that keys are never boxed.
+     *
+     * <p>For example, to count the people of each age:
+     * <pre>{@code
+     *     IntObjectHashMap<Long> countByAge
+     *         = people.stream().collect(groupingByInt(Person::getAge, counting()));
+     * }</pre>
+     *
+     * @implNote
+     * The returned {@code Collector} is not concurrent.  For parallel stream
+     * pipelines, each leaf task accumulates into its own map, and the
+     * {@code combiner} function merges one map into another by walking its
+     * table directly with {@link IntObjectHashMap#mergeAll}, so no shared
+     * map is contended and encounter order is preserved within each group.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingByInt(ToIntFunction)
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <T, A, D>
+    Collector<T, ?, IntObjectHashMap<D>> groupingByInt(ToIntFunction<? super T> classifier,
+                                                       Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        BiConsumer<IntObjectHashMap<A>, T> accumulator = (m, t) -> {
+            int key = classifier.applyAsInt(t);
+            A container = m.get(key);
+            if (container == null)
+                m.put(key, container = downstreamSupplier.get());
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<IntObjectHashMap<A>> merger = (m1, m2) -> {
+            m1.mergeAll(m2, downstreamCombiner);
+            return m1;
+        };
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return new CollectorImpl<T, IntObjectHashMap<A>, IntObjectHashMap<D>>(
+                    IntObjectHashMap::new, accumulator, merger, CH_ID);
+        }
+        else {
+            @SuppressWarnings("unchecked")
+            Function<A, A> downstreamFinisher = (Function<A, A>) downstream.finisher();
+            Function<IntObjectHashMap<A>, IntObjectHashMap<D>> finisher = intermediate -> {
+                intermediate.replaceAll((k, v) -> downstreamFinisher.apply(v));
+                @SuppressWarnings("unchecked")
+                IntObjectHashMap<D> castResult = (IntObjectHashMap<D>) (IntObjectHashMap<?>) intermediate;
+                return castResult;
+            };
+            return new CollectorImpl<>(IntObjectHashMap<A>::new, accumulator, merger, finisher, CH_NOID);
+        }
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T}, grouping elements according to a
+     * {@code long}-valued classification function, and returning the results
+     * in a {@link LongObjectHashMap}, so that keys are never boxed.
+     *
+     * <p>There are no guarantees on the mutability, serializability, or
+     * thread-safety of the {@code List} objects returned.
+     * @implSpec
+     * This produces a result similar to:
+     * <pre>{@code
+     *     groupingByLong(classifier, toList());
+     * }</pre>
+     *
+     * @param <T> the type of the input elements
+     * @param classifier the classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingByLong(ToLongFunction, Collector)
+     * @see #groupingBy(Function)
+     */
+    public static <T> Collector<T, ?, LongObjectHashMap<List<T>>>
+    groupingByLong(ToLongFunction<? super T> classifier) {
+        return groupingByLong(classifier, toList());
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements according to a
+     * {@code long}-valued classification function, and then performing a
+     * reduction operation on the values associated with a given key using the
+     * specified downstream {@code Collector}.  The results are returned in a
+     * {@link LongObjectHashMap}, so that keys are never boxed.
+     *
+     * @implNote
+     * The returned {@code Collector} is not concurrent.  For parallel stream
+     * pipelines, each leaf task accumulates into its own map, and the
+     * {@code combiner} function merges one map into another by walking its
+     * table directly with {@link LongObjectHashMap#mergeAll}.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingByLong(ToLongFunction)
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <T, A, D>
+    Collector<T, ?, LongObjectHashMap<D>> groupingByLong(ToLongFunction<? super T> classifier,
+                                                         Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        BiConsumer<LongObjectHashMap<A>, T> accumulator = (m, t) -> {
+            long key = classifier.applyAsLong(t);
+            A container = m.get(key);
+            if (container == null)
+                m.put(key, container = downstreamSupplier.get());
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<LongObjectHashMap<A>> merger = (m1, m2) -> {
+            m1.mergeAll(m2, downstreamCombiner);
+            return m1;
+        };
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return new CollectorImpl<T, LongObjectHashMap<A>, LongObjectHashMap<D>>(
+                    LongObjectHashMap::new, accumulator, merger, CH_ID);
+        }
+        else {
+            @SuppressWarnings("unchecked")
+            Function<A, A> downstreamFinisher = (Function<A, A>) downstream.finisher();
+            Function<LongObjectHashMap<A>, LongObjectHashMap<D>> finisher = intermediate -> {
+                intermediate.replaceAll((k, v) -> downstreamFinisher.apply(v));
+                @SuppressWarnings("unchecked")
+                LongObjectHashMap<D> castResult = (LongObjectHashMap<D>) (LongObjectHashMap<?>) intermediate;
+                return castResult;
+            };
+            return new CollectorImpl<>(LongObjectHashMap<A>::new, accumulator, merger, finisher, CH_NOID);
+        }
+    }
+
+    /**
+     * Returns a {@code Collector} counting the input elements of type
+     * {@code T} in each group of a {@code long}-valued classification
+     * function, into a {@link LongLongHashMap}, so that neither keys nor
+     * counts are boxed.  An {@code int}-valued classifier may be passed as
+     * is.
+     *
+     * @implSpec
+     * This produces a result equivalent to:
+     * <pre>{@code
+     *     groupingByLong(classifier, counting());
+     * }</pre>
+     * but held in a {@code LongLongHashMap}.
+     *
+     * @implNote
+     * The returned {@code Collector} is not concurrent.  For parallel stream
+     * pipelines, each leaf task counts into its own map, and the
+     * {@code combiner} function adds one map into another with
+     * {@link LongLongHashMap#addAll}.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a {@code Collector} counting the elements of each group
+     *
+     * @see #summingByLong(ToLongFunction, ToLongFunction)
+     */
+    public static <T> Collector<T, ?, LongLongHashMap>
+    countingByLong(ToLongFunction<? super T> classifier) {
+        Objects.requireNonNull(classifier);
+        return new CollectorImpl<>(
+                LongLongHashMap::new,
+                (m, t) -> m.addTo(classifier.applyAsLong(t), 1L),
+                (m1, m2) -> { m1.addAll(m2); return m1; },
+                CH_UNORDERED_ID);
+    }
+
+    /**
+     * Returns a {@code Collector} summing a {@code long}-valued function of
+     * the input elements of type {@code T} in each group of a
+     * {@code long}-valued classification function, into a
+     * {@link LongLongHashMap}, so that neither keys nor sums are boxed.
+     *
+     * @implSpec
+     * This produces a result equivalent to:
+     * <pre>{@code
+     *     groupingByLong(classifier, summingLong(mapper));
+     * }</pre>
+     * but held in a {@code LongLongHashMap}.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapper a function extracting the property to be summed
+     * @return a {@code Collector} summing the property in each group
+     *
+     * @see #countingByLong(ToLongFunction)
+     */
+    public static <T> Collector<T, ?, LongLongHashMap>
+    summingByLong(ToLongFunction<? super T> classifier,
+                  ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(classifier);
+        Objects.requireNonNull(mapper);
+        return new CollectorImpl<>(
+                LongLongHashMap::new,
+                (m, t) -> m.addTo(classifier.applyAsLong(t), mapper.applyAsLong(t)),
+                (m1, m2) -> { m1.addAll(m2); return m1; },
+                CH_UNORDERED_ID);
+    }
+
     /**
      * Returns a {@code Collector} which partitions the input elements according
      * to a {@code Predicate}, and organizes them into a
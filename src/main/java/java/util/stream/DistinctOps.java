@@ -25,12 +25,9 @@
 package java.util.stream;
 
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.IntFunction;
 
 /**
@@ -43,6 +40,11 @@ final class DistinctOps {
 
     private DistinctOps() { }
 
+    @SuppressWarnings("unchecked")
+    private static <T> IntFunction<T[]> castingArray() {
+        return size -> (T[]) new Object[size];
+    }
+
     /**
      * Appends a "distinct" operation to the provided stream, and returns the
      * new stream.
@@ -55,15 +57,6 @@ final class DistinctOps {
         return new ReferencePipeline.StatefulOp<T, T>(upstream, StreamShape.REFERENCE,
                                                       StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
 
-            <P_IN> Node<T> reduce(PipelineHelper<T> helper, Spliterator<P_IN> spliterator) {
-                // If the stream is SORTED then it should also be ORDERED so the following will also
-                // preserve the sort order
-                TerminalOp<T, LinkedHashSet<T>> reduceOp
-                        = ReduceOps.<T, LinkedHashSet<T>>makeRef(LinkedHashSet::new, LinkedHashSet::add,
-                                                                 LinkedHashSet::addAll);
-                return Nodes.node(reduceOp.evaluateParallel(helper, spliterator));
-            }
-
             @Override
             <P_IN> Node<T> opEvaluateParallel(PipelineHelper<T> helper,
                                               Spliterator<P_IN> spliterator,
@@ -72,30 +65,11 @@ final class DistinctOps {
                     // No-op
                     return helper.evaluate(spliterator, false, generator);
                 }
-                else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
-                    return reduce(helper, spliterator);
-                }
                 else {
-                    // Holder of null state since ConcurrentHashMap does not support null values
-                    AtomicBoolean seenNull = new AtomicBoolean(false);
-                    ConcurrentHashMap<T, Boolean> map = new ConcurrentHashMap<>();
-                    TerminalOp<T, Void> forEachOp = ForEachOps.makeRef(t -> {
-                        if (t == null)
-                            seenNull.set(true);
-                        else
-                            map.putIfAbsent(t, Boolean.TRUE);
-                    }, false);
-                    forEachOp.evaluateParallel(helper, spliterator);
-
-                    // If null has been seen then copy the key set into a HashSet that supports null values
-                    // and add null
-                    Set<T> keys = map.keySet();
-                    if (seenNull.get()) {
-                        // TODO Implement a more efficient set-union view, rather than copying
-                        keys = new HashSet<>(keys);
-                        keys.add(null);
-                    }
-                    return Nodes.node(keys);
+                    // Keeps the first of equal elements in encounter order, so
+                    // serves both ordered and unordered streams
+                    T[] array = helper.evaluate(spliterator, true, generator).asArray(generator);
+                    return Nodes.node(DistinctOps.distinct(array, generator));
                 }
             }
 
@@ -107,7 +81,7 @@ final class DistinctOps {
                 }
                 else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
                     // Not lazy, barrier required to preserve order
-                    return reduce(helper, spliterator).spliterator();
+                    return opEvaluateParallel(helper, spliterator, castingArray()).spliterator();
                 }
                 else {
                     // Lazy
@@ -180,4 +154,115 @@ final class DistinctOps {
             }
         };
     }
+
+    /**
+     * The minimum number of elements per slice of a parallel distinct.
+     */
+    private static final int MIN_SLICE = 1 << 12;
+
+    /**
+     * The maximum number of hash partitions of a parallel distinct, so
+     * that a partition index fits in a byte.
+     */
+    private static final int MAX_PARTITIONS = 1 << 7;
+
+    /**
+     * Returns the distinct elements of an array, keeping the first of
+     * each run of equal elements in array order.
+     *
+     * @implNote
+     * Elements are hash-partitioned so that equal elements fall into the
+     * same partition, and partitions are deduplicated independently, in
+     * parallel, with no shared set.  The array is cut into slices; each
+     * slice computes the partition of its elements and counts them per
+     * partition.  From the prefix sums of the counts each slice then
+     * scatters the indices of its elements into a permutation grouping
+     * them by partition while preserving array order within a
+     * partition.  Each partition marks every element equal to an earlier
+     * one in the partition, and so in the array.  Finally, each slice
+     * copies its unmarked elements into the result at the offset given
+     * by the prefix sums of the unmarked counts.  Besides the result,
+     * the working space is five bytes per element.
+     *
+     * @param <T> the type of elements
+     * @param array the elements, which are not modified
+     * @param generator the array factory for the result
+     * @return an array of the distinct elements
+     */
+    static <T> T[] distinct(T[] array, IntFunction<T[]> generator) {
+        final int n = array.length;
+        final int slices = Nodes.sliceCount(n, MIN_SLICE);
+        final int parts = Math.min(MAX_PARTITIONS,
+                                   Integer.highestOneBit((slices << 1) - 1));
+        final int shift = Integer.numberOfLeadingZeros(parts) + 1;
+        final byte[] marks = new byte[n];  // partition, then duplicate flag
+        final int[] offsets = new int[slices * parts];
+        final int[] perm = new int[n];
+
+        Nodes.forEachSlice(slices, s -> {
+            int base = s * parts;
+            for (int i = Nodes.sliceStart(n, slices, s), e = Nodes.sliceStart(n, slices, s + 1); i < e; i++) {
+                int p = (parts == 1) ? 0 : partition(array[i], shift);
+                marks[i] = (byte) p;
+                offsets[base + p]++;
+            }
+        });
+        final int[] partStarts = new int[parts + 1];
+        for (int p = 0, off = 0; p < parts; p++) {
+            partStarts[p] = off;
+            for (int s = 0; s < slices; s++) {
+                int c = offsets[s * parts + p];
+                offsets[s * parts + p] = off;
+                off += c;
+            }
+        }
+        partStarts[parts] = n;
+        Nodes.forEachSlice(slices, s -> {
+            int base = s * parts;
+            for (int i = Nodes.sliceStart(n, slices, s), e = Nodes.sliceStart(n, slices, s + 1); i < e; i++) {
+                perm[offsets[base + marks[i]]++] = i;
+                marks[i] = 0;
+            }
+        });
+        Nodes.forEachSlice(parts, p -> {
+            int lo = partStarts[p], hi = partStarts[p + 1];
+            Set<T> seen = new HashSet<>(Math.max((int) ((hi - lo) / .75f) + 1, 16));
+            for (int k = lo; k < hi; k++) {
+                int i = perm[k];
+                if (!seen.add(array[i]))
+                    marks[i] = 1;
+            }
+        });
+        final int[] kept = new int[slices + 1];
+        Nodes.forEachSlice(slices, s -> {
+            int c = 0;
+            for (int i = Nodes.sliceStart(n, slices, s), e = Nodes.sliceStart(n, slices, s + 1); i < e; i++) {
+                if (marks[i] == 0)
+                    c++;
+            }
+            kept[s + 1] = c;
+        });
+        for (int s = 0; s < slices; s++)
+            kept[s + 1] += kept[s];
+        if (kept[slices] == n)
+            return array;
+        final T[] result = generator.apply(kept[slices]);
+        Nodes.forEachSlice(slices, s -> {
+            int j = kept[s];
+            for (int i = Nodes.sliceStart(n, slices, s), e = Nodes.sliceStart(n, slices, s + 1); i < e; i++) {
+                if (marks[i] == 0)
+                    result[j++] = array[i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the partition of an element from the high bits of its
+     * scrambled hash code, leaving the low bits to the partition's set.
+     */
+    private static int partition(Object o, int shift) {
+        int h = (o == null) ? 0 : o.hashCode() * 0x9E3779B9;
+        return h >>> shift;
+    }
 }
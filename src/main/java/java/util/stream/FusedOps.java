@@ -0,0 +1,320 @@
+package java.util.stream;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Factory methods for fusing pairs of adjacent stateless reference
+ * operations ({@code map} or {@code filter}, followed by {@code map},
+ * {@code filter}, {@code mapToInt}, {@code mapToLong} or
+ * {@code mapToDouble}) into a single {@link Sink}.
+ *
+ * <p>Each such operation normally wraps its own {@link Sink.ChainedReference},
+ * so that a deep pipeline calls {@code accept} once per stage per element,
+ * through call sites that see many sink classes and so cannot be inlined.
+ * A fused sink applies the functions of both stages and calls the
+ * downstream sink once.  Every shape of pair has its own sink class, so
+ * that each function is invoked from a call site that only that shape
+ * shares, as with the sink of a single stage; a generic sink dispatching
+ * over an array of steps would share one call site among all shapes, and
+ * is slower than no fusion.  Fusion is performed by
+ * {@link AbstractPipeline#wrapSink} when evaluation starts, pairing stages
+ * from the end of the pipeline; the stages themselves are unchanged, so
+ * splitting, flags and lazy traversal behave as before.
+ *
+ * @since 1.8
+ */
+final class FusedOps {
+
+    private FusedOps() { }
+
+    /** Kinds of fusible steps */
+    static final int MAP = 1, FILTER = 2, PEEK = 3,
+        MAP_TO_INT = 4, MAP_TO_LONG = 5, MAP_TO_DOUBLE = 6;
+
+    private static final String[] NAMES = {
+        null, "map", "filter", "peek", "mapToInt", "mapToLong", "mapToDouble"
+    };
+
+    /**
+     * The operation of a fusible stage: its kind, and the function, predicate
+     * or action it applies.  A step of one of the {@code MAP_TO} kinds can
+     * only end a pair, since the stages following it are not reference
+     * stages.  {@code peek} steps only name their stage for diagnostics.
+     */
+    static final class Step {
+        final int kind;
+        final Object fn;
+
+        Step(int kind, Object fn) {
+            this.kind = kind;
+            this.fn = fn;
+        }
+
+        /**
+         * Returns the name of the operation, as used by
+         * {@link PipelineDiagnostics}.
+         */
+        String name() {
+            return NAMES[kind];
+        }
+    }
+
+    /**
+     * Returns a sink performing the two given steps, in order, on each
+     * element and passing the results, if any, to the provided sink, or
+     * {@code null} if the pair has no fused sink.  Each shape has its own
+     * sink class, so that the functions of a shape are invoked from call
+     * sites of that class only.
+     *
+     * @param first the step of the upstream stage of the pair
+     * @param second the step of the downstream stage of the pair
+     * @param sink sink to which elements should be sent after processing
+     * @return a sink performing both steps, or {@code null}
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static Sink fuse(Step first, Step second, Sink sink) {
+        Object f = first.fn, g = second.fn;
+        switch (first.kind) {
+            case MAP:
+                switch (second.kind) {
+                    case MAP:
+                        return new MapMap((Function) f, (Function) g, sink);
+                    case FILTER:
+                        return new MapFilter((Function) f, (Predicate) g, sink);
+                    case MAP_TO_INT:
+                        return new MapToInt((Function) f, (ToIntFunction) g, sink);
+                    case MAP_TO_LONG:
+                        return new MapToLong((Function) f, (ToLongFunction) g, sink);
+                    case MAP_TO_DOUBLE:
+                        return new MapToDouble((Function) f, (ToDoubleFunction) g, sink);
+                }
+                break;
+            case FILTER:
+                switch (second.kind) {
+                    case MAP:
+                        return new FilterMap((Predicate) f, (Function) g, sink);
+                    case FILTER:
+                        return new FilterFilter((Predicate) f, (Predicate) g, sink);
+                    case MAP_TO_INT:
+                        return new FilterToInt((Predicate) f, (ToIntFunction) g, sink);
+                    case MAP_TO_LONG:
+                        return new FilterToLong((Predicate) f, (ToLongFunction) g, sink);
+                    case MAP_TO_DOUBLE:
+                        return new FilterToDouble((Predicate) f, (ToDoubleFunction) g, sink);
+                }
+                break;
+        }
+        return null;
+    }
+
+    private static final class MapMap<T, U, R> extends Sink.ChainedReference<T, R> {
+        private final Function<? super T, ? extends U> f;
+        private final Function<? super U, ? extends R> g;
+
+        MapMap(Function<? super T, ? extends U> f, Function<? super U, ? extends R> g,
+               Sink<? super R> sink) {
+            super(sink);
+            this.f = f;
+            this.g = g;
+        }
+
+        @Override
+        public void accept(T t) {
+            downstream.accept(g.apply(f.apply(t)));
+        }
+    }
+
+    private static final class MapFilter<T, U> extends Sink.ChainedReference<T, U> {
+        private final Function<? super T, ? extends U> f;
+        private final Predicate<? super U> g;
+
+        MapFilter(Function<? super T, ? extends U> f, Predicate<? super U> g,
+                  Sink<? super U> sink) {
+            super(sink);
+            this.f = f;
+            this.g = g;
+        }
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T t) {
+            U u = f.apply(t);
+            if (g.test(u))
+                downstream.accept(u);
+        }
+    }
+
+    private static final class MapToInt<T, U> extends Sink.ChainedReference<T, Integer> {
+        private final Function<? super T, ? extends U> f;
+        private final ToIntFunction<? super U> g;
+
+        MapToInt(Function<? super T, ? extends U> f, ToIntFunction<? super U> g,
+                 Sink<? super Integer> sink) {
+            super(sink);
+            this.f = f;
+            this.g = g;
+        }
+
+        @Override
+        public void accept(T t) {
+            downstream.accept(g.applyAsInt(f.apply(t)));
+        }
+    }
+
+    private static final class MapToLong<T, U> extends Sink.ChainedReference<T, Long> {
+        private final Function<? super T, ? extends U> f;
+        private final ToLongFunction<? super U> g;
+
+        MapToLong(Function<? super T, ? extends U> f, ToLongFunction<? super U> g,
+                  Sink<? super Long> sink) {
+            super(sink);
+            this.f = f;
+            this.g = g;
+        }
+
+        @Override
+        public void accept(T t) {
+            downstream.accept(g.applyAsLong(f.apply(t)));
+        }
+    }
+
+    private static final class MapToDouble<T, U> extends Sink.ChainedReference<T, Double> {
+        private final Function<? super T, ? extends U> f;
+        private final ToDoubleFunction<? super U> g;
+
+        MapToDouble(Function<? super T, ? extends U> f, ToDoubleFunction<? super U> g,
+                    Sink<? super Double> sink) {
+            super(sink);
+            this.f = f;
+            this.g = g;
+        }
+
+        @Override
+        public void accept(T t) {
+            downstream.accept(g.applyAsDouble(f.apply(t)));
+        }
+    }
+
+    private static final class FilterMap<T, R> extends Sink.ChainedReference<T, R> {
+        private final Predicate<? super T> f;
+        private final Function<? super T, ? extends R> g;
+
+        FilterMap(Predicate<? super T> f, Function<? super T, ? extends R> g,
+                  Sink<? super R> sink) {
+            super(sink);
+            this.f = f;
+            this.g = g;
+        }
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T t) {
+            if (f.test(t))
+                downstream.accept(g.apply(t));
+        }
+    }
+
+    private static final class FilterFilter<T> extends Sink.ChainedReference<T, T> {
+        private final Predicate<? super T> f;
+        private final Predicate<? super T> g;
+
+        FilterFilter(Predicate<? super T> f, Predicate<? super T> g,
+                     Sink<? super T> sink) {
+            super(sink);
+            this.f = f;
+            this.g = g;
+        }
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T t) {
+            if (f.test(t) && g.test(t))
+                downstream.accept(t);
+        }
+    }
+
+    private static final class FilterToInt<T> extends Sink.ChainedReference<T, Integer> {
+        private final Predicate<? super T> f;
+        private final ToIntFunction<? super T> g;
+
+        FilterToInt(Predicate<? super T> f, ToIntFunction<? super T> g,
+                    Sink<? super Integer> sink) {
+            super(sink);
+            this.f = f;
+            this.g = g;
+        }
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T t) {
+            if (f.test(t))
+                downstream.accept(g.applyAsInt(t));
+        }
+    }
+
+    private static final class FilterToLong<T> extends Sink.ChainedReference<T, Long> {
+        private final Predicate<? super T> f;
+        private final ToLongFunction<? super T> g;
+
+        FilterToLong(Predicate<? super T> f, ToLongFunction<? super T> g,
+                     Sink<? super Long> sink) {
+            super(sink);
+            this.f = f;
+            this.g = g;
+        }
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T t) {
+            if (f.test(t))
+                downstream.accept(g.applyAsLong(t));
+        }
+    }
+
+    private static final class FilterToDouble<T> extends Sink.ChainedReference<T, Double> {
+        private final Predicate<? super T> f;
+        private final ToDoubleFunction<? super T> g;
+
+        FilterToDouble(Predicate<? super T> f, ToDoubleFunction<? super T> g,
+                       Sink<? super Double> sink) {
+            super(sink);
+            this.f = f;
+            this.g = g;
+        }
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T t) {
+            if (f.test(t))
+                downstream.accept(g.applyAsDouble(t));
+        }
+    }
+}
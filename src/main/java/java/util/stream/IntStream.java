@@ -26,6 +26,7 @@ package java.util.stream;
 
 import java.util.Arrays;
 import java.util.IntSummaryStatistics;
+import java.util.LongLongHashMap;
 import java.util.Objects;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
@@ -535,6 +536,80 @@ public interface IntStream extends BaseStream<Integer, IntStream> {
      */
     IntSummaryStatistics summaryStatistics();
 
+    /**
+     * Returns a map from each distinct element of this stream to the number
+     * of times it occurs, held in a {@link LongLongHashMap} so that neither
+     * elements nor counts are boxed.  This is a special case of a
+     * <a href="package-summary.html#Reduction">reduction</a> and is
+     * equivalent to:
+     * <pre>{@code
+     *     return collect(LongLongHashMap::new, (m, e) -> m.addTo(e, 1L),
+     *                    LongLongHashMap::addAll);
+     * }</pre>
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal
+     * operation</a>.
+     *
+     * @apiNote
+     * In parallel pipelines each leaf counts into its own map, and the maps
+     * are merged table by table, so no map is shared between threads.
+     *
+     * @implSpec
+     * The default implementation performs the reduction above.
+     *
+     * @return a map from each distinct element to its number of occurrences
+     * @since 1.8
+     */
+    default LongLongHashMap counts() {
+        return collect(LongLongHashMap::new, (m, e) -> m.addTo(e, 1L),
+                       LongLongHashMap::addAll);
+    }
+
+    /**
+     * Returns a dense histogram of the elements of this stream lying from
+     * {@code origin} (inclusive) to {@code bound} (exclusive): element
+     * {@code i} of the returned array is the number of times
+     * {@code origin + i} occurs.  Elements outside the range are not
+     * counted.  This is a special case of a
+     * <a href="package-summary.html#Reduction">reduction</a>.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal
+     * operation</a>.
+     *
+     * @apiNote
+     * In parallel pipelines each leaf counts into its own array of
+     * {@code bound - origin} counts, and the arrays are added element by
+     * element, so the range should be kept narrow.
+     *
+     * @implSpec
+     * The default implementation collects the counts with
+     * {@link #collect(Supplier, ObjIntConsumer, BiConsumer)} into arrays
+     * of {@code bound - origin} counts, added element by element.
+     *
+     * @param origin the least element counted
+     * @param bound the upper bound (exclusive) of the elements counted
+     * @return an array of {@code bound - origin} counts
+     * @throws IllegalArgumentException if {@code origin} is greater than or
+     *         equal to {@code bound}, or the range is too large for an array
+     * @since 1.8
+     */
+    default long[] histogram(int origin, int bound) {
+        if (origin >= bound)
+            throw new IllegalArgumentException("bound must be greater than origin");
+        if ((long) bound - origin >= Nodes.MAX_ARRAY_SIZE)
+            throw new IllegalArgumentException(Nodes.BAD_SIZE);
+        int length = bound - origin;
+        return collect(() -> new long[length],
+                       (h, e) -> {
+                           if (e >= origin && e < bound)
+                               h[e - origin]++;
+                       },
+                       (h1, h2) -> {
+                           for (int i = 0; i < length; i++)
+                               h1[i] += h2[i];
+                       });
+    }
+
     /**
      * Returns whether any elements of this stream match the provided
      * predicate.  May not evaluate the predicate on all elements if not
@@ -29,6 +29,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LongLongHashMap;
 import java.util.LongSummaryStatistics;
 import java.util.Objects;
 import java.util.OptionalDouble;
@@ -540,6 +541,35 @@ public interface LongStream extends BaseStream<Long, LongStream> {
      */
     LongSummaryStatistics summaryStatistics();
 
+    /**
+     * Returns a map from each distinct element of this stream to the number
+     * of times it occurs, held in a {@link LongLongHashMap} so that neither
+     * elements nor counts are boxed.  This is a special case of a
+     * <a href="package-summary.html#Reduction">reduction</a> and is
+     * equivalent to:
+     * <pre>{@code
+     *     return collect(LongLongHashMap::new, (m, e) -> m.addTo(e, 1L),
+     *                    LongLongHashMap::addAll);
+     * }</pre>
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal
+     * operation</a>.
+     *
+     * @apiNote
+     * In parallel pipelines each leaf counts into its own map, and the maps
+     * are merged table by table, so no map is shared between threads.
+     *
+     * @implSpec
+     * The default implementation performs the reduction above.
+     *
+     * @return a map from each distinct element to its number of occurrences
+     * @since 1.8
+     */
+    default LongLongHashMap counts() {
+        return collect(LongLongHashMap::new, (m, e) -> m.addTo(e, 1L),
+                       LongLongHashMap::addAll);
+    }
+
     /**
      * Returns whether any elements of this stream match the provided
      * predicate.  May not evaluate the predicate on all elements if not
@@ -552,6 +552,52 @@ final class Nodes {
         }
     }
 
+    // Parallel processing of array slices
+
+    /**
+     * Returns the number of slices into which an array of the given
+     * length is cut for parallel processing: one per
+     * {@link AbstractTask#LEAF_TARGET leaf target}, but no slice shorter
+     * than {@code minSlice} elements, and at least one slice.
+     *
+     * @param length the array length
+     * @param minSlice the minimum number of elements per slice
+     * @return the number of slices
+     */
+    static int sliceCount(long length, int minSlice) {
+        return (int) Math.max(1L, Math.min(AbstractTask.LEAF_TARGET,
+                                           length / minSlice));
+    }
+
+    /**
+     * Returns the start index of the given slice of an array of the
+     * given length cut into the given number of slices.  Slice
+     * {@code slices} starts at {@code length}.
+     *
+     * @param length the array length
+     * @param slices the number of slices
+     * @param slice the slice index
+     * @return the start index of the slice
+     */
+    static int sliceStart(int length, int slices, int slice) {
+        return (int) ((long) length * slice / slices);
+    }
+
+    /**
+     * Performs the action, in parallel, for each slice index from
+     * {@code 0} to {@code slices - 1}, returning when all have completed.
+     * A single slice is performed in the calling thread.
+     *
+     * @param slices the number of slices
+     * @param action the action to perform for each slice index
+     */
+    static void forEachSlice(int slices, IntConsumer action) {
+        if (slices == 1)
+            action.accept(0);
+        else if (slices > 1)
+            new SliceTask(null, action, 0, slices).invoke();
+    }
+
     // Implementations
 
     private static abstract class EmptyNode<T, T_ARR, T_CONS> implements Node<T> {
@@ -2219,4 +2265,34 @@ final class Nodes {
             }
         }
     }
+
+    /**
+     * Task performing an action for each slice index in a range,
+     * forking off the upper half of the range until one index remains.
+     */
+    @SuppressWarnings("serial")
+    private static final class SliceTask extends CountedCompleter<Void> {
+        private final IntConsumer action;
+        private final int lo, hi;
+
+        SliceTask(SliceTask parent, IntConsumer action, int lo, int hi) {
+            super(parent);
+            this.action = action;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        public void compute() {
+            int l = lo, h = hi;
+            while (h - l > 1) {
+                int mid = (l + h) >>> 1;
+                addToPendingCount(1);
+                new SliceTask(this, action, mid, h).fork();
+                h = mid;
+            }
+            action.accept(l);
+            propagateCompletion();
+        }
+    }
 }
@@ -0,0 +1,241 @@
+package java.util.stream;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import sun.util.logging.PlatformLogger;
+
+/**
+ * Opt-in per-stage diagnostics of stream pipelines.  Diagnostics are turned
+ * on or off based on whether the system property
+ * {@code org.openjdk.java.util.stream.diagnostics} is considered {@code true}
+ * according to {@link Boolean#getBoolean(String)}.  This should normally be
+ * turned off for production use.
+ *
+ * <p>When enabled, {@link AbstractPipeline#wrapSink} interposes a counting
+ * sink in front of the sink of each intermediate stage, and stage fusion is
+ * disabled so that every stage keeps its own sink.  Each stage counts the
+ * elements it receives and, where the JVM supports per-thread allocation
+ * accounting, the bytes allocated while the stage itself runs, excluding
+ * the later stages of the same sink chain; the last stage of a chain
+ * includes the terminal operation or the node builder it feeds.  A
+ * stateful stage evaluated at a barrier of a parallel pipeline receives
+ * its input as a whole rather than through its sink, and so counts no
+ * elements.  When a terminal operation completes, one line per stage is
+ * logged, at level {@code INFO}, to the {@code java.util.stream}
+ * {@code PlatformLogger}.  Pipelines traversed lazily, through
+ * {@code iterator()} or {@code spliterator()}, are counted but not
+ * reported.
+ *
+ * <p>Allocation is measured on every call into every stage, which is slow;
+ * the counts are exact but the timing of the pipeline is not representative.
+ *
+ * @since 1.8
+ */
+final class PipelineDiagnostics {
+    private static final String DIAGNOSTICS_PROPERTY = "org.openjdk.java.util.stream.diagnostics";
+
+    /** Are diagnostics enabled? */
+    static final boolean ENABLED = AccessController.doPrivileged(
+            (PrivilegedAction<Boolean>) () -> Boolean.getBoolean(DIAGNOSTICS_PROPERTY));
+
+    private PipelineDiagnostics() { }
+
+    /**
+     * Statistics of one stage, shared by the sinks of all the leaf tasks
+     * evaluating it.
+     */
+    static final class Stage {
+        final LongAdder elements = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+    }
+
+    /**
+     * Returns a sink recording, in the statistics of a stage, the elements
+     * received by the stage's sink and the allocation performed by it.
+     *
+     * @param shape the input shape of the stage
+     * @param stats the statistics of the stage
+     * @param stageSink the sink of the stage
+     * @param next the recording sink of the following stage in the same
+     *        chain, or {@code null} if the stage is the last of the chain
+     * @return a recording sink
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static Sink record(StreamShape shape, Stage stats, Sink stageSink, Sink next) {
+        RecordingSink n = (RecordingSink) next;
+        switch (shape) {
+            case REFERENCE:    return new RecordingSink.OfRef(stats, stageSink, n);
+            case INT_VALUE:    return new RecordingSink.OfInt(stats, stageSink, n);
+            case LONG_VALUE:   return new RecordingSink.OfLong(stats, stageSink, n);
+            case DOUBLE_VALUE: return new RecordingSink.OfDouble(stats, stageSink, n);
+            default:
+                throw new IllegalStateException("Unknown shape " + shape);
+        }
+    }
+
+    /**
+     * Logs the statistics of the intermediate stages of a pipeline.
+     *
+     * @param last the last stage of the pipeline
+     */
+    @SuppressWarnings("rawtypes")
+    static void report(AbstractPipeline last) {
+        StringBuilder sb = new StringBuilder("stream pipeline");
+        AbstractPipeline[] stages = last.stages();
+        for (int i = 0; i < stages.length; i++) {
+            Stage s = stages[i].diagnostics;
+            if (s == null)
+                continue;
+            sb.append(System.lineSeparator())
+              .append("  stage ").append(i + 1).append(' ')
+              .append(stages[i].stageName()).append(": ")
+              .append(s.elements.sum()).append(" elements");
+            if (Allocation.BEAN != null)
+                sb.append(", ").append(s.bytes.sum()).append(" bytes allocated");
+        }
+        PlatformLogger.getLogger("java.util.stream").info(sb.toString());
+    }
+
+    /**
+     * Holder of the bean measuring per-thread allocation, initialized on
+     * first use, or {@code null} if unsupported.
+     */
+    private static final class Allocation {
+        static final com.sun.management.ThreadMXBean BEAN;
+        static {
+            ThreadMXBean b = AccessController.doPrivileged(
+                (PrivilegedAction<ThreadMXBean>) ManagementFactory::getThreadMXBean);
+            com.sun.management.ThreadMXBean bean = null;
+            if (b instanceof com.sun.management.ThreadMXBean) {
+                bean = (com.sun.management.ThreadMXBean) b;
+                if (!bean.isThreadAllocatedMemorySupported() ||
+                    !bean.isThreadAllocatedMemoryEnabled())
+                    bean = null;
+            }
+            BEAN = bean;
+        }
+
+        static long allocatedBytes() {
+            com.sun.management.ThreadMXBean b = BEAN;
+            return (b == null) ? 0L : b.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+
+    /**
+     * Sink interposed in front of the sink of a stage.  A sink chain is
+     * confined to one thread, so the counts are kept in plain fields and
+     * added to the shared statistics when the chain ends.  The bytes
+     * allocated by a stage are those allocated in calls into its sink,
+     * less those allocated in calls into the next recording sink, which
+     * are nested within them.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static abstract class RecordingSink<T> implements Sink<T> {
+        private final Stage stats;
+        final Sink stageSink;
+        private final RecordingSink<?> next;
+        /** Bytes allocated in calls into the stage sink */
+        private long inclusive;
+        /** Bytes already added to the statistics */
+        private long reported;
+        long elements;
+
+        RecordingSink(Stage stats, Sink stageSink, RecordingSink<?> next) {
+            this.stats = stats;
+            this.stageSink = stageSink;
+            this.next = next;
+        }
+
+        final long enter() {
+            return Allocation.allocatedBytes();
+        }
+
+        final void exit(long before) {
+            inclusive += Allocation.allocatedBytes() - before;
+        }
+
+        @Override
+        public void begin(long size) {
+            long b = enter();
+            stageSink.begin(size);
+            exit(b);
+        }
+
+        @Override
+        public void end() {
+            long b = enter();
+            stageSink.end();
+            exit(b);
+            long exclusive = inclusive - ((next == null) ? 0L : next.inclusive);
+            stats.elements.add(elements);
+            stats.bytes.add(exclusive - reported);
+            elements = 0L;
+            reported = exclusive;
+        }
+
+        @Override
+        public boolean cancellationRequested() {
+            return stageSink.cancellationRequested();
+        }
+
+        static final class OfRef<T> extends RecordingSink<T> {
+            OfRef(Stage stats, Sink stageSink, RecordingSink<?> next) {
+                super(stats, stageSink, next);
+            }
+
+            @Override
+            public void accept(T t) {
+                ++elements;
+                long b = enter();
+                stageSink.accept(t);
+                exit(b);
+            }
+        }
+
+        static final class OfInt extends RecordingSink<Integer> implements Sink.OfInt {
+            OfInt(Stage stats, Sink stageSink, RecordingSink<?> next) {
+                super(stats, stageSink, next);
+            }
+
+            @Override
+            public void accept(int t) {
+                ++elements;
+                long b = enter();
+                stageSink.accept(t);
+                exit(b);
+            }
+        }
+
+        static final class OfLong extends RecordingSink<Long> implements Sink.OfLong {
+            OfLong(Stage stats, Sink stageSink, RecordingSink<?> next) {
+                super(stats, stageSink, next);
+            }
+
+            @Override
+            public void accept(long t) {
+                ++elements;
+                long b = enter();
+                stageSink.accept(t);
+                exit(b);
+            }
+        }
+
+        static final class OfDouble extends RecordingSink<Double> implements Sink.OfDouble {
+            OfDouble(Stage stats, Sink stageSink, RecordingSink<?> next) {
+                super(stats, stageSink, next);
+            }
+
+            @Override
+            public void accept(double t) {
+                ++elements;
+                long b = enter();
+                stageSink.accept(t);
+                exit(b);
+            }
+        }
+    }
+}
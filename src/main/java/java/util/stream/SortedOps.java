@@ -24,9 +24,12 @@
  */
 package java.util.stream;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
 import java.util.Objects;
 import java.util.Spliterator;
 import java.util.concurrent.ForkJoinTask;
@@ -152,14 +155,187 @@ final class SortedOps {
                 return helper.evaluate(spliterator, false, generator);
             }
             else {
-                // @@@ Weak two-pass parallel implementation; parallel collect, parallel sort
-                T[] flattenedData = helper.evaluate(spliterator, true, generator).asArray(generator);
-                Arrays.parallelSort(flattenedData, comparator);
-                return Nodes.node(flattenedData);
+                // Parallel collect without flattening, then sample sort the
+                // collected leaves into the result array
+                Node<T> node = helper.evaluate(spliterator, false, generator);
+                return Nodes.node(sampleSort(node, comparator, generator));
             }
         }
     }
 
+    /**
+     * The minimum length of a run of a parallel sample sort.
+     */
+    private static final int MIN_RUN = 1 << 13;
+
+    /**
+     * Sorts, stably and in parallel, the elements of a node into a new
+     * array, or into the array of the node if it is small and flat.
+     *
+     * @implNote
+     * The leaves of the node are grouped, in encounter order, into runs,
+     * which are sorted in parallel, copying only leaves that are not
+     * already arrays or that share a run.  A flat node, as produced when
+     * the size of the input is known, is instead cut into slices, which
+     * are copied out as the runs; one too small to cut is sorted in
+     * place.  Each of the {@code r} runs contributes {@code r - 1}
+     * regularly spaced samples, from which {@code r - 1} splitters are
+     * chosen; each run is then cut at the splitters by binary search.
+     * Each of the {@code r} buckets copies its piece of every run, in
+     * encounter order, directly into its place in the result array and
+     * merges them with {@link Arrays#sort(Object[], int, int, Comparator)},
+     * which finds the pieces as sorted runs, so that no flattened copy
+     * of an unflattened input is ever made.  Since equal elements fall
+     * into the same bucket in encounter order and only the stable
+     * {@code Arrays.sort} is used, the sort is stable.
+     * {@link Arrays#parallelSort(Object[], Comparator)} is not used,
+     * since it is not stable on all runtimes.
+     *
+     * @param <T> the type of elements
+     * @param node the node, which may be modified
+     * @param comparator the comparator to order elements by
+     * @param generator the array factory for the result
+     * @return an array of the sorted elements
+     */
+    static <T> T[] sampleSort(Node<T> node, Comparator<? super T> comparator,
+                              IntFunction<T[]> generator) {
+        long count = node.count();
+        if (count >= Nodes.MAX_ARRAY_SIZE)
+            throw new IllegalArgumentException(Nodes.BAD_SIZE);
+        final int n = (int) count;
+
+        // Group the non-empty leaves into runs of at least the target length
+        long target = Math.max(MIN_RUN, count / AbstractTask.LEAF_TARGET);
+        List<List<Node<T>>> groups = new ArrayList<>();
+        List<Node<T>> group = null;
+        long groupCount = 0;
+        Deque<Node<T>> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node<T> leaf = stack.pop();
+            if (leaf.getChildCount() > 0) {
+                for (int i = leaf.getChildCount() - 1; i >= 0; i--)
+                    stack.push(leaf.getChild(i));
+            }
+            else if (leaf.count() > 0) {
+                if (group == null) {
+                    groups.add(group = new ArrayList<>());
+                    groupCount = 0;
+                }
+                group.add(leaf);
+                if ((groupCount += leaf.count()) >= target)
+                    group = null;
+            }
+        }
+        final int r;
+        final T[][] runs;
+        if (groups.size() <= 1) {
+            // A flat array is cut into slices, copied out as the runs
+            T[] array = Nodes.flatten(node, generator).asArray(generator);
+            r = Nodes.sliceCount(n, MIN_RUN);
+            if (r <= 1) {
+                Arrays.sort(array, comparator);
+                return array;
+            }
+            @SuppressWarnings("unchecked")
+            T[][] rs = (T[][]) new Object[r][];
+            runs = rs;
+            Nodes.forEachSlice(r, j -> {
+                T[] run = Arrays.copyOfRange(array, Nodes.sliceStart(n, r, j),
+                                             Nodes.sliceStart(n, r, j + 1));
+                Arrays.sort(run, comparator);
+                runs[j] = run;
+            });
+        }
+        else {
+            r = groups.size();
+            @SuppressWarnings("unchecked")
+            T[][] rs = (T[][]) new Object[r][];
+            runs = rs;
+            Nodes.forEachSlice(r, j -> {
+                List<Node<T>> g = groups.get(j);
+                T[] run;
+                if (g.size() == 1)
+                    run = g.get(0).asArray(generator);
+                else {
+                    long c = 0;
+                    for (Node<T> leaf : g)
+                        c += leaf.count();
+                    run = generator.apply((int) c);
+                    int off = 0;
+                    for (Node<T> leaf : g) {
+                        leaf.copyInto(run, off);
+                        off += (int) leaf.count();
+                    }
+                }
+                Arrays.sort(run, comparator);
+                runs[j] = run;
+            });
+        }
+
+        // Choose the splitters from regular samples of the sorted runs
+        T[] samples = generator.apply(r * (r - 1));
+        for (int j = 0, k = 0; j < r; j++) {
+            T[] run = runs[j];
+            for (int i = 1; i < r; i++)
+                samples[k++] = run[(int) ((long) run.length * i / r)];
+        }
+        Arrays.sort(samples, comparator);
+        final T[] splitters = generator.apply(r - 1);
+        for (int i = 1; i < r; i++)
+            splitters[i - 1] = samples[i * (r - 1)];
+
+        // Cut each run at the splitters; bucket b of run j is
+        // [bounds[j * (r + 1) + b], bounds[j * (r + 1) + b + 1])
+        final int[] bounds = new int[r * (r + 1)];
+        Nodes.forEachSlice(r, j -> {
+            T[] run = runs[j];
+            int base = j * (r + 1), lo = 0;
+            for (int b = 1; b < r; b++)
+                bounds[base + b] = lo = upperBound(run, lo, splitters[b - 1], comparator);
+            bounds[base + r] = run.length;
+        });
+        final int[] starts = new int[r + 1];
+        for (int b = 0; b < r; b++) {
+            int c = 0;
+            for (int j = 0; j < r; j++)
+                c += bounds[j * (r + 1) + b + 1] - bounds[j * (r + 1) + b];
+            starts[b + 1] = starts[b] + c;
+        }
+
+        final T[] result = generator.apply(n);
+        Nodes.forEachSlice(r, b -> {
+            int off = starts[b];
+            for (int j = 0; j < r; j++) {
+                int lo = bounds[j * (r + 1) + b], len = bounds[j * (r + 1) + b + 1] - lo;
+                System.arraycopy(runs[j], lo, result, off, len);
+                off += len;
+            }
+            // The pieces are sorted runs, which the stable merge finds,
+            // so even a bucket of many equal elements merges cheaply
+            Arrays.sort(result, starts[b], off, comparator);
+        });
+        return result;
+    }
+
+    /**
+     * Returns the index of the first element of a sorted array, from the
+     * given index, that is greater than the key, or the array length if
+     * there is none.
+     */
+    private static <T> int upperBound(T[] a, int from, T key,
+                                      Comparator<? super T> comparator) {
+        int lo = from, hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparator.compare(a[mid], key) > 0)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+        return lo;
+    }
+
     /**
      * Specialized subtype for sorting int streams.
      */
@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
@@ -478,6 +479,97 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream grouped into
+     * consecutive lists of {@code size} elements, in encounter order.  The
+     * last list contains the remaining elements, and may be shorter; no list
+     * is empty.  There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the lists.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * Sequentially, each list is formed as its elements arrive, so
+     * {@code chunked()} may be applied to infinite streams, and holds at most
+     * one list at a time.  On parallel pipelines of known size the operation
+     * acts as a barrier, after which the lists are produced in parallel, and
+     * split between threads on list boundaries.  If the lists are written
+     * in order to an external destination, for example in batches to a
+     * database, {@link #forEachOrdered(Consumer)} preserves that order.
+     *
+     * @implSpec
+     * The default implementation obtains the {@link #spliterator() spliterator}
+     * of this stream, wraps that spliterator so as to form the lists
+     * lazily on traversal, and returns a new stream associated with the
+     * wrapped spliterator.  The returned stream preserves the execution
+     * characteristics of this stream (namely parallel or sequential execution
+     * as per {@link #isParallel()}), splitting in batches.  When the returned
+     * stream is closed, the close handlers for both the returned and this
+     * stream are invoked.
+     *
+     * @param size the number of elements per list
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @since 1.8
+     */
+    default Stream<List<T>> chunked(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        return WindowOps.wrapRef(this, size, size, true);
+    }
+
+    /**
+     * Returns a stream consisting of the sliding windows of this stream: lists
+     * of {@code size} consecutive elements, in encounter order, the first
+     * starting at the first element of this stream and each subsequent one
+     * starting {@code step} elements after the start of the previous one.
+     * Only full windows are included; if this stream contains fewer than
+     * {@code size} elements then an empty stream will be returned.  Windows
+     * overlap if {@code step < size}, and elements between windows are
+     * skipped if {@code step > size}.  There are no guarantees on the type,
+     * mutability, serializability, or thread-safety of the lists.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * A moving average of the last {@code n} values may be computed as:
+     * <pre>{@code
+     *     Stream<Double> averages = values.slidingWindow(n, 1)
+     *         .map(w -> w.stream().mapToDouble(Double::doubleValue).average().getAsDouble());
+     * }</pre>
+     * Each window is a new list, so that overlapping windows copy each
+     * element up to {@code size / step} times.  As with
+     * {@link #chunked(int)}, the operation is lazy sequentially, and acts as
+     * a barrier on parallel pipelines of known size.
+     *
+     * @implSpec
+     * The default implementation obtains the {@link #spliterator() spliterator}
+     * of this stream, wraps that spliterator so as to form the windows
+     * lazily on traversal, and returns a new stream associated with the
+     * wrapped spliterator.  The returned stream preserves the execution
+     * characteristics of this stream (namely parallel or sequential execution
+     * as per {@link #isParallel()}), splitting in batches.  When the returned
+     * stream is closed, the close handlers for both the returned and this
+     * stream are invoked.
+     *
+     * @param size the number of elements per window
+     * @param step the distance, in elements, between the starts of successive
+     *        windows
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} or {@code step} is not
+     *         positive
+     * @since 1.8
+     */
+    default Stream<List<T>> slidingWindow(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+        return WindowOps.wrapRef(this, size, step, false);
+    }
+
     /**
      * Performs an action for each element of this stream.
      *
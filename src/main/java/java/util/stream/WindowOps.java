@@ -0,0 +1,391 @@
+package java.util.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Factory methods for transforming a stream into a stream of windows, lists
+ * of consecutive elements: either chunks, which partition the stream, or
+ * sliding windows of a fixed size advancing by a fixed step.
+ *
+ * <p>Sequentially, windows are formed by the sink of the operation as
+ * elements arrive, so the operation is lazy and can be applied to infinite
+ * streams.  In parallel, the elements are collected into an array, and the
+ * windows are produced by a spliterator over the window indices, which
+ * splits on window boundaries and creates each window only when it is
+ * traversed.  A parallel stream of unknown, and possibly infinite, size is
+ * instead windowed lazily as it is traversed, in batches.
+ *
+ * @since 1.8
+ */
+final class WindowOps {
+
+    private WindowOps() { }
+
+    @SuppressWarnings("unchecked")
+    private static <T> IntFunction<T[]> castingArray() {
+        return size -> (T[]) new Object[size];
+    }
+
+    /**
+     * Returns a stream of the windows of the provided stream, formed lazily
+     * from its spliterator as it is traversed.  This serves the default
+     * methods of {@link Stream}, for streams that are not pipelines.
+     *
+     * @param <T> the type of input elements
+     * @param stream the stream, on which a terminal operation is performed
+     * @param size the number of elements per window, greater than zero
+     * @param step the distance between the first elements of successive
+     *        windows, greater than zero
+     * @param partial whether a trailing partial window is produced
+     * @return the new stream
+     */
+    static <T> Stream<List<T>> wrapRef(Stream<T> stream,
+                                       int size, int step, boolean partial) {
+        return StreamSupport.stream(
+                new StreamingSpliterator<>(stream.spliterator(), new Windower<>(size, step, partial)),
+                stream.isParallel()).onClose(stream::close);
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream, and returns the
+     * new stream.  Windows of {@code size} elements start at every
+     * {@code step}'th element.  If {@code partial} is {@code true}, which
+     * requires {@code step == size}, the elements remaining after the last
+     * full window form a last, shorter window.
+     *
+     * @param <T> the type of input elements
+     * @param upstream a reference stream with element type T
+     * @param size the number of elements per window, greater than zero
+     * @param step the distance between the first elements of successive
+     *        windows, greater than zero
+     * @param partial whether a trailing partial window is produced
+     * @return the new stream
+     */
+    static <T> Stream<List<T>> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                       int size, int step, boolean partial) {
+        return new ReferencePipeline.StatefulOp<T, List<T>>(upstream, StreamShape.REFERENCE,
+                                                            StreamOpFlag.NOT_SIZED | StreamOpFlag.NOT_SORTED |
+                                                            StreamOpFlag.NOT_DISTINCT) {
+
+            @Override
+            <P_IN> Node<List<T>> opEvaluateParallel(PipelineHelper<List<T>> helper,
+                                                    Spliterator<P_IN> spliterator,
+                                                    IntFunction<List<T>[]> generator) {
+                T[] array = upstreamArray(helper, spliterator);
+                return windowNode(array, windowCount(array.length, size, step, partial),
+                                  size, step, generator);
+            }
+
+            @Override
+            <P_IN> Spliterator<List<T>> opEvaluateParallelLazy(PipelineHelper<List<T>> helper,
+                                                               Spliterator<P_IN> spliterator) {
+                if (helper.exactOutputSizeIfKnown(spliterator) < 0 &&
+                    spliterator.estimateSize() == Long.MAX_VALUE) {
+                    // Lazy, the stream may be infinite
+                    return new StreamingSpliterator<>(
+                            upstream(helper).wrapSpliterator(spliterator), new Windower<>(size, step, partial));
+                }
+                else {
+                    // Not lazy, barrier required to find the window boundaries
+                    T[] array = upstreamArray(helper, spliterator);
+                    return new WindowSpliterator<>(array, 0, windowCount(array.length, size, step, partial),
+                                                   size, step);
+                }
+            }
+
+            // The helper passed to this stage is the upstream pipeline,
+            // whose output elements are of type T
+            @SuppressWarnings("unchecked")
+            private PipelineHelper<T> upstream(PipelineHelper<List<T>> helper) {
+                return (PipelineHelper<T>) (PipelineHelper<?>) helper;
+            }
+
+            private <P_IN> T[] upstreamArray(PipelineHelper<List<T>> helper, Spliterator<P_IN> spliterator) {
+                IntFunction<T[]> g = castingArray();
+                return upstream(helper).evaluate(spliterator, true, g).asArray(g);
+            }
+
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<List<T>> sink) {
+                Objects.requireNonNull(sink);
+                return new Sink.ChainedReference<T, List<T>>(sink) {
+                    Windower<T> windower;
+
+                    @Override
+                    public void begin(long n) {
+                        windower = new Windower<>(size, step, partial);
+                        downstream.begin(n < 0 ? -1 : windowCount(n, size, step, partial));
+                    }
+
+                    @Override
+                    public void accept(T t) {
+                        List<T> w = windower.push(t);
+                        if (w != null)
+                            downstream.accept(w);
+                    }
+
+                    @Override
+                    public void end() {
+                        // A trailing partial window is only produced at the
+                        // true end of the input, not when cancelled
+                        List<T> w;
+                        if (!downstream.cancellationRequested() && (w = windower.finish()) != null)
+                            downstream.accept(w);
+                        windower = null;
+                        downstream.end();
+                    }
+                };
+            }
+        };
+    }
+
+    /** The minimum number of elements copied into windows per parallel slice */
+    private static final int MIN_SLICE = 1 << 12;
+
+    /**
+     * Returns a node of the first {@code count} windows of the array, formed
+     * in parallel.  The array of windows is typed only by the erased type
+     * {@code W}, since the generator of {@code toArray()} returns an
+     * {@code Object[]} rather than a {@code List[]}.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T, W> Node<W> windowNode(T[] array, int count, int size, int step,
+                                             IntFunction<W[]> generator) {
+        W[] windows = generator.apply(count);
+        int slices = Nodes.sliceCount(count, 1 + (MIN_SLICE - 1) / size);
+        Nodes.forEachSlice(slices, slice -> {
+            int to = Nodes.sliceStart(count, slices, slice + 1);
+            for (int i = Nodes.sliceStart(count, slices, slice); i < to; i++)
+                windows[i] = (W) window(array, i, size, step);
+        });
+        return Nodes.node(windows);
+    }
+
+    /**
+     * Returns the number of windows formed from the given number of
+     * elements.
+     */
+    static long windowCount(long length, int size, int step, boolean partial) {
+        if (partial)
+            return (length + size - 1) / size;
+        else
+            return (length < size) ? 0 : (length - size) / step + 1;
+    }
+
+    private static int windowCount(int length, int size, int step, boolean partial) {
+        return (int) windowCount((long) length, size, step, partial);
+    }
+
+    /**
+     * Returns a new list of the elements of the given window of an array;
+     * the last window may be partial.
+     */
+    static <T> List<T> window(T[] array, int index, int size, int step) {
+        int from = (int) ((long) index * step);
+        int to = (int) Math.min((long) from + size, array.length);
+        return Arrays.asList(Arrays.copyOfRange(array, from, to));
+    }
+
+    /**
+     * Forms windows from elements pushed one at a time.  Chunks are filled
+     * directly, and handed off when full; overlapping or spaced windows are
+     * copied out of a ring buffer holding the last {@code size} elements.
+     */
+    static final class Windower<T> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+        private ArrayList<T> chunk;
+        private Object[] ring;
+        private long seen;
+
+        Windower(int size, int step, boolean partial) {
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        /**
+         * Adds an element, returning the window it completes, or
+         * {@code null} if none.
+         */
+        @SuppressWarnings("unchecked")
+        List<T> push(T t) {
+            if (step == size) {
+                ArrayList<T> c = chunk;
+                if (c == null)
+                    chunk = c = new ArrayList<>(size);
+                c.add(t);
+                if (c.size() < size)
+                    return null;
+                chunk = null;
+                return c;
+            }
+            else {
+                Object[] r = ring;
+                if (r == null)
+                    ring = r = new Object[size];
+                long n = seen++;
+                r[(int) (n % size)] = t;
+                if (n + 1 < size || (n + 1 - size) % step != 0)
+                    return null;
+                int start = (int) ((n + 1) % size);
+                ArrayList<T> w = new ArrayList<>(size);
+                for (int i = 0; i < size; i++)
+                    w.add((T) r[(start + i) % size]);
+                return w;
+            }
+        }
+
+        /**
+         * Returns the trailing partial window, if partial windows are
+         * produced and any elements remain, or {@code null} otherwise.
+         */
+        List<T> finish() {
+            ArrayList<T> c = chunk;
+            chunk = null;
+            ring = null;
+            return (partial && c != null) ? c : null;
+        }
+    }
+
+    /**
+     * Spliterator over a range of the windows of an array, splitting on
+     * window boundaries.
+     */
+    static final class WindowSpliterator<T> implements Spliterator<List<T>> {
+        private final T[] array;
+        private final int size;
+        private final int step;
+        private int index;
+        private final int fence;
+
+        WindowSpliterator(T[] array, int origin, int fence, int size, int step) {
+            this.array = array;
+            this.index = origin;
+            this.fence = fence;
+            this.size = size;
+            this.step = step;
+        }
+
+        @Override
+        public Spliterator<List<T>> trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            return (lo >= mid)
+                   ? null
+                   : new WindowSpliterator<>(array, lo, index = mid, size, step);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<T>> action) {
+            Objects.requireNonNull(action);
+            if (index < fence) {
+                action.accept(window(array, index++, size, step));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super List<T>> action) {
+            Objects.requireNonNull(action);
+            int i = index, hi = fence;
+            index = hi;
+            for (; i < hi; i++)
+                action.accept(window(array, i, size, step));
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED |
+                   Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        }
+    }
+
+    /**
+     * Spliterator forming windows lazily from the elements of another
+     * spliterator, traversed sequentially.  Splitting takes a batch of
+     * windows into an array, in the manner of
+     * {@link Spliterators#spliteratorUnknownSize(java.util.Iterator, int)}.
+     */
+    static final class StreamingSpliterator<T> implements Spliterator<List<T>>, Consumer<T> {
+        static final int BATCH_UNIT = 1 << 10;  // batch array size increment
+        static final int MAX_BATCH = 1 << 25;  // max batch array size;
+
+        private final Spliterator<T> s;
+        private final Windower<T> windower;
+        private List<T> next;
+        private boolean exhausted;
+        private int batch;
+
+        StreamingSpliterator(Spliterator<T> s, Windower<T> windower) {
+            this.s = s;
+            this.windower = windower;
+        }
+
+        @Override
+        public void accept(T t) {
+            next = windower.push(t);
+        }
+
+        private List<T> advance() {
+            while (next == null && !exhausted) {
+                if (!s.tryAdvance(this)) {
+                    exhausted = true;
+                    next = windower.finish();
+                }
+            }
+            List<T> w = next;
+            next = null;
+            return w;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<T>> action) {
+            Objects.requireNonNull(action);
+            List<T> w = advance();
+            if (w == null)
+                return false;
+            action.accept(w);
+            return true;
+        }
+
+        @Override
+        public Spliterator<List<T>> trySplit() {
+            int n = batch + BATCH_UNIT;
+            if (n > MAX_BATCH)
+                n = MAX_BATCH;
+            Object[] a = new Object[n];
+            int j = 0;
+            List<T> w;
+            while (j < n && (w = advance()) != null)
+                a[j++] = w;
+            if (j == 0)
+                return null;
+            batch = j;
+            return Spliterators.spliterator(a, 0, j, Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * @test
+ * @summary offerAll interrupted after inserting some elements returns
+ *          their number with the interrupt status set.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+public class OfferAllInterrupted {
+    static final List<Integer> FOUR = Arrays.asList(1, 2, 3, 4);
+
+    public static void main(String[] args) throws Throwable {
+        test(new ArrayBlockingQueue<Integer>(2), 2);
+        test(new LinkedBlockingQueue<Integer>(2), 2);
+        test(new LinkedBlockingDeque<Integer>(2), 2);
+        // The default method: one element is handed off, then none
+        test(new SynchronousQueue<Integer>(), 1);
+
+        // Interrupted before inserting anything
+        BlockingQueue<Integer> q = new ArrayBlockingQueue<Integer>(1);
+        q.add(0);
+        Thread.currentThread().interrupt();
+        try {
+            q.offerAll(FOUR, 1, TimeUnit.MINUTES);
+            throw new AssertionError("offerAll returned");
+        } catch (InterruptedException expected) {}
+    }
+
+    static void test(final BlockingQueue<Integer> q, int expected)
+        throws Throwable {
+        final int[] result = { -1 };
+        final boolean[] interrupted = { false };
+        Thread producer = new Thread() {
+            public void run() {
+                try {
+                    result[0] = q.offerAll(FOUR, 1, TimeUnit.MINUTES);
+                    interrupted[0] = Thread.interrupted();
+                } catch (InterruptedException e) {
+                    result[0] = -2;
+                }
+            }
+        };
+        producer.start();
+        if (q instanceof SynchronousQueue)
+            check(q.poll(1, TimeUnit.MINUTES) == 1);
+        while (producer.getState() != Thread.State.TIMED_WAITING ||
+               (!(q instanceof SynchronousQueue) && q.size() < expected))
+            Thread.sleep(1);
+        producer.interrupt();
+        producer.join();
+        check(result[0] == expected);
+        check(interrupted[0]);
+        if (!(q instanceof SynchronousQueue))
+            check(q.size() == expected);
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+}
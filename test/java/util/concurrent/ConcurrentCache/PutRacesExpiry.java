@@ -0,0 +1,120 @@
+/*
+ * @test
+ * @summary A write that refreshes an entry while it is being expired
+ *          is not lost.
+ */
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentCache;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PutRacesExpiry {
+    static final long EXPIRY = TimeUnit.MILLISECONDS.toNanos(5);
+    static final int KEYS = 20000;
+    static final int WRITERS = 3;
+    static final long DURATION = TimeUnit.SECONDS.toNanos(2);
+
+    public static void main(String[] args) throws Throwable {
+        // Keep the scheduler's only thread busy, so that entries are
+        // expired by this test alone
+        ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor();
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.execute(() -> {
+            try {
+                done.await();
+            } catch (InterruptedException ignore) {}
+        });
+        try {
+            for (int i = 0; i < 2; i++) {
+                long write = (i == 0) ? EXPIRY : 0L;
+                long access = (i == 0) ? 0L : EXPIRY;
+                testRefreshDuringExpiry(new ConcurrentCache<Integer,Integer>(
+                    KEYS, null, write, access, TimeUnit.NANOSECONDS, scheduler));
+                testConcurrentRewrites(new ConcurrentCache<Integer,Integer>(
+                    KEYS, null, write, access, TimeUnit.NANOSECONDS, scheduler));
+            }
+        } finally {
+            done.countDown();
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Holds the lock of an expired entry until the expiring thread has
+     * found it expired and blocks on it, then rewrites the entry.
+     */
+    static void testRefreshDuringExpiry(ConcurrentCache<Integer,Integer> cache)
+        throws Throwable {
+        cache.put(1, 1);
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(EXPIRY) + 1);
+        Object node = nodes(cache).get(1);
+        Thread expirer = new Thread(cache::cleanUp);
+        synchronized (node) {
+            expirer.start();
+            while (expirer.getState() != Thread.State.BLOCKED) {
+                if (!expirer.isAlive())
+                    throw new AssertionError("entry not expired");
+                Thread.yield();
+            }
+            check(cache.put(1, 2) == null);
+        }
+        expirer.join();
+        check(Integer.valueOf(2).equals(cache.get(1)));
+    }
+
+    /**
+     * Lets all entries expire, then rewrites them while another thread
+     * expires them, checking that each rewritten value can be read back.
+     */
+    static void testConcurrentRewrites(ConcurrentCache<Integer,Integer> cache)
+        throws Throwable {
+        AtomicInteger lost = new AtomicInteger();
+        long deadline = System.nanoTime() + DURATION;
+        for (int round = 0; System.nanoTime() < deadline; round++) {
+            for (int k = 0; k < KEYS; k++)
+                cache.put(k, -1);
+            Thread.sleep(TimeUnit.NANOSECONDS.toMillis(EXPIRY) + 1);
+            Thread expirer = new Thread(cache::cleanUp);
+            Thread[] writers = new Thread[WRITERS];
+            for (int w = 0; w < WRITERS; w++) {
+                final int first = w, value = round;
+                writers[w] = new Thread(() -> {
+                    for (int k = first; k < KEYS; k += WRITERS) {
+                        long start = System.nanoTime();
+                        cache.put(k, value);
+                        Integer v = cache.get(k);
+                        // Nothing written since start can have expired yet
+                        if (v == null && System.nanoTime() - start < EXPIRY)
+                            lost.incrementAndGet();
+                    }
+                });
+            }
+            expirer.start();
+            for (Thread t : writers)
+                t.start();
+            for (Thread t : writers)
+                t.join();
+            expirer.join();
+        }
+        if (lost.get() != 0)
+            throw new AssertionError(lost.get() + " writes lost");
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<Object,Object> nodes(ConcurrentCache<?,?> cache) throws Throwable {
+        Field f = ConcurrentCache.class.getDeclaredField("data");
+        f.setAccessible(true);
+        return (Map<Object,Object>) f.get(cache);
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * @test
+ * @summary The buffer pool MXBean of an off-heap map is registered
+ *          with the platform MBeanServer while the map is reachable.
+ * @run main/othervm PlatformBufferPool
+ */
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentOffHeapMap;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class PlatformBufferPool {
+    static final ConcurrentOffHeapMap.Codec<Integer> INT =
+        new ConcurrentOffHeapMap.Codec<Integer>() {
+            public int encodedSize(Integer i) { return 4; }
+            public void encode(Integer i, ByteBuffer dst) { dst.putInt(i); }
+            public Integer decode(ByteBuffer src) { return src.getInt(); }
+        };
+
+    public static void main(String[] args) throws Throwable {
+        // Created before the platform server
+        ConcurrentOffHeapMap<Integer,Integer> early =
+            new ConcurrentOffHeapMap<>(INT, INT);
+        early.put(1, 1);
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        ObjectName earlyName = early.getBufferPoolMXBean().getObjectName();
+        check(mbs.isRegistered(earlyName));
+        check(((Long)mbs.getAttribute(earlyName, "Count")) == 1L);
+
+        // Created after it
+        ConcurrentOffHeapMap<Integer,Integer> late =
+            new ConcurrentOffHeapMap<>(INT, INT);
+        ObjectName lateName = late.getBufferPoolMXBean().getObjectName();
+        check(mbs.isRegistered(lateName));
+
+        // Registration does not keep a map reachable, and the bean of
+        // an unreachable map is withdrawn
+        WeakReference<Object> ref = new WeakReference<Object>(late);
+        late = null;
+        for (int i = 0; ref.get() != null; i++) {
+            check(i < 100);
+            System.gc();
+            Thread.sleep(10);
+        }
+        for (int i = 0; mbs.isRegistered(lateName); i++) {
+            check(i < 100);
+            new ConcurrentOffHeapMap<>(INT, INT); // expunges stale maps
+            Thread.sleep(10);
+        }
+        check(mbs.isRegistered(earlyName));
+        early.clear();
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+}
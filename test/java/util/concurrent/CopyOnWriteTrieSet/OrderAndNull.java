@@ -0,0 +1,101 @@
+/*
+ * @test
+ * @summary CopyOnWriteTrieSet iterates in insertion order, like
+ *          CopyOnWriteArraySet, and permits a null element.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CopyOnWriteTrieSet;
+import java.util.stream.Collectors;
+
+public class OrderAndNull {
+    public static void main(String[] args) throws Throwable {
+        List<String> order = Arrays.asList("zeta", "alpha", null, "mid", "beta", "omega");
+        CopyOnWriteTrieSet<String> set = new CopyOnWriteTrieSet<>();
+        for (String s : order)
+            check(set.add(s));
+        check(!set.add("alpha"));
+        check(!set.add(null));
+        check(set.size() == order.size());
+        check(set.contains(null));
+        check(list(set).equals(order));
+        check(list(set).equals(list(new CopyOnWriteArraySet<>(order))));
+        check(Arrays.asList(set.toArray()).equals(order));
+        check(set.stream().collect(Collectors.toList()).equals(order));
+        check(set.parallelStream().collect(Collectors.toList()).equals(order));
+        check(set.spliterator().hasCharacteristics(
+                  Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SIZED));
+
+        // Snapshots keep their order and contents
+        Set<String> snapshot = set.snapshot();
+        check(set.remove(null));
+        check(!set.remove(null));
+        check(set.remove("mid"));
+        check(list(snapshot).equals(order));
+        check(snapshot.contains(null) && !set.contains(null));
+        check(list(set).equals(Arrays.asList("zeta", "alpha", "beta", "omega")));
+
+        // Removed elements are appended when added again
+        check(set.add("mid"));
+        check(set.addAll(Arrays.asList("q", "zeta", null, "q")));
+        check(list(set).equals(Arrays.asList("zeta", "alpha", "beta", "omega", "mid", "q", null)));
+        check(set.retainAll(Arrays.asList("q", "zeta", null, "beta")));
+        check(list(set).equals(Arrays.asList("zeta", "beta", "q", null)));
+        check(set.removeIf(s -> "beta".equals(s)));
+        check(list(set).equals(Arrays.asList("zeta", "q", null)));
+        check(list(new CopyOnWriteTrieSet<>(set)).equals(list(set)));
+
+        // Iterators are snapshots without remove
+        Iterator<String> it = set.iterator();
+        it.next();
+        try {
+            it.remove();
+            throw new AssertionError("remove supported");
+        } catch (UnsupportedOperationException expected) {}
+
+        // Order and null survive serialization
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(set);
+        }
+        @SuppressWarnings("unchecked")
+        CopyOnWriteTrieSet<String> copy = (CopyOnWriteTrieSet<String>)
+            new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+            .readObject();
+        check(list(copy).equals(list(set)));
+        check(copy.contains(null) && !copy.add("q") && copy.add("new"));
+        check(!copy.equals(set) && copy.containsAll(set));
+
+        // Order holds over many elements
+        CopyOnWriteTrieSet<Integer> big = new CopyOnWriteTrieSet<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 5000; i > 0; i--) {
+            big.add(i * 7919 % 10007);
+            if (!expected.contains(i * 7919 % 10007))
+                expected.add(i * 7919 % 10007);
+        }
+        check(list(big).equals(expected));
+    }
+
+    static <E> List<E> list(Iterable<E> c) {
+        List<E> l = new ArrayList<>();
+        for (E e : c)
+            l.add(e);
+        return l;
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * @test
+ * @summary In a combining barrier, an await() finding every ticket of
+ *          the generation taken honors its timeout and interrupts.
+ */
+
+import java.lang.reflect.Field;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class FullGeneration {
+    public static void main(String[] args) throws Throwable {
+        CyclicBarrier barrier = new CyclicBarrier(4, 2, null);
+
+        // Timed
+        takeAllTickets(barrier);
+        long start = System.nanoTime();
+        try {
+            barrier.await(50, TimeUnit.MILLISECONDS);
+            throw new AssertionError("await returned");
+        } catch (TimeoutException expected) {}
+        check(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        check(barrier.isBroken());
+
+        // Interrupted
+        barrier.reset();
+        takeAllTickets(barrier);
+        Thread waiter = Thread.currentThread();
+        Thread interrupter = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignore) {}
+            waiter.interrupt();
+        });
+        interrupter.start();
+        try {
+            barrier.await();
+            throw new AssertionError("await returned");
+        } catch (InterruptedException expected) {}
+        interrupter.join();
+        check(barrier.isBroken());
+
+        // Another party's timeout breaks the waiting one
+        barrier.reset();
+        takeAllTickets(barrier);
+        Thread other = new Thread(() -> {
+            try {
+                barrier.await(50, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException expected) {
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        other.start();
+        try {
+            barrier.await();
+            throw new AssertionError("await returned");
+        } catch (BrokenBarrierException expected) {}
+        other.join();
+
+        // The barrier still trips once reset
+        barrier.reset();
+        Thread[] parties = new Thread[3];
+        for (int i = 0; i < parties.length; i++) {
+            parties[i] = new Thread(() -> {
+                try {
+                    barrier.await();
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+            parties[i].start();
+        }
+        barrier.await();
+        for (Thread t : parties)
+            t.join();
+        check(!barrier.isBroken());
+    }
+
+    /**
+     * Takes every ticket of the current generation, as parties that have
+     * not yet arrived at the combining tree would.
+     */
+    static void takeAllTickets(CyclicBarrier barrier) throws Throwable {
+        Field gf = CyclicBarrier.class.getDeclaredField("generation");
+        gf.setAccessible(true);
+        Object g = gf.get(barrier);
+        Field tf = g.getClass().getDeclaredField("ticket");
+        tf.setAccessible(true);
+        tf.setInt(g, barrier.getParties());
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+}
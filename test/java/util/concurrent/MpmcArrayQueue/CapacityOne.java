@@ -0,0 +1,41 @@
+/*
+ * @test
+ * @summary A ring queue of capacity 1 holds at most one element
+ *          and hands it over exactly once.
+ */
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.MpmcArrayQueue;
+import java.util.concurrent.SpscArrayQueue;
+import java.util.concurrent.TimeUnit;
+
+public class CapacityOne {
+    public static void main(String[] args) throws Throwable {
+        test(new MpmcArrayQueue<Integer>(1));
+        test(new MpmcArrayQueue<Integer>(1, true));
+        test(new SpscArrayQueue<Integer>(1));
+    }
+
+    static void test(BlockingQueue<Integer> q) throws Throwable {
+        check(q.remainingCapacity() == 1);
+        check(q.offer(1));
+        check(!q.offer(2));
+        check(q.size() == 1);
+        check(q.remainingCapacity() == 0);
+        check(q.poll() == 1);
+        check(q.poll() == null);
+        check(q.poll(10, TimeUnit.MILLISECONDS) == null);
+        for (int i = 0; i < 100; i++) {
+            check(q.offer(i));
+            check(!q.offer(-i - 1));
+            check(q.peek() == i);
+            check(q.poll() == i);
+            check(q.isEmpty());
+        }
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * @test
+ * @summary offerAll grows the heap array once to fit the whole batch.
+ */
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class OfferAllGrowth {
+    public static void main(String[] args) throws Throwable {
+        PriorityBlockingQueue<Integer> q = new PriorityBlockingQueue<>();
+        q.add(-1);
+        List<Integer> batch = new ArrayList<>();
+        for (int i = 1000; i > 0; i--)
+            batch.add(i);
+        check(q.offerAll(batch, 0, TimeUnit.SECONDS) == 1000);
+        Field f = PriorityBlockingQueue.class.getDeclaredField("queue");
+        f.setAccessible(true);
+        check(((Object[]) f.get(q)).length == 1001);
+        for (int i = -1; i <= 1000; i++)
+            if (i != 0)
+                check(q.poll() == i);
+        check(q.isEmpty());
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+}
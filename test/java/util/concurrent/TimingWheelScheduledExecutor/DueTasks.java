@@ -0,0 +1,44 @@
+/*
+ * @test
+ * @summary Tasks that are already due run at once, without waiting for
+ *          the next tick of the timing wheel.
+ */
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimingWheelScheduledExecutor;
+
+public class DueTasks {
+    static final long TICK_MILLIS = 5000;
+
+    public static void main(String[] args) throws Throwable {
+        TimingWheelScheduledExecutor executor =
+            new TimingWheelScheduledExecutor(1, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            for (long delay : new long[] { 0L, -10L, 0L, Long.MIN_VALUE }) {
+                CountDownLatch ran = new CountDownLatch(1);
+                long start = System.nanoTime();
+                executor.schedule(ran::countDown, delay, TimeUnit.MILLISECONDS);
+                check(ran.await(TICK_MILLIS / 4, TimeUnit.MILLISECONDS));
+                check(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS / 4));
+            }
+            Future<?> f = executor.submit(() -> { });
+            f.get(TICK_MILLIS / 4, TimeUnit.MILLISECONDS);
+
+            // A task that is not yet due still waits for its delay
+            CountDownLatch ran = new CountDownLatch(1);
+            long start = System.nanoTime();
+            executor.schedule(ran::countDown, 100, TimeUnit.MILLISECONDS);
+            ran.await();
+            check(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * @test
+ * @summary offer does not fail while a queue with room is only busy,
+ *          however often it finds the same full queue.
+ */
+
+import java.lang.reflect.Field;
+import java.util.concurrent.WorkStealingQueue;
+
+public class BusyQueue {
+    public static void main(String[] args) throws Throwable {
+        final WorkStealingQueue<Integer> q = new WorkStealingQueue<>(2, 1);
+        Field qf = WorkStealingQueue.class.getDeclaredField("queues");
+        qf.setAccessible(true);
+        Object[] qs = (Object[]) qf.get(q);
+        check(qs.length == 2);
+        Field lf = qs[1].getClass().getDeclaredField("qlock");
+        lf.setAccessible(true);
+
+        // Queue 1 is held busy, so this fills queue 0
+        lf.setInt(qs[1], 1);
+        check(q.offer(0));
+
+        final int[] result = { -1 };
+        Thread producer = new Thread() {
+            public void run() {
+                result[0] = q.offer(1) ? 1 : 0;
+            }
+        };
+        producer.start();
+        producer.join(500);
+        check(result[0] == -1);         // must still be waiting for queue 1
+        lf.setInt(qs[1], 0);
+        producer.join();
+        check(result[0] == 1);
+        check(q.size() == 2);
+        check(!q.offer(2));
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+}
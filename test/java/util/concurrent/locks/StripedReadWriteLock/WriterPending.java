@@ -0,0 +1,154 @@
+/*
+ * @test
+ * @summary Writers waiting for readers are woken by the last reader to
+ *          leave, are not starved by a stream of readers, and waiting
+ *          threads block rather than spin.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StripedReadWriteLock;
+
+public class WriterPending {
+    static final long LONG_DELAY_MS = 10000;
+
+    public static void main(String[] args) throws Throwable {
+        for (boolean fair : new boolean[] { false, true }) {
+            writerWokenByLastReader(fair);
+            writerQueuedBehindWriter(fair);
+            blockedReaderDoesNotSpin(fair);
+        }
+        writerNotStarved();
+    }
+
+    /** A writer waiting for readers acquires once they all leave. */
+    static void writerWokenByLastReader(boolean fair) throws Throwable {
+        for (int i = 0; i < 100; i++) {
+            StripedReadWriteLock lock = new StripedReadWriteLock(fair);
+            lock.readLock().lock();
+            Thread other = new Thread(() -> {
+                lock.readLock().lock();
+                lock.readLock().unlock();
+            });
+            other.start();
+            other.join();
+            Thread writer = new Thread(() -> {
+                lock.writeLock().lock();
+                lock.writeLock().unlock();
+            });
+            writer.start();
+            awaitQueued(lock, writer);
+            lock.readLock().unlock();
+            join(writer);
+        }
+    }
+
+    /**
+     * A writer that queued while another writer held the lock, and
+     * reached the front of the queue while a reader held it, is woken
+     * when the reader leaves.
+     */
+    static void writerQueuedBehindWriter(boolean fair) throws Throwable {
+        for (int i = 0; i < 100; i++) {
+            StripedReadWriteLock lock = new StripedReadWriteLock(fair);
+            CountDownLatch readerIn = new CountDownLatch(1);
+            CountDownLatch readerOut = new CountDownLatch(1);
+            lock.writeLock().lock();
+            Thread reader = new Thread(() -> {
+                lock.readLock().lock();
+                readerIn.countDown();
+                try {
+                    readerOut.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                lock.readLock().unlock();
+            });
+            reader.start();
+            awaitQueued(lock, reader);
+            Thread writer = new Thread(() -> {
+                lock.writeLock().lock();
+                lock.writeLock().unlock();
+            });
+            writer.start();
+            awaitQueued(lock, writer);
+            lock.writeLock().unlock();
+            check(readerIn.await(LONG_DELAY_MS, TimeUnit.MILLISECONDS));
+            readerOut.countDown();
+            join(reader);
+            join(writer);
+        }
+    }
+
+    /** A reader blocked by a writer parks instead of spinning. */
+    static void blockedReaderDoesNotSpin(boolean fair) throws Throwable {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        StripedReadWriteLock lock = new StripedReadWriteLock(fair);
+        lock.writeLock().lock();
+        Thread reader = new Thread(() -> {
+            lock.readLock().lock();
+            lock.readLock().unlock();
+        });
+        reader.start();
+        awaitQueued(lock, reader);
+        long cpu = threads.isThreadCpuTimeSupported() ?
+            threads.getThreadCpuTime(reader.getId()) : -1L;
+        Thread.sleep(500);
+        check(reader.getState() == Thread.State.WAITING);
+        if (cpu >= 0L) {
+            long used = threads.getThreadCpuTime(reader.getId()) - cpu;
+            check(used < TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        lock.writeLock().unlock();
+        join(reader);
+    }
+
+    /** A fair writer acquires while readers keep overlapping. */
+    static void writerNotStarved() throws Throwable {
+        StripedReadWriteLock lock = new StripedReadWriteLock(true);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                while (!done.get()) {
+                    lock.readLock().lock();
+                    Thread.yield();
+                    lock.readLock().unlock();
+                }
+            });
+            readers[i].start();
+        }
+        try {
+            for (int i = 0; i < 20; i++) {
+                check(lock.writeLock().tryLock(LONG_DELAY_MS, TimeUnit.MILLISECONDS));
+                lock.writeLock().unlock();
+            }
+        } finally {
+            done.set(true);
+        }
+        for (Thread t : readers)
+            join(t);
+    }
+
+    static void awaitQueued(StripedReadWriteLock lock, Thread t) throws Throwable {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LONG_DELAY_MS);
+        while (!lock.hasQueuedThreads() || t.getState() != Thread.State.WAITING) {
+            check(System.nanoTime() < deadline);
+            Thread.yield();
+        }
+    }
+
+    static void join(Thread t) throws Throwable {
+        t.join(LONG_DELAY_MS);
+        if (t.isAlive())
+            throw new AssertionError(t + " still waiting");
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+}
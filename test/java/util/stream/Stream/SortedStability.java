@@ -0,0 +1,45 @@
+/*
+ * @test
+ * @summary Parallel sorted() is stable on sized and unsized sources,
+ *          including sources made mostly of equal keys.
+ * @run main/othervm -XX:ActiveProcessorCount=4 SortedStability
+ */
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class SortedStability {
+    public static void main(String[] args) throws Throwable {
+        Random rnd = new Random(42);
+        for (int n : new int[] { 0, 1, 100, 40000, 300000 }) {
+            for (int keys : new int[] { 1, 3, 1000 }) {
+                int[][] data = new int[n][];
+                for (int i = 0; i < n; i++)
+                    data[i] = new int[] { rnd.nextInt(keys), i };
+                // Sized: collected into one flat array
+                check(Arrays.stream(data).parallel().sorted(BY_KEY)
+                      .collect(Collectors.toList()), n);
+                // Unsized: collected into a tree of leaves
+                check(Arrays.stream(data).parallel().filter(e -> true).sorted(BY_KEY)
+                      .collect(Collectors.toList()), n);
+                check(Arrays.asList(Arrays.stream(data).parallel().sorted(BY_KEY)
+                                    .toArray(int[][]::new)), n);
+            }
+        }
+    }
+
+    static final Comparator<int[]> BY_KEY = Comparator.comparingInt(e -> e[0]);
+
+    static void check(List<int[]> sorted, int n) {
+        if (sorted.size() != n)
+            throw new AssertionError("size " + sorted.size() + " != " + n);
+        for (int i = 1; i < n; i++) {
+            int[] a = sorted.get(i - 1), b = sorted.get(i);
+            if (a[0] > b[0] || (a[0] == b[0] && a[1] > b[1]))
+                throw new AssertionError("unstable or unsorted at " + i);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * @test
+ * @summary The default chunked() and slidingWindow() methods work on a
+ *          Stream implementation that is not a JDK pipeline.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+public class WindowDefaults {
+    public static void main(String[] args) throws Throwable {
+        check(collect(wrap(range(0, 7)).chunked(3))
+              .equals(Arrays.asList(range(0, 3), range(3, 6), range(6, 7))));
+        check(collect(wrap(range(0, 7)).slidingWindow(3, 2))
+              .equals(Arrays.asList(range(0, 3), range(2, 5), range(4, 7))));
+        check(collect(wrap(range(0, 2)).slidingWindow(3, 1)).isEmpty());
+        check(collect(wrap(Collections.<Integer>emptyList()).chunked(3)).isEmpty());
+
+        // Lazy on an infinite source
+        Stream<Integer> naturals = new Delegate<>(Stream.iterate(0, i -> i + 1));
+        check(naturals.chunked(2).limit(2).collect(Collectors.toList())
+              .equals(Arrays.asList(range(0, 2), range(2, 4))));
+
+        // Parallel, in encounter order
+        Stream<Integer> parallel = new Delegate<>(range(0, 10000).parallelStream());
+        List<List<Integer>> chunks = parallel.chunked(10).collect(Collectors.toList());
+        check(chunks.size() == 1000);
+        for (int i = 0; i < chunks.size(); i++)
+            check(chunks.get(i).equals(range(10 * i, 10 * i + 10)));
+        check(new Delegate<>(range(0, 100).parallelStream()).slidingWindow(5, 5)
+              .toArray().length == 20);
+
+        // Closing the windows closes the source
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<Integer> source = new Delegate<>(range(0, 3).stream().onClose(() -> closed.set(true)));
+        source.chunked(2).close();
+        check(closed.get());
+
+        for (int bad : new int[] { 0, -1 }) {
+            try {
+                wrap(range(0, 3)).chunked(bad);
+                throw new AssertionError("accepted " + bad);
+            } catch (IllegalArgumentException expected) {}
+            try {
+                wrap(range(0, 3)).slidingWindow(bad, 1);
+                throw new AssertionError("accepted " + bad);
+            } catch (IllegalArgumentException expected) {}
+            try {
+                wrap(range(0, 3)).slidingWindow(1, bad);
+                throw new AssertionError("accepted " + bad);
+            } catch (IllegalArgumentException expected) {}
+        }
+    }
+
+    static Stream<Integer> wrap(List<Integer> list) {
+        return new Delegate<>(list.stream());
+    }
+
+    static List<List<Integer>> collect(Stream<List<Integer>> s) {
+        return s.collect(Collectors.toList());
+    }
+
+    static List<Integer> range(int from, int to) {
+        Integer[] a = new Integer[to - from];
+        for (int i = from; i < to; i++)
+            a[i - from] = i;
+        return Arrays.asList(a);
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+
+    /**
+     * A Stream that is not a pipeline, implementing only the abstract
+     * methods by delegation.
+     */
+    static final class Delegate<T> implements Stream<T> {
+        final Stream<T> s;
+        Delegate(Stream<T> s) { this.s = s; }
+
+        public Iterator<T> iterator() { return s.iterator(); }
+        public Spliterator<T> spliterator() { return s.spliterator(); }
+        public boolean isParallel() { return s.isParallel(); }
+        public Stream<T> sequential() { return new Delegate<>(s.sequential()); }
+        public Stream<T> parallel() { return new Delegate<>(s.parallel()); }
+        public Stream<T> unordered() { return new Delegate<>(s.unordered()); }
+        public Stream<T> onClose(Runnable r) { return new Delegate<>(s.onClose(r)); }
+        public void close() { s.close(); }
+
+        public Stream<T> filter(Predicate<? super T> p) { return new Delegate<>(s.filter(p)); }
+        public <R> Stream<R> map(Function<? super T, ? extends R> f) { return new Delegate<>(s.map(f)); }
+        public IntStream mapToInt(ToIntFunction<? super T> f) { return s.mapToInt(f); }
+        public LongStream mapToLong(ToLongFunction<? super T> f) { return s.mapToLong(f); }
+        public DoubleStream mapToDouble(ToDoubleFunction<? super T> f) { return s.mapToDouble(f); }
+        public <R> Stream<R> flatMap(Function<? super T, ? extends Stream<? extends R>> f) {
+            return new Delegate<>(s.flatMap(f));
+        }
+        public IntStream flatMapToInt(Function<? super T, ? extends IntStream> f) { return s.flatMapToInt(f); }
+        public LongStream flatMapToLong(Function<? super T, ? extends LongStream> f) { return s.flatMapToLong(f); }
+        public DoubleStream flatMapToDouble(Function<? super T, ? extends DoubleStream> f) {
+            return s.flatMapToDouble(f);
+        }
+        public Stream<T> distinct() { return new Delegate<>(s.distinct()); }
+        public Stream<T> sorted() { return new Delegate<>(s.sorted()); }
+        public Stream<T> sorted(Comparator<? super T> c) { return new Delegate<>(s.sorted(c)); }
+        public Stream<T> peek(Consumer<? super T> a) { return new Delegate<>(s.peek(a)); }
+        public Stream<T> limit(long n) { return new Delegate<>(s.limit(n)); }
+        public Stream<T> skip(long n) { return new Delegate<>(s.skip(n)); }
+        public void forEach(Consumer<? super T> a) { s.forEach(a); }
+        public void forEachOrdered(Consumer<? super T> a) { s.forEachOrdered(a); }
+        public Object[] toArray() { return s.toArray(); }
+        public <A> A[] toArray(IntFunction<A[]> g) { return s.toArray(g); }
+        public T reduce(T identity, BinaryOperator<T> op) { return s.reduce(identity, op); }
+        public Optional<T> reduce(BinaryOperator<T> op) { return s.reduce(op); }
+        public <U> U reduce(U identity, BiFunction<U, ? super T, U> acc, BinaryOperator<U> comb) {
+            return s.reduce(identity, acc, comb);
+        }
+        public <R> R collect(Supplier<R> sup, BiConsumer<R, ? super T> acc, BiConsumer<R, R> comb) {
+            return s.collect(sup, acc, comb);
+        }
+        public <R, A> R collect(Collector<? super T, A, R> c) { return s.collect(c); }
+        public Optional<T> min(Comparator<? super T> c) { return s.min(c); }
+        public Optional<T> max(Comparator<? super T> c) { return s.max(c); }
+        public long count() { return s.count(); }
+        public boolean anyMatch(Predicate<? super T> p) { return s.anyMatch(p); }
+        public boolean allMatch(Predicate<? super T> p) { return s.allMatch(p); }
+        public boolean noneMatch(Predicate<? super T> p) { return s.noneMatch(p); }
+        public Optional<T> findFirst() { return s.findFirst(); }
+        public Optional<T> findAny() { return s.findAny(); }
+    }
+}
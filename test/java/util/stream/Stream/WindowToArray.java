@@ -0,0 +1,63 @@
+/*
+ * @test
+ * @summary Parallel chunked() and slidingWindow() streams collect into
+ *          arrays from toArray() and toArray(List[]::new).
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class WindowToArray {
+    public static void main(String[] args) throws Throwable {
+        for (int n : new int[] { 0, 1, 10, 1000, 100000 }) {
+            // Sized, and unsized through filter
+            test(n, () -> IntStream.range(0, n).boxed().parallel());
+            test(n, () -> IntStream.range(0, n).boxed().parallel().filter(i -> true));
+        }
+    }
+
+    interface Source {
+        Stream<Integer> get();
+    }
+
+    @SuppressWarnings("unchecked")
+    static void test(int n, Source source) {
+        Object[] chunks = source.get().chunked(3).toArray();
+        checkChunks(n, chunks);
+        List<Integer>[] typedChunks = source.get().chunked(3).toArray(List[]::new);
+        checkChunks(n, typedChunks);
+
+        Object[] windows = source.get().slidingWindow(3, 2).toArray();
+        checkWindows(n, windows);
+        List<Integer>[] typedWindows = source.get().slidingWindow(3, 2).toArray(List[]::new);
+        checkWindows(n, typedWindows);
+    }
+
+    static void checkChunks(int n, Object[] chunks) {
+        check(chunks.length == (n + 2) / 3);
+        for (int i = 0; i < chunks.length; i++) {
+            int from = 3 * i, to = Math.min(n, from + 3);
+            check(chunks[i].equals(range(from, to)));
+        }
+    }
+
+    static void checkWindows(int n, Object[] windows) {
+        check(windows.length == ((n < 3) ? 0 : (n - 3) / 2 + 1));
+        for (int i = 0; i < windows.length; i++)
+            check(windows[i].equals(range(2 * i, 2 * i + 3)));
+    }
+
+    static List<Integer> range(int from, int to) {
+        Integer[] a = new Integer[to - from];
+        for (int i = from; i < to; i++)
+            a[i - from] = i;
+        return Arrays.asList(a);
+    }
+
+    static void check(boolean cond) {
+        if (!cond)
+            throw new AssertionError();
+    }
+}